@@ -0,0 +1,88 @@
+/*
+ * Copyright 2014-2015 MbientLab Inc. All rights reserved.
+ *
+ * IMPORTANT: Your use of this Software is limited to those specific rights granted under the terms of a software
+ * license agreement between the user who downloaded the software, his/her employer (which must be your
+ * employer) and MbientLab Inc, (the "License").  You may not use this Software unless you agree to abide by the
+ * terms of the License which can be found at www.mbientlab.com/terms.  The License limits your use, and you
+ * acknowledge, that the Software may be modified, copied, and distributed when used in conjunction with an
+ * MbientLab Inc, product.  Other than for the foregoing purpose, you may not use, reproduce, copy, prepare
+ * derivative works of, modify, distribute, perform, display or sell this Software and/or its documentation for any
+ * purpose.
+ *
+ * YOU FURTHER ACKNOWLEDGE AND AGREE THAT THE SOFTWARE AND DOCUMENTATION ARE PROVIDED "AS IS" WITHOUT WARRANTY
+ * OF ANY KIND, EITHER EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION, ANY WARRANTY OF MERCHANTABILITY, TITLE,
+ * NON-INFRINGEMENT AND FITNESS FOR A PARTICULAR PURPOSE. IN NO EVENT SHALL MBIENTLAB OR ITS LICENSORS BE LIABLE OR
+ * OBLIGATED UNDER CONTRACT, NEGLIGENCE, STRICT LIABILITY, CONTRIBUTION, BREACH OF WARRANTY, OR OTHER LEGAL EQUITABLE
+ * THEORY ANY DIRECT OR INDIRECT DAMAGES OR EXPENSES INCLUDING BUT NOT LIMITED TO ANY INCIDENTAL, SPECIAL, INDIRECT,
+ * PUNITIVE OR CONSEQUENTIAL DAMAGES, LOST PROFITS OR LOST DATA, COST OF PROCUREMENT OF SUBSTITUTE GOODS, TECHNOLOGY,
+ * SERVICES, OR ANY CLAIMS BY THIRD PARTIES (INCLUDING BUT NOT LIMITED TO ANY DEFENSE THEREOF), OR OTHER SIMILAR COSTS.
+ *
+ * Should you have any questions regarding your right to use this Software, contact MbientLab via email:
+ * hello@mbientlab.com.
+ */
+
+
+package com.mbientlab.metawear.impl;
+
+import com.mbientlab.metawear.impl.platform.BtleGattCharacteristic;
+import com.mbientlab.metawear.impl.platform.InMemoryIO;
+import com.mbientlab.metawear.impl.platform.SimulatedBoard;
+
+import java.lang.reflect.Field;
+
+import bolts.Task;
+
+/**
+ * Simulated board that handles writes immediately so benchmarks measure the API rather than the link.  Benchmarks can
+ * also hand notifications straight to the API with {@link #deliver(byte[])}, which dispatches on the calling thread.
+ */
+class BenchmarkBoard extends SimulatedBoard {
+    /**
+     * Creates a board and connects it through the simulated GATT layer
+     * @param gatt    GATT layer to use
+     * @return Connected board
+     */
+    static JseMetaWearBoard connect(BenchmarkBoard gatt) throws Exception {
+        JseMetaWearBoard board = new JseMetaWearBoard(gatt, new InMemoryIO(), "CB:B7:49:BF:27:33", "bench");
+        await(board.connectAsync());
+        return board;
+    }
+
+    /**
+     * Retrieves the board's internal bridge, used to call package private APIs directly
+     */
+    static MetaWearBoardPrivate bridge(JseMetaWearBoard board) throws Exception {
+        Field field = JseMetaWearBoard.class.getDeclaredField("mwPrivate");
+        field.setAccessible(true);
+        return (MetaWearBoardPrivate) field.get(board);
+    }
+
+    static <T> T await(Task<T> task) throws Exception {
+        task.waitForCompletion();
+        if (task.isFaulted()) {
+            throw task.getError();
+        }
+        return task.getResult();
+    }
+
+    private volatile NotificationListener listener;
+
+    BenchmarkBoard() {
+        immediateWrites(true);
+    }
+
+    /**
+     * Sends a notification to the API on the calling thread
+     * @param value    Notification value
+     */
+    void deliver(byte[] value) {
+        listener.onChange(value);
+    }
+
+    @Override
+    public Task<Void> enableNotificationsAsync(BtleGattCharacteristic characteristic, NotificationListener listener) {
+        this.listener = listener;
+        return super.enableNotificationsAsync(characteristic, listener);
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2014-2015 MbientLab Inc. All rights reserved.
+ *
+ * IMPORTANT: Your use of this Software is limited to those specific rights granted under the terms of a software
+ * license agreement between the user who downloaded the software, his/her employer (which must be your
+ * employer) and MbientLab Inc, (the "License").  You may not use this Software unless you agree to abide by the
+ * terms of the License which can be found at www.mbientlab.com/terms.  The License limits your use, and you
+ * acknowledge, that the Software may be modified, copied, and distributed when used in conjunction with an
+ * MbientLab Inc, product.  Other than for the foregoing purpose, you may not use, reproduce, copy, prepare
+ * derivative works of, modify, distribute, perform, display or sell this Software and/or its documentation for any
+ * purpose.
+ *
+ * YOU FURTHER ACKNOWLEDGE AND AGREE THAT THE SOFTWARE AND DOCUMENTATION ARE PROVIDED "AS IS" WITHOUT WARRANTY
+ * OF ANY KIND, EITHER EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION, ANY WARRANTY OF MERCHANTABILITY, TITLE,
+ * NON-INFRINGEMENT AND FITNESS FOR A PARTICULAR PURPOSE. IN NO EVENT SHALL MBIENTLAB OR ITS LICENSORS BE LIABLE OR
+ * OBLIGATED UNDER CONTRACT, NEGLIGENCE, STRICT LIABILITY, CONTRIBUTION, BREACH OF WARRANTY, OR OTHER LEGAL EQUITABLE
+ * THEORY ANY DIRECT OR INDIRECT DAMAGES OR EXPENSES INCLUDING BUT NOT LIMITED TO ANY INCIDENTAL, SPECIAL, INDIRECT,
+ * PUNITIVE OR CONSEQUENTIAL DAMAGES, LOST PROFITS OR LOST DATA, COST OF PROCUREMENT OF SUBSTITUTE GOODS, TECHNOLOGY,
+ * SERVICES, OR ANY CLAIMS BY THIRD PARTIES (INCLUDING BUT NOT LIMITED TO ANY DEFENSE THEREOF), OR OTHER SIMILAR COSTS.
+ *
+ * Should you have any questions regarding your right to use this Software, contact MbientLab via email:
+ * hello@mbientlab.com.
+ */
+
+package com.mbientlab.metawear.impl;
+
+import com.mbientlab.metawear.Data;
+import com.mbientlab.metawear.module.SerialPassthrough;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Calendar;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures converting raw bytes into a {@link Data} object and its value, for each family of data types
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CreateMessageBenchmark {
+    @Param({"BoschAccCartesianFloatData", "BoschAccSFloatData", "BoschGyrCartesianFloatData", "Bmm150CartesianFloatData",
+            "BoschPressureUFloatData", "BoschAltitudeSFloatData", "TempSFloatData", "MilliUnitsUFloatData", "UintData",
+            "BatteryStateData", "BoschOrientationData", "QuaternionData", "EulerAngleData", "AccelerationData",
+            "CorrectedAccelerationData", "SerialPassthroughData"})
+    public String family;
+
+    private MetaWearBoardPrivate mwPrivate;
+    private DataTypeBase type;
+    private byte[] value;
+    private Calendar timestamp;
+
+    @Setup
+    public void setup() throws Exception {
+        JseMetaWearBoard board = BenchmarkBoard.connect(new BenchmarkBoard());
+        board.getModule(SerialPassthrough.class).i2c((byte) 4, (byte) 0);
+        mwPrivate = BenchmarkBoard.bridge(board);
+
+        // Packed and split variants share a class, pick the plain one
+        for(DataTypeBase it: mwPrivate.getDataTypes()) {
+            if (it.getClass().getSimpleName().equals(family) && (type == null || it.attributes.length() < type.attributes.length())) {
+                type = it;
+            }
+        }
+        if (type == null) {
+            throw new IllegalArgumentException("No data type in the " + family + " family");
+        }
+
+        value = new byte[type.attributes.offset + type.attributes.length()];
+        // Small values keep enum fields, e.g. the fusion accuracy byte, in range
+        for(int i = 0; i < value.length; i++) {
+            value[i] = (byte) (i % 4);
+        }
+        timestamp = Calendar.getInstance();
+    }
+
+    @Benchmark
+    public Object createMessage() {
+        Data data = type.createMessage(false, mwPrivate, value, timestamp, null);
+        return data.value(data.types()[0]);
+    }
+}
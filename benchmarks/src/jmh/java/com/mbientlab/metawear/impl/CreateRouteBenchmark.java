@@ -0,0 +1,86 @@
+/*
+ * Copyright 2014-2015 MbientLab Inc. All rights reserved.
+ *
+ * IMPORTANT: Your use of this Software is limited to those specific rights granted under the terms of a software
+ * license agreement between the user who downloaded the software, his/her employer (which must be your
+ * employer) and MbientLab Inc, (the "License").  You may not use this Software unless you agree to abide by the
+ * terms of the License which can be found at www.mbientlab.com/terms.  The License limits your use, and you
+ * acknowledge, that the Software may be modified, copied, and distributed when used in conjunction with an
+ * MbientLab Inc, product.  Other than for the foregoing purpose, you may not use, reproduce, copy, prepare
+ * derivative works of, modify, distribute, perform, display or sell this Software and/or its documentation for any
+ * purpose.
+ *
+ * YOU FURTHER ACKNOWLEDGE AND AGREE THAT THE SOFTWARE AND DOCUMENTATION ARE PROVIDED "AS IS" WITHOUT WARRANTY
+ * OF ANY KIND, EITHER EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION, ANY WARRANTY OF MERCHANTABILITY, TITLE,
+ * NON-INFRINGEMENT AND FITNESS FOR A PARTICULAR PURPOSE. IN NO EVENT SHALL MBIENTLAB OR ITS LICENSORS BE LIABLE OR
+ * OBLIGATED UNDER CONTRACT, NEGLIGENCE, STRICT LIABILITY, CONTRIBUTION, BREACH OF WARRANTY, OR OTHER LEGAL EQUITABLE
+ * THEORY ANY DIRECT OR INDIRECT DAMAGES OR EXPENSES INCLUDING BUT NOT LIMITED TO ANY INCIDENTAL, SPECIAL, INDIRECT,
+ * PUNITIVE OR CONSEQUENTIAL DAMAGES, LOST PROFITS OR LOST DATA, COST OF PROCUREMENT OF SUBSTITUTE GOODS, TECHNOLOGY,
+ * SERVICES, OR ANY CLAIMS BY THIRD PARTIES (INCLUDING BUT NOT LIMITED TO ANY DEFENSE THEREOF), OR OTHER SIMILAR COSTS.
+ *
+ * Should you have any questions regarding your right to use this Software, contact MbientLab via email:
+ * hello@mbientlab.com.
+ */
+
+package com.mbientlab.metawear.impl;
+
+import com.mbientlab.metawear.Route;
+import com.mbientlab.metawear.module.Accelerometer;
+import com.mbientlab.metawear.module.Switch;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+import bolts.Task;
+
+/**
+ * Measures creating and removing a route end to end against a simulated board, including the round trip to the
+ * simulated board's thread for each allocated id
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CreateRouteBenchmark {
+    @Param({"stream", "processor", "logger"})
+    public String route;
+
+    private Accelerometer accelerometer;
+    private Switch mwSwitch;
+
+    @Setup
+    public void setup() throws Exception {
+        JseMetaWearBoard board = BenchmarkBoard.connect(new BenchmarkBoard());
+        accelerometer = board.getModule(Accelerometer.class);
+        mwSwitch = board.getModule(Switch.class);
+    }
+
+    @Benchmark
+    public Route createRoute() throws Exception {
+        Task<Route> task;
+        switch(route) {
+            case "stream":
+                task = accelerometer.acceleration().addRouteAsync(source -> source.stream(null));
+                break;
+            case "processor":
+                task = mwSwitch.state().addRouteAsync(source -> source.count().stream(null));
+                break;
+            case "logger":
+                task = accelerometer.acceleration().addRouteAsync(source -> source.log(null));
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown route: " + route);
+        }
+
+        Route result = BenchmarkBoard.await(task);
+        result.remove();
+        return result;
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2014-2015 MbientLab Inc. All rights reserved.
+ *
+ * IMPORTANT: Your use of this Software is limited to those specific rights granted under the terms of a software
+ * license agreement between the user who downloaded the software, his/her employer (which must be your
+ * employer) and MbientLab Inc, (the "License").  You may not use this Software unless you agree to abide by the
+ * terms of the License which can be found at www.mbientlab.com/terms.  The License limits your use, and you
+ * acknowledge, that the Software may be modified, copied, and distributed when used in conjunction with an
+ * MbientLab Inc, product.  Other than for the foregoing purpose, you may not use, reproduce, copy, prepare
+ * derivative works of, modify, distribute, perform, display or sell this Software and/or its documentation for any
+ * purpose.
+ *
+ * YOU FURTHER ACKNOWLEDGE AND AGREE THAT THE SOFTWARE AND DOCUMENTATION ARE PROVIDED "AS IS" WITHOUT WARRANTY
+ * OF ANY KIND, EITHER EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION, ANY WARRANTY OF MERCHANTABILITY, TITLE,
+ * NON-INFRINGEMENT AND FITNESS FOR A PARTICULAR PURPOSE. IN NO EVENT SHALL MBIENTLAB OR ITS LICENSORS BE LIABLE OR
+ * OBLIGATED UNDER CONTRACT, NEGLIGENCE, STRICT LIABILITY, CONTRIBUTION, BREACH OF WARRANTY, OR OTHER LEGAL EQUITABLE
+ * THEORY ANY DIRECT OR INDIRECT DAMAGES OR EXPENSES INCLUDING BUT NOT LIMITED TO ANY INCIDENTAL, SPECIAL, INDIRECT,
+ * PUNITIVE OR CONSEQUENTIAL DAMAGES, LOST PROFITS OR LOST DATA, COST OF PROCUREMENT OF SUBSTITUTE GOODS, TECHNOLOGY,
+ * SERVICES, OR ANY CLAIMS BY THIRD PARTIES (INCLUDING BUT NOT LIMITED TO ANY DEFENSE THEREOF), OR OTHER SIMILAR COSTS.
+ *
+ * Should you have any questions regarding your right to use this Software, contact MbientLab via email:
+ * hello@mbientlab.com.
+ */
+
+package com.mbientlab.metawear.impl;
+
+import com.mbientlab.metawear.Subscriber;
+import com.mbientlab.metawear.module.Accelerometer;
+import com.mbientlab.metawear.module.GyroBmi160;
+import com.mbientlab.metawear.module.SensorFusionBosch;
+import com.mbientlab.metawear.module.Switch;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of handling one notification, from the GATT callback to the route's subscriber
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DispatchBenchmark {
+    @Param({"acceleration", "packed-acceleration", "angular-velocity", "quaternion", "processor"})
+    public String packet;
+
+    private BenchmarkBoard gatt;
+    private byte[] value;
+
+    @Setup
+    public void setup(final Blackhole blackhole) throws Exception {
+        gatt = new BenchmarkBoard();
+        JseMetaWearBoard board = BenchmarkBoard.connect(gatt);
+        Subscriber subscriber = (data, env) -> blackhole.consume(data.value(data.types()[0]));
+
+        switch(packet) {
+            case "acceleration":
+                BenchmarkBoard.await(board.getModule(Accelerometer.class).acceleration().addRouteAsync(source -> source.stream(subscriber)));
+                value = new byte[] {0x03, 0x04, 0x16, (byte) 0xc4, (byte) 0x94, (byte) 0xa2, 0x2a, (byte) 0xd0};
+                break;
+            case "packed-acceleration":
+                BenchmarkBoard.await(board.getModule(Accelerometer.class).packedAcceleration().addRouteAsync(source -> source.stream(subscriber)));
+                value = new byte[] {0x03, 0x1c,
+                        0x16, (byte) 0xc4, (byte) 0x94, (byte) 0xa2, 0x2a, (byte) 0xd0,
+                        0x17, (byte) 0xc4, (byte) 0x95, (byte) 0xa2, 0x2b, (byte) 0xd0,
+                        0x18, (byte) 0xc4, (byte) 0x96, (byte) 0xa2, 0x2c, (byte) 0xd0};
+                break;
+            case "angular-velocity":
+                BenchmarkBoard.await(board.getModule(GyroBmi160.class).angularVelocity().addRouteAsync(source -> source.stream(subscriber)));
+                value = new byte[] {0x13, 0x05, 0x3e, 0x43, (byte) 0xff, 0x7f, 0x00, (byte) 0x80};
+                break;
+            case "quaternion":
+                BenchmarkBoard.await(board.getModule(SensorFusionBosch.class).quaternion().addRouteAsync(source -> source.stream(subscriber)));
+                value = new byte[] {0x19, 0x07, (byte) 0xa5, 0x68, 0x76, 0x3f, 0x2b, (byte) 0x9a, 0x2e, 0x3e,
+                        0x40, (byte) 0xb4, 0x3e, 0x3e, 0x49, 0x44, (byte) 0x81, 0x3d};
+                break;
+            case "processor":
+                BenchmarkBoard.await(board.getModule(Switch.class).state().addRouteAsync(source -> source.count().stream(subscriber)));
+                value = new byte[] {0x09, 0x03, 0x00, 0x05};
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown packet type: " + packet);
+        }
+    }
+
+    @Benchmark
+    public void dispatch() {
+        gatt.deliver(value);
+    }
+}
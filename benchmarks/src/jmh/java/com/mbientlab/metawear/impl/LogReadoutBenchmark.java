@@ -0,0 +1,95 @@
+/*
+ * Copyright 2014-2015 MbientLab Inc. All rights reserved.
+ *
+ * IMPORTANT: Your use of this Software is limited to those specific rights granted under the terms of a software
+ * license agreement between the user who downloaded the software, his/her employer (which must be your
+ * employer) and MbientLab Inc, (the "License").  You may not use this Software unless you agree to abide by the
+ * terms of the License which can be found at www.mbientlab.com/terms.  The License limits your use, and you
+ * acknowledge, that the Software may be modified, copied, and distributed when used in conjunction with an
+ * MbientLab Inc, product.  Other than for the foregoing purpose, you may not use, reproduce, copy, prepare
+ * derivative works of, modify, distribute, perform, display or sell this Software and/or its documentation for any
+ * purpose.
+ *
+ * YOU FURTHER ACKNOWLEDGE AND AGREE THAT THE SOFTWARE AND DOCUMENTATION ARE PROVIDED "AS IS" WITHOUT WARRANTY
+ * OF ANY KIND, EITHER EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION, ANY WARRANTY OF MERCHANTABILITY, TITLE,
+ * NON-INFRINGEMENT AND FITNESS FOR A PARTICULAR PURPOSE. IN NO EVENT SHALL MBIENTLAB OR ITS LICENSORS BE LIABLE OR
+ * OBLIGATED UNDER CONTRACT, NEGLIGENCE, STRICT LIABILITY, CONTRIBUTION, BREACH OF WARRANTY, OR OTHER LEGAL EQUITABLE
+ * THEORY ANY DIRECT OR INDIRECT DAMAGES OR EXPENSES INCLUDING BUT NOT LIMITED TO ANY INCIDENTAL, SPECIAL, INDIRECT,
+ * PUNITIVE OR CONSEQUENTIAL DAMAGES, LOST PROFITS OR LOST DATA, COST OF PROCUREMENT OF SUBSTITUTE GOODS, TECHNOLOGY,
+ * SERVICES, OR ANY CLAIMS BY THIRD PARTIES (INCLUDING BUT NOT LIMITED TO ANY DEFENSE THEREOF), OR OTHER SIMILAR COSTS.
+ *
+ * Should you have any questions regarding your right to use this Software, contact MbientLab via email:
+ * hello@mbientlab.com.
+ */
+
+package com.mbientlab.metawear.impl;
+
+import com.mbientlab.metawear.Subscriber;
+import com.mbientlab.metawear.module.Accelerometer;
+import com.mbientlab.metawear.module.SensorFusionBosch;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures decoding log readout notifications into one sample, including merging entries from multiple logger ids
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LogReadoutBenchmark {
+    @Param({"acceleration", "quaternion"})
+    public String logger;
+
+    private BenchmarkBoard gatt;
+    private byte[][] packets;
+
+    @Setup
+    public void setup(final Blackhole blackhole) throws Exception {
+        gatt = new BenchmarkBoard();
+        JseMetaWearBoard board = BenchmarkBoard.connect(gatt);
+        Subscriber subscriber = (data, env) -> blackhole.consume(data.value(data.types()[0]));
+
+        switch(logger) {
+            case "acceleration":
+                // 6 bytes of data split between 2 logger ids
+                BenchmarkBoard.await(board.getModule(Accelerometer.class).acceleration().addRouteAsync(source -> source.log(subscriber)));
+                packets = new byte[][] {
+                        {0x0b, 0x07,
+                                0x00, (byte) 0xdf, 0x03, 0x00, 0x00, 0x16, (byte) 0xc4, (byte) 0x94, (byte) 0xa2,
+                                0x01, (byte) 0xdf, 0x03, 0x00, 0x00, 0x2a, (byte) 0xd0, 0x00, 0x00}
+                };
+                break;
+            case "quaternion":
+                // 16 bytes of data split between 4 logger ids
+                BenchmarkBoard.await(board.getModule(SensorFusionBosch.class).quaternion().addRouteAsync(source -> source.log(subscriber)));
+                packets = new byte[][] {
+                        {0x0b, 0x07,
+                                0x00, (byte) 0xdf, 0x03, 0x00, 0x00, (byte) 0xa5, 0x68, 0x76, 0x3f,
+                                0x01, (byte) 0xdf, 0x03, 0x00, 0x00, 0x2b, (byte) 0x9a, 0x2e, 0x3e},
+                        {0x0b, 0x07,
+                                0x02, (byte) 0xdf, 0x03, 0x00, 0x00, 0x40, (byte) 0xb4, 0x3e, 0x3e,
+                                0x03, (byte) 0xdf, 0x03, 0x00, 0x00, 0x49, 0x44, (byte) 0x81, 0x3d}
+                };
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown logger: " + logger);
+        }
+    }
+
+    @Benchmark
+    public void readout() {
+        for(byte[] it: packets) {
+            gatt.deliver(it);
+        }
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2014-2015 MbientLab Inc. All rights reserved.
+ *
+ * IMPORTANT: Your use of this Software is limited to those specific rights granted under the terms of a software
+ * license agreement between the user who downloaded the software, his/her employer (which must be your
+ * employer) and MbientLab Inc, (the "License").  You may not use this Software unless you agree to abide by the
+ * terms of the License which can be found at www.mbientlab.com/terms.  The License limits your use, and you
+ * acknowledge, that the Software may be modified, copied, and distributed when used in conjunction with an
+ * MbientLab Inc, product.  Other than for the foregoing purpose, you may not use, reproduce, copy, prepare
+ * derivative works of, modify, distribute, perform, display or sell this Software and/or its documentation for any
+ * purpose.
+ *
+ * YOU FURTHER ACKNOWLEDGE AND AGREE THAT THE SOFTWARE AND DOCUMENTATION ARE PROVIDED "AS IS" WITHOUT WARRANTY
+ * OF ANY KIND, EITHER EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION, ANY WARRANTY OF MERCHANTABILITY, TITLE,
+ * NON-INFRINGEMENT AND FITNESS FOR A PARTICULAR PURPOSE. IN NO EVENT SHALL MBIENTLAB OR ITS LICENSORS BE LIABLE OR
+ * OBLIGATED UNDER CONTRACT, NEGLIGENCE, STRICT LIABILITY, CONTRIBUTION, BREACH OF WARRANTY, OR OTHER LEGAL EQUITABLE
+ * THEORY ANY DIRECT OR INDIRECT DAMAGES OR EXPENSES INCLUDING BUT NOT LIMITED TO ANY INCIDENTAL, SPECIAL, INDIRECT,
+ * PUNITIVE OR CONSEQUENTIAL DAMAGES, LOST PROFITS OR LOST DATA, COST OF PROCUREMENT OF SUBSTITUTE GOODS, TECHNOLOGY,
+ * SERVICES, OR ANY CLAIMS BY THIRD PARTIES (INCLUDING BUT NOT LIMITED TO ANY DEFENSE THEREOF), OR OTHER SIMILAR COSTS.
+ *
+ * Should you have any questions regarding your right to use this Software, contact MbientLab via email:
+ * hello@mbientlab.com.
+ */
+
+package com.mbientlab.metawear;
+
+import com.mbientlab.metawear.module.Settings.BleConnectionParameters;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import bolts.Task;
+
+/**
+ * Estimates how much of the BLE link the streamed routes consume.  The planner combines the size of each
+ * streamed packet, the producer's sample rate, and the connection interval to approximate how many
+ * notifications per second the board sends, and checks new routes against that budget before they are committed.
+ */
+public interface LinkBudget {
+    /**
+     * Actions to take when a new route exceeds the link budget
+     */
+    enum Policy {
+        /** Do not check new routes */
+        IGNORE,
+        /** Log a warning and create the route anyway */
+        WARN,
+        /** Fail the route with an {@link IllegalRouteOperationException} */
+        FAIL
+    }
+    /**
+     * Targets for the connection parameter tuner
+     */
+    enum TuningGoal {
+        /** Use the shortest connection interval that keeps the link stable */
+        THROUGHPUT,
+        /** Use the longest connection interval that still carries the streamed routes */
+        POWER
+    }
+
+    /**
+     * Estimated link usage of one streamed data producer
+     */
+    final class Stream {
+        /** String identifying the data producer */
+        public final String identifier;
+        /** Samples per second the producer generates, negative if the rate cannot be determined */
+        public final float sampleRate;
+        /** Notifications per second sent over the link */
+        public final float notificationRate;
+        /** Bytes per second sent over the link, including the notification header */
+        public final float bytesPerSecond;
+        /** Suggested change to bring the stream within its share of the link, null if no change is needed */
+        public final String suggestion;
+
+        public Stream(String identifier, float sampleRate, float notificationRate, float bytesPerSecond, String suggestion) {
+            this.identifier = identifier;
+            this.sampleRate = sampleRate;
+            this.notificationRate = notificationRate;
+            this.bytesPerSecond = bytesPerSecond;
+            this.suggestion = suggestion;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "{identifier: %s, sample rate: %.3fHz, notifications: %.3f/s, throughput: %.3fB/s%s}",
+                    identifier, sampleRate, notificationRate, bytesPerSecond, suggestion == null ? "" : ", suggestion: " + suggestion);
+        }
+    }
+
+    /**
+     * Summary of the estimated link usage
+     */
+    final class Report {
+        /** Connection interval used for the estimate, in milliseconds (ms) */
+        public final float connectionInterval;
+        /** Notifications per second the link can carry */
+        public final float capacity;
+        /** Total notifications per second of all streams */
+        public final float notificationRate;
+        /** Total bytes per second of all streams */
+        public final float bytesPerSecond;
+        /** Breakdown of the individual streams */
+        public final List<Stream> streams;
+
+        public Report(float connectionInterval, float capacity, float notificationRate, float bytesPerSecond, List<Stream> streams) {
+            this.connectionInterval = connectionInterval;
+            this.capacity = capacity;
+            this.notificationRate = notificationRate;
+            this.bytesPerSecond = bytesPerSecond;
+            this.streams = Collections.unmodifiableList(streams);
+        }
+
+        /**
+         * Checks if the streams fit in the link budget
+         * @return True if the link can carry the streams, also true if the connection interval is not known
+         */
+        public boolean fits() {
+            return capacity <= 0 || notificationRate <= capacity;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "{connection interval: %.2fms, capacity: %.3f/s, notifications: %.3f/s, throughput: %.3fB/s, streams: %s}",
+                    connectionInterval, capacity, notificationRate, bytesPerSecond, streams);
+        }
+    }
+
+    /**
+     * Sets how new routes are checked against the link budget.  Defaults to {@link Policy#WARN}
+     * @param policy    New policy
+     */
+    void policy(Policy policy);
+    /**
+     * Sets how many notifications the central device accepts per connection event.  This value is determined
+     * by the host's Bluetooth stack; defaults to 4
+     * @param packets    Notifications per connection event
+     */
+    void packetsPerInterval(int packets);
+    /**
+     * Manually sets the connection interval used for the estimates.  New routes are not checked until
+     * the interval is known, either from this function or {@link #updateAsync()}
+     * @param interval    Connection interval, in milliseconds (ms)
+     */
+    void connectionInterval(float interval);
+    /**
+     * Sets the sample rate of a data producer whose rate cannot be derived from its module's configuration,
+     * such as a producer read by a timer
+     * @param producer    Data producer to set
+     * @param frequency   Sample rate in Hz
+     */
+    void sampleRate(DataProducer producer, float frequency);
+    /**
+     * Enables automatic packing for new routes.  Routes that stream a producer directly, without processors, are switched
+     * to the producer's packed variant if its configured sample rate is at or above the threshold.  Subscribers still receive
+     * one {@link Data} object per sample.  The check is done when the route is created; existing routes are not changed
+     * @param threshold    Sample rate in Hz at which streams are packed, 400Hz is a sensible value.  Set to a non-positive
+     *                     value to disable, which is the default
+     */
+    void autoPack(float threshold);
+    /**
+     * Reads the connection parameters from the board and uses the max connection interval for the estimates
+     * @return Task holding the estimate for the active routes
+     */
+    Task<Report> updateAsync();
+    /**
+     * Estimates the link usage of the active routes
+     * @return Estimate for the active routes
+     */
+    Report estimate();
+    /**
+     * Searches for connection parameters suited to the active routes.  Each candidate interval is written to the board
+     * and held for the measurement window, during which the notification rate and a register read round trip are measured.
+     * A candidate is accepted if the round trip completes within a few connection events and the measured rate
+     * keeps up with the estimated rate of the streams.  The accepted parameters are saved locally and can be
+     * reapplied on later connections with {@link #restoreTunedAsync()}.  The slave latency and supervision timeout
+     * are kept from the board's current parameters.
+     * @param goal      Whether to favor throughput or power consumption
+     * @param window    How long to measure each candidate, in milliseconds (ms)
+     * @return Task holding the chosen parameters, faulted with an {@link IllegalStateException} if no candidate was stable,
+     * in which case the original parameters are restored
+     */
+    Task<BleConnectionParameters> tuneAsync(TuningGoal goal, long window);
+    /**
+     * Writes the parameters saved by {@link #tuneAsync(TuningGoal, long)} to the board
+     * @return Task holding the restored parameters, null if none have been saved
+     */
+    Task<BleConnectionParameters> restoreTunedAsync();
+}
@@ -241,6 +241,12 @@ public interface MetaWearBoard {
      * @return Observer corresponding to the specified ID, null if none can be found
      */
     Observer lookupObserver(int id);
+    /**
+     * Retrieves the link budget planner, which estimates how much of the BLE link the streamed routes use
+     * and checks new routes against the connection interval
+     * @return Link budget planner for this board
+     */
+    LinkBudget getLinkBudget();
 
     /**
      * Removes all routes and resources allocated on the board (observers, data processors, timers, and loggers)
@@ -87,6 +87,15 @@ public interface RouteComponent {
      * @see DataProcessor#state(String)
      */
     RouteComponent name(String name);
+    /**
+     * Runs the data processors added after this component on the local device instead of the board.  Host processors
+     * behave the same as their on-board counterparts but do not use any of the board's limited processor slots.  Their
+     * output can only be streamed; it cannot be logged, named, used in reactions, or fed into on-board processors.
+     * Routes that need more processors than the board has free will also move trailing processors to the host
+     * automatically if possible.
+     * @return Calling object
+     */
+    RouteComponent host();
     /**
      * Streams the input data to the local device
      * @param subscriber    Subscriber to handle the received data
@@ -55,7 +55,7 @@ class AccelerometerBma255Impl extends AccelerometerBoschImpl implements Accelero
 
     @Override
     protected void init() {
-        pullConfigTask = new TimedTask<>();
+        pullConfigTask = new TimedTask<>(mwPrivate.executor());
 
         mwPrivate.addResponseHandler(new Pair<>(ACCELEROMETER.id, Util.setRead(DATA_CONFIG)), response -> pullConfigTask.setResult(response));
     }
@@ -118,6 +118,7 @@ class AccelerometerBma255Impl extends AccelerometerBoschImpl implements Accelero
                 accDataConfig[1]|= ar.bitmask;
 
                 mwPrivate.sendCommand(ACCELEROMETER, DATA_CONFIG, accDataConfig);
+                mwPrivate.invalidateScales();
             }
         };
     }
@@ -134,12 +135,13 @@ class AccelerometerBma255Impl extends AccelerometerBoschImpl implements Accelero
 
     @Override
     public Task<Void> pullConfigAsync() {
-        return pullConfigTask.execute("Did not receive BMA255 acc config within %dms", Constant.RESPONSE_TIMEOUT,
+        return pullConfigTask.execute("Did not receive BMA255 acc config within %dms", mwPrivate.getRttEstimator(), Constant.READ_RETRIES,
                 () -> mwPrivate.sendCommand(new byte[] {ACCELEROMETER.id, Util.setRead(DATA_CONFIG)})
         ).onSuccessTask(task -> {
             System.arraycopy(task.getResult(), 2, accDataConfig, 0, accDataConfig.length);
+            mwPrivate.invalidateScales();
             return Task.forResult(null);
-        });
+        }, mwPrivate.executor());
     }
 
     private class Bma255FlatDataProducer extends BoschFlatDataProducer implements AccelerometerBma255.FlatDataProducer {
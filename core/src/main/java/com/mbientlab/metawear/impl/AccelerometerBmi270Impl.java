@@ -105,7 +105,7 @@ class AccelerometerBmi270Impl extends ModuleImplBase implements AccelerometerBmi
         public Data createMessage(boolean logData, MetaWearBoardPrivate mwPrivate, final byte[] data, final Calendar timestamp, DataPrivate.ClassToObject mapper) {
             ByteBuffer buffer = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
             short[] unscaled = new short[]{buffer.getShort(), buffer.getShort(), buffer.getShort()};
-            final float scale= scale(mwPrivate);
+            final float scale= cachedScale(mwPrivate);
             final Acceleration value= new Acceleration(unscaled[0] / scale, unscaled[1] / scale, unscaled[2] / scale);
 
             return new DataPrivate(timestamp, data, mapper) {
@@ -168,7 +168,7 @@ class AccelerometerBmi270Impl extends ModuleImplBase implements AccelerometerBmi
 
     @Override
     protected void init() {
-        pullConfigTask = new TimedTask<>();
+        pullConfigTask = new TimedTask<>(mwPrivate.executor());
         mwPrivate.addResponseHandler(new Pair<>(ACCELEROMETER.id, Util.setRead(DATA_CONFIG)), response -> pullConfigTask.setResult(response));
     }
 
@@ -223,6 +223,7 @@ class AccelerometerBmi270Impl extends ModuleImplBase implements AccelerometerBmi
                 accDataConfig[1]|= ar.bitmask;
 
                 mwPrivate.sendCommand(ACCELEROMETER, DATA_CONFIG, accDataConfig);
+                mwPrivate.invalidateScales();
             }
         };
     }
@@ -310,12 +311,13 @@ class AccelerometerBmi270Impl extends ModuleImplBase implements AccelerometerBmi
 
     @Override
     public Task<Void> pullConfigAsync() {
-        return pullConfigTask.execute("Did not receive BMI270 acc config within %dms", Constant.RESPONSE_TIMEOUT,
+        return pullConfigTask.execute("Did not receive BMI270 acc config within %dms", mwPrivate.getRttEstimator(), Constant.READ_RETRIES,
                 () -> mwPrivate.sendCommand(new byte[] {ACCELEROMETER.id, Util.setRead(DATA_CONFIG)})
         ).onSuccessTask(task -> {
             System.arraycopy(task.getResult(), 2, accDataConfig, 0, accDataConfig.length);
+            mwPrivate.invalidateScales();
             return Task.forResult(null);
-        });
+        }, mwPrivate.executor());
     }
 
     @Override
@@ -328,4 +330,17 @@ class AccelerometerBmi270Impl extends ModuleImplBase implements AccelerometerBmi
         mwPrivate.sendCommand(new byte[] {ACCELEROMETER.id, POWER_MODE, 0x00});
     }
 
+    @Override
+    float sampleRate(DataTypeBase producer) {
+        if (producer.eventConfig[0] != ACCELEROMETER.id) {
+            return -1f;
+        }
+        byte register = Util.clearRead(producer.eventConfig[1]);
+        return register == DATA_INTERRUPT || register == PACKED_ACC_DATA ? getOdr() : -1f;
+    }
+
+    @Override
+    DataTypeBase packedSource(DataTypeBase producer) {
+        return producer == mwPrivate.lookupProducer(ACCEL_PRODUCER) ? mwPrivate.lookupProducer(ACCEL_PACKED_PRODUCER) : null;
+    }
 }
@@ -134,7 +134,7 @@ abstract class AccelerometerBoschImpl extends ModuleImplBase implements Accelero
         public Data createMessage(boolean logData, MetaWearBoardPrivate mwPrivate, final byte[] data, final Calendar timestamp, DataPrivate.ClassToObject mapper) {
             ByteBuffer buffer = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
             short[] unscaled = new short[]{buffer.getShort(), buffer.getShort(), buffer.getShort()};
-            final float scale= scale(mwPrivate);
+            final float scale= cachedScale(mwPrivate);
             final Acceleration value= new Acceleration(unscaled[0] / scale, unscaled[1] / scale, unscaled[2] / scale);
 
             return new DataPrivate(timestamp, data, mapper) {
@@ -912,4 +912,19 @@ abstract class AccelerometerBoschImpl extends ModuleImplBase implements Accelero
         }
         return (TapDataProducer) tap;
     }
+
+    @Override
+    float sampleRate(DataTypeBase producer) {
+        if (producer.eventConfig[0] != ACCELEROMETER.id) {
+            return -1f;
+        }
+        byte register = Util.clearRead(producer.eventConfig[1]);
+        return register == DATA_INTERRUPT || register == PACKED_ACC_DATA ? getOdr() : -1f;
+    }
+
+    @Override
+    DataTypeBase packedSource(DataTypeBase producer) {
+        return producer == mwPrivate.lookupProducer(ACCEL_PRODUCER) && mwPrivate.lookupModuleInfo(ACCELEROMETER).revision >= PACKED_ACC_REVISION ?
+                mwPrivate.lookupProducer(ACCEL_PACKED_PRODUCER) : null;
+    }
 }
@@ -187,7 +187,7 @@ class AccelerometerMma8452qImpl extends ModuleImplBase implements AccelerometerM
         @Override
         public Data createMessage(boolean logData, MetaWearBoardPrivate mwPrivate, final byte[] data, final Calendar timestamp, DataPrivate.ClassToObject mapper) {
             ByteBuffer buffer = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
-            final float scale= scale(mwPrivate);
+            final float scale= cachedScale(mwPrivate);
             final Acceleration value= new Acceleration(buffer.getShort() / scale, buffer.getShort() / scale, buffer.getShort() / scale);
 
             return new DataPrivate(timestamp, data, mapper) {
@@ -469,7 +469,7 @@ class AccelerometerMma8452qImpl extends ModuleImplBase implements AccelerometerM
 
     @Override
     protected void init() {
-        pullConfigTask = new TimedTask<>();
+        pullConfigTask = new TimedTask<>(mwPrivate.executor());
 
         mwPrivate.addResponseHandler(new Pair<>(ACCELEROMETER.id, Util.setRead(DATA_CONFIG)), response -> pullConfigTask.setResult(response));
     }
@@ -598,12 +598,12 @@ class AccelerometerMma8452qImpl extends ModuleImplBase implements AccelerometerM
 
     @Override
     public Task<Void> pullConfigAsync() {
-        return pullConfigTask.execute("Did not receive BMA255 acc config within %dms", Constant.RESPONSE_TIMEOUT,
+        return pullConfigTask.execute("Did not receive BMA255 acc config within %dms", mwPrivate.getRttEstimator(), Constant.READ_RETRIES,
                 () -> mwPrivate.sendCommand(new byte[] {ACCELEROMETER.id, Util.setRead(DATA_CONFIG)})
         ).onSuccessTask(task -> {
             System.arraycopy(task.getResult(), 2, dataSettings, 0, dataSettings.length);
             return Task.forResult(null);
-        });
+        }, mwPrivate.executor());
     }
 
     @Override
@@ -1019,4 +1019,19 @@ class AccelerometerMma8452qImpl extends ModuleImplBase implements AccelerometerM
     public void stop() {
         mwPrivate.sendCommand(new byte[] {ACCELEROMETER.id, GLOBAL_ENABLE, 0x0});
     }
+
+    @Override
+    float sampleRate(DataTypeBase producer) {
+        if (producer.eventConfig[0] != ACCELEROMETER.id) {
+            return -1f;
+        }
+        byte register = Util.clearRead(producer.eventConfig[1]);
+        return register == DATA_VALUE || register == PACKED_ACC_DATA ? getOdr() : -1f;
+    }
+
+    @Override
+    DataTypeBase packedSource(DataTypeBase producer) {
+        return producer == mwPrivate.lookupProducer(ACCEL_PRODUCER) && mwPrivate.lookupModuleInfo(ACCELEROMETER).revision >= PACKED_ACC_REVISION ?
+                mwPrivate.lookupProducer(ACCEL_PACKED_PRODUCER) : null;
+    }
 }
@@ -89,7 +89,7 @@ public class ArrayData extends DataTypeBase {
 
             @Override
             public float scale() {
-                return ArrayData.this.scale(mwPrivate);
+                return ArrayData.this.cachedScale(mwPrivate);
             }
 
             @Override
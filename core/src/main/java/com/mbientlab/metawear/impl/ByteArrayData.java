@@ -67,7 +67,7 @@ class ByteArrayData extends DataTypeBase {
 
             @Override
             public float scale() {
-                return ByteArrayData.this.scale(mwPrivate);
+                return ByteArrayData.this.cachedScale(mwPrivate);
             }
 
             @Override
@@ -0,0 +1,235 @@
+/*
+ * Copyright 2014-2015 MbientLab Inc. All rights reserved.
+ *
+ * IMPORTANT: Your use of this Software is limited to those specific rights granted under the terms of a software
+ * license agreement between the user who downloaded the software, his/her employer (which must be your
+ * employer) and MbientLab Inc, (the "License").  You may not use this Software unless you agree to abide by the
+ * terms of the License which can be found at www.mbientlab.com/terms.  The License limits your use, and you
+ * acknowledge, that the Software may be modified, copied, and distributed when used in conjunction with an
+ * MbientLab Inc, product.  Other than for the foregoing purpose, you may not use, reproduce, copy, prepare
+ * derivative works of, modify, distribute, perform, display or sell this Software and/or its documentation for any
+ * purpose.
+ *
+ * YOU FURTHER ACKNOWLEDGE AND AGREE THAT THE SOFTWARE AND DOCUMENTATION ARE PROVIDED "AS IS" WITHOUT WARRANTY
+ * OF ANY KIND, EITHER EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION, ANY WARRANTY OF MERCHANTABILITY, TITLE,
+ * NON-INFRINGEMENT AND FITNESS FOR A PARTICULAR PURPOSE. IN NO EVENT SHALL MBIENTLAB OR ITS LICENSORS BE LIABLE OR
+ * OBLIGATED UNDER CONTRACT, NEGLIGENCE, STRICT LIABILITY, CONTRIBUTION, BREACH OF WARRANTY, OR OTHER LEGAL EQUITABLE
+ * THEORY ANY DIRECT OR INDIRECT DAMAGES OR EXPENSES INCLUDING BUT NOT LIMITED TO ANY INCIDENTAL, SPECIAL, INDIRECT,
+ * PUNITIVE OR CONSEQUENTIAL DAMAGES, LOST PROFITS OR LOST DATA, COST OF PROCUREMENT OF SUBSTITUTE GOODS, TECHNOLOGY,
+ * SERVICES, OR ANY CLAIMS BY THIRD PARTIES (INCLUDING BUT NOT LIMITED TO ANY DEFENSE THEREOF), OR OTHER SIMILAR COSTS.
+ *
+ * Should you have any questions regarding your right to use this Software, contact MbientLab via email:
+ * hello@mbientlab.com.
+ */
+
+package com.mbientlab.metawear.impl;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Map keyed by firmware assigned ids.  Ids are unsigned bytes handed out from 0 so values are stored in an array indexed
+ * by the id, sized to the largest id in use, rather than in a hash table of boxed keys.  Iteration is in ascending id
+ * order.
+ */
+class ByteIdMap<V> extends AbstractMap<Byte, V> implements Serializable {
+    private static final long serialVersionUID = 4415127312876262417L;
+    private static final Object[] EMPTY = new Object[0];
+
+    private transient Object[] values = EMPTY;
+    private transient int size;
+    private transient int modCount;
+    private transient Set<Entry<Byte, V>> entrySet;
+
+    ByteIdMap() {
+    }
+
+    ByteIdMap(Map<Byte, ? extends V> src) {
+        putAll(src);
+    }
+
+    /**
+     * Converts maps restored from board states serialized by older releases, which stored ids in a HashMap
+     */
+    static <V> ByteIdMap<V> compact(Map<Byte, V> map) {
+        if (map instanceof ByteIdMap) {
+            return (ByteIdMap<V>) map;
+        }
+        return map == null ? new ByteIdMap<>() : new ByteIdMap<>(map);
+    }
+
+    private static int index(Object key) {
+        return key instanceof Byte ? ((Byte) key) & 0xff : -1;
+    }
+
+    @SuppressWarnings("unchecked")
+    private V at(int index) {
+        return index >= 0 && index < values.length ? (V) values[index] : null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return at(index(key)) != null;
+    }
+
+    @Override
+    public V get(Object key) {
+        return at(index(key));
+    }
+
+    @Override
+    public V put(Byte key, V value) {
+        if (value == null) {
+            throw new NullPointerException("ByteIdMap does not accept null values");
+        }
+
+        int index = key & 0xff;
+        if (index >= values.length) {
+            values = Arrays.copyOf(values, Math.min(256, Math.max(index + 1, values.length * 2)));
+        }
+
+        V previous = at(index);
+        values[index] = value;
+        if (previous == null) {
+            size++;
+            modCount++;
+        }
+        return previous;
+    }
+
+    @Override
+    public V remove(Object key) {
+        int index = index(key);
+        V previous = at(index);
+        if (previous != null) {
+            values[index] = null;
+            size--;
+            modCount++;
+        }
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        values = EMPTY;
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    public Set<Entry<Byte, V>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new AbstractSet<Entry<Byte, V>>() {
+                @Override
+                public Iterator<Entry<Byte, V>> iterator() {
+                    return new EntryIterator();
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+
+                @Override
+                public void clear() {
+                    ByteIdMap.this.clear();
+                }
+            };
+        }
+        return entrySet;
+    }
+
+    private class EntryIterator implements Iterator<Entry<Byte, V>> {
+        private int next = -1, last = -1, expectedModCount = modCount;
+
+        EntryIterator() {
+            advance();
+        }
+
+        private void advance() {
+            do {
+                next++;
+            } while(next < values.length && values[next] == null);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < values.length;
+        }
+
+        @Override
+        public Entry<Byte, V> next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            last = next;
+            advance();
+            final int index = last;
+            return new SimpleEntry<Byte, V>((byte) index, at(index)) {
+                @Override
+                public V setValue(V value) {
+                    if (value == null) {
+                        throw new NullPointerException("ByteIdMap does not accept null values");
+                    }
+                    values[index] = value;
+                    return super.setValue(value);
+                }
+            };
+        }
+
+        @Override
+        public void remove() {
+            if (last < 0) {
+                throw new IllegalStateException();
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+
+            ByteIdMap.this.remove((byte) last);
+            expectedModCount = modCount;
+            last = -1;
+        }
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeInt(size);
+        for(int i = 0; i < values.length; i++) {
+            if (values[i] != null) {
+                out.writeByte(i);
+                out.writeObject(values[i]);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        values = EMPTY;
+        int count = in.readInt();
+        for(int i = 0; i < count; i++) {
+            byte key = in.readByte();
+            put(key, (V) in.readObject());
+        }
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2014-2015 MbientLab Inc. All rights reserved.
+ *
+ * IMPORTANT: Your use of this Software is limited to those specific rights granted under the terms of a software
+ * license agreement between the user who downloaded the software, his/her employer (which must be your
+ * employer) and MbientLab Inc, (the "License").  You may not use this Software unless you agree to abide by the
+ * terms of the License which can be found at www.mbientlab.com/terms.  The License limits your use, and you
+ * acknowledge, that the Software may be modified, copied, and distributed when used in conjunction with an
+ * MbientLab Inc, product.  Other than for the foregoing purpose, you may not use, reproduce, copy, prepare
+ * derivative works of, modify, distribute, perform, display or sell this Software and/or its documentation for any
+ * purpose.
+ *
+ * YOU FURTHER ACKNOWLEDGE AND AGREE THAT THE SOFTWARE AND DOCUMENTATION ARE PROVIDED "AS IS" WITHOUT WARRANTY
+ * OF ANY KIND, EITHER EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION, ANY WARRANTY OF MERCHANTABILITY, TITLE,
+ * NON-INFRINGEMENT AND FITNESS FOR A PARTICULAR PURPOSE. IN NO EVENT SHALL MBIENTLAB OR ITS LICENSORS BE LIABLE OR
+ * OBLIGATED UNDER CONTRACT, NEGLIGENCE, STRICT LIABILITY, CONTRIBUTION, BREACH OF WARRANTY, OR OTHER LEGAL EQUITABLE
+ * THEORY ANY DIRECT OR INDIRECT DAMAGES OR EXPENSES INCLUDING BUT NOT LIMITED TO ANY INCIDENTAL, SPECIAL, INDIRECT,
+ * PUNITIVE OR CONSEQUENTIAL DAMAGES, LOST PROFITS OR LOST DATA, COST OF PROCUREMENT OF SUBSTITUTE GOODS, TECHNOLOGY,
+ * SERVICES, OR ANY CLAIMS BY THIRD PARTIES (INCLUDING BUT NOT LIMITED TO ANY DEFENSE THEREOF), OR OTHER SIMILAR COSTS.
+ *
+ * Should you have any questions regarding your right to use this Software, contact MbientLab via email:
+ * hello@mbientlab.com.
+ */
+
+package com.mbientlab.metawear.impl;
+
+import com.mbientlab.metawear.LinkBudget.TuningGoal;
+import com.mbientlab.metawear.impl.platform.IO;
+import com.mbientlab.metawear.module.Settings;
+import com.mbientlab.metawear.module.Settings.BleConnectionParameters;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+
+import bolts.Capture;
+import bolts.Task;
+
+/**
+ * Steps through candidate connection intervals, measuring the notification rate and register read round trip at
+ * each one, and keeps the first interval that carries the streamed routes
+ */
+class ConnectionTuner {
+    private static final String CONN_PARAMS = "com.mbientlab.metawear.impl.ConnectionTuner.CONN_PARAMS";
+    private static final float[] INTERVALS = new float[] {7.5f, 11.25f, 15f, 22.5f, 30f, 45f, 60f, 90f};
+    // A read should complete within this many connection events, and the link must deliver this fraction of the estimated rate
+    private static final int RTT_INTERVALS = 10;
+    private static final float MIN_DELIVERY = 0.9f;
+
+    private final LinkBudgetImpl budget;
+    private final MetaWearBoardPrivate mwPrivate;
+    private final IO io;
+
+    ConnectionTuner(LinkBudgetImpl budget, MetaWearBoardPrivate mwPrivate, IO io) {
+        this.budget = budget;
+        this.mwPrivate = mwPrivate;
+        this.io = io;
+    }
+
+    Task<BleConnectionParameters> tuneAsync(final Settings settings, TuningGoal goal, final long window) {
+        final float demand = budget.estimate().notificationRate;
+        final Capture<BleConnectionParameters> original = new Capture<>(), chosen = new Capture<>();
+
+        return settings.readBleConnParamsAsync().onSuccessTask(task -> {
+            original.set(task.getResult());
+
+            List<Float> candidates = new ArrayList<>();
+            for(float it: INTERVALS) {
+                // Supervision timeout must span at least 2 connection events including skipped ones
+                if (original.get().supervisorTimeout > (1 + original.get().slaveLatency) * it * 2 &&
+                        (goal == TuningGoal.THROUGHPUT || budget.capacity(it) >= demand)) {
+                    candidates.add(it);
+                }
+            }
+            if (goal == TuningGoal.POWER) {
+                Collections.reverse(candidates);
+            }
+
+            final Iterator<Float> it = candidates.iterator();
+            return Task.forResult(null).continueWhile(() -> chosen.get() == null && it.hasNext(), ignored ->
+                    measureAsync(settings, original.get(), it.next(), demand, window).onSuccess(measured -> {
+                        chosen.set(measured.getResult());
+                        return null;
+                    }, mwPrivate.executor()), mwPrivate.executor()
+            );
+        }, mwPrivate.executor()).continueWithTask(task -> {
+            if (task.isFaulted() || task.isCancelled() || chosen.get() == null) {
+                // Put back the original interval whatever stopped the search, the board may still be on a trial one
+                if (original.get() != null) {
+                    apply(settings, original.get(), original.get().minConnectionInterval, original.get().maxConnectionInterval);
+                }
+                if (task.isFaulted()) {
+                    return Task.forError(task.getError());
+                }
+                return task.isCancelled() ? Task.<BleConnectionParameters>cancelled() :
+                        Task.<BleConnectionParameters>forError(new IllegalStateException("No connection interval kept the link stable"));
+            }
+
+            budget.connectionInterval(chosen.get().maxConnectionInterval);
+            save(chosen.get());
+            return Task.forResult(chosen.get());
+        }, mwPrivate.executor());
+    }
+
+    Task<BleConnectionParameters> restoreAsync(Settings settings) {
+        BleConnectionParameters saved;
+        try {
+            saved = load();
+        } catch (IOException e) {
+            return Task.forError(e);
+        }
+
+        if (saved != null) {
+            apply(settings, saved, saved.minConnectionInterval, saved.maxConnectionInterval);
+            budget.connectionInterval(saved.maxConnectionInterval);
+        }
+        return Task.forResult(saved);
+    }
+
+    private Task<BleConnectionParameters> measureAsync(final Settings settings, BleConnectionParameters base, final float interval,
+                                                       final float demand, long window) {
+        apply(settings, base, interval, interval);
+
+        final long start = System.nanoTime(), startCount = budget.notificationCount();
+        final Capture<Long> readStart = new Capture<>();
+        return mwPrivate.executor().delay(window).onSuccessTask(ignored -> {
+            readStart.set(System.nanoTime());
+            return settings.readBleConnParamsAsync();
+        }, mwPrivate.executor()).continueWith(task -> {
+            if (task.isFaulted()) {
+                if (task.getError() instanceof TimeoutException) {
+                    return null;
+                }
+                throw task.getError();
+            }
+
+            long end = System.nanoTime();
+            float rtt = (end - readStart.get()) / 1000000f;
+            float rate = (budget.notificationCount() - startCount) / ((end - start) / 1000000000f);
+            float actual = Math.max(interval, task.getResult().maxConnectionInterval);
+
+            return rtt <= RTT_INTERVALS * actual && (demand <= 0 || rate >= MIN_DELIVERY * demand) ? task.getResult() : null;
+        }, mwPrivate.executor());
+    }
+
+    private static void apply(Settings settings, BleConnectionParameters base, float min, float max) {
+        settings.editBleConnParams()
+                .minConnectionInterval(min)
+                .maxConnectionInterval(max)
+                .slaveLatency(base.slaveLatency)
+                .supervisorTimeout(base.supervisorTimeout)
+                .commit();
+    }
+
+    private void save(BleConnectionParameters params) {
+        try {
+            io.localSave(CONN_PARAMS, ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN)
+                    .putFloat(params.minConnectionInterval)
+                    .putFloat(params.maxConnectionInterval)
+                    .putShort(params.slaveLatency)
+                    .putShort(params.supervisorTimeout)
+                    .array());
+        } catch (IOException e) {
+            mwPrivate.logWarn("Cannot save the tuned connection parameters: " + e.getMessage());
+        }
+    }
+
+    private BleConnectionParameters load() throws IOException {
+        InputStream ins = io.localRetrieve(CONN_PARAMS);
+        if (ins == null) {
+            return null;
+        }
+
+        byte[] raw = new byte[12];
+        int offset = 0, read;
+        try {
+            while(offset < raw.length && (read = ins.read(raw, offset, raw.length - offset)) > 0) {
+                offset += read;
+            }
+        } finally {
+            ins.close();
+        }
+        if (offset < raw.length) {
+            return null;
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(raw).order(ByteOrder.LITTLE_ENDIAN);
+        return new BleConnectionParameters(buffer.getFloat(), buffer.getFloat(), buffer.getShort(), buffer.getShort());
+    }
+}
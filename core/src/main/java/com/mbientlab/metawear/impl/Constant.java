@@ -30,7 +30,10 @@ import java.util.HashMap;
  * Created by etsai on 9/20/16.
  */
 class Constant {
-    static final long RESPONSE_TIMEOUT = 1000L;
+    static final long RESPONSE_TIMEOUT = 1000L, MIN_RESPONSE_TIMEOUT = 250L, MAX_RESPONSE_TIMEOUT = 8000L;
+    // creates are not idempotent so they are not retried, and do not time out faster than the original fixed timeout
+    static final long MIN_CREATE_TIMEOUT = RESPONSE_TIMEOUT;
+    static final int READ_RETRIES = 2;
     static final byte COMMAND_LENGTH = 18, MAX_BTLE_LENGTH = COMMAND_LENGTH + 2;
 
     enum Module {
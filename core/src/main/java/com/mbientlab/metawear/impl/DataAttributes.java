@@ -26,12 +26,20 @@ package com.mbientlab.metawear.impl;
 
 import java.io.Serializable;
 import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Created by etsai on 9/4/16.
  */
 class DataAttributes implements Serializable {
     private static final long serialVersionUID = 236031852609753664L;
+    // attributes are immutable and only a few dozen distinct ones exist, so every producer of every board shares them
+    private static final ConcurrentHashMap<DataAttributes, DataAttributes> POOL = new ConcurrentHashMap<>();
+
+    static DataAttributes intern(DataAttributes attributes) {
+        DataAttributes existing = POOL.putIfAbsent(attributes, attributes);
+        return existing == null ? attributes : existing;
+    }
 
     final byte[] sizes;
     final byte copies, offset;
@@ -78,6 +86,10 @@ class DataAttributes implements Serializable {
         return sum;
     }
 
+    private Object readResolve() {
+        return intern(this);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -31,12 +31,17 @@ import com.mbientlab.metawear.impl.platform.TimedTask;
 import com.mbientlab.metawear.module.DataProcessor;
 
 import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Queue;
+import java.util.Set;
 
 import bolts.Capture;
 import bolts.Task;
@@ -85,6 +90,11 @@ class DataProcessorImpl extends ModuleImplBase implements DataProcessor {
             this.mwPrivate = mwPrivate;
             configObj = DataProcessorConfig.from(mwPrivate.getFirmwareVersion(), mwPrivate.lookupModuleInfo(Constant.Module.DATA_PROCESSOR).revision, config);
         }
+
+        void writeConfig() {
+            mwPrivate.invalidateIdentifiers();
+            mwPrivate.sendCommand(DATA_PROCESSOR, PARAMETER, source.eventConfig[2], config);
+        }
     }
     static class NullEditor extends EditorImplBase {
         private static final long serialVersionUID = -6221412334731005999L;
@@ -120,8 +130,11 @@ class DataProcessorImpl extends ModuleImplBase implements DataProcessor {
         NOTIFY_ENABLE = 7,
         REMOVE_ALL = 8;
 
-    final Map<Byte, Processor> activeProcessors= new HashMap<>();
+    Map<Byte, Processor> activeProcessors= new ByteIdMap<>();
     final Map<String, Byte> nameToIdMapping = new HashMap<>();
+    // number of routes using each processor, and processors that must not be shared
+    private Map<Byte, Integer> references = new ByteIdMap<>();
+    private Set<Byte> exclusive = new HashSet<>();
 
     private transient TimedTask<byte[]> pullProcessorConfigTask, createProcessorTask;
 
@@ -133,51 +146,144 @@ class DataProcessorImpl extends ModuleImplBase implements DataProcessor {
     void restoreTransientVars(MetaWearBoardPrivate mwPrivate) {
         super.restoreTransientVars(mwPrivate);
 
+        activeProcessors = ByteIdMap.compact(activeProcessors);
+        // board states serialized before processors could be shared do not have these fields
+        references = ByteIdMap.compact(references);
+        if (exclusive == null) {
+            exclusive = new HashSet<>();
+        }
+
         for(Processor it: activeProcessors.values()) {
             it.editor.restoreTransientVars(mwPrivate);
         }
     }
 
     protected void init() {
-        pullProcessorConfigTask = new TimedTask<>();
-        createProcessorTask = new TimedTask<>();
+        pullProcessorConfigTask = new TimedTask<>(mwPrivate.executor());
+        createProcessorTask = new TimedTask<>(mwPrivate.executor());
 
         this.mwPrivate.addResponseHandler(new Pair<>(DATA_PROCESSOR.id, Util.setRead(ADD)), response -> pullProcessorConfigTask.setResult(response));
         this.mwPrivate.addResponseHandler(new Pair<>(DATA_PROCESSOR.id, ADD), response -> createProcessorTask.setResult(response));
     }
 
     void removeProcessor(boolean sync, byte id) {
+        Integer count = references.get(id);
+        if (count != null && count > 1) {
+            references.put(id, count - 1);
+            return;
+        }
+        references.remove(id);
+        exclusive.remove(id);
+
         if (sync) {
             Processor target = activeProcessors.get(id);
             mwPrivate.sendCommand(new byte[]{DATA_PROCESSOR.id, DataProcessorImpl.REMOVE, target.editor.source.eventConfig[2]});
         }
 
         activeProcessors.remove(id);
+        mwPrivate.invalidateIdentifiers();
     }
     public void tearDown() {
         activeProcessors.clear();
         nameToIdMapping.clear();
+        references.clear();
+        exclusive.clear();
+        mwPrivate.invalidateIdentifiers();
         mwPrivate.sendCommand(new byte[] {DATA_PROCESSOR.id, REMOVE_ALL});
     }
 
+    private static byte[] createFilterConfig(Processor processor) {
+        DataTypeBase input= processor.editor.source.input;
+
+        final byte[] filterConfig= new byte[input.eventConfig.length + 1 + processor.editor.config.length];
+        filterConfig[input.eventConfig.length]= (byte) (((input.attributes.length() - 1) << 5) | input.attributes.offset);
+        System.arraycopy(input.eventConfig, 0, filterConfig, 0, input.eventConfig.length);
+        System.arraycopy(processor.editor.config, 0, filterConfig, input.eventConfig.length + 1, processor.editor.config.length);
+
+        return filterConfig;
+    }
+
+    private static boolean isShareable(Processor processor) {
+        return processor.state == null && !(processor.editor.configObj instanceof DataProcessorConfig.Fuser);
+    }
+
+    private Byte findShared(byte[] filterConfig) {
+        for(Map.Entry<Byte, Processor> it: activeProcessors.entrySet()) {
+            Processor existing = it.getValue();
+            if (!exclusive.contains(it.getKey()) && existing.editor.source.input != null && isShareable(existing) &&
+                    Arrays.equals(filterConfig, createFilterConfig(existing))) {
+                return it.getKey();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds the processors {@link #queueDataProcessors(Queue, Set)} would reuse from the board instead of creating
+     * @param pendingProcessors    Processors to create, ordered so inputs come before the processors using them
+     * @param unshared             Processors that must get their own on-board instance
+     * @return Processors identical to one already on the board
+     */
+    Set<Processor> findShared(Collection<Processor> pendingProcessors, Set<Processor> unshared) {
+        final Set<Processor> shared = new HashSet<>();
+        final Map<DataTypeBase, Byte> sharedIds = new HashMap<>();
+
+        for(Processor current: pendingProcessors) {
+            if (!isShareable(current) || unshared.contains(current)) {
+                continue;
+            }
+
+            // outputs of processors that will be created have no id yet so nothing on the board can match them
+            final byte[] filterConfig = createFilterConfig(current);
+            Byte inputId = sharedIds.get(current.editor.source.input);
+            if (inputId != null) {
+                filterConfig[2] = inputId;
+            }
+
+            Byte sharedId = findShared(filterConfig);
+            if (sharedId != null) {
+                shared.add(current);
+                sharedIds.put(current.editor.source, sharedId);
+            }
+        }
+        return shared;
+    }
+
     Task<Queue<Byte>> queueDataProcessors(Queue<Processor> pendingProcessors) {
+        return queueDataProcessors(pendingProcessors, Collections.emptySet());
+    }
+
+    /**
+     * Creates the processors on the board.  A processor identical to one already on the board, down to its input, is
+     * not created again; the existing one is reused and reference counted so it is only removed once no route uses it
+     * @param pendingProcessors    Processors to create, ordered so inputs come before the processors using them
+     * @param unshared             Processors that must get their own on-board instance e.g. named processors
+     * @return Task holding the ids of the processors used by the route
+     */
+    Task<Queue<Byte>> queueDataProcessors(Queue<Processor> pendingProcessors, final Set<Processor> unshared) {
         final Queue<Byte> ids = new LinkedList<>();
         final Capture<Boolean> terminate = new Capture<>(false);
 
         return Task.forResult(null).continueWhile(() -> !terminate.get() && !pendingProcessors.isEmpty(), ignored -> {
             final Processor current= pendingProcessors.poll();
-            DataTypeBase input= current.editor.source.input;
 
             if (current.editor.configObj instanceof DataProcessorConfig.Fuser) {
                 ((DataProcessorConfig.Fuser) current.editor.configObj).syncFilterIds(this);
             }
 
-            final byte[] filterConfig= new byte[input.eventConfig.length + 1 + current.editor.config.length];
-            filterConfig[input.eventConfig.length]= (byte) (((input.attributes.length() - 1) << 5) | input.attributes.offset);
-            System.arraycopy(input.eventConfig, 0, filterConfig, 0, input.eventConfig.length);
-            System.arraycopy(current.editor.config, 0, filterConfig, input.eventConfig.length + 1, current.editor.config.length);
+            final byte[] filterConfig= createFilterConfig(current);
+            final boolean shareable = isShareable(current) && !unshared.contains(current);
+
+            Byte sharedId = shareable ? findShared(filterConfig) : null;
+            if (sharedId != null) {
+                current.editor.source.eventConfig[2]= sharedId;
+                references.put(sharedId, references.containsKey(sharedId) ? references.get(sharedId) + 1 : 2);
+                ids.add(sharedId);
+
+                return Task.forResult(null);
+            }
 
-            return createProcessorTask.execute("Did not receive data processor id within %dms", Constant.RESPONSE_TIMEOUT,
+            return createProcessorTask.execute("Did not receive data processor id within %dms", Constant.MIN_CREATE_TIMEOUT, mwPrivate.getRttEstimator(),
                     () -> mwPrivate.sendCommand(DATA_PROCESSOR, ADD, filterConfig)
             ).continueWithTask(task -> {
                 if (task.isFaulted()) {
@@ -190,11 +296,15 @@ class DataProcessorImpl extends ModuleImplBase implements DataProcessor {
                     current.state.eventConfig[2] = id;
                 }
                 activeProcessors.put(id, current);
+                references.put(id, 1);
+                if (!shareable) {
+                    exclusive.add(id);
+                }
                 ids.add(id);
 
                 return Task.forResult(null);
-            });
-        }).continueWithTask(task -> {
+            }, mwPrivate.executor());
+        }, mwPrivate.executor()).continueWithTask(task -> {
             if (task.isFaulted()) {
                 for(byte it: ids) {
                     removeProcessor(true, it);
@@ -202,7 +312,7 @@ class DataProcessorImpl extends ModuleImplBase implements DataProcessor {
                 return Task.forError(task.getError());
             }
             return Task.forResult(ids);
-        });
+        }, mwPrivate.executor());
     }
 
     @Override
@@ -255,39 +365,52 @@ class DataProcessorImpl extends ModuleImplBase implements DataProcessor {
         activeProcessors.put(id, new Processor(state, new NullEditor(config, source, mwPrivate)));
     }
 
-    Task<Deque<ProcessorEntry>> pullChainAsync(byte id) {
+    /**
+     * Pulls the chain of processors ending with the given id, from the source back to the id
+     * @param memo    Entries already pulled, shared chain prefixes are reused instead of read again
+     */
+    Task<Deque<ProcessorEntry>> pullChainAsync(byte id, final Map<Byte, ProcessorEntry> memo) {
         final Capture<Boolean> terminate = new Capture<>(false);
         final Deque<ProcessorEntry> result = new LinkedList<>();
         final Capture<Byte> nextId = new Capture<>(id);
 
-        return Task.forResult(null).continueWhile(() -> !terminate.get(), ignored ->
-            pullProcessorConfigTask.execute("Did not received data processor config within %dms", Constant.RESPONSE_TIMEOUT,
-                    () -> mwPrivate.sendCommand(new byte[] {DATA_PROCESSOR.id, Util.setRead(ADD), nextId.get()})
-        ).continueWithTask(task -> {
-            if (task.isFaulted()) {
-                terminate.set(true);
-                return Task.<Void>forError(task.getError());
-            }
+        return Task.forResult(null).continueWhile(() -> !terminate.get(), ignored -> {
+            ProcessorEntry cached = memo.get(nextId.get());
+            Task<ProcessorEntry> entryTask = cached != null ? Task.forResult(cached) :
+                    pullProcessorConfigTask.execute("Did not received data processor config within %dms", mwPrivate.getRttEstimator(),
+                            () -> mwPrivate.sendCommand(new byte[] {DATA_PROCESSOR.id, Util.setRead(ADD), nextId.get()})
+                    ).onSuccess(task -> {
+                        byte[] response = task.getResult();
 
-            byte[] response = task.getResult();
+                        ProcessorEntry entry = new ProcessorEntry();
+                        entry.id = nextId.get();
+                        entry.offset = (byte) (response[5] & 0x1f);
+                        entry.length = (byte) (((response[5] >> 5) & 0x7) + 1);
 
-            ProcessorEntry entry = new ProcessorEntry();
-            entry.id = nextId.get();
-            entry.offset = (byte) (response[5] & 0x1f);
-            entry.length = (byte) (((response[5] >> 5) & 0x7) + 1);
+                        entry.source = new byte[3];
+                        System.arraycopy(response, 2, entry.source, 0, entry.source.length);
 
-            entry.source = new byte[3];
-            System.arraycopy(response, 2, entry.source, 0, entry.source.length);
+                        entry.config = new byte[response.length - 6];
+                        System.arraycopy(response, 6, entry.config, 0, entry.config.length);
 
-            entry.config = new byte[response.length - 6];
-            System.arraycopy(response, 6, entry.config, 0, entry.config.length);
+                        memo.put(entry.id, entry);
+                        return entry;
+                    }, mwPrivate.executor());
 
-            result.push(entry);
+            return entryTask.continueWithTask(task -> {
+                if (task.isFaulted()) {
+                    terminate.set(true);
+                    return Task.<Void>forError(task.getError());
+                }
 
-            nextId.set(response[4]);
-            terminate.set(!(response[2] == DATA_PROCESSOR.id && response[3] == NOTIFY));
+                ProcessorEntry entry = task.getResult();
+                result.push(entry);
 
-            return Task.forResult(null);
-        })).onSuccessTask(ignored -> Task.forResult(result));
+                nextId.set(entry.source[2]);
+                terminate.set(!(entry.source[0] == DATA_PROCESSOR.id && entry.source[1] == NOTIFY));
+
+                return Task.forResult(null);
+            }, mwPrivate.executor());
+        }, mwPrivate.executor()).onSuccessTask(ignored -> Task.forResult(result), mwPrivate.executor());
     }
 }
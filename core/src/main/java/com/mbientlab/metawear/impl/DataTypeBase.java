@@ -131,12 +131,14 @@ abstract class DataTypeBase implements Serializable, DataToken {
     public final DataAttributes attributes;
     public final DataTypeBase input;
     public final DataTypeBase[] split;
+    private transient float scaleValue;
+    private transient volatile int scaleGeneration;
 
     DataTypeBase(byte[] config, byte offset, byte length) {
         eventConfig = config;
         input = null;
         split = null;
-        attributes = new DataAttributes(new byte[] { length }, (byte) 1, offset, false);
+        attributes = DataAttributes.intern(new DataAttributes(new byte[] { length }, (byte) 1, offset, false));
     }
 
     DataTypeBase(Constant.Module module, byte register, byte id, DataAttributes attributes) {
@@ -149,7 +151,7 @@ abstract class DataTypeBase implements Serializable, DataToken {
 
     DataTypeBase(DataTypeBase input, Constant.Module module, byte register, byte id, DataAttributes attributes) {
         this.eventConfig = new byte[] {module.id, register, id};
-        this.attributes= attributes;
+        this.attributes= DataAttributes.intern(attributes);
         this.input= input;
         this.split = createSplits();
     }
@@ -193,6 +195,17 @@ abstract class DataTypeBase implements Serializable, DataToken {
     protected float scale(MetaWearBoardPrivate mwPrivate) {
         return (input == null) ? 1.f : input.scale(mwPrivate);
     }
+    /**
+     * Same value as {@link #scale(MetaWearBoardPrivate)} but only computed again after the board signals a config change
+     */
+    final float cachedScale(MetaWearBoardPrivate mwPrivate) {
+        int generation = mwPrivate.scaleGeneration();
+        if (scaleGeneration != generation) {
+            scaleValue = scale(mwPrivate);
+            scaleGeneration = generation;
+        }
+        return scaleValue;
+    }
     public abstract DataTypeBase copy(DataTypeBase input, Constant.Module module, byte register, byte id, DataAttributes attributes);
     public DataTypeBase dataProcessorCopy(DataTypeBase input, DataAttributes attributes) {
         return copy(input, DATA_PROCESSOR, DataProcessorImpl.NOTIFY, NO_DATA_ID, attributes);
@@ -50,7 +50,7 @@ class DebugImpl extends ModuleImplBase implements Debug {
     }
 
     protected void init() {
-        readTmpValueTask = new TimedTask<>();
+        readTmpValueTask = new TimedTask<>(mwPrivate.executor());
         this.mwPrivate.addResponseHandler(new Pair<>(DEBUG.id, Util.setRead(TMP_VALUE)), response -> readTmpValueTask.setResult(response));
     }
 
@@ -97,9 +97,9 @@ class DebugImpl extends ModuleImplBase implements Debug {
 
     @Override
     public Task<Integer> readTmpValueAsync() {
-        return readTmpValueTask.execute("Did not received response from tmp register within %dms", Constant.RESPONSE_TIMEOUT,
+        return readTmpValueTask.execute("Did not received response from tmp register within %dms", mwPrivate.getRttEstimator(),
                 () -> mwPrivate.sendCommand(new byte[] {DEBUG.id, Util.setRead(TMP_VALUE)})
-        ).onSuccessTask(task -> Task.forResult(ByteBuffer.wrap(task.getResult(), 2, 4).order(ByteOrder.LITTLE_ENDIAN).getInt()));
+        ).onSuccessTask(task -> Task.forResult(ByteBuffer.wrap(task.getResult(), 2, 4).order(ByteOrder.LITTLE_ENDIAN).getInt()), mwPrivate.executor());
     }
 
     @Override
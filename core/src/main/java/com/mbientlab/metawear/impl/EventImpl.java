@@ -54,7 +54,7 @@ class EventImpl extends ModuleImplBase implements Module {
     }
 
     protected void init() {
-        createEventTask = new TimedTask<>();
+        createEventTask = new TimedTask<>(mwPrivate.executor());
         mwPrivate.addResponseHandler(new Pair<>(EVENT.id, ENTRY), response -> createEventTask.setResult(response));
     }
 
@@ -82,7 +82,7 @@ class EventImpl extends ModuleImplBase implements Module {
             final Capture<Boolean> terminate2 = new Capture<>(false);
             return Task.forResult(null).continueWhile(() -> !terminate2.get() && !recordedCommands.isEmpty(), ignored2 -> {
                 mwPrivate.sendCommand(recordedCommands.poll());
-                return createEventTask.execute("Did not receive event id within %dms", Constant.RESPONSE_TIMEOUT,
+                return createEventTask.execute("Did not receive event id within %dms", Constant.MIN_CREATE_TIMEOUT, mwPrivate.getRttEstimator(),
                         () -> mwPrivate.sendCommand(recordedCommands.poll())
                 ).continueWithTask(task -> {
                     if (task.isFaulted()) {
@@ -93,9 +93,9 @@ class EventImpl extends ModuleImplBase implements Module {
 
                     ids.add(task.getResult()[2]);
                     return Task.forResult(null);
-                });
-            });
-        }).continueWithTask(task -> {
+                }, mwPrivate.executor());
+            }, mwPrivate.executor());
+        }, mwPrivate.executor()).continueWithTask(task -> {
             if (task.isFaulted()) {
                 for(byte it: ids) {
                     removeEventCommand(it);
@@ -105,7 +105,7 @@ class EventImpl extends ModuleImplBase implements Module {
             }
 
             return Task.forResult(ids);
-        });
+        }, mwPrivate.executor());
     }
 
     void convertToEventCommand(byte[] command) {
@@ -42,7 +42,7 @@ abstract class FloatVectorData extends DataTypeBase {
 
     @Override
     public Number convertToFirmwareUnits(MetaWearBoardPrivate mwPrivate, Number value) {
-        return value.floatValue() * scale(mwPrivate);
+        return value.floatValue() * cachedScale(mwPrivate);
     }
 
     @Override
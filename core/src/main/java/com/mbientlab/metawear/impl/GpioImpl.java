@@ -30,8 +30,8 @@ import com.mbientlab.metawear.Route;
 import com.mbientlab.metawear.builder.RouteBuilder;
 import com.mbientlab.metawear.module.Gpio;
 
-import java.util.HashMap;
 import java.util.Locale;
+import java.util.Map;
 
 import bolts.Task;
 
@@ -231,7 +231,7 @@ class GpioImpl extends ModuleImplBase implements Gpio {
         }
     }
 
-    private transient HashMap<Byte, GpioPinImpl> gpioPins;
+    private transient Map<Byte, GpioPinImpl> gpioPins;
 
     GpioImpl(MetaWearBoardPrivate mwPrivate) {
         super(mwPrivate);
@@ -241,7 +241,7 @@ class GpioImpl extends ModuleImplBase implements Gpio {
     protected void init() {
         super.init();
 
-        gpioPins = new HashMap<>();
+        gpioPins = new ByteIdMap<>();
     }
 
     @Override
@@ -74,7 +74,7 @@ class GyroBmi270Impl extends GyroImpl implements GyroBmi270 {
         public Data createMessage(boolean logData, MetaWearBoardPrivate mwPrivate, final byte[] data, final Calendar timestamp, DataPrivate.ClassToObject mapper) {
             ByteBuffer buffer = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
             short[] unscaled = new short[]{buffer.getShort(), buffer.getShort(), buffer.getShort()};
-            final float scale= scale(mwPrivate);
+            final float scale= cachedScale(mwPrivate);
             final AngularVelocity value= new AngularVelocity(unscaled[0] / scale, unscaled[1] / scale, unscaled[2] / scale);
 
             return new DataPrivate(timestamp, data, mapper) {
@@ -206,4 +206,19 @@ class GyroBmi270Impl extends GyroImpl implements GyroBmi270 {
         }
         return null;
     }
+
+    @Override
+    float sampleRate(DataTypeBase producer) {
+        if (producer.eventConfig[0] != GYRO.id) {
+            return -1f;
+        }
+        byte register = Util.clearRead(producer.eventConfig[1]);
+        return register == DATA || register == PACKED_DATA ? getOdr() : -1f;
+    }
+
+    @Override
+    DataTypeBase packedSource(DataTypeBase producer) {
+        return producer == mwPrivate.lookupProducer(ROT_PRODUCER) && mwPrivate.lookupModuleInfo(GYRO).revision >= PACKED_ROT_REVISION ?
+                mwPrivate.lookupProducer(ROT_PACKED_PRODUCER) : null;
+    }
 }
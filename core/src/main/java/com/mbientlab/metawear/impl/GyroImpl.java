@@ -89,7 +89,7 @@ abstract class GyroImpl extends ModuleImplBase implements Gyro {
         public Data createMessage(boolean logData, MetaWearBoardPrivate mwPrivate, final byte[] data, final Calendar timestamp, DataPrivate.ClassToObject mapper) {
             ByteBuffer buffer = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
             short[] unscaled = new short[]{buffer.getShort(), buffer.getShort(), buffer.getShort()};
-            final float scale= scale(mwPrivate);
+            final float scale= cachedScale(mwPrivate);
             final AngularVelocity value= new AngularVelocity(unscaled[0] / scale, unscaled[1] / scale, unscaled[2] / scale);
 
             return new DataPrivate(timestamp, data, mapper) {
@@ -155,11 +155,15 @@ abstract class GyroImpl extends ModuleImplBase implements Gyro {
 
     @Override
     protected void init() {
-        pullConfigTask = new TimedTask<>();
+        pullConfigTask = new TimedTask<>(mwPrivate.executor());
 
         mwPrivate.addResponseHandler(new Pair<>(GYRO.id, Util.setRead(CONFIG)), response -> pullConfigTask.setResult(response));
     }
 
+    float getOdr() {
+        return 25f * (1 << ((gyrDataConfig[0] & 0xf) - OutputDataRate.ODR_25_HZ.bitmask));
+    }
+
     public float getGyrDataScale() {
         return Range.bitMaskToRange((byte) (gyrDataConfig[1] & 0x07)).scale;
     }
@@ -207,18 +211,20 @@ abstract class GyroImpl extends ModuleImplBase implements Gyro {
                 }
 
                 mwPrivate.sendCommand(GYRO, CONFIG, gyrDataConfig);
+                mwPrivate.invalidateScales();
             }
         };
     }
 
     @Override
     public Task<Void> pullConfigAsync() {
-        return pullConfigTask.execute("Did not receive gyro config within %dms", Constant.RESPONSE_TIMEOUT,
+        return pullConfigTask.execute("Did not receive gyro config within %dms", mwPrivate.getRttEstimator(), Constant.READ_RETRIES,
                 () -> mwPrivate.sendCommand(new byte[] {GYRO.id, Util.setRead(CONFIG)})
         ).onSuccessTask(task -> {
             System.arraycopy(task.getResult(), 2, gyrDataConfig, 0, gyrDataConfig.length);
+            mwPrivate.invalidateScales();
             return Task.forResult(null);
-        });
+        }, mwPrivate.executor());
     }
 
     /*@Override
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2014-2015 MbientLab Inc. All rights reserved.
+ *
+ * IMPORTANT: Your use of this Software is limited to those specific rights granted under the terms of a software
+ * license agreement between the user who downloaded the software, his/her employer (which must be your
+ * employer) and MbientLab Inc, (the "License").  You may not use this Software unless you agree to abide by the
+ * terms of the License which can be found at www.mbientlab.com/terms.  The License limits your use, and you
+ * acknowledge, that the Software may be modified, copied, and distributed when used in conjunction with an
+ * MbientLab Inc, product.  Other than for the foregoing purpose, you may not use, reproduce, copy, prepare
+ * derivative works of, modify, distribute, perform, display or sell this Software and/or its documentation for any
+ * purpose.
+ *
+ * YOU FURTHER ACKNOWLEDGE AND AGREE THAT THE SOFTWARE AND DOCUMENTATION ARE PROVIDED "AS IS" WITHOUT WARRANTY
+ * OF ANY KIND, EITHER EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION, ANY WARRANTY OF MERCHANTABILITY, TITLE,
+ * NON-INFRINGEMENT AND FITNESS FOR A PARTICULAR PURPOSE. IN NO EVENT SHALL MBIENTLAB OR ITS LICENSORS BE LIABLE OR
+ * OBLIGATED UNDER CONTRACT, NEGLIGENCE, STRICT LIABILITY, CONTRIBUTION, BREACH OF WARRANTY, OR OTHER LEGAL EQUITABLE
+ * THEORY ANY DIRECT OR INDIRECT DAMAGES OR EXPENSES INCLUDING BUT NOT LIMITED TO ANY INCIDENTAL, SPECIAL, INDIRECT,
+ * PUNITIVE OR CONSEQUENTIAL DAMAGES, LOST PROFITS OR LOST DATA, COST OF PROCUREMENT OF SUBSTITUTE GOODS, TECHNOLOGY,
+ * SERVICES, OR ANY CLAIMS BY THIRD PARTIES (INCLUDING BUT NOT LIMITED TO ANY DEFENSE THEREOF), OR OTHER SIMILAR COSTS.
+ *
+ * Should you have any questions regarding your right to use this Software, contact MbientLab via email:
+ * hello@mbientlab.com.
+ */
+
+package com.mbientlab.metawear.impl;
+
+import com.mbientlab.metawear.Data;
+import com.mbientlab.metawear.Subscriber;
+import com.mbientlab.metawear.impl.DataProcessorImpl.EditorImplBase;
+import com.mbientlab.metawear.impl.DataProcessorImpl.Processor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.mbientlab.metawear.impl.Constant.Module.DATA_PROCESSOR;
+
+/**
+ * Streams data from the last on-board producer and runs the remaining processors on the host
+ */
+class HostDataConsumer extends DeviceDataConsumer {
+    private static final long serialVersionUID = -2862127391565216346L;
+
+    final DataTypeBase boardSource;
+    private final ArrayList<Processor> processors;
+
+    private transient StreamedDataConsumer upstream;
+    private transient HostDataProcessor[] stages;
+    private transient byte[][] buffers;
+
+    HostDataConsumer(DataTypeBase source, Subscriber subscriber, List<Processor> processors) {
+        super(source, subscriber);
+
+        this.processors = new ArrayList<>(processors);
+        this.boardSource = processors.get(0).editor.source.input;
+    }
+
+    private void createStages(MetaWearBoardPrivate mwPrivate) {
+        if (upstream == null) {
+            stages = new HostDataProcessor[processors.size()];
+            buffers = new byte[processors.size()][];
+
+            for(int i = 0; i < stages.length; i++) {
+                EditorImplBase editor = processors.get(i).editor;
+                DataProcessorConfig config = editor.configObj != null ? editor.configObj :
+                        DataProcessorConfig.from(mwPrivate.getFirmwareVersion(), mwPrivate.lookupModuleInfo(DATA_PROCESSOR).revision, editor.config);
+
+                stages[i] = HostDataProcessor.create(config, editor.source.input.attributes, editor.source.attributes);
+                buffers[i] = new byte[editor.source.attributes.unitLength()];
+            }
+
+            upstream = new StreamedDataConsumer(boardSource, (data, env) -> process(mwPrivate, data));
+        }
+    }
+
+    private void process(MetaWearBoardPrivate mwPrivate, Data data) {
+        byte[] src = data.bytes();
+        DataAttributes first = stages[0].input;
+        int offset = src.length > first.unitLength() && src.length >= first.offset + first.unitLength() ? first.offset : 0;
+        long timestamp = data.timestamp().getTimeInMillis();
+
+        for(int i = 0; i < stages.length; i++) {
+            if (!stages[i].process(src, offset, buffers[i], timestamp)) {
+                return;
+            }
+            src = buffers[i];
+            offset = 0;
+        }
+
+        byte[] result = new byte[src.length];
+        System.arraycopy(src, 0, result, 0, result.length);
+        call(source.createMessage(false, mwPrivate, result, data.timestamp(), null));
+    }
+
+    @Override
+    public void enableStream(MetaWearBoardPrivate mwPrivate) {
+        createStages(mwPrivate);
+        // the board source is not streamed by the route builder so it must be marked live before adding the handler
+        boardSource.markLive();
+        upstream.enableStream(mwPrivate);
+    }
+
+    @Override
+    public void disableStream(MetaWearBoardPrivate mwPrivate) {
+        createStages(mwPrivate);
+        upstream.disableStream(mwPrivate);
+    }
+
+    @Override
+    public void addDataHandler(MetaWearBoardPrivate mwPrivate) {
+        createStages(mwPrivate);
+        upstream.addDataHandler(mwPrivate);
+    }
+}
@@ -0,0 +1,765 @@
+/*
+ * Copyright 2014-2015 MbientLab Inc. All rights reserved.
+ *
+ * IMPORTANT: Your use of this Software is limited to those specific rights granted under the terms of a software
+ * license agreement between the user who downloaded the software, his/her employer (which must be your
+ * employer) and MbientLab Inc, (the "License").  You may not use this Software unless you agree to abide by the
+ * terms of the License which can be found at www.mbientlab.com/terms.  The License limits your use, and you
+ * acknowledge, that the Software may be modified, copied, and distributed when used in conjunction with an
+ * MbientLab Inc, product.  Other than for the foregoing purpose, you may not use, reproduce, copy, prepare
+ * derivative works of, modify, distribute, perform, display or sell this Software and/or its documentation for any
+ * purpose.
+ *
+ * YOU FURTHER ACKNOWLEDGE AND AGREE THAT THE SOFTWARE AND DOCUMENTATION ARE PROVIDED "AS IS" WITHOUT WARRANTY
+ * OF ANY KIND, EITHER EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION, ANY WARRANTY OF MERCHANTABILITY, TITLE,
+ * NON-INFRINGEMENT AND FITNESS FOR A PARTICULAR PURPOSE. IN NO EVENT SHALL MBIENTLAB OR ITS LICENSORS BE LIABLE OR
+ * OBLIGATED UNDER CONTRACT, NEGLIGENCE, STRICT LIABILITY, CONTRIBUTION, BREACH OF WARRANTY, OR OTHER LEGAL EQUITABLE
+ * THEORY ANY DIRECT OR INDIRECT DAMAGES OR EXPENSES INCLUDING BUT NOT LIMITED TO ANY INCIDENTAL, SPECIAL, INDIRECT,
+ * PUNITIVE OR CONSEQUENTIAL DAMAGES, LOST PROFITS OR LOST DATA, COST OF PROCUREMENT OF SUBSTITUTE GOODS, TECHNOLOGY,
+ * SERVICES, OR ANY CLAIMS BY THIRD PARTIES (INCLUDING BUT NOT LIMITED TO ANY DEFENSE THEREOF), OR OTHER SIMILAR COSTS.
+ *
+ * Should you have any questions regarding your right to use this Software, contact MbientLab via email:
+ * hello@mbientlab.com.
+ */
+
+package com.mbientlab.metawear.impl;
+
+import com.mbientlab.metawear.IllegalRouteOperationException;
+import com.mbientlab.metawear.builder.filter.ComparisonOutput;
+import com.mbientlab.metawear.builder.filter.DifferentialOutput;
+import com.mbientlab.metawear.builder.filter.ThresholdOutput;
+import com.mbientlab.metawear.builder.predicate.PulseOutput;
+import com.mbientlab.metawear.impl.DataProcessorImpl.Processor;
+import com.mbientlab.metawear.impl.RouteComponentImpl.Cache;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.Set;
+
+import static com.mbientlab.metawear.impl.Constant.Module.DATA_PROCESSOR;
+
+/**
+ * Host side implementation of the firmware data processors.  Values are handled in firmware units and all state is
+ * kept in primitive arrays allocated up front so processing a sample does not allocate any objects.
+ */
+abstract class HostDataProcessor {
+    static boolean isSupported(DataProcessorConfig config) {
+        if (config instanceof DataProcessorConfig.Time) {
+            // differential time mode is not emulated
+            byte type = ((DataProcessorConfig.Time) config).type;
+            return type == Time.ABSOLUTE || type == Time.PASSTHROUGH;
+        }
+        return !(config instanceof DataProcessorConfig.Accounter || config instanceof DataProcessorConfig.Fuser);
+    }
+
+    static HostDataProcessor create(DataProcessorConfig config, DataAttributes input, DataAttributes output) {
+        switch(config.id) {
+            case DataProcessorConfig.Passthrough.ID:
+                return new Passthrough((DataProcessorConfig.Passthrough) config, input, output);
+            case DataProcessorConfig.Accumulator.ID:
+                return new Accumulator((DataProcessorConfig.Accumulator) config, input, output);
+            case DataProcessorConfig.Average.ID:
+                return new Average((DataProcessorConfig.Average) config, input, output);
+            case DataProcessorConfig.Comparison.ID:
+                return config instanceof DataProcessorConfig.MultiValueComparison ?
+                        new MultiValueComparison((DataProcessorConfig.MultiValueComparison) config, input, output) :
+                        new SingleValueComparison((DataProcessorConfig.SingleValueComparison) config, input, output);
+            case DataProcessorConfig.Combiner.ID:
+                return new Combiner((DataProcessorConfig.Combiner) config, input, output);
+            case DataProcessorConfig.Time.ID:
+                return new Time((DataProcessorConfig.Time) config, input, output);
+            case DataProcessorConfig.Maths.ID:
+                return new Maths((DataProcessorConfig.Maths) config, input, output);
+            case DataProcessorConfig.Delay.ID:
+                return new Delay((DataProcessorConfig.Delay) config, input, output);
+            case DataProcessorConfig.Pulse.ID:
+                return new Pulse((DataProcessorConfig.Pulse) config, input, output);
+            case DataProcessorConfig.Differential.ID:
+                return new Differential((DataProcessorConfig.Differential) config, input, output);
+            case DataProcessorConfig.Threshold.ID:
+                return new Threshold((DataProcessorConfig.Threshold) config, input, output);
+            case DataProcessorConfig.Buffer.ID:
+                return new Buffer(input, output);
+            case DataProcessorConfig.Packer.ID:
+                return new Packer(input, output);
+        }
+        throw new IllegalRouteOperationException("Data processor type " + config.id + " cannot be run on the host");
+    }
+
+    private static boolean isUnassignedOutput(DataTypeBase source) {
+        return source.eventConfig[0] == DATA_PROCESSOR.id && source.eventConfig[1] == DataProcessorImpl.NOTIFY &&
+                source.eventConfig[2] == DataTypeBase.NO_DATA_ID;
+    }
+
+    /**
+     * Decides which processors in the route are run on the host.  Processors explicitly marked with
+     * {@link com.mbientlab.metawear.builder.RouteComponent#host()} are always moved, then the remaining processors are
+     * moved starting from the end of the route until the chain fits in the free on-board slots.  A processor can only run
+     * on the host if its output, and the output of everything downstream of it, is only streamed
+     * @param signalVars    Route being created
+     * @param available     Number of free data processor slots on the board
+     * @param shared        Processors that reuse one already on the board and do not take a slot
+     * @return Processors to run on the host, removed from {@code signalVars.dataProcessors}
+     */
+    static Set<Processor> partition(Cache signalVars, int available, Set<Processor> shared) {
+        final Set<Processor> host = new HashSet<>();
+        if (signalVars.hostProcessors.isEmpty() && signalVars.dataProcessors.size() - shared.size() <= available) {
+            return host;
+        }
+
+        final Map<DataTypeBase, Processor> outputs = new HashMap<>();
+        for(Processor it: signalVars.dataProcessors) {
+            outputs.put(it.editor.source, it);
+        }
+
+        final Set<DataTypeBase> blocked = new HashSet<>();
+        for(Tuple3<DataTypeBase, ?, Boolean> it: signalVars.subscribedProducers) {
+            if (it.third) {
+                blocked.add(it.first);
+            } else if (!outputs.containsKey(it.first) && isUnassignedOutput(it.first)) {
+                return checkForced(signalVars, host);
+            }
+        }
+        for(Pair<? extends DataTypeBase, ?> it: signalVars.reactions) {
+            blocked.add(it.first);
+        }
+        for(Pair<String, Tuple3<DataTypeBase, Integer, byte[]>> it: signalVars.feedback) {
+            blocked.add(it.second.first);
+        }
+        for(Processor it: signalVars.taggedProcessors.values()) {
+            blocked.add(it.editor.source);
+        }
+
+        final Set<Processor> candidates = new HashSet<>();
+        ListIterator<Processor> it = signalVars.dataProcessors.listIterator(signalVars.dataProcessors.size());
+        while(it.hasPrevious()) {
+            Processor current = it.previous();
+            DataTypeBase input = current.editor.source.input;
+
+            if (!outputs.containsKey(input) && isUnassignedOutput(input)) {
+                return checkForced(signalVars, host);
+            }
+
+            boolean consumedByBoard = false;
+            for(Processor other: signalVars.dataProcessors) {
+                if (other.editor.source.input == current.editor.source && !candidates.contains(other)) {
+                    consumedByBoard = true;
+                    break;
+                }
+            }
+            if (!consumedByBoard && !blocked.contains(current.editor.source) && isSupported(current.editor.configObj)) {
+                candidates.add(current);
+            }
+        }
+
+        for(Processor forced: signalVars.hostProcessors) {
+            if (!candidates.contains(forced)) {
+                throw new IllegalRouteOperationException("Data processor cannot be run on the host, its output must only be streamed");
+            }
+            host.add(forced);
+        }
+
+        int remaining = 0;
+        for(Processor current: signalVars.dataProcessors) {
+            if (!host.contains(current) && !shared.contains(current)) {
+                remaining++;
+            }
+        }
+        it = signalVars.dataProcessors.listIterator(signalVars.dataProcessors.size());
+        while(it.hasPrevious() && remaining > available) {
+            Processor current = it.previous();
+            // moving a shared processor does not free a slot
+            if (candidates.contains(current) && !host.contains(current) && !shared.contains(current)) {
+                host.add(current);
+                remaining--;
+            }
+        }
+
+        Iterator<Processor> board = signalVars.dataProcessors.iterator();
+        while(board.hasNext()) {
+            if (host.contains(board.next())) {
+                board.remove();
+            }
+        }
+        for(Processor current: signalVars.dataProcessors) {
+            Processor parent = outputs.get(current.editor.source.input);
+            if (parent != null && host.contains(parent)) {
+                throw new IllegalRouteOperationException("On-board data processors cannot use the output of a host data processor");
+            }
+        }
+        return host;
+    }
+
+    private static Set<Processor> checkForced(Cache signalVars, Set<Processor> host) {
+        if (!signalVars.hostProcessors.isEmpty()) {
+            throw new IllegalRouteOperationException("Cannot run data processors on the host when processing split processor data");
+        }
+        return host;
+    }
+
+    /**
+     * Builds the host processing chain ending at the source
+     * @param source    Output of a host processor
+     * @param host      Processors run on the host
+     * @return Processors from the first host stage to the source, in processing order
+     */
+    static LinkedList<Processor> chain(DataTypeBase source, Set<Processor> host) {
+        Map<DataTypeBase, Processor> outputs = new HashMap<>();
+        for(Processor it: host) {
+            outputs.put(it.editor.source, it);
+        }
+
+        LinkedList<Processor> result = new LinkedList<>();
+        DataTypeBase current = source;
+        while(outputs.containsKey(current)) {
+            Processor next = outputs.get(current);
+            result.addFirst(next);
+            current = next.editor.source.input;
+        }
+        return result;
+    }
+
+    static long read(byte[] src, int offset, int size, boolean signed) {
+        long value = 0;
+        for(int i = size - 1; i >= 0; i--) {
+            value = (value << 8) | (src[offset + i] & 0xff);
+        }
+        if (signed && size < 8) {
+            int shift = 64 - size * 8;
+            value = (value << shift) >> shift;
+        }
+        return value;
+    }
+
+    static void write(byte[] dst, int offset, int size, long value) {
+        for(int i = 0; i < size; i++) {
+            dst[offset + i] = (byte) (value >> (8 * i));
+        }
+    }
+
+    private static int[] offsets(byte[] sizes) {
+        int[] result = new int[sizes.length];
+        for(int i = 1; i < sizes.length; i++) {
+            result[i] = result[i - 1] + sizes[i - 1];
+        }
+        return result;
+    }
+
+    private static boolean compare(com.mbientlab.metawear.builder.filter.Comparison op, long value, long reference) {
+        switch(op) {
+            case EQ:
+                return value == reference;
+            case NEQ:
+                return value != reference;
+            case LT:
+                return value < reference;
+            case LTE:
+                return value <= reference;
+            case GT:
+                return value > reference;
+            case GTE:
+                return value >= reference;
+        }
+        return false;
+    }
+
+    final DataAttributes input, output;
+    final int[] inOffsets, outOffsets;
+
+    HostDataProcessor(DataAttributes input, DataAttributes output) {
+        this.input = input;
+        this.output = output;
+        this.inOffsets = offsets(input.sizes);
+        this.outOffsets = offsets(output.sizes);
+    }
+
+    long readInput(byte[] src, int offset, int channel, boolean signed) {
+        return read(src, offset + inOffsets[channel], input.sizes[channel], signed);
+    }
+
+    long readInput(byte[] src, int offset) {
+        return readInput(src, offset, 0, input.signed);
+    }
+
+    void copyInput(byte[] src, int offset, byte[] dst) {
+        System.arraycopy(src, offset, dst, 0, Math.min(dst.length, input.unitLength()));
+    }
+
+    /**
+     * Processes one sample
+     * @param src          Input data
+     * @param offset       Where the sample starts in {@code src}
+     * @param dst          Buffer to write the output to, sized to the output unit length
+     * @param timestamp    When the sample was received, in milliseconds
+     * @return True if the processor produced an output
+     */
+    abstract boolean process(byte[] src, int offset, byte[] dst, long timestamp);
+
+    private static class Passthrough extends HostDataProcessor {
+        private final com.mbientlab.metawear.builder.filter.Passthrough type;
+        private short value;
+
+        Passthrough(DataProcessorConfig.Passthrough config, DataAttributes input, DataAttributes output) {
+            super(input, output);
+            type = config.type;
+            value = config.value;
+        }
+
+        @Override
+        boolean process(byte[] src, int offset, byte[] dst, long timestamp) {
+            switch(type) {
+                case CONDITIONAL:
+                    if (value <= 0) {
+                        return false;
+                    }
+                    break;
+                case COUNT:
+                    if (value <= 0) {
+                        return false;
+                    }
+                    value--;
+                    break;
+                default:
+                    break;
+            }
+            copyInput(src, offset, dst);
+            return true;
+        }
+    }
+
+    private static class Accumulator extends HostDataProcessor {
+        private final boolean counter;
+        private long sum;
+
+        Accumulator(DataProcessorConfig.Accumulator config, DataAttributes input, DataAttributes output) {
+            super(input, output);
+            counter = config.counter;
+        }
+
+        @Override
+        boolean process(byte[] src, int offset, byte[] dst, long timestamp) {
+            sum += counter ? 1 : readInput(src, offset);
+            write(dst, 0, output.sizes[0], sum);
+            return true;
+        }
+    }
+
+    private static class Average extends HostDataProcessor {
+        private final boolean hpf;
+        private final long[] history, sums;
+        private final int samples, channels;
+        private int next, count;
+
+        Average(DataProcessorConfig.Average config, DataAttributes input, DataAttributes output) {
+            super(input, output);
+            hpf = config.hpf;
+            samples = Math.max(1, config.samples & 0xff);
+            channels = input.sizes.length;
+            history = new long[samples * channels];
+            sums = new long[channels];
+        }
+
+        @Override
+        boolean process(byte[] src, int offset, byte[] dst, long timestamp) {
+            if (count < samples) {
+                count++;
+            }
+            for(int i = 0; i < channels; i++) {
+                long value = readInput(src, offset, i, input.signed);
+                int slot = next * channels + i;
+
+                sums[i] += value - history[slot];
+                history[slot] = value;
+
+                long mean = sums[i] / count;
+                write(dst, outOffsets[i], output.sizes[i], hpf ? value - mean : mean);
+            }
+            next = (next + 1) % samples;
+            return true;
+        }
+    }
+
+    private static class SingleValueComparison extends HostDataProcessor {
+        private final com.mbientlab.metawear.builder.filter.Comparison op;
+        private final boolean signed;
+        private final long reference;
+
+        SingleValueComparison(DataProcessorConfig.SingleValueComparison config, DataAttributes input, DataAttributes output) {
+            super(input, output);
+            op = config.op;
+            signed = config.isSigned;
+            reference = config.reference;
+        }
+
+        @Override
+        boolean process(byte[] src, int offset, byte[] dst, long timestamp) {
+            if (compare(op, readInput(src, offset, 0, signed), reference)) {
+                copyInput(src, offset, dst);
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private static class MultiValueComparison extends HostDataProcessor {
+        private final com.mbientlab.metawear.builder.filter.Comparison op;
+        private final ComparisonOutput mode;
+        private final boolean signed;
+        private final long[] references;
+
+        MultiValueComparison(DataProcessorConfig.MultiValueComparison config, DataAttributes input, DataAttributes output) {
+            super(input, output);
+            op = config.op;
+            mode = config.mode;
+            signed = config.isSigned;
+            references = new long[config.references.length];
+            for(int i = 0; i < references.length; i++) {
+                references[i] = config.references[i].longValue();
+            }
+        }
+
+        @Override
+        boolean process(byte[] src, int offset, byte[] dst, long timestamp) {
+            long value = readInput(src, offset, 0, signed);
+            int match = references.length;
+            for(int i = 0; i < references.length && match == references.length; i++) {
+                if (compare(op, value, references[i])) {
+                    match = i;
+                }
+            }
+
+            switch(mode) {
+                case ABSOLUTE:
+                    if (match == references.length) {
+                        return false;
+                    }
+                    copyInput(src, offset, dst);
+                    return true;
+                case REFERENCE:
+                    if (match == references.length) {
+                        return false;
+                    }
+                    write(dst, 0, output.sizes[0], references[match]);
+                    return true;
+                case ZONE:
+                    write(dst, 0, output.sizes[0], match);
+                    return true;
+                case PASS_FAIL:
+                    write(dst, 0, output.sizes[0], match == references.length ? 0 : 1);
+                    return true;
+            }
+            return false;
+        }
+    }
+
+    private static class Combiner extends HostDataProcessor {
+        private final boolean rss, signed;
+
+        Combiner(DataProcessorConfig.Combiner config, DataAttributes input, DataAttributes output) {
+            super(input, output);
+            rss = config.rss;
+            signed = config.isSigned;
+        }
+
+        @Override
+        boolean process(byte[] src, int offset, byte[] dst, long timestamp) {
+            double sum = 0;
+            for(int i = 0; i < input.sizes.length; i++) {
+                long value = readInput(src, offset, i, signed);
+                sum += (double) value * value;
+            }
+            write(dst, 0, output.sizes[0], (long) Math.sqrt(rss ? sum : sum / input.sizes.length));
+            return true;
+        }
+    }
+
+    private static class Time extends HostDataProcessor {
+        static final byte ABSOLUTE = 0, PASSTHROUGH = 2;
+
+        private final int period, length;
+        private long last;
+        private boolean started;
+
+        Time(DataProcessorConfig.Time config, DataAttributes input, DataAttributes output) {
+            super(input, output);
+            period = config.period;
+            // absolute mode copies the input length stored in the config's 3 bit field, passthrough forwards the whole sample
+            length = config.type == PASSTHROUGH ? input.unitLength() : Math.min(input.unitLength(), ((config.input - 1) & 0x7) + 1);
+        }
+
+        @Override
+        boolean process(byte[] src, int offset, byte[] dst, long timestamp) {
+            if (started && timestamp - last < period) {
+                return false;
+            }
+            started = true;
+            last = timestamp;
+            System.arraycopy(src, offset, dst, 0, length);
+            Arrays.fill(dst, length, dst.length, (byte) 0);
+            return true;
+        }
+    }
+
+    private static class Maths extends HostDataProcessor {
+        private final DataProcessorConfig.Maths.Operation op;
+        private final boolean signed;
+        private final long rhs;
+
+        Maths(DataProcessorConfig.Maths config, DataAttributes input, DataAttributes output) {
+            super(input, output);
+            op = config.op;
+            signed = config.isSigned;
+            rhs = config.rhs;
+        }
+
+        private long apply(long value) {
+            switch(op) {
+                case ADD:
+                    return value + rhs;
+                case MULTIPLY:
+                    return value * rhs;
+                case DIVIDE:
+                    return rhs == 0 ? 0 : value / rhs;
+                case MODULUS:
+                    return rhs == 0 ? 0 : value % rhs;
+                case EXPONENT:
+                    return (long) Math.pow(value, rhs);
+                case SQRT:
+                    return (long) Math.sqrt(Math.abs(value));
+                case LEFT_SHIFT:
+                    return value << rhs;
+                case RIGHT_SHIFT:
+                    return value >> rhs;
+                case SUBTRACT:
+                    return value - rhs;
+                case ABS_VALUE:
+                    return Math.abs(value);
+                case CONSTANT:
+                    return rhs;
+            }
+            return value;
+        }
+
+        @Override
+        boolean process(byte[] src, int offset, byte[] dst, long timestamp) {
+            if (op == DataProcessorConfig.Maths.Operation.CONSTANT) {
+                write(dst, 0, output.sizes[0], rhs);
+                return true;
+            }
+            for(int i = 0; i < output.sizes.length; i++) {
+                write(dst, outOffsets[i], output.sizes[i], apply(readInput(src, offset, i, signed)));
+            }
+            return true;
+        }
+    }
+
+    private static class Delay extends HostDataProcessor {
+        private final byte[] history;
+        private final int samples, length;
+        private int next, count;
+
+        Delay(DataProcessorConfig.Delay config, DataAttributes input, DataAttributes output) {
+            super(input, output);
+            samples = config.samples & 0xff;
+            length = input.unitLength();
+            history = new byte[samples * length];
+        }
+
+        @Override
+        boolean process(byte[] src, int offset, byte[] dst, long timestamp) {
+            if (samples == 0) {
+                copyInput(src, offset, dst);
+                return true;
+            }
+
+            int slot = next * length;
+            boolean full = count == samples;
+            if (full) {
+                System.arraycopy(history, slot, dst, 0, length);
+            } else {
+                count++;
+            }
+            System.arraycopy(src, offset, history, slot, length);
+            next = (next + 1) % samples;
+            return full;
+        }
+    }
+
+    private static class Pulse extends HostDataProcessor {
+        private final PulseOutput mode;
+        private final long threshold;
+        private final int samples;
+        private boolean active, detected;
+        private int width;
+        private long area, peak;
+
+        Pulse(DataProcessorConfig.Pulse config, DataAttributes input, DataAttributes output) {
+            super(input, output);
+            mode = config.mode;
+            threshold = config.threshold;
+            samples = config.samples & 0xffff;
+        }
+
+        @Override
+        boolean process(byte[] src, int offset, byte[] dst, long timestamp) {
+            long value = readInput(src, offset);
+            if (value > threshold) {
+                if (!active) {
+                    active = true;
+                    detected = false;
+                    width = 0;
+                    area = 0;
+                    peak = value;
+                }
+                width++;
+                area += value;
+                peak = Math.max(peak, value);
+
+                if (mode == PulseOutput.ON_DETECT && !detected && width >= samples) {
+                    detected = true;
+                    write(dst, 0, output.sizes[0], 1);
+                    return true;
+                }
+                return false;
+            }
+
+            if (!active) {
+                return false;
+            }
+            active = false;
+            if (width < samples) {
+                return false;
+            }
+
+            switch(mode) {
+                case WIDTH:
+                    write(dst, 0, output.sizes[0], width);
+                    return true;
+                case AREA:
+                    write(dst, 0, output.sizes[0], area);
+                    return true;
+                case PEAK:
+                    write(dst, 0, output.sizes[0], peak);
+                    return true;
+                default:
+                    return false;
+            }
+        }
+    }
+
+    private static class Differential extends HostDataProcessor {
+        private final DifferentialOutput mode;
+        private final boolean signed;
+        private final long distance;
+        private boolean hasReference;
+        private long reference;
+
+        Differential(DataProcessorConfig.Differential config, DataAttributes input, DataAttributes output) {
+            super(input, output);
+            mode = config.mode;
+            signed = config.isSigned;
+            distance = config.differential;
+        }
+
+        @Override
+        boolean process(byte[] src, int offset, byte[] dst, long timestamp) {
+            long value = readInput(src, offset, 0, signed);
+            if (!hasReference) {
+                hasReference = true;
+                reference = value;
+                return false;
+            }
+
+            long difference = value - reference;
+            if (Math.abs(difference) <= distance) {
+                return false;
+            }
+            reference = value;
+
+            switch(mode) {
+                case ABSOLUTE:
+                    copyInput(src, offset, dst);
+                    break;
+                case DIFFERENCE:
+                    write(dst, 0, output.sizes[0], difference);
+                    break;
+                case BINARY:
+                    write(dst, 0, output.sizes[0], difference > 0 ? 1 : -1);
+                    break;
+            }
+            return true;
+        }
+    }
+
+    private static class Threshold extends HostDataProcessor {
+        private final ThresholdOutput mode;
+        private final boolean signed;
+        private final long boundary, hysteresis;
+        private int side;
+
+        Threshold(DataProcessorConfig.Threshold config, DataAttributes input, DataAttributes output) {
+            super(input, output);
+            mode = config.mode;
+            signed = config.isSigned;
+            boundary = config.boundary;
+            hysteresis = config.hysteresis;
+        }
+
+        @Override
+        boolean process(byte[] src, int offset, byte[] dst, long timestamp) {
+            long value = readInput(src, offset, 0, signed);
+            int current = side;
+            if (value > boundary + hysteresis || (side == 0 && value > boundary)) {
+                current = 1;
+            } else if (value < boundary - hysteresis || (side == 0 && value < boundary)) {
+                current = -1;
+            }
+
+            boolean crossed = side != 0 && current != side;
+            side = current;
+            if (!crossed) {
+                return false;
+            }
+
+            if (mode == ThresholdOutput.BINARY) {
+                write(dst, 0, output.sizes[0], side);
+            } else {
+                copyInput(src, offset, dst);
+            }
+            return true;
+        }
+    }
+
+    private static class Buffer extends HostDataProcessor {
+        private final byte[] state;
+
+        Buffer(DataAttributes input, DataAttributes output) {
+            super(input, output);
+            state = new byte[input.unitLength()];
+        }
+
+        @Override
+        boolean process(byte[] src, int offset, byte[] dst, long timestamp) {
+            System.arraycopy(src, offset, state, 0, state.length);
+            return false;
+        }
+    }
+
+    private static class Packer extends HostDataProcessor {
+        Packer(DataAttributes input, DataAttributes output) {
+            super(input, output);
+        }
+
+        @Override
+        boolean process(byte[] src, int offset, byte[] dst, long timestamp) {
+            // packing only saves ble bandwidth, samples are passed through individually on the host
+            copyInput(src, offset, dst);
+            return true;
+        }
+    }
+}
@@ -53,7 +53,7 @@ class IBeaconImpl extends ModuleImplBase implements IBeacon {
 
     @Override
     protected void init() {
-        readConfigTask = new TimedTask<>();
+        readConfigTask = new TimedTask<>(mwPrivate.executor());
 
         for(byte id: new byte[] {AD_UUID, MAJOR, MINOR, RX, TX, PERIOD}) {
             this.mwPrivate.addResponseHandler(new Pair<>(IBEACON.id, Util.setRead(id)), response -> readConfigTask.setResult(response));
@@ -181,32 +181,32 @@ class IBeaconImpl extends ModuleImplBase implements IBeacon {
         final Capture<Short> major = new Capture<>(), minor = new Capture<>();
         final Capture<Byte> rxPower = new Capture<>(), txPower = new Capture<>();
 
-        return readConfigTask.execute("Did not receive ibeacon ad UUID within %dms", Constant.RESPONSE_TIMEOUT,
+        return readConfigTask.execute("Did not receive ibeacon ad UUID within %dms", mwPrivate.getRttEstimator(),
                 () -> mwPrivate.sendCommand(new byte[] {IBEACON.id, Util.setRead(AD_UUID)})
         ).onSuccessTask(task -> {
             ad.set(new UUID(ByteBuffer.wrap(task.getResult(), 10, 8).order(ByteOrder.LITTLE_ENDIAN).getLong(),
                     ByteBuffer.wrap(task.getResult(), 2, 8).order(ByteOrder.LITTLE_ENDIAN).getLong()));
-            return readConfigTask.execute("Did not receive iBeacon major value within %dms",  Constant.RESPONSE_TIMEOUT,
+            return readConfigTask.execute("Did not receive iBeacon major value within %dms",  mwPrivate.getRttEstimator(),
                     () -> mwPrivate.sendCommand(new byte[] {IBEACON.id, Util.setRead(MAJOR)}));
-        }).onSuccessTask(task -> {
+        }, mwPrivate.executor()).onSuccessTask(task -> {
             major.set(ByteBuffer.wrap(task.getResult(), 2, 2).order(ByteOrder.LITTLE_ENDIAN).getShort());
-            return readConfigTask.execute("Did not receive iBeacon minor value within %dms",  Constant.RESPONSE_TIMEOUT,
+            return readConfigTask.execute("Did not receive iBeacon minor value within %dms",  mwPrivate.getRttEstimator(),
                     () -> mwPrivate.sendCommand(new byte[] {IBEACON.id, Util.setRead(MINOR)}));
-        }).onSuccessTask(task -> {
+        }, mwPrivate.executor()).onSuccessTask(task -> {
             minor.set(ByteBuffer.wrap(task.getResult(), 2, 2).order(ByteOrder.LITTLE_ENDIAN).getShort());
-            return readConfigTask.execute("Did not receive iBeacon rx value within %dms",  Constant.RESPONSE_TIMEOUT,
+            return readConfigTask.execute("Did not receive iBeacon rx value within %dms",  mwPrivate.getRttEstimator(),
                     () -> mwPrivate.sendCommand(new byte[] {IBEACON.id, Util.setRead(RX)}));
-        }).onSuccessTask(task -> {
+        }, mwPrivate.executor()).onSuccessTask(task -> {
             rxPower.set(task.getResult()[2]);
-            return readConfigTask.execute("Did not receive iBeacon tx value within %dms",  Constant.RESPONSE_TIMEOUT,
+            return readConfigTask.execute("Did not receive iBeacon tx value within %dms",  mwPrivate.getRttEstimator(),
                     () -> mwPrivate.sendCommand(new byte[] {IBEACON.id, Util.setRead(TX)}));
-        }).onSuccessTask(task -> {
+        }, mwPrivate.executor()).onSuccessTask(task -> {
             txPower.set(task.getResult()[2]);
-            return readConfigTask.execute("Did not receive iBeacon period value within %dms",  Constant.RESPONSE_TIMEOUT,
+            return readConfigTask.execute("Did not receive iBeacon period value within %dms",  mwPrivate.getRttEstimator(),
                     () -> mwPrivate.sendCommand(new byte[] {IBEACON.id, Util.setRead(PERIOD)}));
-        }).onSuccessTask(task -> {
+        }, mwPrivate.executor()).onSuccessTask(task -> {
             short period = ByteBuffer.wrap(task.getResult(), 2, 2).order(ByteOrder.LITTLE_ENDIAN).getShort();
             return Task.forResult(new Configuration(ad.get(), major.get(), minor.get(), period, rxPower.get(), txPower.get()));
-        });
+        }, mwPrivate.executor());
     }
 }
@@ -30,6 +30,7 @@ import com.mbientlab.metawear.DataToken;
 import com.mbientlab.metawear.DeviceInformation;
 import com.mbientlab.metawear.IllegalFirmwareFile;
 import com.mbientlab.metawear.IllegalRouteOperationException;
+import com.mbientlab.metawear.LinkBudget;
 import com.mbientlab.metawear.Model;
 import com.mbientlab.metawear.Observer;
 import com.mbientlab.metawear.MetaWearBoard;
@@ -61,23 +62,28 @@ import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.OutputStream;
 import java.io.Serializable;
+import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
-import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Queue;
+import java.util.Set;
 import java.util.TreeSet;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.RejectedExecutionException;
 
 import bolts.CancellationTokenSource;
 import bolts.Capture;
@@ -111,6 +117,47 @@ public class JseMetaWearBoard implements MetaWearBoard {
         void onResponseReceived(byte[] response);
     }
 
+    // Modules the board itself relies on, created as soon as they are discovered.  All other modules are only created
+    // when first retrieved.
+    private static final EnumSet<Constant.Module> EAGER_MODULES = EnumSet.of(DATA_PROCESSOR, Constant.Module.EVENT,
+            Constant.Module.LOGGING, Constant.Module.TIMER, Constant.Module.MACRO);
+    private static final Map<Class<? extends Module>, Constant.Module> MODULE_IDS = new HashMap<>();
+    static {
+        MODULE_IDS.put(Switch.class, Constant.Module.SWITCH);
+        MODULE_IDS.put(Led.class, Constant.Module.LED);
+        MODULE_IDS.put(Accelerometer.class, Constant.Module.ACCELEROMETER);
+        MODULE_IDS.put(AccelerometerMma8452q.class, Constant.Module.ACCELEROMETER);
+        MODULE_IDS.put(AccelerometerBosch.class, Constant.Module.ACCELEROMETER);
+        MODULE_IDS.put(AccelerometerBmi160.class, Constant.Module.ACCELEROMETER);
+        MODULE_IDS.put(AccelerometerBma255.class, Constant.Module.ACCELEROMETER);
+        MODULE_IDS.put(Temperature.class, Constant.Module.TEMPERATURE);
+        MODULE_IDS.put(Gpio.class, Constant.Module.GPIO);
+        MODULE_IDS.put(NeoPixel.class, Constant.Module.NEO_PIXEL);
+        MODULE_IDS.put(IBeacon.class, Constant.Module.IBEACON);
+        MODULE_IDS.put(Haptic.class, Constant.Module.HAPTIC);
+        MODULE_IDS.put(DataProcessor.class, DATA_PROCESSOR);
+        MODULE_IDS.put(EventImpl.class, Constant.Module.EVENT);
+        MODULE_IDS.put(Logging.class, Constant.Module.LOGGING);
+        MODULE_IDS.put(Timer.class, Constant.Module.TIMER);
+        MODULE_IDS.put(SerialPassthrough.class, Constant.Module.SERIAL_PASSTHROUGH);
+        MODULE_IDS.put(Macro.class, Constant.Module.MACRO);
+        MODULE_IDS.put(Gsr.class, Constant.Module.GSR);
+        MODULE_IDS.put(Settings.class, Constant.Module.SETTINGS);
+        MODULE_IDS.put(BarometerBosch.class, Constant.Module.BAROMETER);
+        MODULE_IDS.put(BarometerBmp280.class, Constant.Module.BAROMETER);
+        MODULE_IDS.put(BarometerBme280.class, Constant.Module.BAROMETER);
+        MODULE_IDS.put(Gyro.class, Constant.Module.GYRO);
+        MODULE_IDS.put(GyroBmi160.class, Constant.Module.GYRO);
+        MODULE_IDS.put(GyroBmi270.class, Constant.Module.GYRO);
+        MODULE_IDS.put(AmbientLightLtr329.class, Constant.Module.AMBIENT_LIGHT);
+        MODULE_IDS.put(MagnetometerBmm150.class, Constant.Module.MAGNETOMETER);
+        MODULE_IDS.put(HumidityBme280.class, Constant.Module.HUMIDITY);
+        MODULE_IDS.put(ColorTcs34725.class, Constant.Module.COLOR_DETECTOR);
+        MODULE_IDS.put(ProximityTsl2671.class, Constant.Module.PROXIMITY);
+        MODULE_IDS.put(SensorFusionBosch.class, Constant.Module.SENSOR_FUSION);
+        MODULE_IDS.put(Debug.class, Constant.Module.DEBUG);
+    }
+
     private enum RouteType {
         DATA,
         TIMER,
@@ -141,6 +188,28 @@ public class JseMetaWearBoard implements MetaWearBoard {
 
     // Persistent data
     private PersistentData persist= new PersistentData();
+    // Guards persist.modules and persist.taggedProducers, modules are created lazily from user threads, decoder threads,
+    // and the board executor and tag their producers as they are created
+    private final Object moduleLock = new Object();
+    // Read only view of the modules that creates modules on lookup, same as getModule
+    private final Map<Class<? extends Module>, Module> modulesView = new AbstractMap<Class<? extends Module>, Module>() {
+        @Override
+        public Module get(Object key) {
+            return key instanceof Class ? lookupModule((Class<?>) key) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public Set<Entry<Class<? extends Module>, Module>> entrySet() {
+            synchronized (moduleLock) {
+                return Collections.unmodifiableMap(new LinkedHashMap<>(persist.modules)).entrySet();
+            }
+        }
+    };
 
     // routes
     private final Queue<Tuple3<RouteBuilder, ? extends RouteComponentImpl, TaskCompletionSource<Route>>> pendingRoutes= new ConcurrentLinkedQueue<>();
@@ -153,9 +222,14 @@ public class JseMetaWearBoard implements MetaWearBoard {
     private EventImpl event;
     private MacroImpl macro;
 
-    private final HashSet<Pair<Byte, Byte>> dataIdHeaders= new HashSet<>();
-    private final Map<Tuple3<Byte, Byte, Byte>, LinkedHashSet<RegisterResponseHandler>> dataHandlers= new HashMap<>();
-    private final Map<Pair<Byte, Byte>, RegisterResponseHandler> registerResponseHandlers= new HashMap<>();
+    // handlers are registered from whichever thread creates a module or route while notifications read them
+    private final Set<Pair<Byte, Byte>> dataIdHeaders= Collections.newSetFromMap(new ConcurrentHashMap<>());
+    private final Map<Tuple3<Byte, Byte, Byte>, Set<RegisterResponseHandler>> dataHandlers= new ConcurrentHashMap<>();
+    private final Map<Pair<Byte, Byte>, RegisterResponseHandler> registerResponseHandlers= new ConcurrentHashMap<>();
+    // producer chain identifiers, looked up by subscribers for every sample so only computed once per producer
+    private final Map<DataTypeBase, String> identifiers = new ConcurrentHashMap<>();
+    // bumped when a module's configuration changes so producers recompute their cached scale factors
+    private volatile int scaleGeneration = 1;
 
     private final String macAddress, libVersion;
     private final IO io;
@@ -164,6 +238,9 @@ public class JseMetaWearBoard implements MetaWearBoard {
     // module discovery
     private TimedTask<byte[]> readModuleInfoTask;
 
+    // Round trip times of register reads, drives the response timeouts
+    private final RttEstimator responseRtt = new RttEstimator(Constant.RESPONSE_TIMEOUT, Constant.MIN_RESPONSE_TIMEOUT, Constant.MAX_RESPONSE_TIMEOUT);
+
     // Device Information
     private String serialNumber, manufacturer;
 
@@ -171,7 +248,7 @@ public class JseMetaWearBoard implements MetaWearBoard {
     private CancellationTokenSource connectCts = null;
     private UnexpectedDisconnectHandler unexpectedDcHandler;
     private Task<Void> connectTask = null;
-    private boolean connected;
+    private volatile boolean connected;
 
     private final MetaWearBoardPrivate mwPrivate = new MetaWearBoardPrivate() {
         @Override
@@ -227,22 +304,30 @@ public class JseMetaWearBoard implements MetaWearBoard {
 
         @Override
         public void tagProducer(String name, DataTypeBase producer) {
-            persist.taggedProducers.put(name, producer);
+            synchronized (moduleLock) {
+                persist.taggedProducers.put(name.intern(), producer);
+            }
         }
 
         @Override
         public DataTypeBase lookupProducer(String name) {
-            return persist.taggedProducers.get(name);
+            synchronized (moduleLock) {
+                return persist.taggedProducers.get(name);
+            }
         }
 
         @Override
         public boolean hasProducer(String name) {
-            return persist.taggedProducers.containsKey(name);
+            synchronized (moduleLock) {
+                return persist.taggedProducers.containsKey(name);
+            }
         }
 
         @Override
         public void removeProducerTag(String name) {
-            persist.taggedProducers.remove(name);
+            synchronized (moduleLock) {
+                persist.taggedProducers.remove(name);
+            }
         }
 
         @Override
@@ -252,12 +337,20 @@ public class JseMetaWearBoard implements MetaWearBoard {
 
         @Override
         public Collection<DataTypeBase> getDataTypes() {
-            return persist.taggedProducers.values();
+            // Callers search every producer the board has, not just those of modules in use
+            synchronized (moduleLock) {
+                for(ModuleInfo it: persist.boardInfo.moduleInfo.values()) {
+                    if (!isInstantiated(Constant.Module.lookupEnum(it.id))) {
+                        instantiateModule(it);
+                    }
+                }
+                return new ArrayList<>(persist.taggedProducers.values());
+            }
         }
 
         @Override
         public Map<Class<? extends Module>, Module> getModules() {
-            return Collections.unmodifiableMap(persist.modules);
+            return modulesView;
         }
 
         @Override
@@ -272,22 +365,22 @@ public class JseMetaWearBoard implements MetaWearBoard {
 
         @Override
         public void addDataHandler(Tuple3<Byte, Byte, Byte> key, RegisterResponseHandler handler) {
-            if (!dataHandlers.containsKey(key)) {
-                dataHandlers.put(key, new LinkedHashSet<>());
-            }
-            dataHandlers.get(key).add(handler);
+            // copy on write so notifications can iterate the handlers while subscribers are added
+            dataHandlers.computeIfAbsent(key, ignored -> new CopyOnWriteArraySet<>()).add(handler);
         }
 
         @Override
         public void removeDataHandler(Tuple3<Byte, Byte, Byte> key, RegisterResponseHandler handler) {
-            if (dataHandlers.containsKey(key) && dataHandlers.get(key).contains(handler)) {
-                dataHandlers.get(key).remove(handler);
+            Set<RegisterResponseHandler> handlers = dataHandlers.get(key);
+            if (handlers != null) {
+                handlers.remove(handler);
             }
         }
 
         @Override
         public int numDataHandlers(Tuple3<Byte, Byte, Byte> key) {
-            return dataHandlers.containsKey(key) ? dataHandlers.get(key).size() : 0;
+            Set<RegisterResponseHandler> handlers = dataHandlers.get(key);
+            return handlers != null ? handlers.size() : 0;
         }
 
         @Override
@@ -308,8 +401,9 @@ public class JseMetaWearBoard implements MetaWearBoard {
         @Override
         public Task<Route> queueRouteBuilder(RouteBuilder builder, String producerTag) {
             TaskCompletionSource<Route> taskSrc= new TaskCompletionSource<>();
-            if (persist.taggedProducers.containsKey(producerTag)) {
-                pendingRoutes.add(new Tuple3<>(builder, new RouteComponentImpl(persist.taggedProducers.get(producerTag)), taskSrc));
+            DataTypeBase producer = lookupProducer(producerTag);
+            if (producer != null) {
+                pendingRoutes.add(new Tuple3<>(builder, new RouteComponentImpl(producer), taskSrc));
                 routeTypes.add(RouteType.DATA);
                 createRoute(false);
             } else {
@@ -345,8 +439,49 @@ public class JseMetaWearBoard implements MetaWearBoard {
         public Version getFirmwareVersion() {
             return persist.boardInfo.firmware;
         }
+
+        @Override
+        public RttEstimator getRttEstimator() {
+            return responseRtt;
+        }
+
+        @Override
+        public BoardExecutor executor() {
+            return executor;
+        }
+
+        @Override
+        public String producerChainIdentifier(DataTypeBase source) {
+            String identifier = identifiers.get(source);
+            if (identifier == null) {
+                String uri = DataTypeBase.createUri(source, this);
+                identifier = source.input == null ? uri : producerChainIdentifier(source.input) + ":" + uri;
+                identifiers.put(source, identifier);
+            }
+            return identifier;
+        }
+
+        @Override
+        public void invalidateIdentifiers() {
+            identifiers.clear();
+        }
+
+        @Override
+        public void invalidateScales() {
+            scaleGeneration = scaleGeneration == Integer.MAX_VALUE ? 1 : scaleGeneration + 1;
+        }
+
+        @Override
+        public int scaleGeneration() {
+            return scaleGeneration;
+        }
     };
 
+    // Estimates the notification rate of the streamed routes
+    private final LinkBudgetImpl linkBudget;
+    private final BoardExecutor executor;
+    private ModuleInfoCache moduleInfoCache;
+
     /**
      * Constructs a JseMetaWearBoard object
      * @param gatt          Object for handing Bluetooth LE GATT operations
@@ -354,32 +489,103 @@ public class JseMetaWearBoard implements MetaWearBoard {
      * @param macAddress    Device's MAC address
      */
     public JseMetaWearBoard(BtleGatt gatt, IO io, String macAddress, String libVersion) {
+        this(gatt, io, macAddress, libVersion, BoardExecutor.IMMEDIATE);
+    }
+
+    /**
+     * Constructs a JseMetaWearBoard object whose internal task continuations and timeouts run on the given executor.
+     * Unless the executor is {@link BoardExecutor#IMMEDIATE}, notifications and disconnect callbacks from the GATT layer
+     * are handed to it as well.
+     * @param gatt          Object for handing Bluetooth LE GATT operations
+     * @param io            Object for handling IO operations
+     * @param macAddress    Device's MAC address
+     * @param executor      Executor for the board's task continuations, timeouts, and GATT callbacks
+     */
+    public JseMetaWearBoard(BtleGatt gatt, IO io, String macAddress, String libVersion, BoardExecutor executor) {
+        this.executor = executor;
         this.io = io;
         this.gatt = gatt;
         this.macAddress = macAddress;
         this.libVersion = libVersion;
+        this.linkBudget = new LinkBudgetImpl(mwPrivate, io) {
+            @Override
+            Collection<DataTypeBase> activeStreams() {
+                ArrayList<DataTypeBase> streams = new ArrayList<>();
+                for(RouteInner it: persist.activeRoutes.values()) {
+                    for(DeviceDataConsumer consumer: it.consumers) {
+                        if (consumer instanceof HostDataConsumer) {
+                            streams.add(((HostDataConsumer) consumer).boardSource);
+                        } else if (consumer instanceof StreamedDataConsumer) {
+                            streams.add(consumer.source);
+                        }
+                    }
+                }
+                return streams;
+            }
+        };
 
-        readModuleInfoTask = new TimedTask<>();
+        readModuleInfoTask = new TimedTask<>(executor);
         gatt.onDisconnect(new BtleGatt.DisconnectHandler() {
             @Override
             public void onDisconnect() {
                 connected = false;
-                for(Module it: persist.modules.values()) {
-                    ((ModuleImplBase) it).disconnected();
-                }
+                runOnExecutor(() -> disconnected());
             }
 
             @Override
             public void onUnexpectedDisconnect(int status) {
-                onDisconnect();
-
-                if (unexpectedDcHandler != null) {
-                    unexpectedDcHandler.disconnected(status);
-                }
+                connected = false;
+                runOnExecutor(() -> {
+                    disconnected();
+                    if (unexpectedDcHandler != null) {
+                        unexpectedDcHandler.disconnected(status);
+                    }
+                });
             }
         });
     }
 
+    /**
+     * Runs a callback from the GATT layer on the board's executor, after any notifications received before it, so
+     * module state is only touched from the executor's thread.  Callbacks stay on the GATT thread with the default
+     * executor.
+     */
+    private void runOnExecutor(Runnable action) {
+        if (executor == BoardExecutor.IMMEDIATE) {
+            action.run();
+        } else {
+            try {
+                executor.execute(action);
+            } catch (RejectedExecutionException ignored) {
+                // executor has been shut down, the board can no longer be used
+            }
+        }
+    }
+
+    private void disconnected() {
+        responseRtt.reset();
+        for(Module it: moduleSnapshot()) {
+            ((ModuleImplBase) it).disconnected();
+        }
+    }
+
+    private void notificationReceived(byte[] value) {
+        Pair<Byte, Byte> header= new Pair<>(value[0], value[1]);
+        Tuple3<Byte, Byte, Byte> dataHandlerKey= new Tuple3<>(value[0], value[1], dataIdHeaders.contains(header) ? value[2] : DataTypeBase.NO_DATA_ID);
+
+        Set<RegisterResponseHandler> handlers = dataHandlers.get(dataHandlerKey);
+        RegisterResponseHandler responseHandler;
+        if (handlers != null) {
+            for(RegisterResponseHandler handler: handlers) {
+                handler.onResponseReceived(value);
+            }
+        } else if ((responseHandler = registerResponseHandlers.get(header)) != null) {
+            responseHandler.onResponseReceived(value);
+        } else if (value[1] == READ_INFO_REGISTER) {
+            readModuleInfoTask.setResult(value);
+        }
+    }
+
     public String getFirmware() {
         return persist.boardInfo.firmware.toString();
     }
@@ -498,7 +704,7 @@ public class JseMetaWearBoard implements MetaWearBoard {
 
     @Override
     public Task<Byte> readBatteryLevelAsync() {
-        return gatt.readCharacteristicAsync(BatteryService.BATTERY_LEVEL).onSuccessTask(task -> Task.forResult(task.getResult()[0]));
+        return gatt.readCharacteristicAsync(BatteryService.BATTERY_LEVEL).onSuccessTask(task -> Task.forResult(task.getResult()[0]), executor);
     }
 
     @Override
@@ -516,7 +722,7 @@ public class JseMetaWearBoard implements MetaWearBoard {
 
             return Task.forResult(new DeviceInformation(manufacturer, persist.boardInfo.modelNumber, serialNumber,
                     persist.boardInfo.firmware.toString(), persist.boardInfo.hardwareRevision));
-        });
+        }, executor);
     }
 
     private String generateFileName(String build, Version version, String filename) {
@@ -553,7 +759,7 @@ public class JseMetaWearBoard implements MetaWearBoard {
                     }
 
                     return Task.forResult(new JSONObject(builder.toString()));
-                });
+                }, executor);
     }
 
     private static final Version BOOTLOADER_CUTOFF = new Version("1.4.0"),
@@ -614,15 +820,15 @@ public class JseMetaWearBoard implements MetaWearBoard {
                 final File dest = io.findDownloadedFile(destName);
 
                 task2 = task2.onSuccessTask(ignored ->
-                    !dest.exists() ? downloadFirmwareFile(info.first, info.second, info.third) : Task.forResult(dest)
+                    !dest.exists() ? downloadFirmwareFile(info.first, info.second, info.third) : Task.forResult(dest), executor
                 ).onSuccessTask(fileTask -> {
                     dests.add(fileTask.getResult());
                     return Task.forResult(null);
-                });
+                }, executor);
             }
 
-            return task2.onSuccessTask(ignored -> Task.forResult(dests));
-        });
+            return task2.onSuccessTask(ignored -> Task.forResult(dests), executor);
+        }, executor);
     }
 
     @Override
@@ -660,16 +866,16 @@ public class JseMetaWearBoard implements MetaWearBoard {
             );
 
             return downloadFirmwareFile(build, new Version(firmware.get().version), firmware.get().filename);
-        }).onSuccessTask(task -> {
+        }, executor).onSuccessTask(task -> {
             files.get().add(task.getResult());
             return inMetaBootMode() ? Task.forResult(null) :
                     getModule(Debug.class).jumpToBootloaderAsync()
-                        .onSuccessTask(ignored -> connectWithRetryAsync(3))
+                        .onSuccessTask(ignored -> connectWithRetryAsync(3), executor)
                         .onSuccessTask(ignored -> !inMetaBootMode() ?
                                 Task.forError(new IllegalStateException("Board is still in MetaWear mode")) :
-                                Task.forResult(null)
+                                Task.forResult(null), executor
                         );
-        }).onSuccessTask(ignored -> {
+        }, executor).onSuccessTask(ignored -> {
             if (!inMetaBootMode()) {
                 return Task.forError(new IllegalStateException("Board is still in MetaWear mode"));
             }
@@ -687,10 +893,10 @@ public class JseMetaWearBoard implements MetaWearBoard {
                 tasks.add(it.downloadAsync(io));
             }
             return Task.whenAllResult(tasks);
-        }).onSuccessTask(task -> {
+        }, executor).onSuccessTask(task -> {
             files.get().addAll(0, task.getResult());
             return dcTask.get();
-        }).onSuccessTask(ignored -> Task.forResult(files.get()));
+        }, executor).onSuccessTask(ignored -> Task.forResult(files.get()), executor);
     }
 
     @Override
@@ -751,7 +957,7 @@ public class JseMetaWearBoard implements MetaWearBoard {
 
             Pair<JSONObject, Version> result = findFirmwareAttrs(builds.getJSONObject(build), null);
             return Task.forResult(result.second.compareTo(persist.boardInfo.firmware) > 0 ? result.second.toString() : null);
-        });
+        }, executor);
     }
 
     @Override
@@ -762,7 +968,7 @@ public class JseMetaWearBoard implements MetaWearBoard {
             } else {
                 return Task.forResult(task.getResult().get(0));
             }
-        });
+        }, executor);
     }
 
     @Override
@@ -772,7 +978,7 @@ public class JseMetaWearBoard implements MetaWearBoard {
 
     @Override
     public Task<Boolean> checkForFirmwareUpdateAsync() {
-        return findLatestAvailableFirmwareAsync().onSuccessTask(task -> Task.forResult(task.getResult() != null));
+        return findLatestAvailableFirmwareAsync().onSuccessTask(task -> Task.forResult(task.getResult() != null), executor);
     }
 
     public void loadBoardAttributes() throws IOException, ClassNotFoundException {
@@ -785,7 +991,9 @@ public class JseMetaWearBoard implements MetaWearBoard {
                 if (boardInfoState != null) {
                     persist.boardInfo = boardInfoState;
                     for (ModuleInfo it : boardInfoState.moduleInfo.values()) {
-                        instantiateModule(it);
+                        if (EAGER_MODULES.contains(Constant.Module.lookupEnum(it.id))) {
+                            instantiateEagerModule(it);
+                        }
                     }
                 } else {
                     persist.boardInfo = new BoardInfo();
@@ -796,6 +1004,62 @@ public class JseMetaWearBoard implements MetaWearBoard {
         }
     }
 
+    /**
+     * Sets the cache to share module information with other boards of the same model, hardware revision, and
+     * firmware.  Boards do not use a cache unless one is set.
+     * @param cache    Cache to use, null to always discover the modules
+     */
+    public void setModuleInfoCache(ModuleInfoCache cache) {
+        this.moduleInfoCache = cache;
+    }
+
+    private Task<ModuleInfo> readModuleInfo(final Constant.Module module) {
+        return readModuleInfoTask.execute("Did not receive info for module (" + module.friendlyName + ") within %dms", responseRtt,
+                () -> gatt.writeCharacteristicAsync(MW_CMD_GATT_CHAR, WriteType.WITHOUT_RESPONSE, new byte[] { module.id, READ_INFO_REGISTER })
+        ).onSuccess(task -> new ModuleInfo(task.getResult()), executor);
+    }
+
+    // Reuses cached module info if reading one module confirms it belongs to this board
+    private Task<Queue<ModuleInfo>> lookupModules() {
+        final List<ModuleInfo> cached = moduleInfoCache.lookup(persist.boardInfo.modelNumber, persist.boardInfo.hardwareRevision, persist.boardInfo.firmware);
+        ModuleInfo expected = null;
+        if (cached != null) {
+            for(ModuleInfo it: cached) {
+                if (it.id == Constant.Module.SETTINGS.id) {
+                    expected = it;
+                }
+            }
+        }
+        if (expected == null) {
+            return discoverModules(Collections.emptySet()).onSuccessTask(task -> {
+                cacheModules(task.getResult());
+                return task;
+            }, executor);
+        }
+
+        final ModuleInfo settings = expected;
+        return readModuleInfo(Constant.Module.SETTINGS).continueWithTask(task -> {
+            if (task.isFaulted()) {
+                return Task.forError(new TaskTimeoutException(task.getError(), new LinkedList<ModuleInfo>()));
+            }
+            if (task.getResult().equals(settings)) {
+                return Task.<Queue<ModuleInfo>>forResult(new LinkedList<>(cached));
+            }
+            return discoverModules(Collections.emptySet()).onSuccessTask(discovered -> {
+                cacheModules(discovered.getResult());
+                return discovered;
+            }, executor);
+        }, executor);
+    }
+
+    private void cacheModules(Queue<ModuleInfo> info) {
+        try {
+            moduleInfoCache.put(persist.boardInfo.modelNumber, persist.boardInfo.hardwareRevision, persist.boardInfo.firmware, info);
+        } catch (IOException e) {
+            io.logWarn(LOG_TAG, "Cannot save module info to the shared cache", e);
+        }
+    }
+
     private Task<Queue<ModuleInfo>> discoverModules(Collection<Constant.Module> ignore) {
         final Queue<ModuleInfo> info = new LinkedList<>();
         final Queue<Constant.Module> modules = new LinkedList<>();
@@ -808,19 +1072,16 @@ public class JseMetaWearBoard implements MetaWearBoard {
         }
 
         return Task.forResult(null).continueWhile(() -> !terminate.get() && !modules.isEmpty(), ignored -> {
-            final Constant.Module next = modules.poll();
-            return readModuleInfoTask.execute("Did not receive info for module (" + next.friendlyName + ") within %dms", Constant.RESPONSE_TIMEOUT,
-                    () -> gatt.writeCharacteristicAsync(MW_CMD_GATT_CHAR, WriteType.WITHOUT_RESPONSE, new byte[] { next.id, READ_INFO_REGISTER })
-            ).continueWithTask(task -> {
+            return readModuleInfo(modules.poll()).continueWithTask(task -> {
                 if (task.isFaulted()) {
                     terminate.set(true);
                     return Task.<Void>forError(task.getError());
                 } else {
-                    info.add(new ModuleInfo(task.getResult()));
+                    info.add(task.getResult());
                     return Task.<Void>forResult(null);
                 }
-            });
-        }).continueWithTask(task -> task.isFaulted() ? Task.forError(new TaskTimeoutException(task.getError(), info)) : Task.forResult(info));
+            }, executor);
+        }, executor).continueWithTask(task -> task.isFaulted() ? Task.forError(new TaskTimeoutException(task.getError(), info)) : Task.forResult(info), executor);
     }
 
     @Override
@@ -840,7 +1101,7 @@ public class JseMetaWearBoard implements MetaWearBoard {
             loadBoardAttributes();
 
             return gatt.readCharacteristicAsync(DeviceInformationService.FIRMWARE_REVISION);
-        }).onSuccessTask(task -> {
+        }, executor).onSuccessTask(task -> {
             if (connectCts.isCancellationRequested()) {
                 return Task.cancelled();
             }
@@ -860,7 +1121,7 @@ public class JseMetaWearBoard implements MetaWearBoard {
                 });
             }
             return Task.forResult(null);
-        }).onSuccessTask(task -> {
+        }, executor).onSuccessTask(task -> {
             if (connectCts.isCancellationRequested()) {
                 return Task.cancelled();
             }
@@ -871,20 +1132,10 @@ public class JseMetaWearBoard implements MetaWearBoard {
             }
 
             return gatt.enableNotificationsAsync(MW_NOTIFY_CHAR, value -> {
-                Pair<Byte, Byte> header= new Pair<>(value[0], value[1]);
-                Tuple3<Byte, Byte, Byte> dataHandlerKey= new Tuple3<>(value[0], value[1], dataIdHeaders.contains(header) ? value[2] : DataTypeBase.NO_DATA_ID);
-
-                if (dataHandlers.containsKey(dataHandlerKey)) {
-                    for(RegisterResponseHandler handler: dataHandlers.get(dataHandlerKey)) {
-                        handler.onResponseReceived(value);
-                    }
-                } else if (registerResponseHandlers.containsKey(header)) {
-                    registerResponseHandlers.get(header).onResponseReceived(value);
-                } else if (value[1] == READ_INFO_REGISTER) {
-                    readModuleInfoTask.setResult(value);
-                }
+                linkBudget.notificationReceived();
+                runOnExecutor(() -> notificationReceived(value));
             });
-        }).onSuccessTask(task -> {
+        }, executor).onSuccessTask(task -> {
             if (connectCts.isCancellationRequested()) {
                 return Task.cancelled();
             }
@@ -892,27 +1143,32 @@ public class JseMetaWearBoard implements MetaWearBoard {
             Collection<Constant.Module> ignore = new HashSet<>();
             if (serviceDiscoveryRefresh.get()) {
                 persist.routeIdCounter= 0;
-                persist.taggedProducers.clear();
+                identifiers.clear();
                 persist.activeEventManagers.clear();
                 persist.activeRoutes.clear();
                 persist.boardInfo.moduleInfo.clear();
-                persist.modules.clear();
+                synchronized (moduleLock) {
+                    persist.taggedProducers.clear();
+                    persist.modules.clear();
+                }
             }
             ignore.addAll(persist.boardInfo.moduleInfo.keySet());
 
-            return discoverModules(ignore);
-        }).onSuccessTask(task -> {
+            return ignore.isEmpty() && moduleInfoCache != null && persist.boardInfo.modelNumber != null ? lookupModules() : discoverModules(ignore);
+        }, executor).onSuccessTask(task -> {
             if (connectCts.isCancellationRequested()) {
                 return Task.cancelled();
             }
 
             for(ModuleInfo it: task.getResult()) {
                 persist.boardInfo.moduleInfo.put(Constant.Module.lookupEnum(it.id), it);
-                instantiateModule(it);
+                if (EAGER_MODULES.contains(Constant.Module.lookupEnum(it.id))) {
+                    instantiateEagerModule(it);
+                }
             }
 
             return logger == null ? Task.forResult(null) : logger.queryTime();
-        }).continueWithTask(task -> {
+        }, executor).continueWithTask(task -> {
             if (task.isCancelled()) {
                 return task;
             }
@@ -926,12 +1182,14 @@ public class JseMetaWearBoard implements MetaWearBoard {
                         Queue<ModuleInfo> partial = (Queue<ModuleInfo>) ((TaskTimeoutException) task.getError()).partial;
                         for(ModuleInfo it: partial) {
                             persist.boardInfo.moduleInfo.put(Constant.Module.lookupEnum(it.id), it);
-                            instantiateModule(it);
+                            if (EAGER_MODULES.contains(Constant.Module.lookupEnum(it.id))) {
+                                instantiateEagerModule(it);
+                            }
                         }
                     }
 
                     return gatt.localDisconnectAsync().continueWithTask(ignored ->
-                            task.getError() instanceof TaskTimeoutException ? Task.forError((Exception) task.getError().getCause()) : task
+                            task.getError() instanceof TaskTimeoutException ? Task.forError((Exception) task.getError().getCause()) : task, executor
                     );
                 }
             }
@@ -950,7 +1208,7 @@ public class JseMetaWearBoard implements MetaWearBoard {
             }
 
             return Task.forResult(null);
-        });
+        }, executor);
 
         return connectTask;
     }
@@ -964,13 +1222,13 @@ public class JseMetaWearBoard implements MetaWearBoard {
                     lastResult.set(task);
                     remaining.set(task.isFaulted() || task.isCancelled() ? remaining.get() - 1 : -1);
                     return Task.forResult(null);
-                })
-        ).continueWithTask(ignored -> lastResult.get());
+                }, executor), executor
+        ).continueWithTask(ignored -> lastResult.get(), executor);
     }
 
     @Override
     public Task<Void> connectAsync(long delay) {
-        return Task.delay(delay).continueWithTask(task -> connectAsync());
+        return executor.delay(delay).continueWithTask(task -> connectAsync(), executor);
     }
 
     @Override
@@ -1000,7 +1258,37 @@ public class JseMetaWearBoard implements MetaWearBoard {
         if (inMetaBootMode()) {
             return null;
         }
-        return persist.modules.containsKey(moduleClass) ? moduleClass.cast(persist.modules.get(moduleClass)) : null;
+        return moduleClass.cast(lookupModule(moduleClass));
+    }
+
+    private Module lookupModule(Class<?> moduleClass) {
+        synchronized (moduleLock) {
+            Module module = persist.modules.get(moduleClass);
+            if (module == null) {
+                Constant.Module id = MODULE_IDS.get(moduleClass);
+                ModuleInfo info = id == null || persist.boardInfo == null ? null : persist.boardInfo.moduleInfo.get(id);
+                if (info != null && !isInstantiated(id)) {
+                    instantiateModule(info);
+                    module = persist.modules.get(moduleClass);
+                }
+            }
+            return module;
+        }
+    }
+
+    private List<Module> moduleSnapshot() {
+        synchronized (moduleLock) {
+            return new ArrayList<>(persist.modules.values());
+        }
+    }
+
+    private boolean isInstantiated(Constant.Module id) {
+        for(Map.Entry<Class<? extends Module>, Constant.Module> it: MODULE_IDS.entrySet()) {
+            if (it.getValue() == id && persist.modules.containsKey(it.getKey())) {
+                return true;
+            }
+        }
+        return false;
     }
 
     @Override
@@ -1025,6 +1313,11 @@ public class JseMetaWearBoard implements MetaWearBoard {
         return persist.activeEventManagers.get(id);
     }
 
+    @Override
+    public LinkBudget getLinkBudget() {
+        return linkBudget;
+    }
+
     @Override
     public void tearDown() {
         for(RouteInner it: persist.activeRoutes.values()) {
@@ -1035,7 +1328,7 @@ public class JseMetaWearBoard implements MetaWearBoard {
             it.remove(false);
         }
 
-        for(Module it: persist.modules.values()) {
+        for(Module it: moduleSnapshot()) {
             ((ModuleImplBase) it).tearDown();
         }
 
@@ -1055,13 +1348,16 @@ public class JseMetaWearBoard implements MetaWearBoard {
     @Override
     public void serialize(OutputStream outs) throws IOException {
         ObjectOutputStream oos = new ObjectOutputStream(outs);
-        oos.writeObject(persist);
+        synchronized (moduleLock) {
+            oos.writeObject(persist);
+        }
         oos.flush();
     }
 
     private void resetVars() {
         dataIdHeaders.clear();
         dataHandlers.clear();
+        identifiers.clear();
     }
 
     private void deserializeInner(InputStream stateStream) throws IOException, ClassNotFoundException {
@@ -1134,7 +1430,7 @@ public class JseMetaWearBoard implements MetaWearBoard {
 
             JSONObject actual = new JSONObject(diagnosticResult);
             return !task.isFaulted() ? Task.forResult(actual) : Task.forError(new TaskTimeoutException((Exception) task.getError().getCause(), actual));
-        });
+        }, executor);
     }
 
     private static class AnonymousRouteInner implements AnonymousRoute {
@@ -1148,7 +1444,7 @@ public class JseMetaWearBoard implements MetaWearBoard {
 
         @Override
         public String identifier() {
-            return Util.createProducerChainString(consumer.source, bridge);
+            return bridge.producerChainIdentifier(consumer.source);
         }
 
         @Override
@@ -1167,10 +1463,21 @@ public class JseMetaWearBoard implements MetaWearBoard {
         final Gyro gyro = getModule(Gyro.class);
         final SensorFusionBosch sensorFusion = getModule(SensorFusionBosch.class);
 
-        return (accelerometer == null ? Task.<Void>forResult(null) : accelerometer.pullConfigAsync())
-                .onSuccessTask(task -> gyro == null ? Task.forResult(null) : gyro.pullConfigAsync())
-                .onSuccessTask(task -> sensorFusion == null ? Task.forResult(null) : sensorFusion.pullConfigAsync())
-                .onSuccessTask(task -> logger.queryActiveLoggersAsync())
+        // configs live in different modules so can be read at the same time
+        final List<Task<Void>> configs = new ArrayList<>();
+        configs.add(accelerometer == null ? Task.forResult(null) : accelerometer.pullConfigAsync());
+        configs.add(gyro == null ? Task.forResult(null) : gyro.pullConfigAsync());
+        configs.add(sensorFusion == null ? Task.forResult(null) : sensorFusion.pullConfigAsync());
+
+        return Task.whenAll(configs).continueWithTask(task -> {
+                    for(Task<Void> it: configs) {
+                        if (it.isFaulted()) {
+                            return Task.<Void>forError(it.getError());
+                        }
+                    }
+                    return task;
+                }, executor)
+                .onSuccessTask(task -> logger.queryActiveLoggersAsync(), executor)
                 .onSuccessTask(task -> {
                     AnonymousRoute[] routes = new AnonymousRoute[task.getResult().size()];
                     int i = 0;
@@ -1179,7 +1486,7 @@ public class JseMetaWearBoard implements MetaWearBoard {
                         i++;
                     }
                     return Task.forResult(routes);
-                });
+                }, executor);
     }
 
     private void sendCommand(int dest, DataToken input, Constant.Module module, byte register, byte id, byte... parameters) {
@@ -1192,6 +1499,13 @@ public class JseMetaWearBoard implements MetaWearBoard {
         mwPrivate.sendCommand(command, dest, input);
     }
 
+    private void instantiateEagerModule(ModuleInfo info) {
+        synchronized (moduleLock) {
+            instantiateModule(info);
+        }
+    }
+
+    // Callers must hold moduleLock
     private void instantiateModule(ModuleInfo info) {
         if (!info.present()) {
             return;
@@ -1364,7 +1678,7 @@ public class JseMetaWearBoard implements MetaWearBoard {
         @Override
         public String generateIdentifier(int pos) {
             try {
-                return Util.createProducerChainString(consumers.get(pos).source, mwPrivate);
+                return mwPrivate.producerChainIdentifier(consumers.get(pos).source);
             } catch (IndexOutOfBoundsException ignored) {
                 return null;
             }
@@ -1511,19 +1825,51 @@ public class JseMetaWearBoard implements MetaWearBoard {
                     final LinkedList<DataLogger> createdLoggers= new LinkedList<>();
                     final Cache signalVars= new Cache(mwPrivate);
                     final HashSet<Integer> loggerIndices= new HashSet<>();
+                    final HashSet<Processor> hostProcessors= new HashSet<>();
+                    final HashMap<Integer, DataTypeBase> packedSources= new HashMap<>();
                     Task<Queue<Byte>> queueProcessorTask;
 
                     try {
                         current.second.setup(signalVars);
                         current.first.configure(current.second);
 
-                        for (Map.Entry<String, Processor> it : signalVars.taggedProcessors.entrySet()) {
-                            if (persist.taggedProducers.containsKey(it.getKey())) {
-                                throw new IllegalRouteOperationException(String.format("Duplicate processor key \'%s\' found", it.getKey()));
+                        synchronized (moduleLock) {
+                            for (Map.Entry<String, Processor> it : signalVars.taggedProcessors.entrySet()) {
+                                if (persist.taggedProducers.containsKey(it.getKey())) {
+                                    throw new IllegalRouteOperationException(String.format("Duplicate processor key \'%s\' found", it.getKey()));
+                                }
+                                mwPrivate.tagProducer(it.getKey(), it.getValue().editor.source);
                             }
-                            mwPrivate.tagProducer(it.getKey(), it.getValue().editor.source);
                         }
-                        queueProcessorTask= dataprocessor.queueDataProcessors(signalVars.dataProcessors);
+                        HashSet<Processor> unshared = new HashSet<>(signalVars.taggedProcessors.values());
+                        for(Pair<String, Tuple3<DataTypeBase, Integer, byte[]>> it: signalVars.feedback) {
+                            for(Processor processor: signalVars.dataProcessors) {
+                                if (processor.editor.source == it.second.first) {
+                                    unshared.add(processor);
+                                }
+                            }
+                        }
+
+                        ModuleInfo dpInfo = mwPrivate.lookupModuleInfo(DATA_PROCESSOR);
+                        int available = dpInfo.extra.length > 0 ? (dpInfo.extra[0] & 0xff) - dataprocessor.activeProcessors.size() : Integer.MAX_VALUE;
+                        hostProcessors.addAll(HostDataProcessor.partition(signalVars, available, dataprocessor.findShared(signalVars.dataProcessors, unshared)));
+
+                        ArrayList<DataTypeBase> streams = new ArrayList<>();
+                        int i = 0;
+                        for(Tuple3<DataTypeBase, Subscriber, Boolean> it: signalVars.subscribedProducers) {
+                            if (!it.third) {
+                                LinkedList<Processor> hostChain= HostDataProcessor.chain(it.first, hostProcessors);
+                                DataTypeBase packed = hostChain.isEmpty() ? linkBudget.packedSource(it.first) : null;
+                                if (packed != null) {
+                                    packedSources.put(i, packed);
+                                }
+                                streams.add(hostChain.isEmpty() ? (packed == null ? it.first : packed) : hostChain.peek().editor.source.input);
+                            }
+                            i++;
+                        }
+                        linkBudget.check(streams, signalVars.dataProcessors);
+
+                        queueProcessorTask= dataprocessor.queueDataProcessors(signalVars.dataProcessors, unshared);
                     } catch (IllegalRouteOperationException e) {
                         queueProcessorTask= Task.forError(e);
                     }
@@ -1542,23 +1888,23 @@ public class JseMetaWearBoard implements MetaWearBoard {
                             i++;
                         }
                         return logger.queueLoggers(producersToLog);
-                    }).onSuccessTask(task -> {
+                    }, executor).onSuccessTask(task -> {
                         createdLoggers.addAll(task.getResult());
 
                         final Queue<Pair<? extends DataTypeBase, ? extends CodeBlock>> eventCodeBlocks = new LinkedList<>();
                         for(final Pair<String, Tuple3<DataTypeBase, Integer, byte[]>> it: signalVars.feedback) {
-                            if (!persist.taggedProducers.containsKey(it.first)) {
+                            final DataTypeBase feedbackSource = mwPrivate.lookupProducer(it.first);
+                            if (feedbackSource == null) {
                                 throw new IllegalRouteOperationException("\'" + it.first + "\' is not associated with any data producer or name component");
                             }
-                            final DataTypeBase feedbackSource = persist.taggedProducers.get(it.first);
-                            eventCodeBlocks.add(new Pair<>(feedbackSource, () -> sendCommand(it.second.second, persist.taggedProducers.get(it.first), DATA_PROCESSOR, DataProcessorImpl.PARAMETER, it.second.first.eventConfig[2], it.second.third)));
+                            eventCodeBlocks.add(new Pair<>(feedbackSource, () -> sendCommand(it.second.second, mwPrivate.lookupProducer(it.first), DATA_PROCESSOR, DataProcessorImpl.PARAMETER, it.second.first.eventConfig[2], it.second.third)));
                         }
                         for(final Pair<? extends DataTypeBase, ? extends Action> it: signalVars.reactions) {
                             final DataTypeBase source= it.first;
                             eventCodeBlocks.add(new Pair<>(source, () -> it.second.execute(source)));
                         }
                         return event.queueEvents(eventCodeBlocks);
-                    }).continueWith(task -> {
+                    }, executor).continueWith(task -> {
                         if (task.isFaulted()) {
                             for(DataLogger it: createdLoggers) {
                                 logger.removeDataLogger(true, it);
@@ -1567,7 +1913,7 @@ public class JseMetaWearBoard implements MetaWearBoard {
                                 dataprocessor.removeProcessor(true, it);
                             }
                             for(String it: signalVars.taggedProcessors.keySet()) {
-                                persist.taggedProducers.remove(it);
+                                mwPrivate.removeProducerTag(it);
                             }
                             current.third.setError(task.getError());
                         } else {
@@ -1581,7 +1927,10 @@ public class JseMetaWearBoard implements MetaWearBoard {
                                     createdLoggers.peek().subscriber= it.second;
                                     consumers.add(createdLoggers.poll());
                                 } else {
-                                    DeviceDataConsumer newConsumer= new StreamedDataConsumer(it.first, it.second);
+                                    LinkedList<Processor> hostChain= HostDataProcessor.chain(it.first, hostProcessors);
+                                    DeviceDataConsumer newConsumer= hostChain.isEmpty() ?
+                                            new StreamedDataConsumer(packedSources.containsKey(i) ? packedSources.get(i) : it.first, it.second) :
+                                            new HostDataConsumer(it.first, it.second, hostChain);
                                     consumers.add(newConsumer);
                                     newConsumer.enableStream(mwPrivate);
                                 }
@@ -1599,7 +1948,7 @@ public class JseMetaWearBoard implements MetaWearBoard {
                         createRoute(true);
 
                         return null;
-                    });
+                    }, executor);
                     break;
                 }
                 case TIMER: {
@@ -1611,7 +1960,7 @@ public class JseMetaWearBoard implements MetaWearBoard {
                         final Queue<Pair<? extends DataTypeBase, ? extends CodeBlock>> eventCodeBlocks = new LinkedList<>();
                         eventCodeBlocks.add(new Pair<>(task.getResult(), current.second));
                         return event.queueEvents(eventCodeBlocks);
-                    }).continueWith(task -> {
+                    }, executor).continueWith(task -> {
                         if (task.isFaulted()) {
                             current.first.setError(task.getError());
                         } else {
@@ -1623,7 +1972,7 @@ public class JseMetaWearBoard implements MetaWearBoard {
                         createRoute(true);
 
                         return null;
-                    });
+                    }, executor);
                     break;
                 }
                 case EVENT: {
@@ -1648,7 +1997,7 @@ public class JseMetaWearBoard implements MetaWearBoard {
                         createRoute(true);
 
                         return null;
-                    });
+                    }, executor);
                     break;
                 }
             }
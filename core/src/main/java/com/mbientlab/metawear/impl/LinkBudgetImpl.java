@@ -0,0 +1,335 @@
+/*
+ * Copyright 2014-2015 MbientLab Inc. All rights reserved.
+ *
+ * IMPORTANT: Your use of this Software is limited to those specific rights granted under the terms of a software
+ * license agreement between the user who downloaded the software, his/her employer (which must be your
+ * employer) and MbientLab Inc, (the "License").  You may not use this Software unless you agree to abide by the
+ * terms of the License which can be found at www.mbientlab.com/terms.  The License limits your use, and you
+ * acknowledge, that the Software may be modified, copied, and distributed when used in conjunction with an
+ * MbientLab Inc, product.  Other than for the foregoing purpose, you may not use, reproduce, copy, prepare
+ * derivative works of, modify, distribute, perform, display or sell this Software and/or its documentation for any
+ * purpose.
+ *
+ * YOU FURTHER ACKNOWLEDGE AND AGREE THAT THE SOFTWARE AND DOCUMENTATION ARE PROVIDED "AS IS" WITHOUT WARRANTY
+ * OF ANY KIND, EITHER EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION, ANY WARRANTY OF MERCHANTABILITY, TITLE,
+ * NON-INFRINGEMENT AND FITNESS FOR A PARTICULAR PURPOSE. IN NO EVENT SHALL MBIENTLAB OR ITS LICENSORS BE LIABLE OR
+ * OBLIGATED UNDER CONTRACT, NEGLIGENCE, STRICT LIABILITY, CONTRIBUTION, BREACH OF WARRANTY, OR OTHER LEGAL EQUITABLE
+ * THEORY ANY DIRECT OR INDIRECT DAMAGES OR EXPENSES INCLUDING BUT NOT LIMITED TO ANY INCIDENTAL, SPECIAL, INDIRECT,
+ * PUNITIVE OR CONSEQUENTIAL DAMAGES, LOST PROFITS OR LOST DATA, COST OF PROCUREMENT OF SUBSTITUTE GOODS, TECHNOLOGY,
+ * SERVICES, OR ANY CLAIMS BY THIRD PARTIES (INCLUDING BUT NOT LIMITED TO ANY DEFENSE THEREOF), OR OTHER SIMILAR COSTS.
+ *
+ * Should you have any questions regarding your right to use this Software, contact MbientLab via email:
+ * hello@mbientlab.com.
+ */
+
+package com.mbientlab.metawear.impl;
+
+import com.mbientlab.metawear.DataProducer;
+import com.mbientlab.metawear.IllegalRouteOperationException;
+import com.mbientlab.metawear.LinkBudget;
+import com.mbientlab.metawear.MetaWearBoard.Module;
+import com.mbientlab.metawear.UnsupportedModuleException;
+import com.mbientlab.metawear.impl.DataProcessorImpl.Processor;
+import com.mbientlab.metawear.impl.platform.IO;
+import com.mbientlab.metawear.module.DataProcessor;
+import com.mbientlab.metawear.module.Settings;
+import com.mbientlab.metawear.module.Settings.BleConnectionParameters;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import bolts.Task;
+
+import static com.mbientlab.metawear.impl.Constant.MAX_BTLE_LENGTH;
+import static com.mbientlab.metawear.impl.Constant.Module.DATA_PROCESSOR;
+
+/**
+ * Estimates the notification rate of streamed routes and compares it against what the connection interval allows
+ */
+abstract class LinkBudgetImpl implements LinkBudget {
+    private static final int DEFAULT_PACKETS_PER_INTERVAL = 4;
+
+    private final MetaWearBoardPrivate mwPrivate;
+    private final ConnectionTuner tuner;
+    private final AtomicLong notifications = new AtomicLong();
+    private final Map<Integer, Float> sampleRates = new HashMap<>();
+    private Policy policy = Policy.WARN;
+    private int packetsPerInterval = DEFAULT_PACKETS_PER_INTERVAL;
+    private float connectionInterval = -1f, autoPackThreshold = -1f;
+
+    LinkBudgetImpl(MetaWearBoardPrivate mwPrivate, IO io) {
+        this.mwPrivate = mwPrivate;
+        this.tuner = new ConnectionTuner(this, mwPrivate, io);
+    }
+
+    /**
+     * Retrieves the data producers the active routes are streaming
+     * @return Sources of the streamed data
+     */
+    abstract Collection<DataTypeBase> activeStreams();
+
+    @Override
+    public void policy(Policy policy) {
+        this.policy = policy;
+    }
+
+    @Override
+    public void packetsPerInterval(int packets) {
+        packetsPerInterval = Math.max(1, packets);
+    }
+
+    @Override
+    public void connectionInterval(float interval) {
+        connectionInterval = interval;
+    }
+
+    @Override
+    public void sampleRate(DataProducer producer, float frequency) {
+        DataTypeBase source = mwPrivate.lookupProducer(producer.name());
+        if (source != null) {
+            sampleRates.put(key(source), frequency);
+        }
+    }
+
+    @Override
+    public void autoPack(float threshold) {
+        autoPackThreshold = threshold;
+    }
+
+    @Override
+    public Task<Report> updateAsync() {
+        Settings settings = (Settings) mwPrivate.getModules().get(Settings.class);
+        if (settings == null) {
+            return Task.forError(new UnsupportedModuleException("Cannot read the connection parameters without the settings module"));
+        }
+        return settings.readBleConnParamsAsync().onSuccess(task -> {
+            connectionInterval = task.getResult().maxConnectionInterval;
+            return estimate();
+        }, mwPrivate.executor());
+    }
+
+    @Override
+    public Task<BleConnectionParameters> tuneAsync(TuningGoal goal, long window) {
+        Settings settings = (Settings) mwPrivate.getModules().get(Settings.class);
+        if (settings == null || settings.editBleConnParams() == null) {
+            return Task.forError(new UnsupportedModuleException("Cannot tune the connection parameters with the current firmware"));
+        }
+        return tuner.tuneAsync(settings, goal, window);
+    }
+
+    @Override
+    public Task<BleConnectionParameters> restoreTunedAsync() {
+        Settings settings = (Settings) mwPrivate.getModules().get(Settings.class);
+        if (settings == null || settings.editBleConnParams() == null) {
+            return Task.forError(new UnsupportedModuleException("Cannot set the connection parameters with the current firmware"));
+        }
+        return tuner.restoreAsync(settings);
+    }
+
+    @Override
+    public Report estimate() {
+        return estimate(new ArrayList<>(activeStreams()), new IdentityHashMap<>());
+    }
+
+    /**
+     * Checks if adding streams from a route that is being created exceeds the link budget
+     * @param streams       Sources the new route will stream
+     * @param processors    Processors the new route will create on the board
+     * @throws IllegalRouteOperationException If the budget is exceeded and the policy is {@link Policy#FAIL}
+     */
+    void check(Collection<DataTypeBase> streams, Collection<Processor> processors) throws IllegalRouteOperationException {
+        if (policy == Policy.IGNORE || connectionInterval <= 0 || streams.isEmpty()) {
+            return;
+        }
+
+        Map<DataTypeBase, Processor> pending = new IdentityHashMap<>();
+        for(Processor it: processors) {
+            pending.put(it.editor.source, it);
+        }
+
+        List<DataTypeBase> combined = new ArrayList<>(activeStreams());
+        combined.addAll(streams);
+        Report report = estimate(combined, pending);
+        if (!report.fits()) {
+            String message = "Streamed routes exceed the link budget " + report;
+            if (policy == Policy.FAIL) {
+                throw new IllegalRouteOperationException(message);
+            }
+            mwPrivate.logWarn(message);
+        }
+    }
+
+    /**
+     * Counts a notification received from the board
+     */
+    void notificationReceived() {
+        notifications.incrementAndGet();
+    }
+
+    long notificationCount() {
+        return notifications.get();
+    }
+
+    /**
+     * Computes how many notifications per second the link can carry
+     * @param interval    Connection interval, in milliseconds (ms)
+     * @return Notifications per second
+     */
+    float capacity(float interval) {
+        return packetsPerInterval * 1000f / interval;
+    }
+
+    /**
+     * Looks up the packed producer to stream in place of the source, if automatic packing applies
+     * @param source    Producer the route streams
+     * @return Packed variant of the source, null if the source should be streamed as is
+     */
+    DataTypeBase packedSource(DataTypeBase source) {
+        if (autoPackThreshold <= 0 || source.attributes.copies > 1 || sampleRate(source, new IdentityHashMap<>()) < autoPackThreshold) {
+            return null;
+        }
+        for(Module it: mwPrivate.getModules().values()) {
+            if (it instanceof ModuleImplBase) {
+                DataTypeBase packed = ((ModuleImplBase) it).packedSource(source);
+                if (packed != null) {
+                    return packed;
+                }
+            }
+        }
+        return null;
+    }
+
+    private Report estimate(List<DataTypeBase> sources, Map<DataTypeBase, Processor> pending) {
+        float capacity = connectionInterval > 0 ? capacity(connectionInterval) : -1f;
+        HashSet<Integer> counted = new HashSet<>();
+        List<DataTypeBase> unique = new ArrayList<>();
+        for(DataTypeBase it: sources) {
+            // Routes streaming the same producer share its notifications
+            if (isPending(it, pending) || counted.add(key(it))) {
+                unique.add(it);
+            }
+        }
+
+        float totalNotifications = 0f, totalBytes = 0f;
+        float[] rates = new float[unique.size()];
+        for(int i = 0; i < rates.length; i++) {
+            DataTypeBase source = unique.get(i);
+            rates[i] = sampleRate(source, pending);
+            if (rates[i] > 0) {
+                totalNotifications += rates[i] / source.attributes.copies;
+                totalBytes += rates[i] / source.attributes.copies * packetLength(source);
+            }
+        }
+
+        boolean fits = capacity <= 0 || totalNotifications <= capacity;
+        List<Stream> streams = new ArrayList<>();
+        for(int i = 0; i < rates.length; i++) {
+            DataTypeBase source = unique.get(i);
+            float notifications = rates[i] > 0 ? rates[i] / source.attributes.copies : 0f;
+            String suggestion = fits ? null : suggest(source, notifications, capacity / unique.size());
+
+            streams.add(new Stream(identifier(source), rates[i], notifications, notifications * packetLength(source), suggestion));
+        }
+
+        return new Report(connectionInterval, capacity, totalNotifications, totalBytes, streams);
+    }
+
+    private String suggest(DataTypeBase source, float notifications, float share) {
+        if (notifications <= share) {
+            return null;
+        }
+
+        List<String> options = new ArrayList<>();
+        byte length = source.attributes.length();
+        int count = (MAX_BTLE_LENGTH - 3) / Math.max(1, (int) length);
+        if (source.attributes.copies == 1 && count > 1 && notifications / count <= share) {
+            options.add(String.format(Locale.US, "pack((byte) %d)", count));
+        }
+        int period = (int) Math.ceil(1000f / (share * source.attributes.copies));
+        options.add(String.format(Locale.US, "limit(%d)", period));
+
+        StringBuilder builder = new StringBuilder();
+        for(String it: options) {
+            if (builder.length() > 0) {
+                builder.append(" or ");
+            }
+            builder.append(it);
+        }
+        if (source.eventConfig[0] != DATA_PROCESSOR.id && source.attributes.copies == 1) {
+            builder.append(", or use the producer's packed variant if it has one");
+        }
+        return builder.toString();
+    }
+
+    private float sampleRate(DataTypeBase source, Map<DataTypeBase, Processor> pending) {
+        if (source.eventConfig[0] == DATA_PROCESSOR.id && source.input != null) {
+            float input = sampleRate(source.input, pending);
+            Processor processor = pending.get(source);
+            if (processor == null && !isPending(source, pending)) {
+                DataProcessorImpl dataprocessor = (DataProcessorImpl) mwPrivate.getModules().get(DataProcessor.class);
+                processor = dataprocessor == null ? null : dataprocessor.activeProcessors.get(source.eventConfig[2]);
+            }
+            if (processor == null || input < 0) {
+                return input;
+            }
+
+            byte[] config = processor.editor.config;
+            switch(config[0]) {
+                case DataProcessorConfig.Buffer.ID:
+                    return 0f;
+                case DataProcessorConfig.Time.ID:
+                    int period = new DataProcessorConfig.Time(config).period;
+                    return period > 0 ? Math.min(input, 1000f / period) : input;
+                default:
+                    return input;
+            }
+        }
+
+        Float rate = sampleRates.get(key(source));
+        if (rate != null) {
+            return rate;
+        }
+        for(Module it: mwPrivate.getModules().values()) {
+            if (it instanceof ModuleImplBase) {
+                float value = ((ModuleImplBase) it).sampleRate(source);
+                if (value >= 0) {
+                    return value;
+                }
+            }
+        }
+        return -1f;
+    }
+
+    private String identifier(DataTypeBase source) {
+        DataTypeBase root = source;
+        while(root.eventConfig[0] == DATA_PROCESSOR.id && root.input != null) {
+            root = root.input;
+        }
+        String uri = DataTypeBase.createUri(root, mwPrivate);
+        return root == source ? uri : uri + ":...";
+    }
+
+    private static boolean isPending(DataTypeBase source, Map<DataTypeBase, Processor> pending) {
+        for(DataTypeBase current = source; current != null; current = current.input) {
+            if (pending.containsKey(current)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int packetLength(DataTypeBase source) {
+        return (source.eventConfig[2] == DataTypeBase.NO_DATA_ID ? 2 : 3) + source.attributes.length();
+    }
+
+    private static int key(DataTypeBase source) {
+        return ((source.eventConfig[0] & 0xff) << 16) | ((Util.clearRead(source.eventConfig[1]) & 0xff) << 8) | (source.eventConfig[2] & 0xff);
+    }
+}
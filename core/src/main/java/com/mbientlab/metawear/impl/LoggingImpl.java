@@ -27,6 +27,7 @@ package com.mbientlab.metawear.impl;
 import com.mbientlab.metawear.TaskTimeoutException;
 import com.mbientlab.metawear.impl.DataProcessorImpl.ProcessorEntry;
 import com.mbientlab.metawear.impl.platform.TimedTask;
+import com.mbientlab.metawear.impl.platform.TimedTaskPipeline;
 import com.mbientlab.metawear.module.DataProcessor;
 import com.mbientlab.metawear.module.Logging;
 
@@ -46,6 +47,11 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Queue;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 import bolts.Capture;
@@ -63,6 +69,8 @@ class LoggingImpl extends ModuleImplBase implements Logging {
     private static final long serialVersionUID = 5585806147100904291L;
     private final static double TICK_TIME_STEP= (48.0 / 32768.0) * 1000.0;
     private static final byte LOG_ENTRY_SIZE= 4, REVISION_EXTENDED_LOGGING = 2, MMS_REVISION = 3;
+    // logger config reads kept in flight when syncing with the board
+    private static final int SYNC_PIPELINE_DEPTH = 4;
     private static final byte ENABLE = 1,
             TRIGGER = 2,
             REMOVE = 3,
@@ -87,10 +95,80 @@ class LoggingImpl extends ModuleImplBase implements Logging {
             this.resetUid= resetUid;
         }
     }
+
+    /**
+     * Reassembles data logged across multiple log ids.  Fragments of each id arrive in order, so fragment n of every id
+     * belongs to the same sample; a fixed number of partially assembled samples are kept in a ring and the oldest is
+     * dropped when fragments go missing.
+     */
+    private static class FragmentRing {
+        private static final int CAPACITY = 16;
+
+        private final int length, complete;
+        private final byte[] buffer;
+        private final int[] present = new int[CAPACITY];
+        private final Calendar[] timestamps = new Calendar[CAPACITY];
+        // absolute position of the oldest incomplete sample and of the next fragment of each id
+        private long head;
+        private final long[] next;
+        private long nDropped;
+
+        FragmentRing(int nIds, int length) {
+            this.length = length;
+            this.complete = (1 << nIds) - 1;
+            this.buffer = new byte[CAPACITY * length];
+            this.next = new long[nIds];
+        }
+
+        /**
+         * Adds a fragment, returning the assembled sample when it completes one
+         * @param dropped    Called with the partial data of samples evicted to make room
+         */
+        byte[] add(int index, byte[] data, Calendar timestamp, DroppedHandler dropped) {
+            if (next[index] - head >= CAPACITY) {
+                int slot = (int) (head % CAPACITY);
+                dropped.dropped(Integer.numberOfTrailingZeros(~present[slot] & complete), timestamps[slot],
+                        Arrays.copyOfRange(buffer, slot * length, (slot + 1) * length));
+                advance(slot);
+                nDropped++;
+            }
+
+            int slot = (int) (next[index] % CAPACITY), offset = index * LOG_ENTRY_SIZE;
+            System.arraycopy(data, 0, buffer, slot * length + offset, Math.max(0, Math.min(data.length, length - offset)));
+            present[slot] |= 1 << index;
+            timestamps[slot] = timestamp;
+            next[index]++;
+
+            slot = (int) (head % CAPACITY);
+            if (present[slot] != complete) {
+                return null;
+            }
+
+            byte[] merged = Arrays.copyOfRange(buffer, slot * length, (slot + 1) * length);
+            advance(slot);
+            return merged;
+        }
+
+        private void advance(int slot) {
+            present[slot] = 0;
+            timestamps[slot] = null;
+            head++;
+            for(int i = 0; i < next.length; i++) {
+                next[i] = Math.max(next[i], head);
+            }
+        }
+    }
+    private interface DroppedHandler {
+        void dropped(int missing, Calendar timestamp, byte[] partial);
+    }
+
     static class DataLogger extends DeviceDataConsumer implements Serializable {
         private static final long serialVersionUID = -5621099865981017205L;
 
+        // only the keys are used, in fragment order; the lists are kept for compatibility with serialized states
         private final LinkedHashMap<Byte, LinkedList<byte[]>> logEntries= new LinkedHashMap<>();
+        private transient byte[] fragmentIds;
+        private transient FragmentRing fragments;
 
         DataLogger(DataTypeBase source) {
             super(source);
@@ -98,6 +176,7 @@ class LoggingImpl extends ModuleImplBase implements Logging {
 
         void addId(byte id) {
             logEntries.put(id, new LinkedList<>());
+            fragmentIds = null;
         }
 
         public void remove(MetaWearBoardPrivate mwPrivate) {
@@ -112,7 +191,29 @@ class LoggingImpl extends ModuleImplBase implements Logging {
             }
         }
 
-        void handleLogMessage(final MetaWearBoardPrivate mwPrivate, byte logId, final Calendar timestamp, byte[] data, Logging.LogDownloadErrorHandler handler) {
+        private int fragmentIndex(byte logId) {
+            if (fragmentIds == null) {
+                fragmentIds = new byte[logEntries.size()];
+                int i = 0;
+                for(byte id: logEntries.keySet()) {
+                    fragmentIds[i++] = id;
+                }
+                fragments = fragmentIds.length > 1 ? new FragmentRing(fragmentIds.length, source.attributes.length()) : null;
+            }
+
+            for(int i = 0; i < fragmentIds.length; i++) {
+                if (fragmentIds[i] == logId) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Merges and forwards a log entry to the subscriber
+         * @return Error encountered handling the entry, null if none
+         */
+        Logging.DownloadError handleLogMessage(final MetaWearBoardPrivate mwPrivate, final byte logId, final Calendar timestamp, byte[] data, final Logging.LogDownloadErrorHandler handler) {
             if (subscriber == null) {
                 if (handler != null) {
                     handler.receivedError(Logging.DownloadError.UNHANDLED_LOG_DATA, logId, timestamp, data);
@@ -121,36 +222,37 @@ class LoggingImpl extends ModuleImplBase implements Logging {
                             logId, timestamp.getTimeInMillis(), Util.arrayToHexString(data)));
                 }
 
-                return;
+                return Logging.DownloadError.UNHANDLED_LOG_DATA;
             }
 
-            if (logEntries.containsKey(logId)) {
-                logEntries.get(logId).add(data);
-            } else if (handler != null) {
-                handler.receivedError(Logging.DownloadError.UNKNOWN_LOG_ENTRY, logId, timestamp, data);
+            int index = fragmentIndex(logId);
+            if (index < 0) {
+                if (handler != null) {
+                    handler.receivedError(Logging.DownloadError.UNKNOWN_LOG_ENTRY, logId, timestamp, data);
+                }
+                return Logging.DownloadError.UNKNOWN_LOG_ENTRY;
             }
 
-            boolean noneEmpty= true;
-            for(Queue<byte[]> cachedValues: logEntries.values()) {
-                noneEmpty&= !cachedValues.isEmpty();
+            byte[] merged;
+            long nDropped = 0;
+            if (fragments == null) {
+                merged = Arrays.copyOf(data, source.attributes.length());
+            } else {
+                nDropped = fragments.nDropped;
+                merged = fragments.add(index, data, timestamp, (missing, partialTimestamp, partial) -> {
+                    if (handler != null) {
+                        handler.receivedError(Logging.DownloadError.INCOMPLETE_LOG_ENTRY, fragmentIds[missing], partialTimestamp, partial);
+                    } else {
+                        mwPrivate.logWarn(String.format(Locale.US, "Dropped incomplete log data: {logId: %d, time: %d, data: %s}",
+                                fragmentIds[missing], partialTimestamp.getTimeInMillis(), Util.arrayToHexString(partial)));
+                    }
+                });
             }
 
-            if (noneEmpty) {
-                ArrayList<byte[]> entries= new ArrayList<>(logEntries.values().size());
-                for(Queue<byte[]> cachedValues: logEntries.values()) {
-                    entries.add(cachedValues.poll());
-                }
-
-                final byte[] merged= new byte[source.attributes.length()];
-                int offset= 0;
-                for(int i= 0; i < entries.size(); i++) {
-                    int copyLength= Math.min(entries.get(i).length, source.attributes.length() - offset);
-                    System.arraycopy(entries.get(i), 0, merged, offset, copyLength);
-                    offset+= entries.get(i).length;
-                }
-
+            if (merged != null) {
                 call(source.createMessage(true, mwPrivate, merged, timestamp, null));
             }
+            return fragments != null && fragments.nDropped != nDropped ? Logging.DownloadError.INCOMPLETE_LOG_ENTRY : null;
         }
 
         @Override
@@ -166,21 +268,178 @@ class LoggingImpl extends ModuleImplBase implements Logging {
         }
     }
 
+    /**
+     * Counters behind {@link DownloadMetrics}.  Arrival counters are only written by the thread receiving notifications,
+     * decode counters can be written from the decoder threads, and all of them can be read from any thread.
+     */
+    private static class DownloadStats {
+        // rates are recomputed at most this often then smoothed with the previous value
+        private static final long RATE_WINDOW = 500000000L;
+        private static final double RATE_GAIN = 0.3, RTT_GAIN = 0.125;
+
+        private final long start = System.nanoTime();
+        private volatile long end, totalEntries, entriesReceived, bytesReceived;
+        private volatile double entriesPerSecond, bytesPerSecond, pageConfirmRtt;
+        private long windowStart = start, windowEntries, windowBytes, pageConfirmSent;
+        private final AtomicLong decoded = new AtomicLong(), decodeTime = new AtomicLong(),
+                dropped = new AtomicLong(), unknown = new AtomicLong();
+
+        void received(int nEntries, int nBytes) {
+            long now = System.nanoTime();
+            if (pageConfirmSent != 0) {
+                double sample = (now - pageConfirmSent) / 1000000.0;
+                pageConfirmRtt = pageConfirmRtt == 0 ? sample : pageConfirmRtt + RTT_GAIN * (sample - pageConfirmRtt);
+                pageConfirmSent = 0;
+            }
+
+            entriesReceived += nEntries;
+            bytesReceived += nBytes;
+            if (now - windowStart >= RATE_WINDOW) {
+                double seconds = (now - windowStart) / 1000000000.0;
+                double entryRate = (entriesReceived - windowEntries) / seconds, byteRate = (bytesReceived - windowBytes) / seconds;
+                boolean first = windowEntries == 0;
+
+                entriesPerSecond = first ? entryRate : entriesPerSecond + RATE_GAIN * (entryRate - entriesPerSecond);
+                bytesPerSecond = first ? byteRate : bytesPerSecond + RATE_GAIN * (byteRate - bytesPerSecond);
+                windowStart = now;
+                windowEntries = entriesReceived;
+                windowBytes = bytesReceived;
+            }
+        }
+
+        void pageConfirmed() {
+            pageConfirmSent = System.nanoTime();
+        }
+
+        void decoded(long elapsed, DownloadError error) {
+            decoded.incrementAndGet();
+            decodeTime.addAndGet(elapsed);
+            failed(error);
+        }
+
+        void failed(DownloadError error) {
+            if (error == DownloadError.INCOMPLETE_LOG_ENTRY) {
+                dropped.incrementAndGet();
+            } else if (error != null) {
+                unknown.incrementAndGet();
+            }
+        }
+
+        void finish() {
+            if (end == 0) {
+                end = System.nanoTime();
+            }
+        }
+
+        DownloadMetrics snapshot() {
+            long stop = end, received = entriesReceived, total = totalEntries, nDecoded = decoded.get();
+            long elapsed = ((stop == 0 ? System.nanoTime() : stop) - start) / 1000000L;
+            long left = stop != 0 ? 0 : Math.max(0, total - received);
+
+            double entryRate = entriesPerSecond, byteRate = bytesPerSecond;
+            if (entryRate == 0 && elapsed > 0) {
+                // no full window yet
+                entryRate = received * 1000.0 / elapsed;
+                byteRate = bytesReceived * 1000.0 / elapsed;
+            }
+            long eta = stop != 0 ? 0 : (total == 0 || entryRate == 0 ? -1 : (long) (left * 1000 / entryRate));
+
+            return new DownloadMetrics(stop == 0, total, received, left, bytesReceived, elapsed, (float) entryRate, (float) byteRate,
+                    (float) pageConfirmRtt, nDecoded == 0 ? 0f : (float) (decodeTime.get() / 1000.0 / nDecoded),
+                    dropped.get(), unknown.get(), eta);
+        }
+    }
+
+    /**
+     * Log download that decodes on an executor.  Timestamps are still computed as entries arrive, the merging and
+     * message creation is then queued per logger so each subscriber sees its data in order.
+     */
+    private class ParallelDownload {
+        private final Executor executor;
+        private final TaskCompletionSource<Void> taskSource;
+        private final Map<DataLogger, DecodeQueue> queues = new HashMap<>();
+        // entries not yet decoded, plus one held until the board reports the readout is finished
+        private final AtomicInteger pending = new AtomicInteger(1);
+
+        ParallelDownload(Executor executor, TaskCompletionSource<Void> taskSource) {
+            this.executor = executor;
+            this.taskSource = taskSource;
+        }
+
+        void post(DataLogger logger, Runnable entry) {
+            DecodeQueue queue = queues.get(logger);
+            if (queue == null) {
+                queue = new DecodeQueue(this);
+                queues.put(logger, queue);
+            }
+
+            pending.incrementAndGet();
+            queue.post(entry);
+        }
+
+        void release() {
+            if (pending.decrementAndGet() == 0 && downloadTask.compareAndSet(taskSource, null)) {
+                taskSource.setResult(null);
+            }
+        }
+    }
+    private class DecodeQueue implements Runnable {
+        private final ParallelDownload download;
+        private final Queue<Runnable> entries = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        DecodeQueue(ParallelDownload download) {
+            this.download = download;
+        }
+
+        void post(Runnable entry) {
+            entries.add(entry);
+            if (scheduled.compareAndSet(false, true)) {
+                download.executor.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            Runnable next;
+            while((next = entries.poll()) != null) {
+                try {
+                    next.run();
+                } catch (RuntimeException e) {
+                    mwPrivate.logWarn("Error processing log data: " + e.getMessage());
+                } finally {
+                    download.release();
+                }
+            }
+
+            scheduled.set(false);
+            // entry added between the last poll and clearing the flag
+            if (!entries.isEmpty() && scheduled.compareAndSet(false, true)) {
+                download.executor.execute(this);
+            }
+        }
+    }
+
     // Logger state
-    private final HashMap<Byte, TimeReference> logReferenceTicks= new HashMap<>();
-    private final HashMap<Byte, Long> lastTimestamp= new HashMap<>();
+    private Map<Byte, TimeReference> logReferenceTicks= new ByteIdMap<>();
+    private Map<Byte, Long> lastTimestamp= new ByteIdMap<>();
     private TimeReference latestReference;
-    private final HashMap<Byte, DataLogger> dataLoggers= new HashMap<>();
-    private HashMap<Byte, Long> rollbackTimestamps = new HashMap<>();
+    private Map<Byte, DataLogger> dataLoggers= new ByteIdMap<>();
+    private Map<Byte, Long> rollbackTimestamps = new ByteIdMap<>();
 
     private transient long nLogEntries;
+    private transient boolean readoutStarted;
     private transient int nUpdates;
     private transient LogDownloadUpdateHandler updateHandler;
     private transient LogDownloadErrorHandler errorHandler;
 
     private transient AtomicReference<TaskCompletionSource<Void>> downloadTask;
-    private transient TimedTask<byte[]> createLoggerTask, syncLoggerConfigTask;
+    private transient volatile ParallelDownload parallelDownload;
+    private transient volatile DownloadStats downloadStats;
+    private transient TimedTask<byte[]> createLoggerTask;
+    private transient TimedTaskPipeline<byte[]> syncLoggerConfigTask;
     private transient TimedTask<Void> queryTimeTask;
+    private transient TimedTask<Long> readEntryCountTask;
 
     LoggingImpl(MetaWearBoardPrivate mwPrivate) {
         super(mwPrivate);
@@ -189,6 +448,10 @@ class LoggingImpl extends ModuleImplBase implements Logging {
     @Override
     public void disconnected() {
         rollbackTimestamps.putAll(lastTimestamp);
+        parallelDownload = null;
+        if (downloadStats != null) {
+            downloadStats.finish();
+        }
         TaskCompletionSource<Void> taskSource = downloadTask.getAndSet(null);
         if (taskSource != null) {
             taskSource.setError(new RuntimeException("Lost connection while downloading log data"));
@@ -207,6 +470,18 @@ class LoggingImpl extends ModuleImplBase implements Logging {
 
     private void completeDownloadTask() {
         rollbackTimestamps.clear();
+        if (downloadStats != null) {
+            downloadStats.finish();
+        }
+
+        ParallelDownload parallel = parallelDownload;
+        if (parallel != null) {
+            // completes the task once the queued entries are decoded
+            parallelDownload = null;
+            parallel.release();
+            return;
+        }
+
         TaskCompletionSource<Void> taskSource = downloadTask.getAndSet(null);
         if (taskSource != null) {
             taskSource.setResult(null);
@@ -268,17 +543,21 @@ class LoggingImpl extends ModuleImplBase implements Logging {
 
     @Override
     protected void init() {
-        createLoggerTask = new TimedTask<>();
-        syncLoggerConfigTask = new TimedTask<>();
+        createLoggerTask = new TimedTask<>(mwPrivate.executor());
+        syncLoggerConfigTask = new TimedTaskPipeline<>(mwPrivate.executor());
 
         downloadTask = new AtomicReference<>();
-        if (rollbackTimestamps == null) {
-            rollbackTimestamps = new HashMap<>();
-        }
+        logReferenceTicks = ByteIdMap.compact(logReferenceTicks);
+        lastTimestamp = ByteIdMap.compact(lastTimestamp);
+        dataLoggers = ByteIdMap.compact(dataLoggers);
+        rollbackTimestamps = ByteIdMap.compact(rollbackTimestamps);
 
         this.mwPrivate.addResponseHandler(new Pair<>(LOGGING.id, Util.setRead(TRIGGER)), response -> syncLoggerConfigTask.setResult(response));
         this.mwPrivate.addResponseHandler(new Pair<>(LOGGING.id, TRIGGER), response -> createLoggerTask.setResult(response));
         this.mwPrivate.addResponseHandler(new Pair<>(LOGGING.id, READOUT_NOTIFY), response -> {
+            if (downloadStats != null) {
+                downloadStats.received(response.length == 20 ? 2 : 1, response.length - 2);
+            }
             processLogData(Arrays.copyOfRange(response, 2, 11));
 
             if (response.length == 20) {
@@ -321,7 +600,25 @@ class LoggingImpl extends ModuleImplBase implements Logging {
 
             byte[] padded= new byte[8];
             System.arraycopy(response, 2, padded, 0, payloadSize);
-            nLogEntries= ByteBuffer.wrap(padded).order(ByteOrder.LITTLE_ENDIAN).getLong();
+            long count = ByteBuffer.wrap(padded).order(ByteOrder.LITTLE_ENDIAN).getLong();
+
+            // responses arrive in request order, a pending count read was sent before any download's read
+            if (readEntryCountTask != null) {
+                TimedTask<Long> countTask = readEntryCountTask;
+                readEntryCountTask = null;
+                countTask.setResult(count);
+                return;
+            }
+            // late response to a count read that timed out, or a repeat for a download whose readout already started
+            if (downloadTask.get() == null || readoutStarted) {
+                return;
+            }
+
+            readoutStarted = true;
+            nLogEntries= count;
+            if (downloadStats != null) {
+                downloadStats.totalEntries = nLogEntries;
+            }
 
             if (nLogEntries == 0) {
                 completeDownloadTask();
@@ -340,7 +637,12 @@ class LoggingImpl extends ModuleImplBase implements Logging {
         });
 
         if (mwPrivate.lookupModuleInfo(LOGGING).revision >= REVISION_EXTENDED_LOGGING) {
-            this.mwPrivate.addResponseHandler(new Pair<>(LOGGING.id, READOUT_PAGE_COMPLETED), response -> mwPrivate.sendCommand(new byte[] {LOGGING.id, READOUT_PAGE_CONFIRM}));
+            this.mwPrivate.addResponseHandler(new Pair<>(LOGGING.id, READOUT_PAGE_COMPLETED), response -> {
+                if (downloadStats != null) {
+                    downloadStats.pageConfirmed();
+                }
+                mwPrivate.sendCommand(new byte[] {LOGGING.id, READOUT_PAGE_CONFIRM});
+            });
         }
     }
 
@@ -357,14 +659,35 @@ class LoggingImpl extends ModuleImplBase implements Logging {
 
     @Override
     public Task<Void> downloadAsync(int nUpdates, LogDownloadUpdateHandler updateHandler, LogDownloadErrorHandler errorHandler) {
+        return downloadAsync(null, nUpdates, updateHandler, errorHandler);
+    }
+
+    @Override
+    public Task<Void> downloadAsync(Executor decoder, int nUpdates, LogDownloadUpdateHandler updateHandler, LogDownloadErrorHandler errorHandler) {
         TaskCompletionSource<Void> taskSource = downloadTask.get();
         if (taskSource != null) {
             return taskSource.getTask();
         }
 
         this.nUpdates = nUpdates;
+        this.readoutStarted = false;
         this.updateHandler= updateHandler;
-        this.errorHandler= errorHandler;
+        if (decoder != null && errorHandler != null) {
+            // Decoder threads and the notification thread can both report errors, never let the calls overlap
+            final Object errorLock = new Object();
+            this.errorHandler= (errorType, logId, timestamp, data) -> {
+                synchronized (errorLock) {
+                    errorHandler.receivedError(errorType, logId, timestamp, data);
+                }
+            };
+        } else {
+            this.errorHandler= errorHandler;
+        }
+
+        taskSource = new TaskCompletionSource<>();
+        downloadStats = new DownloadStats();
+        parallelDownload = decoder == null ? null : new ParallelDownload(decoder, taskSource);
+        downloadTask.set(taskSource);
 
         if (mwPrivate.lookupModuleInfo(LOGGING).revision >= REVISION_EXTENDED_LOGGING) {
             mwPrivate.sendCommand(new byte[] {LOGGING.id, READOUT_PAGE_COMPLETED, 1});
@@ -373,8 +696,6 @@ class LoggingImpl extends ModuleImplBase implements Logging {
         mwPrivate.sendCommand(new byte[] {LOGGING.id, READOUT_PROGRESS, 1});
         mwPrivate.sendCommand(new byte[] {LOGGING.id, Util.setRead(LENGTH)});
 
-        taskSource = new TaskCompletionSource<>();
-        downloadTask.set(taskSource);
         return taskSource.getTask();
     }
 
@@ -393,6 +714,32 @@ class LoggingImpl extends ModuleImplBase implements Logging {
         return downloadAsync(0, null, null);
     }
 
+    @Override
+    public Task<Long> readEntryCountAsync() {
+        if (downloadTask.get() != null) {
+            return Task.forError(new IllegalStateException("Cannot read the entry count while downloading"));
+        }
+        if (readEntryCountTask == null) {
+            readEntryCountTask = new TimedTask<>(mwPrivate.executor());
+        }
+
+        final TimedTask<Long> countTask = readEntryCountTask;
+        return countTask.execute("Did not receive log length within %dms", mwPrivate.getRttEstimator(),
+                () -> mwPrivate.sendCommand(new byte[] {LOGGING.id, Util.setRead(LENGTH)})
+        ).continueWithTask(task -> {
+            if (readEntryCountTask == countTask) {
+                readEntryCountTask = null;
+            }
+            return task;
+        }, mwPrivate.executor());
+    }
+
+    @Override
+    public DownloadMetrics getDownloadMetrics() {
+        DownloadStats stats = downloadStats;
+        return stats == null ? new DownloadMetrics(false, 0, 0, 0, 0, 0, 0f, 0f, 0f, 0f, 0, 0, -1) : stats.snapshot();
+    }
+
     @Override
     public void clearEntries() {
         if (mwPrivate.lookupModuleInfo(LOGGING).revision >= REVISION_EXTENDED_LOGGING) {
@@ -409,8 +756,8 @@ class LoggingImpl extends ModuleImplBase implements Logging {
     }
 
     Task<Void> queryTime() {
-        queryTimeTask = new TimedTask<>();
-        return queryTimeTask.execute("Did not receive log reference response within %dms", Constant.RESPONSE_TIMEOUT,
+        queryTimeTask = new TimedTask<>(mwPrivate.executor());
+        return queryTimeTask.execute("Did not receive log reference response within %dms", mwPrivate.getRttEstimator(),
                 () -> mwPrivate.sendCommand(new byte[] { Constant.Module.LOGGING.id, Util.setRead(LoggingImpl.TIME) }));
     }
 
@@ -435,7 +782,7 @@ class LoggingImpl extends ModuleImplBase implements Logging {
                 System.arraycopy(eventConfig, 0, command, 2, eventConfig.length);
                 command[5]= (byte) (((entrySize - 1) << 5) | entryOffset);
 
-                return createLoggerTask.execute("Did not receive log id within %dms", Constant.RESPONSE_TIMEOUT,
+                return createLoggerTask.execute("Did not receive log id within %dms", Constant.MIN_CREATE_TIMEOUT, mwPrivate.getRttEstimator(),
                         () -> mwPrivate.sendCommand(command)
                 ).continueWithTask(task -> {
                     if (task.isFaulted()) {
@@ -448,13 +795,13 @@ class LoggingImpl extends ModuleImplBase implements Logging {
                     remainder.set((byte) (remainder.get() - LOG_ENTRY_SIZE));
 
                     return Task.forResult(null);
-                });
-            }).onSuccessTask(ignored2 -> {
+                }, mwPrivate.executor());
+            }, mwPrivate.executor()).onSuccessTask(ignored2 -> {
                 loggers.add(next);
                 next.register(dataLoggers);
                 return Task.forResult(null);
-            });
-        }).continueWithTask(task -> {
+            }, mwPrivate.executor());
+        }, mwPrivate.executor()).continueWithTask(task -> {
             if (task.isFaulted()) {
                 boolean taskTimeout = task.getError() instanceof TaskTimeoutException;
                 if (taskTimeout) {
@@ -467,7 +814,7 @@ class LoggingImpl extends ModuleImplBase implements Logging {
             }
 
             return Task.forResult(loggers);
-        });
+        }, mwPrivate.executor());
     }
 
 
@@ -482,14 +829,35 @@ class LoggingImpl extends ModuleImplBase implements Logging {
             final byte[] logData = Arrays.copyOfRange(logEntry, 5, logEntry.length);
             final Calendar realTimestamp = computeTimestamp(resetUid, tick);
 
-            if (dataLoggers.containsKey(logId)) {
-                dataLoggers.get(logId).handleLogMessage(mwPrivate, logId, realTimestamp, logData, errorHandler);
-            } else if (errorHandler != null) {
-                errorHandler.receivedError(DownloadError.UNKNOWN_LOG_ENTRY, logId, realTimestamp, logData);
+            final DataLogger logger = dataLoggers.get(logId);
+            final ParallelDownload parallel = parallelDownload;
+            final DownloadStats stats = downloadStats;
+            if (logger != null) {
+                if (parallel != null) {
+                    final LogDownloadErrorHandler handler = errorHandler;
+                    parallel.post(logger, () -> decodeLogData(stats, logger, logId, realTimestamp, logData, handler));
+                } else {
+                    decodeLogData(stats, logger, logId, realTimestamp, logData, errorHandler);
+                }
+            } else {
+                if (stats != null) {
+                    stats.failed(DownloadError.UNKNOWN_LOG_ENTRY);
+                }
+                if (errorHandler != null) {
+                    errorHandler.receivedError(DownloadError.UNKNOWN_LOG_ENTRY, logId, realTimestamp, logData);
+                }
             }
         }
     }
 
+    private void decodeLogData(DownloadStats stats, DataLogger logger, byte logId, Calendar timestamp, byte[] data, LogDownloadErrorHandler handler) {
+        long start = System.nanoTime();
+        DownloadError error = logger.handleLogMessage(mwPrivate, logId, timestamp, data, handler);
+        if (stats != null) {
+            stats.decoded(System.nanoTime() - start, error);
+        }
+    }
+
     Calendar computeTimestamp(byte resetUid, long tick) {
         TimeReference reference= logReferenceTicks.containsKey(resetUid) ? logReferenceTicks.get(resetUid) : latestReference;
 
@@ -512,7 +880,7 @@ class LoggingImpl extends ModuleImplBase implements Logging {
         return timestamp;
     }
 
-    private Task<Collection<DataLogger>> queryActiveLoggersInnerAsync(final byte id) {
+    private Task<Collection<DataLogger>> queryActiveLoggersInnerAsync(final byte id, final List<Task<byte[]>> configs, final Map<Byte, ProcessorEntry> processors) {
         final Map<DataTypeBase, Byte> nRemainingLoggers = new HashMap<>();
         final Capture<Byte> offset = new Capture<>();
         final Capture<byte[]> response = new Capture<>();
@@ -565,27 +933,34 @@ class LoggingImpl extends ModuleImplBase implements Logging {
                 }
                 return Task.forResult(type);
             } else {
-                return dataprocessor.pullChainAsync(fuserIds.poll()).onSuccessTask(onProcessorSynced.get());
+                return dataprocessor.pullChainAsync(fuserIds.poll(), processors).onSuccessTask(onProcessorSynced.get(), mwPrivate.executor());
             }
         });
 
-        return syncLoggerConfigTask.execute("Did not receive logger config for id=" + id + " within %dms", Constant.RESPONSE_TIMEOUT,
-                () -> mwPrivate.sendCommand(new byte[] {0x0b, Util.setRead(TRIGGER), id})
-        ).onSuccessTask(task -> {
+        // keep the reads for the next few ids in flight while this one is resolved
+        int nLoggers = mwPrivate.lookupModuleInfo(LOGGING).extra[0];
+        while(configs.size() < Math.max(id + 1, Math.min(nLoggers, id + SYNC_PIPELINE_DEPTH))) {
+            final byte next = (byte) configs.size();
+            configs.add(syncLoggerConfigTask.execute("Did not receive logger config for id=" + next + " within %dms", mwPrivate.getRttEstimator(),
+                    () -> mwPrivate.sendCommand(new byte[] {0x0b, Util.setRead(TRIGGER), next})
+            ));
+        }
+
+        return configs.get(id).onSuccessTask(task -> {
             response.set(task.getResult());
             if (response.get().length > 2) {
                 offset.set((byte) (response.get()[5] & 0x1f));
                 byte length = (byte) (((response.get()[5] >> 5) & 0x3) + 1);
 
                 if (response.get()[2] == DATA_PROCESSOR.id && (response.get()[3] == DataProcessorImpl.NOTIFY || Util.clearRead(response.get()[3]) == DataProcessorImpl.STATE)) {
-                    return dataprocessor.pullChainAsync(response.get()[4]).onSuccessTask(onProcessorSynced.get());
+                    return dataprocessor.pullChainAsync(response.get()[4], processors).onSuccessTask(onProcessorSynced.get(), mwPrivate.executor());
                 } else {
                     return Task.forResult(guessLogSource(mwPrivate.getDataTypes(), new Tuple3<>(response.get()[2], response.get()[3], response.get()[4]), offset.get(), length));
                 }
             } else {
                 return Task.cancelled();
             }
-        }).onSuccessTask(task -> {
+        }, mwPrivate.executor()).onSuccessTask(task -> {
             DataTypeBase dataTypeBase = task.getResult();
 
             if (response.get()[2] == DATA_PROCESSOR.id && Util.clearRead(response.get()[3]) == DataProcessorImpl.STATE) {
@@ -618,11 +993,11 @@ class LoggingImpl extends ModuleImplBase implements Logging {
                 }
             }
             return Task.forResult(null);
-        }).continueWithTask(task -> {
+        }, mwPrivate.executor()).continueWithTask(task -> {
             if (!task.isFaulted()) {
                 byte nextId = (byte) (id + 1);
                 if (nextId < mwPrivate.lookupModuleInfo(LOGGING).extra[0]) {
-                    return queryActiveLoggersInnerAsync(nextId);
+                    return queryActiveLoggersInnerAsync(nextId, configs, processors);
                 }
                 Collection<DataLogger> orderedLoggers = new ArrayList<>();
                 for(Byte it: new TreeSet<>(dataLoggers.keySet())) {
@@ -633,10 +1008,10 @@ class LoggingImpl extends ModuleImplBase implements Logging {
                 return Task.forResult(orderedLoggers);
             }
             return Task.forError(task.getError());
-        });
+        }, mwPrivate.executor());
     }
     Task<Collection<DataLogger>> queryActiveLoggersAsync() {
         placeholder = new HashMap<>();
-        return queryActiveLoggersInnerAsync((byte) 0);
+        return queryActiveLoggersInnerAsync((byte) 0, new ArrayList<>(), new HashMap<>());
     }
 }
@@ -57,7 +57,7 @@ class MacroImpl extends ModuleImplBase implements Macro {
 
     @Override
     protected void init() {
-        startMacroTask = new TimedTask<>();
+        startMacroTask = new TimedTask<>(mwPrivate.executor());
         this.mwPrivate.addResponseHandler(new Pair<>(MACRO.id, BEGIN), response -> startMacroTask.setResult(response[2]));
     }
 
@@ -76,10 +76,10 @@ class MacroImpl extends ModuleImplBase implements Macro {
     @Override
     public Task<Byte> endRecordAsync() {
         isRecording = false;
-        return Task.delay(WRITE_MACRO_DELAY).onSuccessTask(ignored ->
-                startMacroTask.execute("Did not received macro id within %dms", Constant.RESPONSE_TIMEOUT,
+        return mwPrivate.executor().delay(WRITE_MACRO_DELAY).onSuccessTask(ignored ->
+                startMacroTask.execute("Did not received macro id within %dms", Constant.MIN_CREATE_TIMEOUT, mwPrivate.getRttEstimator(),
                         () -> mwPrivate.sendCommand(new byte[] {MACRO.id, BEGIN, (byte) (this.execOnBoot ? 1 : 0)})
-                )
+                ), mwPrivate.executor()
         ).onSuccessTask(task -> {
             while(!commands.isEmpty()) {
                 for(byte[] converted: convertToMacroCommand(commands.poll())) {
@@ -89,7 +89,7 @@ class MacroImpl extends ModuleImplBase implements Macro {
             mwPrivate.sendCommand(new byte[] {MACRO.id, END});
 
             return task;
-        });
+        }, mwPrivate.executor());
     }
 
     @Override
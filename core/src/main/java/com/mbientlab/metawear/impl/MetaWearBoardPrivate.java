@@ -30,6 +30,8 @@ import com.mbientlab.metawear.Observer;
 import com.mbientlab.metawear.Route;
 import com.mbientlab.metawear.builder.RouteBuilder;
 import com.mbientlab.metawear.impl.JseMetaWearBoard.RegisterResponseHandler;
+import com.mbientlab.metawear.impl.platform.BoardExecutor;
+import com.mbientlab.metawear.impl.platform.RttEstimator;
 import com.mbientlab.metawear.module.Timer;
 
 import java.util.Collection;
@@ -72,4 +74,24 @@ interface MetaWearBoardPrivate {
     void logWarn(String message);
 
     Version getFirmwareVersion();
+    RttEstimator getRttEstimator();
+    BoardExecutor executor();
+
+    /**
+     * Retrieves the identifier of the producer chain ending at the source, computed once and cached until
+     * {@link #invalidateIdentifiers()} is called
+     */
+    String producerChainIdentifier(DataTypeBase source);
+    /**
+     * Discards cached producer chain identifiers, called when processors are removed or reconfigured
+     */
+    void invalidateIdentifiers();
+    /**
+     * Discards cached scale factors, called when a module's configuration changes
+     */
+    void invalidateScales();
+    /**
+     * Counter incremented by {@link #invalidateScales()}, never 0
+     */
+    int scaleGeneration();
 }
@@ -44,6 +44,22 @@ abstract class ModuleImplBase implements Serializable {
     }
 
     protected void init() { }
+    /**
+     * Estimates how many samples per second a producer owned by this module generates with the current configuration
+     * @param producer    Producer to check
+     * @return Sample rate in Hz, negative if the rate cannot be determined
+     */
+    float sampleRate(DataTypeBase producer) {
+        return -1f;
+    }
+    /**
+     * Retrieves the packed variant of a producer owned by this module, which combines multiple samples into one notification
+     * @param producer    Producer to check
+     * @return Packed producer, null if the producer does not have a packed variant
+     */
+    DataTypeBase packedSource(DataTypeBase producer) {
+        return null;
+    }
     public void tearDown() { }
     public void disconnected() { }
 }
@@ -27,6 +27,7 @@ package com.mbientlab.metawear.impl;
 import org.json.JSONObject;
 
 import java.io.Serializable;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
@@ -57,6 +58,24 @@ class ModuleInfo implements Serializable {
         }
     }
 
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        ModuleInfo that = (ModuleInfo) o;
+        return id == that.id && implementation == that.implementation && revision == that.revision && Arrays.equals(extra, that.extra);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = id;
+        result = 31 * result + implementation;
+        result = 31 * result + revision;
+        result = 31 * result + Arrays.hashCode(extra);
+        return result;
+    }
+
     boolean present() {
         return implementation != (byte) 0xff && revision != (byte) 0xff;
     }
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2014-2015 MbientLab Inc. All rights reserved.
+ *
+ * IMPORTANT: Your use of this Software is limited to those specific rights granted under the terms of a software
+ * license agreement between the user who downloaded the software, his/her employer (which must be your
+ * employer) and MbientLab Inc, (the "License").  You may not use this Software unless you agree to abide by the
+ * terms of the License which can be found at www.mbientlab.com/terms.  The License limits your use, and you
+ * acknowledge, that the Software may be modified, copied, and distributed when used in conjunction with an
+ * MbientLab Inc, product.  Other than for the foregoing purpose, you may not use, reproduce, copy, prepare
+ * derivative works of, modify, distribute, perform, display or sell this Software and/or its documentation for any
+ * purpose.
+ *
+ * YOU FURTHER ACKNOWLEDGE AND AGREE THAT THE SOFTWARE AND DOCUMENTATION ARE PROVIDED "AS IS" WITHOUT WARRANTY
+ * OF ANY KIND, EITHER EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION, ANY WARRANTY OF MERCHANTABILITY, TITLE,
+ * NON-INFRINGEMENT AND FITNESS FOR A PARTICULAR PURPOSE. IN NO EVENT SHALL MBIENTLAB OR ITS LICENSORS BE LIABLE OR
+ * OBLIGATED UNDER CONTRACT, NEGLIGENCE, STRICT LIABILITY, CONTRIBUTION, BREACH OF WARRANTY, OR OTHER LEGAL EQUITABLE
+ * THEORY ANY DIRECT OR INDIRECT DAMAGES OR EXPENSES INCLUDING BUT NOT LIMITED TO ANY INCIDENTAL, SPECIAL, INDIRECT,
+ * PUNITIVE OR CONSEQUENTIAL DAMAGES, LOST PROFITS OR LOST DATA, COST OF PROCUREMENT OF SUBSTITUTE GOODS, TECHNOLOGY,
+ * SERVICES, OR ANY CLAIMS BY THIRD PARTIES (INCLUDING BUT NOT LIMITED TO ANY DEFENSE THEREOF), OR OTHER SIMILAR COSTS.
+ *
+ * Should you have any questions regarding your right to use this Software, contact MbientLab via email:
+ * hello@mbientlab.com.
+ */
+
+package com.mbientlab.metawear.impl;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Module information shared by boards with the same model, hardware revision, and firmware.  The first board of each
+ * combination discovers its modules as usual; boards connecting afterwards reuse the cached result once a single
+ * module read confirms it matches.  Entries can optionally be saved to a directory so the cache survives restarts.
+ * Equal {@link ModuleInfo} objects are interned so every board of a fleet shares the same instances.
+ */
+public class ModuleInfoCache {
+    private static final String EXTENSION = ".modules";
+
+    private final File directory;
+    private final Map<String, List<ModuleInfo>> entries = new HashMap<>();
+    private final Map<ModuleInfo, ModuleInfo> interned = new HashMap<>();
+
+    /**
+     * Creates a cache that is only held in memory
+     */
+    public ModuleInfoCache() {
+        this(null);
+    }
+
+    /**
+     * Creates a cache backed by a directory
+     * @param directory    Directory to save entries to, created if it does not exist, null to only use memory
+     */
+    public ModuleInfoCache(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Removes all entries, including those saved to disk
+     */
+    public synchronized void clear() {
+        entries.clear();
+        interned.clear();
+
+        File[] files = directory == null ? null : directory.listFiles((dir, name) -> name.endsWith(EXTENSION));
+        if (files != null) {
+            for(File it: files) {
+                it.delete();
+            }
+        }
+    }
+
+    synchronized List<ModuleInfo> lookup(String modelNumber, String hardwareRevision, Version firmware) {
+        String key = key(modelNumber, hardwareRevision, firmware);
+        List<ModuleInfo> info = entries.get(key);
+        if (info == null && directory != null) {
+            info = load(key);
+            if (info != null) {
+                entries.put(key, info);
+            }
+        }
+        return info;
+    }
+
+    synchronized void put(String modelNumber, String hardwareRevision, Version firmware, Iterable<ModuleInfo> info) throws IOException {
+        ArrayList<ModuleInfo> copy = new ArrayList<>();
+        for(ModuleInfo it: info) {
+            copy.add(intern(it));
+        }
+
+        String key = key(modelNumber, hardwareRevision, firmware);
+        entries.put(key, Collections.unmodifiableList(copy));
+        if (directory != null) {
+            save(key, copy);
+        }
+    }
+
+    private ModuleInfo intern(ModuleInfo info) {
+        ModuleInfo existing = interned.get(info);
+        if (existing == null) {
+            interned.put(info, info);
+            return info;
+        }
+        return existing;
+    }
+
+    private static String key(String modelNumber, String hardwareRevision, Version firmware) {
+        return (modelNumber + "_" + hardwareRevision + "_" + firmware).replaceAll("[^A-Za-z0-9._-]", "-");
+    }
+
+    private void save(String key, ArrayList<ModuleInfo> info) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create directory " + directory.getAbsolutePath());
+        }
+
+        File tmp = new File(directory, key + EXTENSION + ".tmp");
+        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(tmp))) {
+            oos.writeObject(info);
+        }
+        File dest = new File(directory, key + EXTENSION);
+        if (!tmp.renameTo(dest) && !(dest.delete() && tmp.renameTo(dest))) {
+            tmp.delete();
+            throw new IOException("Cannot write " + dest.getAbsolutePath());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<ModuleInfo> load(String key) {
+        File src = new File(directory, key + EXTENSION);
+        if (!src.isFile()) {
+            return null;
+        }
+
+        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(src))) {
+            ArrayList<ModuleInfo> info = new ArrayList<>();
+            for(ModuleInfo it: (List<ModuleInfo>) ois.readObject()) {
+                info.add(intern(it));
+            }
+            return Collections.unmodifiableList(info);
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            // Corrupt or outdated entry, discover the modules again and overwrite it
+            return null;
+        }
+    }
+}
@@ -26,7 +26,7 @@ package com.mbientlab.metawear.impl;
 
 import com.mbientlab.metawear.module.NeoPixel;
 
-import java.util.HashMap;
+import java.util.Map;
 
 import static com.mbientlab.metawear.impl.Constant.Module.NEO_PIXEL;
 
@@ -40,13 +40,20 @@ class NeoPixelImpl extends ModuleImplBase implements NeoPixel {
             ROTATE= 5,
             FREE= 6;
     private static final long serialVersionUID = -3877020058618686105L;
-    private final HashMap<Byte, Byte> activeStrands= new HashMap<>();
+    private Map<Byte, Byte> activeStrands= new ByteIdMap<>();
 
     NeoPixelImpl(MetaWearBoardPrivate mwPrivate) {
         super(mwPrivate);
         this.mwPrivate= mwPrivate;
     }
 
+    @Override
+    public void restoreTransientVars(MetaWearBoardPrivate mwPrivate) {
+        super.restoreTransientVars(mwPrivate);
+
+        activeStrands = ByteIdMap.compact(activeStrands);
+    }
+
     @Override
     public Strand initializeStrand(byte strand, ColorOrdering ordering, StrandSpeed speed, byte gpioPin, byte length) {
         activeStrands.put(strand, length);
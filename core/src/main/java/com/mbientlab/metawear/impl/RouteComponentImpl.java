@@ -40,10 +40,12 @@ import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.util.ArrayList;
 import java.util.EmptyStackException;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import java.util.Stack;
 
 import static com.mbientlab.metawear.impl.Constant.MAX_BTLE_LENGTH;
@@ -71,6 +73,7 @@ class RouteComponentImpl implements RouteComponent {
         final Stack<BranchElement> elements;
         final Stack<Pair<RouteComponentImpl, DataTypeBase[]>> splits;
         final Map<String, Processor> taggedProcessors = new LinkedHashMap<>();
+        final Set<Processor> hostProcessors = new HashSet<>();
 
         Cache(MetaWearBoardPrivate mwPrivate) {
             this.subscribedProducers= new ArrayList<>();
@@ -84,6 +87,7 @@ class RouteComponentImpl implements RouteComponent {
     }
 
     private final DataTypeBase source;
+    private boolean host = false;
     Cache persistantData= null;
 
     RouteComponentImpl(DataTypeBase source) {
@@ -93,6 +97,7 @@ class RouteComponentImpl implements RouteComponent {
     RouteComponentImpl(DataTypeBase source, RouteComponentImpl original) {
         this.source= source;
         this.persistantData= original.persistantData;
+        this.host= original.host;
     }
 
     public void setup(Cache original) {
@@ -163,6 +168,13 @@ class RouteComponentImpl implements RouteComponent {
         return this;
     }
 
+    @Override
+    public RouteComponent host() {
+        RouteComponentImpl next = new RouteComponentImpl(source, this);
+        next.host = true;
+        return next;
+    }
+
     @Override
     public RouteComponent stream(Subscriber subscriber) {
         if (source.attributes.length() > 0) {
@@ -290,7 +302,7 @@ class RouteComponentImpl implements RouteComponent {
         @Override
         public void modify(byte samples) {
             config[2]= samples;
-            mwPrivate.sendCommand(DATA_PROCESSOR, DataProcessorImpl.PARAMETER, source.eventConfig[2], config);
+            writeConfig();
         }
 
         @Override
@@ -451,7 +463,7 @@ class RouteComponentImpl implements RouteComponent {
 
             byte[] newRhs= ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(scaledRhs.intValue()).array();
             System.arraycopy(newRhs, 0, config, 3, newRhs.length);
-            mwPrivate.sendCommand(DATA_PROCESSOR, DataProcessorImpl.PARAMETER, source.eventConfig[2], config);
+            writeConfig();
         }
     }
     private RouteComponent applyMath(DataProcessorConfig.Maths.Operation op, Number rhs) {
@@ -503,7 +515,7 @@ class RouteComponentImpl implements RouteComponent {
             byte[] newPeriod= ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(period).array();
             System.arraycopy(newPeriod, 0, config, 2, newPeriod.length);
 
-            mwPrivate.sendCommand(DATA_PROCESSOR, DataProcessorImpl.PARAMETER, source.eventConfig[2], config);
+            writeConfig();
         }
     }
     @Override
@@ -544,7 +556,7 @@ class RouteComponentImpl implements RouteComponent {
             System.arraycopy(newValue, 0, config, 2, newValue.length);
             config[1]= (byte) (type.ordinal() & 0x7);
 
-            mwPrivate.sendCommand(DATA_PROCESSOR, DataProcessorImpl.PARAMETER, source.eventConfig[2], config);
+            writeConfig();
         }
     }
     @Override
@@ -575,7 +587,7 @@ class RouteComponentImpl implements RouteComponent {
                     .array();
             System.arraycopy(newConfig, 0, config, 4, newConfig.length);
 
-            mwPrivate.sendCommand(DATA_PROCESSOR, DataProcessorImpl.PARAMETER, source.eventConfig[2], config);
+            writeConfig();
         }
     }
     @Override
@@ -645,7 +657,7 @@ class RouteComponentImpl implements RouteComponent {
                     .array();
             System.arraycopy(newConfig, 0, config, 2, newConfig.length);
 
-            mwPrivate.sendCommand(DATA_PROCESSOR, DataProcessorImpl.PARAMETER, source.eventConfig[2], config);
+            writeConfig();
         }
     }
     private static class MultiValueComparatorEditor extends EditorImplBase implements DataProcessor.ComparatorEditor {
@@ -689,7 +701,7 @@ class RouteComponentImpl implements RouteComponent {
             System.arraycopy(newRef, 0, newConfig, 2, newRef.length);
             config= newConfig;
 
-            mwPrivate.sendCommand(DATA_PROCESSOR, DataProcessorImpl.PARAMETER, source.eventConfig[2], config);
+            writeConfig();
         }
     }
     @Override
@@ -746,7 +758,7 @@ class RouteComponentImpl implements RouteComponent {
                     .array();
             System.arraycopy(newConfig, 0, config, 2, newConfig.length);
 
-            mwPrivate.sendCommand(DATA_PROCESSOR, DataProcessorImpl.PARAMETER, source.eventConfig[2], config);
+            writeConfig();
         }
     }
     @Override
@@ -789,7 +801,7 @@ class RouteComponentImpl implements RouteComponent {
             byte[] newDiff= ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(source.convertToFirmwareUnits(mwPrivate, distance).intValue()).array();
             System.arraycopy(newDiff, 0, config, 2, newDiff.length);
 
-            mwPrivate.sendCommand(DATA_PROCESSOR, DataProcessorImpl.PARAMETER, source.eventConfig[2], config);
+            writeConfig();
         }
     }
     @Override
@@ -881,7 +893,11 @@ class RouteComponentImpl implements RouteComponent {
     }
 
     private RouteComponentImpl postCreate(DataTypeBase state, EditorImplBase editor) {
-        persistantData.dataProcessors.add(new Processor(state, editor));
+        Processor processor = new Processor(state, editor);
+        persistantData.dataProcessors.add(processor);
+        if (host) {
+            persistantData.hostProcessors.add(processor);
+        }
         return new RouteComponentImpl(editor.source, this);
     }
 }
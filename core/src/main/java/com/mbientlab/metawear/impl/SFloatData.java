@@ -67,18 +67,18 @@ class SFloatData extends DataTypeBase {
 
     @Override
     public Number convertToFirmwareUnits(MetaWearBoardPrivate mwPrivate, Number value) {
-        return value.floatValue() * scale(mwPrivate);
+        return value.floatValue() * cachedScale(mwPrivate);
     }
 
     @Override
     public Data createMessage(boolean logData, final MetaWearBoardPrivate mwPrivate, final byte[] data, final Calendar timestamp, DataPrivate.ClassToObject mapper) {
         final ByteBuffer buffer = Util.bytesToSIntBuffer(logData, data, attributes);
-        final float scaled= buffer.getInt(0) / scale(mwPrivate);
+        final float scale= cachedScale(mwPrivate), scaled= buffer.getInt(0) / scale;
 
         return new DataPrivate(timestamp, data, mapper) {
             @Override
             public float scale() {
-                return SFloatData.this.scale(mwPrivate);
+                return scale;
             }
 
             @Override
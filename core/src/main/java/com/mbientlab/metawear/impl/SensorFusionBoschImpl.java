@@ -402,7 +402,7 @@ class SensorFusionBoschImpl extends ModuleImplBase implements SensorFusionBosch
 
     @Override
     protected void init() {
-        readRegisterTask = new TimedTask<>();
+        readRegisterTask = new TimedTask<>(mwPrivate.executor());
 
         mwPrivate.addResponseHandler(new Pair<>(SENSOR_FUSION.id, Util.setRead(MODE)), response -> readRegisterTask.setResult(response));
         if (mwPrivate.lookupModuleInfo(SENSOR_FUSION).revision >= CALIBRATION_STATE_REV) {
@@ -700,18 +700,18 @@ class SensorFusionBoschImpl extends ModuleImplBase implements SensorFusionBosch
 
     @Override
     public Task<Void> pullConfigAsync() {
-        return readRegisterTask.execute("Did not receive sensor fusion config within %dms", Constant.RESPONSE_TIMEOUT,
+        return readRegisterTask.execute("Did not receive sensor fusion config within %dms", mwPrivate.getRttEstimator(), Constant.READ_RETRIES,
                 () -> mwPrivate.sendCommand(new byte[] {SENSOR_FUSION.id, Util.setRead(MODE)})
         ).onSuccessTask(task -> {
             mode = Mode.values()[task.getResult()[2]];
             return Task.forResult(null);
-        });
+        }, mwPrivate.executor());
     }
 
     @Override
     public Task<CalibrationState> readCalibrationStateAsync() {
         if (mwPrivate.lookupModuleInfo(SENSOR_FUSION).revision >= CALIBRATION_STATE_REV) {
-            return readRegisterTask.execute("Did not receive sensor fusion calibration status within %dms", Constant.RESPONSE_TIMEOUT,
+            return readRegisterTask.execute("Did not receive sensor fusion calibration status within %dms", mwPrivate.getRttEstimator(), Constant.READ_RETRIES,
                     () -> mwPrivate.sendCommand(new byte[] {SENSOR_FUSION.id, Util.setRead(CALIB_STATUS)})
             ).onSuccessTask(task -> {
                 CalibrationAccuracy values[] = CalibrationAccuracy.values();
@@ -720,7 +720,7 @@ class SensorFusionBoschImpl extends ModuleImplBase implements SensorFusionBosch
                         values[task.getResult()[3]],
                         values[task.getResult()[4]]
                 ));
-            });
+            }, mwPrivate.executor());
         }
         return Task.forError(new UnsupportedOperationException("Minimum firmware v1.4.2 required to use this function"));
     }
@@ -755,34 +755,34 @@ class SensorFusionBoschImpl extends ModuleImplBase implements SensorFusionBosch
                         break;
                 }
 
-                return !terminate.get() ? Task.delay(pollingPeriod) : Task.<Void>forResult(null);
-            }) : Task.cancelled()
-            ).onSuccessTask(ignored -> readRegisterTask.execute("Did not receive accelerometer calibration data within %dms", Constant.RESPONSE_TIMEOUT,
-                    () -> mwPrivate.sendCommand(new byte[] {SENSOR_FUSION.id, Util.setRead(ACC_CALIB_DATA)}))
+                return !terminate.get() ? mwPrivate.executor().delay(pollingPeriod) : Task.<Void>forResult(null);
+            }, mwPrivate.executor()) : Task.cancelled(), mwPrivate.executor()
+            ).onSuccessTask(ignored -> readRegisterTask.execute("Did not receive accelerometer calibration data within %dms", mwPrivate.getRttEstimator(),
+                    () -> mwPrivate.sendCommand(new byte[] {SENSOR_FUSION.id, Util.setRead(ACC_CALIB_DATA)})), mwPrivate.executor()
             ).onSuccessTask(task -> {
                 byte[] result = task.getResult();
                 acc.set(Arrays.copyOfRange(result, 2, result.length));
 
-                return mode == Mode.IMU_PLUS || mode == Mode.NDOF ? readRegisterTask.execute("Did not receive gyroscope calibration data within %dms", Constant.RESPONSE_TIMEOUT,
+                return mode == Mode.IMU_PLUS || mode == Mode.NDOF ? readRegisterTask.execute("Did not receive gyroscope calibration data within %dms", mwPrivate.getRttEstimator(),
                         () -> mwPrivate.sendCommand(new byte[] {SENSOR_FUSION.id, Util.setRead(GYRO_CALIB_DATA)})
                 ) : Task.forResult(null);
-            }).onSuccessTask(task -> {
+            }, mwPrivate.executor()).onSuccessTask(task -> {
                 if (task.getResult() != null) {
                     byte[] result = task.getResult();
                     gyro.set(Arrays.copyOfRange(result, 2, result.length));
                 }
 
-                return mode != Mode.IMU_PLUS ? readRegisterTask.execute("Did not receive magnetometer calibration data within %dms", Constant.RESPONSE_TIMEOUT,
+                return mode != Mode.IMU_PLUS ? readRegisterTask.execute("Did not receive magnetometer calibration data within %dms", mwPrivate.getRttEstimator(),
                         () -> mwPrivate.sendCommand(new byte[] {SENSOR_FUSION.id, Util.setRead(MAG_CALIB_DATA)})
                 ) : Task.forResult(null);
-            }).onSuccessTask(task -> {
+            }, mwPrivate.executor()).onSuccessTask(task -> {
                 if (task.getResult() != null) {
                     byte[] result = task.getResult();
                     mag.set(Arrays.copyOfRange(result, 2, result.length));
                 }
 
                 return Task.forResult(new CalibrationData(acc.get(), gyro.get(), mag.get()));
-            });
+            }, mwPrivate.executor());
         }
         return Task.forError(new UnsupportedOperationException("Minimum firmware v1.4.4 required to use this function"));
     }
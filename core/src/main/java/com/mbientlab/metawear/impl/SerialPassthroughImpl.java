@@ -24,17 +24,24 @@
 
 package com.mbientlab.metawear.impl;
 
+import com.mbientlab.metawear.DataProducer;
 import com.mbientlab.metawear.Route;
 import com.mbientlab.metawear.builder.RouteBuilder;
 import com.mbientlab.metawear.impl.platform.TimedTask;
 import com.mbientlab.metawear.module.SerialPassthrough;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
 
 import bolts.Task;
+import bolts.TaskCompletionSource;
 
 import static com.mbientlab.metawear.impl.Constant.Module.DATA_PROCESSOR;
 import static com.mbientlab.metawear.impl.Constant.Module.SERIAL_PASSTHROUGH;
@@ -56,6 +63,7 @@ class SerialPassthroughImpl extends ModuleImplBase implements SerialPassthrough
 
     private final static byte SPI_REVISION= 1;
     private static final byte I2C_RW = 0x1, SPI_RW = 0x2, DIRECT_I2C_READ_ID = (byte) 0xff, DIRECT_SPI_READ_ID = 0xf;
+    private static final int MAX_DIRECT_READS = 8;
     private static final String I2C_PRODUCER_FORMAT= "com.mbientlab.metawear.impl.SerialPassthroughImpl.I2C_PRODUCER_%d",
             SPI_PRODUCER_FORMAT= "com.mbientlab.metawear.impl.SerialPassthroughImpl.SPI_PRODUCER_%d";
     private static final long serialVersionUID = 3950502593880962546L;
@@ -242,9 +250,99 @@ class SerialPassthroughImpl extends ModuleImplBase implements SerialPassthrough
         }
     }
 
+    private interface ReadCommand {
+        byte[] build(byte id);
+    }
+    /**
+     * Tracks direct reads on one bus.  Each in flight read borrows an id, counting down from the bus' direct read id,
+     * that is not used by a data producer so responses can be matched to their request.  Reads beyond
+     * {@link #MAX_DIRECT_READS} wait until an id is returned.
+     */
+    private class DirectReads {
+        private final byte register, firstId;
+        private final Map<Byte, TimedTask<byte[]>> active = new HashMap<>();
+        private final Queue<Pair<ReadCommand, TaskCompletionSource<byte[]>>> waiting = new LinkedList<>();
+        private final JseMetaWearBoard.RegisterResponseHandler handler = response -> {
+            TimedTask<byte[]> task;
+            synchronized (this) {
+                task = active.get(response[2]);
+            }
+            if (task != null) {
+                task.setResult(response);
+            }
+        };
+
+        DirectReads(byte register, byte firstId) {
+            this.register = register;
+            this.firstId = firstId;
+        }
+
+        Task<byte[]> execute(final String msgFormat, final int retries, ReadCommand command) {
+            TaskCompletionSource<byte[]> result = new TaskCompletionSource<>();
+            synchronized (this) {
+                waiting.add(new Pair<>(command, result));
+            }
+            dispatch(msgFormat, retries);
+            return result.getTask();
+        }
+
+        private void dispatch(final String msgFormat, final int retries) {
+            while(true) {
+                final Pair<ReadCommand, TaskCompletionSource<byte[]>> next;
+                final TimedTask<byte[]> timedTask = new TimedTask<>(mwPrivate.executor());
+                final byte id;
+
+                synchronized (this) {
+                    Byte available = waiting.isEmpty() ? null : nextId();
+                    if (available == null) {
+                        return;
+                    }
+
+                    id = available;
+                    next = waiting.poll();
+                    active.put(id, timedTask);
+                }
+
+                mwPrivate.addDataHandler(new Tuple3<>(SERIAL_PASSTHROUGH.id, Util.setRead(register), id), handler);
+                timedTask.execute(msgFormat, mwPrivate.getRttEstimator(), retries, () -> mwPrivate.sendCommand(next.first.build(id)))
+                        .continueWith(task -> {
+                            synchronized (this) {
+                                active.remove(id);
+                            }
+                            mwPrivate.removeDataHandler(new Tuple3<>(SERIAL_PASSTHROUGH.id, Util.setRead(register), id), handler);
+
+                            if (task.isFaulted()) {
+                                next.second.setError(task.getError());
+                            } else if (task.isCancelled()) {
+                                next.second.setCancelled();
+                            } else {
+                                next.second.setResult(task.getResult());
+                            }
+
+                            dispatch(msgFormat, retries);
+                            return null;
+                        }, mwPrivate.executor());
+            }
+        }
+
+        private Byte nextId() {
+            if (active.size() >= MAX_DIRECT_READS) {
+                return null;
+            }
+            Map<Byte, ? extends DataProducer> reserved = register == I2C_RW ? i2cDataProducers : spiDataProducers;
+            for(int i = firstId & 0xff; i >= 0; i--) {
+                byte id = (byte) i;
+                if (!active.containsKey(id) && !reserved.containsKey(id)) {
+                    return id;
+                }
+            }
+            return null;
+        }
+    }
+
     private final Map<Byte, I2C> i2cDataProducers= new ConcurrentHashMap<>();
     private final Map<Byte, SPI> spiDataProducers = new ConcurrentHashMap<>();
-    private transient TimedTask<byte[]> readI2cDataTask, readSpiDataTask;
+    private transient DirectReads i2cDirectReads, spiDirectReads;
 
     SerialPassthroughImpl(MetaWearBoardPrivate mwPrivate) {
         super(mwPrivate);
@@ -265,14 +363,11 @@ class SerialPassthroughImpl extends ModuleImplBase implements SerialPassthrough
 
     @Override
     protected void init() {
-        readI2cDataTask = new TimedTask<>();
-        readSpiDataTask = new TimedTask<>();
+        i2cDirectReads = new DirectReads(I2C_RW, DIRECT_I2C_READ_ID);
+        spiDirectReads = new DirectReads(SPI_RW, DIRECT_SPI_READ_ID);
 
         mwPrivate.addDataIdHeader(new Pair<>(SERIAL_PASSTHROUGH.id, Util.setRead(I2C_RW)));
-        mwPrivate.addDataHandler(new Tuple3<>(SERIAL_PASSTHROUGH.id, Util.setRead(I2C_RW), DIRECT_I2C_READ_ID), response -> readI2cDataTask.setResult(response));
-
         mwPrivate.addDataIdHeader(new Pair<>(SERIAL_PASSTHROUGH.id, Util.setRead(SPI_RW)));
-        mwPrivate.addDataHandler(new Tuple3<>(SERIAL_PASSTHROUGH.id, Util.setRead(SPI_RW), DIRECT_SPI_READ_ID), response -> readSpiDataTask.setResult(response));
     }
 
     @Override
@@ -298,8 +393,8 @@ class SerialPassthroughImpl extends ModuleImplBase implements SerialPassthrough
 
     @Override
     public Task<byte[]> readI2cAsync(final byte deviceAddr, final byte registerAddr, final byte length) {
-        return readI2cDataTask.execute("Did not receive I2C data within %dms", Constant.RESPONSE_TIMEOUT,
-                () -> mwPrivate.sendCommand(new byte[] {SERIAL_PASSTHROUGH.id, Util.setRead(I2C_RW), deviceAddr, registerAddr, DIRECT_I2C_READ_ID, length})
+        return i2cDirectReads.execute("Did not receive I2C data within %dms", Constant.READ_RETRIES,
+                id -> new byte[] {SERIAL_PASSTHROUGH.id, Util.setRead(I2C_RW), deviceAddr, registerAddr, id, length}
         ).onSuccessTask(task -> {
             byte[] response = task.getResult();
 
@@ -309,7 +404,16 @@ class SerialPassthroughImpl extends ModuleImplBase implements SerialPassthrough
                 return Task.forResult(data);
             }
             return Task.forError(new RuntimeException("Error reading I2C data from device or register address.  Response: " + Util.arrayToHexString(response)));
-        });
+        }, mwPrivate.executor());
+    }
+
+    @Override
+    public Task<List<byte[]>> readI2cAsync(List<I2cRegisterBlock> blocks) {
+        List<Task<byte[]>> tasks = new ArrayList<>(blocks.size());
+        for(I2cRegisterBlock it: blocks) {
+            tasks.add(readI2cAsync(it.deviceAddr, it.registerAddr, it.length));
+        }
+        return Task.whenAllResult(tasks);
     }
 
     @Override
@@ -343,9 +447,14 @@ class SerialPassthroughImpl extends ModuleImplBase implements SerialPassthrough
         return new SpiParameterBuilderInner<Task<byte[]>>((byte) ((length - 1) | (DIRECT_SPI_READ_ID << 4))) {
             @Override
             public Task<byte[]> commit() {
-                return readSpiDataTask.execute("Did not received SPI data within %dms", Constant.RESPONSE_TIMEOUT,
-                        () -> mwPrivate.sendCommand(SERIAL_PASSTHROUGH, Util.setRead(SPI_RW), config)
-                ).onSuccessTask(task -> {
+                return spiDirectReads.execute("Did not received SPI data within %dms", 0, id -> {
+                    byte[] command = new byte[config.length + 2];
+                    command[0] = SERIAL_PASSTHROUGH.id;
+                    command[1] = Util.setRead(SPI_RW);
+                    System.arraycopy(config, 0, command, 2, config.length);
+                    command[7] = (byte) ((command[7] & 0xf) | (id << 4));
+                    return command;
+                }).onSuccessTask(task -> {
                     byte[] response = task.getResult();
 
                     if (response.length > 3) {
@@ -354,7 +463,7 @@ class SerialPassthroughImpl extends ModuleImplBase implements SerialPassthrough
                         return Task.forResult(data);
                     }
                     return Task.forError(new RuntimeException("Error reading SPI data from device or register address.  Response: " + Util.arrayToHexString(response)));
-                });
+                }, mwPrivate.executor());
             }
         };
     }
@@ -162,10 +162,10 @@ class SettingsImpl extends ModuleImplBase implements Settings {
 
     @Override
     protected void init() {
-        readConnParamsTask = new TimedTask<>();
-        readAdConfigTask = new TimedTask<>();
-        readPowerStatusTask = new TimedTask<>();
-        readChargeStatusTask = new TimedTask<>();
+        readConnParamsTask = new TimedTask<>(mwPrivate.executor());
+        readAdConfigTask = new TimedTask<>(mwPrivate.executor());
+        readPowerStatusTask = new TimedTask<>(mwPrivate.executor());
+        readChargeStatusTask = new TimedTask<>(mwPrivate.executor());
 
         for(byte id: new byte[] {DEVICE_NAME, AD_PARAM, TX_POWER, SCAN_RESPONSE}) {
             this.mwPrivate.addResponseHandler(new Pair<>(SETTINGS.id, Util.setRead(id)), response -> readAdConfigTask.setResult(response));
@@ -277,7 +277,7 @@ class SettingsImpl extends ModuleImplBase implements Settings {
         final Capture<Integer> interval = new Capture<>();
         final Capture<Byte> timeout = new Capture<>(), tx = new Capture<>();
 
-        return readAdConfigTask.execute("Did not receive device name within %dms", Constant.RESPONSE_TIMEOUT,
+        return readAdConfigTask.execute("Did not receive device name within %dms", mwPrivate.getRttEstimator(),
                 () -> mwPrivate.sendCommand(new byte[] {SETTINGS.id, Util.setRead(DEVICE_NAME)})
         ).onSuccessTask(task -> {
             byte[] response = task.getResult();
@@ -286,9 +286,9 @@ class SettingsImpl extends ModuleImplBase implements Settings {
             } catch (UnsupportedEncodingException e) {
                 deviceName.set(new String(response, 2, response.length - 2));
             }
-            return readAdConfigTask.execute("Did not receive ad parameters within %dms", Constant.RESPONSE_TIMEOUT,
+            return readAdConfigTask.execute("Did not receive ad parameters within %dms", mwPrivate.getRttEstimator(),
                     () -> mwPrivate.sendCommand(new byte[] {SETTINGS.id, Util.setRead(AD_PARAM)}));
-        }).onSuccessTask(task -> {
+        }, mwPrivate.executor()).onSuccessTask(task -> {
             byte[] response = task.getResult();
             if (mwPrivate.lookupModuleInfo(SETTINGS).revision >= CONN_PARAMS_REVISION) {
                 int intervalBytes= ((response[2] & 0xff) | (response[3] << 8)) & 0xffff;
@@ -299,18 +299,18 @@ class SettingsImpl extends ModuleImplBase implements Settings {
                 interval.set(((response[2] & 0xff) | (response[3] << 8)) & 0xffff);
                 timeout.set(response[4]);
             }
-            return readAdConfigTask.execute("Did not receive tx power within %dms", Constant.RESPONSE_TIMEOUT,
+            return readAdConfigTask.execute("Did not receive tx power within %dms", mwPrivate.getRttEstimator(),
                     () -> mwPrivate.sendCommand(new byte[] {SETTINGS.id, Util.setRead(TX_POWER)}));
-        }).onSuccessTask(task -> {
+        }, mwPrivate.executor()).onSuccessTask(task -> {
             tx.set(task.getResult()[2]);
-            return readAdConfigTask.execute("Did not receive scan response within %dms", Constant.RESPONSE_TIMEOUT,
+            return readAdConfigTask.execute("Did not receive scan response within %dms", mwPrivate.getRttEstimator(),
                     () -> mwPrivate.sendCommand(new byte[] {SETTINGS.id, Util.setRead(SCAN_RESPONSE)}));
-        }).onSuccessTask(task -> {
+        }, mwPrivate.executor()).onSuccessTask(task -> {
             byte[] scanResponse = new byte[task.getResult().length - 2];
             System.arraycopy(task.getResult(), 2, scanResponse, 0, scanResponse.length);
 
             return Task.forResult(new BleAdvertisementConfig(deviceName.get(), interval.get(), timeout.get(), tx.get(), scanResponse));
-        });
+        }, mwPrivate.executor());
     }
 
     @Override
@@ -362,7 +362,7 @@ class SettingsImpl extends ModuleImplBase implements Settings {
             return Task.forError(new UnsupportedOperationException("Reading BLE connection parameters is not supported on this firmware"));
         }
 
-        return readConnParamsTask.execute("Did not receive connection parameters within %dms", Constant.RESPONSE_TIMEOUT,
+        return readConnParamsTask.execute("Did not receive connection parameters within %dms", mwPrivate.getRttEstimator(),
                 () -> mwPrivate.sendCommand(new byte[] {SETTINGS.id, Util.setRead(CONNECTION_PARAMS)})
         ).onSuccessTask(task -> {
             final ByteBuffer buffer = ByteBuffer.wrap(task.getResult()).order(ByteOrder.LITTLE_ENDIAN);
@@ -371,7 +371,7 @@ class SettingsImpl extends ModuleImplBase implements Settings {
                     buffer.getShort(4) * SettingsImpl.CONN_INTERVAL_STEP,
                     buffer.getShort(6),
                     (short) (buffer.getShort(8) * SettingsImpl.SUPERVISOR_TIMEOUT_STEP)));
-        });
+        }, mwPrivate.executor());
     }
 
     @Override
@@ -433,7 +433,7 @@ class SettingsImpl extends ModuleImplBase implements Settings {
     public Task<Byte> readCurrentPowerStatusAsync() {
         ModuleInfo info = mwPrivate.lookupModuleInfo(SETTINGS);
         if (info.revision >= CHARGE_STATUS_REVISION && (info.extra.length > 0 && (info.extra[0] & 0x1) == 0x1)) {
-            return readPowerStatusTask.execute("Did not receive power status within %dms", Constant.RESPONSE_TIMEOUT,
+            return readPowerStatusTask.execute("Did not receive power status within %dms", mwPrivate.getRttEstimator(),
                     () -> mwPrivate.sendCommand(new byte[] {SETTINGS.id, Util.setRead(POWER_STATUS)}));
         }
         return Task.forError(new UnsupportedOperationException("Reading power status not supported on this board / firmware"));
@@ -465,7 +465,7 @@ class SettingsImpl extends ModuleImplBase implements Settings {
     public Task<Byte> readCurrentChargeStatusAsync() {
         ModuleInfo info = mwPrivate.lookupModuleInfo(SETTINGS);
         if (info.revision >= CHARGE_STATUS_REVISION && (info.extra.length > 0 && (info.extra[0] & 0x2) == 0x2)) {
-            return readChargeStatusTask.execute("Did not receive charge status within %dms", Constant.RESPONSE_TIMEOUT,
+            return readChargeStatusTask.execute("Did not receive charge status within %dms", mwPrivate.getRttEstimator(),
                     () -> mwPrivate.sendCommand(new byte[] {SETTINGS.id, Util.setRead(CHARGE_STATUS)}));
         }
         return Task.forError(new UnsupportedOperationException("Reading charge status not supported on this board / firmware"));
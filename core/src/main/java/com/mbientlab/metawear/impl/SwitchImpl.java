@@ -62,7 +62,7 @@ class SwitchImpl extends ModuleImplBase implements Switch {
 
     @Override
     protected void init() {
-        stateTasks = new TimedTask<>();
+        stateTasks = new TimedTask<>(mwPrivate.executor());
         this.mwPrivate.addResponseHandler(new Pair<>(SWITCH.id, Util.setRead(STATE)), response -> stateTasks.setResult(response[2]));
     }
 
@@ -86,7 +86,7 @@ class SwitchImpl extends ModuleImplBase implements Switch {
 
     @Override
     public Task<Byte> readCurrentStateAsync() {
-        return stateTasks.execute("Did not received button state within %dms",  Constant.RESPONSE_TIMEOUT,
+        return stateTasks.execute("Did not received button state within %dms",  mwPrivate.getRttEstimator(),
                 () -> mwPrivate.sendCommand(new byte[] {SWITCH.id, Util.setRead(STATE)}));
     }
 }
@@ -25,14 +25,19 @@
 package com.mbientlab.metawear.impl;
 
 import com.mbientlab.metawear.CodeBlock;
+import com.mbientlab.metawear.ForcedDataProducer;
+import com.mbientlab.metawear.Route;
+import com.mbientlab.metawear.Subscriber;
 import com.mbientlab.metawear.impl.platform.TimedTask;
 import com.mbientlab.metawear.module.Timer;
 
 import java.io.Serializable;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 
 import bolts.Task;
@@ -116,7 +121,146 @@ class TimerImpl extends ModuleImplBase implements Timer {
         }
     }
 
-    private final Map<Byte, ScheduledTask> activeTasks = new HashMap<>();
+    private static class SamplerInner implements Sampler {
+        private final ScheduledTask[] tasks;
+        private final Route[] routes;
+
+        SamplerInner(ScheduledTask[] tasks, Route[] routes) {
+            this.tasks = tasks;
+            this.routes = routes;
+        }
+
+        @Override
+        public void start() {
+            for(ScheduledTask it: tasks) {
+                it.start();
+            }
+        }
+
+        @Override
+        public void stop() {
+            for(ScheduledTask it: tasks) {
+                it.stop();
+            }
+        }
+
+        @Override
+        public boolean isActive() {
+            for(ScheduledTask it: tasks) {
+                if (!it.isActive()) {
+                    return false;
+                }
+            }
+            for(Route it: routes) {
+                if (!it.isActive()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public ScheduledTask[] scheduledTasks() {
+            return tasks;
+        }
+
+        @Override
+        public Route[] routes() {
+            return routes;
+        }
+
+        @Override
+        public void remove() {
+            for(ScheduledTask it: tasks) {
+                it.remove();
+            }
+            for(Route it: routes) {
+                it.remove();
+            }
+        }
+    }
+    private class SamplerBuilderInner implements SamplerBuilder {
+        private final LinkedHashMap<ForcedDataProducer, Integer> periods = new LinkedHashMap<>();
+
+        @Override
+        public SamplerBuilder sample(ForcedDataProducer producer, float frequency) {
+            if (frequency <= 0) {
+                throw new IllegalArgumentException("Sampling frequency must be greater than 0");
+            }
+
+            periods.put(producer, Math.max(1, Math.round(1000f / frequency)));
+            return this;
+        }
+
+        @Override
+        public Task<Sampler> commitAsync(final Subscriber subscriber) {
+            final LinkedHashMap<Integer, List<ForcedDataProducer>> groups = new LinkedHashMap<>();
+            for(Map.Entry<ForcedDataProducer, Integer> it: periods.entrySet()) {
+                if (!groups.containsKey(it.getValue())) {
+                    groups.put(it.getValue(), new ArrayList<>());
+                }
+                groups.get(it.getValue()).add(it.getKey());
+            }
+
+            final List<Task<Route>> routeTasks = new ArrayList<>();
+            for(final ForcedDataProducer it: periods.keySet()) {
+                routeTasks.add(it.addRouteAsync(source -> source.stream(subscriber)).onSuccessTask(task -> {
+                    task.getResult().setEnvironment(0, it);
+                    return task;
+                }, mwPrivate.executor()));
+            }
+
+            final List<Task<ScheduledTask>> scheduleTasks = new ArrayList<>();
+            for(final Map.Entry<Integer, List<ForcedDataProducer>> it: groups.entrySet()) {
+                scheduleTasks.add(scheduleAsync(it.getKey(), false, () -> {
+                    for(ForcedDataProducer producer: it.getValue()) {
+                        producer.read();
+                    }
+                }));
+            }
+
+            List<Task<?>> all = new ArrayList<>();
+            all.addAll(routeTasks);
+            all.addAll(scheduleTasks);
+            return Task.whenAll(all).continueWithTask(ignored -> {
+                Route[] routes = new Route[routeTasks.size()];
+                ScheduledTask[] tasks = new ScheduledTask[scheduleTasks.size()];
+                Exception error = null;
+
+                for(int i = 0; i < routes.length; i++) {
+                    if (routeTasks.get(i).isFaulted()) {
+                        error = routeTasks.get(i).getError();
+                    } else {
+                        routes[i] = routeTasks.get(i).getResult();
+                    }
+                }
+                for(int i = 0; i < tasks.length; i++) {
+                    if (scheduleTasks.get(i).isFaulted()) {
+                        error = scheduleTasks.get(i).getError();
+                    } else {
+                        tasks[i] = scheduleTasks.get(i).getResult();
+                    }
+                }
+
+                if (error != null) {
+                    for(Route it: routes) {
+                        if (it != null) {
+                            it.remove();
+                        }
+                    }
+                    for(ScheduledTask it: tasks) {
+                        if (it != null) {
+                            it.remove();
+                        }
+                    }
+                    return Task.forError(error);
+                }
+                return Task.forResult(new SamplerInner(tasks, routes));
+            }, mwPrivate.executor());
+        }
+    }
+
+    private Map<Byte, ScheduledTask> activeTasks = new ByteIdMap<>();
     private transient TimedTask<Byte> createTimerTask;
 
     TimerImpl(MetaWearBoardPrivate mwPrivate) {
@@ -127,6 +271,7 @@ class TimerImpl extends ModuleImplBase implements Timer {
     public void restoreTransientVars(MetaWearBoardPrivate mwPrivate) {
         super.restoreTransientVars(mwPrivate);
 
+        activeTasks = ByteIdMap.compact(activeTasks);
         for(ScheduledTask it: activeTasks.values()) {
             ((ScheduledTaskInner) it).restoreTransientVars(mwPrivate);
         }
@@ -134,7 +279,7 @@ class TimerImpl extends ModuleImplBase implements Timer {
 
     @Override
     protected void init() {
-        createTimerTask = new TimedTask<>();
+        createTimerTask = new TimedTask<>(mwPrivate.executor());
         this.mwPrivate.addResponseHandler(new Pair<>(TIMER.id, TIMER_ENTRY), response -> createTimerTask.setResult(response[2]));
     }
 
@@ -151,9 +296,9 @@ class TimerImpl extends ModuleImplBase implements Timer {
     }
 
     Task<DataTypeBase> create(byte[] config) {
-        return createTimerTask.execute("Did not received timer id within %dms", Constant.RESPONSE_TIMEOUT,
+        return createTimerTask.execute("Did not received timer id within %dms", Constant.MIN_CREATE_TIMEOUT, mwPrivate.getRttEstimator(),
                 () -> mwPrivate.sendCommand(TIMER, TIMER_ENTRY, config)
-        ).onSuccessTask(task -> Task.forResult(new UintData(TIMER, TimerImpl.NOTIFY, task.getResult(), new DataAttributes(new byte[] {}, (byte) 0, (byte) 0, false))));
+        ).onSuccessTask(task -> Task.forResult(new UintData(TIMER, TimerImpl.NOTIFY, task.getResult(), new DataAttributes(new byte[] {}, (byte) 0, (byte) 0, false))), mwPrivate.executor());
     }
 
     @Override
@@ -172,6 +317,11 @@ class TimerImpl extends ModuleImplBase implements Timer {
         return mwPrivate.queueTaskManager(mwCode, config);
     }
 
+    @Override
+    public SamplerBuilder sampler() {
+        return new SamplerBuilderInner();
+    }
+
     @Override
     public ScheduledTask lookupScheduledTask(byte id) {
         return activeTasks.get(id);
@@ -68,18 +68,18 @@ class UFloatData extends DataTypeBase {
 
     @Override
     public Number convertToFirmwareUnits(MetaWearBoardPrivate mwPrivate, Number value) {
-        return value.floatValue() * scale(mwPrivate);
+        return value.floatValue() * cachedScale(mwPrivate);
     }
 
     @Override
     public Data createMessage(boolean logData, final MetaWearBoardPrivate mwPrivate, final byte[] data, final Calendar timestamp, DataPrivate.ClassToObject mapper) {
         final ByteBuffer buffer = Util.bytesToUIntBuffer(logData, data, attributes);
-        final float scaled= buffer.getLong(0) / scale(mwPrivate);
+        final float scale= cachedScale(mwPrivate), scaled= buffer.getLong(0) / scale;
 
         return new DataPrivate(timestamp, data, mapper) {
             @Override
             public float scale() {
-                return UFloatData.this.scale(mwPrivate);
+                return scale;
             }
 
             @Override
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2014-2015 MbientLab Inc. All rights reserved.
+ *
+ * IMPORTANT: Your use of this Software is limited to those specific rights granted under the terms of a software
+ * license agreement between the user who downloaded the software, his/her employer (which must be your
+ * employer) and MbientLab Inc, (the "License").  You may not use this Software unless you agree to abide by the
+ * terms of the License which can be found at www.mbientlab.com/terms.  The License limits your use, and you
+ * acknowledge, that the Software may be modified, copied, and distributed when used in conjunction with an
+ * MbientLab Inc, product.  Other than for the foregoing purpose, you may not use, reproduce, copy, prepare
+ * derivative works of, modify, distribute, perform, display or sell this Software and/or its documentation for any
+ * purpose.
+ *
+ * YOU FURTHER ACKNOWLEDGE AND AGREE THAT THE SOFTWARE AND DOCUMENTATION ARE PROVIDED "AS IS" WITHOUT WARRANTY
+ * OF ANY KIND, EITHER EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION, ANY WARRANTY OF MERCHANTABILITY, TITLE,
+ * NON-INFRINGEMENT AND FITNESS FOR A PARTICULAR PURPOSE. IN NO EVENT SHALL MBIENTLAB OR ITS LICENSORS BE LIABLE OR
+ * OBLIGATED UNDER CONTRACT, NEGLIGENCE, STRICT LIABILITY, CONTRIBUTION, BREACH OF WARRANTY, OR OTHER LEGAL EQUITABLE
+ * THEORY ANY DIRECT OR INDIRECT DAMAGES OR EXPENSES INCLUDING BUT NOT LIMITED TO ANY INCIDENTAL, SPECIAL, INDIRECT,
+ * PUNITIVE OR CONSEQUENTIAL DAMAGES, LOST PROFITS OR LOST DATA, COST OF PROCUREMENT OF SUBSTITUTE GOODS, TECHNOLOGY,
+ * SERVICES, OR ANY CLAIMS BY THIRD PARTIES (INCLUDING BUT NOT LIMITED TO ANY DEFENSE THEREOF), OR OTHER SIMILAR COSTS.
+ *
+ * Should you have any questions regarding your right to use this Software, contact MbientLab via email:
+ * hello@mbientlab.com.
+ */
+
+package com.mbientlab.metawear.impl.platform;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import bolts.CancellationToken;
+import bolts.Task;
+import bolts.TaskCompletionSource;
+
+/**
+ * Executor a board runs its internal task continuations on, along with the scheduler used for its delays and
+ * timeouts.  Completed delays are handed to the executor so every continuation of a board runs on the same executor.
+ * The executor must not block waiting for the board's tasks, e.g. a single threaded event loop must never call
+ * {@link Task#waitForCompletion()} on a task from a board it runs.
+ */
+public class BoardExecutor implements Executor {
+    /**
+     * Runs continuations on the thread that completed the previous task, same as Bolts' default executor, and
+     * uses Bolts' shared scheduler for delays
+     */
+    public static final BoardExecutor IMMEDIATE = new BoardExecutor(new ImmediateExecutor(), null);
+
+    // Same policy as Bolts' immediate executor: run inline until the stack gets too deep, then switch to the background pool
+    private static class ImmediateExecutor implements Executor {
+        private static final int MAX_DEPTH = 15;
+        private final ThreadLocal<Integer> depth = new ThreadLocal<>();
+
+        @Override
+        public void execute(Runnable command) {
+            Integer current = depth.get();
+            int next = (current == null ? 0 : current) + 1;
+
+            depth.set(next);
+            try {
+                if (next <= MAX_DEPTH) {
+                    command.run();
+                } else {
+                    Task.BACKGROUND_EXECUTOR.execute(command);
+                }
+            } finally {
+                if (next == 1) {
+                    depth.remove();
+                } else {
+                    depth.set(next - 1);
+                }
+            }
+        }
+    }
+
+    private final Executor continuations;
+    private final ScheduledExecutorService timers;
+
+    /**
+     * Creates an executor that uses Bolts' shared scheduler for delays
+     * @param continuations    Executor to run continuations on
+     */
+    public BoardExecutor(Executor continuations) {
+        this(continuations, null);
+    }
+
+    /**
+     * Creates an executor
+     * @param continuations    Executor to run continuations on
+     * @param timers           Scheduler for delays and timeouts, null to use Bolts' shared scheduler
+     */
+    public BoardExecutor(Executor continuations, ScheduledExecutorService timers) {
+        this.continuations = continuations;
+        this.timers = timers;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        continuations.execute(command);
+    }
+
+    /**
+     * Creates a task that completes, on this executor, after a delay
+     * @param delay    How long to wait, in milliseconds
+     * @return Task that completes after the delay
+     */
+    public Task<Void> delay(long delay) {
+        return delay(delay, null);
+    }
+
+    /**
+     * Creates a task that completes, on this executor, after a delay
+     * @param delay    How long to wait, in milliseconds
+     * @param ct       Token to cancel the delay with, can be null
+     * @return Task that completes after the delay, or is cancelled if the token is cancelled first.  The task fails with
+     * a {@link RejectedExecutionException} if the executor or scheduler stops accepting work before the delay is up.
+     */
+    public Task<Void> delay(long delay, CancellationToken ct) {
+        if (ct != null && ct.isCancellationRequested()) {
+            return Task.cancelled();
+        }
+        if (timers == null) {
+            return (ct == null ? Task.delay(delay) : Task.delay(delay, ct)).continueWithTask(task -> task, this);
+        }
+        if (delay <= 0) {
+            return Task.forResult(null);
+        }
+
+        final TaskCompletionSource<Void> taskSource = new TaskCompletionSource<>();
+        final ScheduledFuture<?> scheduled;
+        try {
+            scheduled = timers.schedule(() -> {
+                try {
+                    execute(() -> taskSource.trySetResult(null));
+                } catch (RejectedExecutionException e) {
+                    taskSource.trySetError(e);
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            return Task.forError(e);
+        }
+        if (ct != null) {
+            ct.register(() -> {
+                scheduled.cancel(false);
+                taskSource.trySetCancelled();
+            });
+        }
+        return taskSource.getTask();
+    }
+}
@@ -0,0 +1,577 @@
+/*
+ * Copyright 2014-2015 MbientLab Inc. All rights reserved.
+ *
+ * IMPORTANT: Your use of this Software is limited to those specific rights granted under the terms of a software
+ * license agreement between the user who downloaded the software, his/her employer (which must be your
+ * employer) and MbientLab Inc, (the "License").  You may not use this Software unless you agree to abide by the
+ * terms of the License which can be found at www.mbientlab.com/terms.  The License limits your use, and you
+ * acknowledge, that the Software may be modified, copied, and distributed when used in conjunction with an
+ * MbientLab Inc, product.  Other than for the foregoing purpose, you may not use, reproduce, copy, prepare
+ * derivative works of, modify, distribute, perform, display or sell this Software and/or its documentation for any
+ * purpose.
+ *
+ * YOU FURTHER ACKNOWLEDGE AND AGREE THAT THE SOFTWARE AND DOCUMENTATION ARE PROVIDED "AS IS" WITHOUT WARRANTY
+ * OF ANY KIND, EITHER EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION, ANY WARRANTY OF MERCHANTABILITY, TITLE,
+ * NON-INFRINGEMENT AND FITNESS FOR A PARTICULAR PURPOSE. IN NO EVENT SHALL MBIENTLAB OR ITS LICENSORS BE LIABLE OR
+ * OBLIGATED UNDER CONTRACT, NEGLIGENCE, STRICT LIABILITY, CONTRIBUTION, BREACH OF WARRANTY, OR OTHER LEGAL EQUITABLE
+ * THEORY ANY DIRECT OR INDIRECT DAMAGES OR EXPENSES INCLUDING BUT NOT LIMITED TO ANY INCIDENTAL, SPECIAL, INDIRECT,
+ * PUNITIVE OR CONSEQUENTIAL DAMAGES, LOST PROFITS OR LOST DATA, COST OF PROCUREMENT OF SUBSTITUTE GOODS, TECHNOLOGY,
+ * SERVICES, OR ANY CLAIMS BY THIRD PARTIES (INCLUDING BUT NOT LIMITED TO ANY DEFENSE THEREOF), OR OTHER SIMILAR COSTS.
+ *
+ * Should you have any questions regarding your right to use this Software, contact MbientLab via email:
+ * hello@mbientlab.com.
+ */
+
+package com.mbientlab.metawear.impl.platform;
+
+import com.mbientlab.metawear.MetaWearBoard;
+import com.mbientlab.metawear.UnsupportedModuleException;
+import com.mbientlab.metawear.impl.JseMetaWearBoard;
+import com.mbientlab.metawear.impl.ModuleInfoCache;
+import com.mbientlab.metawear.module.Logging;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import bolts.Task;
+import bolts.TaskCompletionSource;
+
+/**
+ * Owns a fleet of boards and shards them onto a fixed set of event loop threads.  Each board is pinned to one loop
+ * which runs the board's task continuations, timeouts, GATT notifications, and disconnect callbacks, and operations
+ * submitted through the manager start on that loop.  Work the library drives for a board is therefore serialized on
+ * its loop, however board APIs called directly from other threads still run on the caller's thread and are not
+ * moved onto the loop; submit them through {@link #submit(MetaWearBoard, Operation, Callable)} to keep them there.
+ * Queued operations are served round robin across the boards of a loop, one operation per board at a time, and are
+ * capped both per loop and per radio so that e.g. only one connection attempt at a time goes through the same
+ * Bluetooth adapter.
+ */
+public class BoardManager {
+    /**
+     * Operation types the manager schedules, each with its own concurrency limits
+     */
+    public enum Operation {
+        /** Connecting to the board and discovering its modules */
+        CONNECT,
+        /** Creating routes, timers, or observers on a connected board */
+        CREATE_ROUTE,
+        /** Downloading logged data */
+        DOWNLOAD_LOG
+    }
+
+    /**
+     * Snapshot of an event loop's load
+     */
+    public static class LoopMetrics {
+        /** Loop index, between [0, number of loops) */
+        public final int index;
+        /** Boards pinned to the loop */
+        public final int boards;
+        /** Operations waiting to start */
+        public final int pending;
+        /** Operations that have started but not completed */
+        public final int active;
+        /** Tasks the loop thread has run */
+        public final long tasksRun;
+        /** Time, in nanoseconds, the loop thread spent running tasks */
+        public final long busyNanos;
+        /** Time, in nanoseconds, since the loop was started */
+        public final long elapsedNanos;
+
+        LoopMetrics(int index, int boards, int pending, int active, long tasksRun, long busyNanos, long elapsedNanos) {
+            this.index = index;
+            this.boards = boards;
+            this.pending = pending;
+            this.active = active;
+            this.tasksRun = tasksRun;
+            this.busyNanos = busyNanos;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * Fraction of time the loop thread has been busy since it was started
+         * @return Value between [0, 1]
+         */
+        public float utilisation() {
+            return elapsedNanos == 0 ? 0f : Math.min(1f, (float) busyNanos / elapsedNanos);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "{index: %d, boards: %d, pending: %d, active: %d, tasksRun: %d, utilisation: %.3f}",
+                    index, boards, pending, active, tasksRun, utilisation());
+        }
+    }
+
+    private static final int N_OPERATIONS = Operation.values().length;
+
+    private final String libVersion;
+    private final EventLoop[] loops;
+    private final ScheduledExecutorService timers;
+    private final int[] loopLimits = new int[] {2, 4, 2}, radioLimits = new int[] {1, Integer.MAX_VALUE, 2};
+    private ModuleInfoCache moduleInfoCache = new ModuleInfoCache();
+    private final Map<String, Radio> radios = new ConcurrentHashMap<>();
+    private final Map<MetaWearBoard, Slot> slots = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a manager with default limits: per loop, 2 connection attempts, 4 route creations, and 2 log downloads;
+     * per radio, 1 connection attempt and 2 log downloads.
+     * @param nLoops        Number of event loop threads
+     * @param libVersion    Library version passed to each board
+     */
+    public BoardManager(int nLoops, String libVersion) {
+        if (nLoops <= 0) {
+            throw new IllegalArgumentException("Need at least 1 event loop");
+        }
+
+        this.libVersion = libVersion;
+        this.timers = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "BoardManager-timers");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.loops = new EventLoop[nLoops];
+        for(int i = 0; i < nLoops; i++) {
+            loops[i] = new EventLoop(i);
+        }
+    }
+
+    /**
+     * Sets the concurrency limits of an operation type.  Must be called before any boards are added.
+     * @param op          Operation type to limit
+     * @param perLoop     Maximum number of operations of this type running at the same time on one loop
+     * @param perRadio    Maximum number of operations of this type running at the same time on one radio
+     * @return Calling object
+     */
+    public BoardManager limit(Operation op, int perLoop, int perRadio) {
+        if (!slots.isEmpty()) {
+            throw new IllegalStateException("Limits must be set before boards are added");
+        }
+        if (perLoop <= 0 || perRadio <= 0) {
+            throw new IllegalArgumentException("Limits must be positive");
+        }
+
+        loopLimits[op.ordinal()] = perLoop;
+        radioLimits[op.ordinal()] = perRadio;
+        return this;
+    }
+
+    /**
+     * Sets the cache boards share their module information through, defaults to an in-memory cache.  Must be called
+     * before any boards are added.
+     * @param cache    Cache to use, null to have every board discover its modules
+     * @return Calling object
+     */
+    public BoardManager moduleInfoCache(ModuleInfoCache cache) {
+        if (!slots.isEmpty()) {
+            throw new IllegalStateException("Module info cache must be set before boards are added");
+        }
+
+        moduleInfoCache = cache;
+        return this;
+    }
+
+    /**
+     * Creates a board that uses the default radio
+     * @see #add(String, BtleGatt, IO, String)
+     */
+    public JseMetaWearBoard add(BtleGatt gatt, IO io, String macAddress) {
+        return add("", gatt, io, macAddress);
+    }
+
+    /**
+     * Creates a board and pins it to the event loop with the fewest boards
+     * @param radio         Identifies the Bluetooth adapter the board is reached through
+     * @param gatt          Object for handing Bluetooth LE GATT operations
+     * @param io            Object for handling IO operations
+     * @param macAddress    Device's MAC address
+     * @return Board object managed by this manager
+     */
+    public JseMetaWearBoard add(String radio, BtleGatt gatt, IO io, String macAddress) {
+        EventLoop loop = loops[0];
+        for(EventLoop it: loops) {
+            if (it.nBoards.get() < loop.nBoards.get()) {
+                loop = it;
+            }
+        }
+        if (loop.closing) {
+            throw new IllegalStateException("Board manager is closed");
+        }
+
+        JseMetaWearBoard board = new JseMetaWearBoard(gatt, io, macAddress, libVersion, loop.boardExecutor);
+        board.setModuleInfoCache(moduleInfoCache);
+        loop.nBoards.incrementAndGet();
+        slots.put(board, new Slot(board, loop, radios.computeIfAbsent(radio, Radio::new)));
+        return board;
+    }
+
+    /**
+     * Removes a board from the manager, cancelling its queued operations and disconnecting it if connected.  Operations
+     * that have already started are left to complete.
+     * @param board    Board to remove
+     * @return Task holding the result of the disconnect attempt
+     */
+    public Task<Void> remove(MetaWearBoard board) {
+        final Slot slot = slots.remove(board);
+        if (slot == null) {
+            return Task.forResult(null);
+        }
+
+        slot.loop.nBoards.decrementAndGet();
+        slot.loop.execute(() -> slot.loop.cancel(slot));
+        return board.isConnected() ? board.disconnectAsync() : Task.forResult(null);
+    }
+
+    /**
+     * Retrieves the executor of the loop the board is pinned to.  Use it to run continuations on the same thread as
+     * the board's own continuations.  Tasks run on it must never block waiting for a board on the same loop.
+     * @param board    Board managed by this object
+     * @return Loop executor
+     */
+    public BoardExecutor executor(MetaWearBoard board) {
+        return slotOf(board).loop.boardExecutor;
+    }
+
+    /**
+     * Retrieves the radio the board was added with
+     * @param board    Board managed by this object
+     * @return Radio identifier
+     */
+    public String radio(MetaWearBoard board) {
+        return slotOf(board).radio.name;
+    }
+
+    /**
+     * Queues a connection attempt
+     * @param board    Board to connect to
+     * @return Task holding the result of {@link MetaWearBoard#connectAsync()}
+     */
+    public Task<Void> connectAsync(final MetaWearBoard board) {
+        return submit(board, Operation.CONNECT, board::connectAsync);
+    }
+
+    /**
+     * Queues a log download
+     * @param board    Board to download from
+     * @return Task holding the result of {@link Logging#downloadAsync()}, failed with an {@link UnsupportedModuleException}
+     * if the board has no logging module
+     */
+    public Task<Void> downloadAsync(final MetaWearBoard board) {
+        return submit(board, Operation.DOWNLOAD_LOG, () -> board.getModuleOrThrow(Logging.class).downloadAsync());
+    }
+
+    /**
+     * Applies a template to a set of boards.  The template is first applied to the first board alone so a broken
+     * template fails once instead of on every board; the remaining boards are then provisioned concurrently as
+     * {@link Operation#CREATE_ROUTE} operations, bounded by that operation's limits.
+     * @param template    Items to create on each board
+     * @param boards      Boards managed by this object
+     * @return Tasks holding each board's result, in the same order as <code>boards</code>.  If the first board fails,
+     * the other boards are left untouched and their tasks fail with an {@link IllegalStateException}.
+     */
+    public List<Task<RouteTemplate.Provisioned>> provisionAsync(final RouteTemplate template, List<? extends MetaWearBoard> boards) {
+        List<Task<RouteTemplate.Provisioned>> results = new ArrayList<>(boards.size());
+        if (boards.isEmpty()) {
+            return results;
+        }
+
+        final MetaWearBoard first = boards.get(0);
+        final Task<RouteTemplate.Provisioned> canary = submit(first, Operation.CREATE_ROUTE, () -> template.applyAsync(first, executor(first)));
+        results.add(canary);
+        for(final MetaWearBoard it: boards.subList(1, boards.size())) {
+            results.add(canary.continueWithTask(task -> task.isFaulted() || task.isCancelled() ?
+                    Task.forError(new IllegalStateException("Template could not be applied to " + first.getMacAddress(), task.getError())) :
+                    submit(it, Operation.CREATE_ROUTE, () -> template.applyAsync(it, executor(it))),
+                    executor(it)
+            ));
+        }
+        return results;
+    }
+
+    /**
+     * Queues an operation.  The operation is started on the board's loop once the board has no other managed
+     * operation running and the limits of its type allow it; the returned task is completed on the same loop.
+     * @param board    Board the operation is for
+     * @param op       Operation type, used to apply the limits
+     * @param action   Starts the operation
+     * @param <T>      Operation result type
+     * @return Task holding the result of the operation, cancelled if the board is removed before it is started
+     */
+    public <T> Task<T> submit(MetaWearBoard board, Operation op, Callable<Task<T>> action) {
+        final Slot slot = slotOf(board);
+        final Pending<T> pending = new Pending<>(op, action);
+        try {
+            slot.loop.execute(() -> slot.loop.enqueue(slot, pending));
+        } catch (RejectedExecutionException e) {
+            return Task.forError(e);
+        }
+        return pending.taskSource.getTask();
+    }
+
+    /**
+     * Retrieves the current load of each event loop
+     * @return Loop metrics, ordered by loop index
+     */
+    public List<LoopMetrics> loopMetrics() {
+        List<LoopMetrics> metrics = new ArrayList<>(loops.length);
+        for(EventLoop it: loops) {
+            metrics.add(it.metrics());
+        }
+        return metrics;
+    }
+
+    /**
+     * Cancels all queued operations and stops the event loops.  Boards are left in their current connection state but
+     * can no longer be used as they have no thread to run on.
+     */
+    public void close() {
+        for(EventLoop it: loops) {
+            it.shutdown();
+        }
+        // Delays already scheduled still fire so their tasks fail instead of never completing
+        timers.shutdown();
+        slots.clear();
+    }
+
+    private Slot slotOf(MetaWearBoard board) {
+        Slot slot = slots.get(board);
+        if (slot == null) {
+            throw new IllegalArgumentException("Board is not managed by this object");
+        }
+        return slot;
+    }
+
+    private void radioReleased(EventLoop source) {
+        for(EventLoop it: loops) {
+            if (it != source) {
+                try {
+                    it.execute(it::schedule);
+                } catch (RejectedExecutionException ignored) {
+                }
+            }
+        }
+    }
+
+    private static class Radio {
+        private final String name;
+        private final AtomicIntegerArray active = new AtomicIntegerArray(N_OPERATIONS);
+
+        Radio(String name) {
+            this.name = name;
+        }
+
+        boolean tryAcquire(int op, int limit) {
+            int current;
+            do {
+                current = active.get(op);
+                if (current >= limit) {
+                    return false;
+                }
+            } while(!active.compareAndSet(op, current, current + 1));
+            return true;
+        }
+
+        void release(int op) {
+            active.decrementAndGet(op);
+        }
+    }
+
+    private static class Pending<T> {
+        final Operation op;
+        final Callable<Task<T>> action;
+        final TaskCompletionSource<T> taskSource = new TaskCompletionSource<>();
+
+        Pending(Operation op, Callable<Task<T>> action) {
+            this.op = op;
+            this.action = action;
+        }
+    }
+
+    // Fields are only accessed from the owning loop's thread
+    private static class Slot {
+        final JseMetaWearBoard board;
+        final EventLoop loop;
+        final Radio radio;
+        final ArrayDeque<Pending<?>> queue = new ArrayDeque<>();
+        Pending<?> running;
+        boolean removed;
+
+        Slot(JseMetaWearBoard board, EventLoop loop, Radio radio) {
+            this.board = board;
+            this.loop = loop;
+            this.radio = radio;
+        }
+    }
+
+    private class EventLoop implements Executor, Runnable {
+        private final int index;
+        private final BoardExecutor boardExecutor;
+        private final LinkedBlockingQueue<Runnable> tasks = new LinkedBlockingQueue<>();
+        private final long startNanos = System.nanoTime();
+        private final AtomicInteger nBoards = new AtomicInteger();
+        // Boards with queued operations and nothing running, served round robin
+        private final ArrayDeque<Slot> ready = new ArrayDeque<>();
+        private final int[] active = new int[N_OPERATIONS];
+        private final ArrayList<Slot> running = new ArrayList<>();
+        private volatile int nPending, nActive;
+        private volatile long tasksRun, busyNanos;
+        private volatile boolean closing, closed;
+
+        EventLoop(int index) {
+            this.index = index;
+            this.boardExecutor = new BoardExecutor(this, timers);
+
+            Thread thread = new Thread(this, "BoardManager-loop-" + index);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            // Reject as soon as the manager is closing, anything queued behind the shutdown task would never run
+            if (closing) {
+                throw new RejectedExecutionException("Board manager is closed");
+            }
+            tasks.add(command);
+        }
+
+        @Override
+        public void run() {
+            while(!closed) {
+                Runnable next;
+                try {
+                    next = tasks.take();
+                } catch (InterruptedException e) {
+                    break;
+                }
+
+                long start = System.nanoTime();
+                try {
+                    next.run();
+                } catch (RuntimeException ignored) {
+                    // Keep the loop alive, errors from managed operations are delivered through their tasks
+                }
+                busyNanos += System.nanoTime() - start;
+                tasksRun++;
+            }
+        }
+
+        LoopMetrics metrics() {
+            return new LoopMetrics(index, nBoards.get(), nPending, nActive, tasksRun, busyNanos, System.nanoTime() - startNanos);
+        }
+
+        void enqueue(Slot slot, Pending<?> pending) {
+            if (slot.removed) {
+                pending.taskSource.trySetCancelled();
+                return;
+            }
+
+            slot.queue.add(pending);
+            nPending++;
+            if (slot.running == null && slot.queue.size() == 1) {
+                ready.add(slot);
+            }
+            schedule();
+        }
+
+        void schedule() {
+            for(int i = ready.size(); i > 0; i--) {
+                Slot slot = ready.poll();
+                Pending<?> next = slot.queue.peek();
+                int op = next.op.ordinal();
+
+                if (active[op] < loopLimits[op] && slot.radio.tryAcquire(op, radioLimits[op])) {
+                    slot.queue.poll();
+                    nPending--;
+                    active[op]++;
+                    nActive++;
+                    slot.running = next;
+                    running.add(slot);
+                    start(slot, next);
+                } else {
+                    ready.add(slot);
+                }
+            }
+        }
+
+        private <T> void start(final Slot slot, final Pending<T> pending) {
+            Task<T> task;
+            try {
+                task = pending.action.call();
+            } catch (Exception e) {
+                task = Task.forError(e);
+            }
+            if (task == null) {
+                task = Task.forResult(null);
+            }
+
+            task.continueWith(completed -> {
+                finish(slot, pending);
+                if (completed.isCancelled()) {
+                    pending.taskSource.trySetCancelled();
+                } else if (completed.isFaulted()) {
+                    pending.taskSource.trySetError(completed.getError());
+                } else {
+                    pending.taskSource.trySetResult(completed.getResult());
+                }
+                return null;
+            }, this);
+        }
+
+        private void finish(Slot slot, Pending<?> pending) {
+            int op = pending.op.ordinal();
+
+            active[op]--;
+            nActive--;
+            slot.running = null;
+            running.remove(slot);
+            slot.radio.release(op);
+
+            if (!slot.removed && !slot.queue.isEmpty()) {
+                ready.add(slot);
+            }
+            schedule();
+            radioReleased(this);
+        }
+
+        void cancel(Slot slot) {
+            slot.removed = true;
+            ready.remove(slot);
+            nPending -= slot.queue.size();
+            for(Pending<?> it: slot.queue) {
+                it.taskSource.trySetCancelled();
+            }
+            slot.queue.clear();
+        }
+
+        void shutdown() {
+            if (closing) {
+                return;
+            }
+            closing = true;
+
+            tasks.add(() -> {
+                for(Slot it: new ArrayList<>(ready)) {
+                    cancel(it);
+                }
+                for(Slot it: running) {
+                    cancel(it);
+                    it.running.taskSource.trySetCancelled();
+                }
+                closed = true;
+            });
+        }
+    }
+}
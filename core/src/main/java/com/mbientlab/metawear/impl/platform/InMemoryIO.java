@@ -0,0 +1,77 @@
+/*
+ * Copyright 2014-2015 MbientLab Inc. All rights reserved.
+ *
+ * IMPORTANT: Your use of this Software is limited to those specific rights granted under the terms of a software
+ * license agreement between the user who downloaded the software, his/her employer (which must be your
+ * employer) and MbientLab Inc, (the "License").  You may not use this Software unless you agree to abide by the
+ * terms of the License which can be found at www.mbientlab.com/terms.  The License limits your use, and you
+ * acknowledge, that the Software may be modified, copied, and distributed when used in conjunction with an
+ * MbientLab Inc, product.  Other than for the foregoing purpose, you may not use, reproduce, copy, prepare
+ * derivative works of, modify, distribute, perform, display or sell this Software and/or its documentation for any
+ * purpose.
+ *
+ * YOU FURTHER ACKNOWLEDGE AND AGREE THAT THE SOFTWARE AND DOCUMENTATION ARE PROVIDED "AS IS" WITHOUT WARRANTY
+ * OF ANY KIND, EITHER EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION, ANY WARRANTY OF MERCHANTABILITY, TITLE,
+ * NON-INFRINGEMENT AND FITNESS FOR A PARTICULAR PURPOSE. IN NO EVENT SHALL MBIENTLAB OR ITS LICENSORS BE LIABLE OR
+ * OBLIGATED UNDER CONTRACT, NEGLIGENCE, STRICT LIABILITY, CONTRIBUTION, BREACH OF WARRANTY, OR OTHER LEGAL EQUITABLE
+ * THEORY ANY DIRECT OR INDIRECT DAMAGES OR EXPENSES INCLUDING BUT NOT LIMITED TO ANY INCIDENTAL, SPECIAL, INDIRECT,
+ * PUNITIVE OR CONSEQUENTIAL DAMAGES, LOST PROFITS OR LOST DATA, COST OF PROCUREMENT OF SUBSTITUTE GOODS, TECHNOLOGY,
+ * SERVICES, OR ANY CLAIMS BY THIRD PARTIES (INCLUDING BUT NOT LIMITED TO ANY DEFENSE THEREOF), OR OTHER SIMILAR COSTS.
+ *
+ * Should you have any questions regarding your right to use this Software, contact MbientLab via email:
+ * hello@mbientlab.com.
+ */
+
+package com.mbientlab.metawear.impl.platform;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import bolts.Task;
+
+/**
+ * IO implementation that keeps saved data in memory, for running the API on a plain JVM e.g. against a {@link SimulatedBoard}.
+ * File downloads are not supported.
+ */
+public class InMemoryIO implements IO {
+    private static final Logger LOGGER = Logger.getLogger(InMemoryIO.class.getName());
+
+    private final Map<String, byte[]> storage = new ConcurrentHashMap<>();
+
+    @Override
+    public void localSave(String key, byte[] data) throws IOException {
+        storage.put(key, data.clone());
+    }
+
+    @Override
+    public InputStream localRetrieve(String key) throws IOException {
+        byte[] data = storage.get(key);
+        return data == null ? null : new ByteArrayInputStream(data);
+    }
+
+    @Override
+    public Task<File> downloadFileAsync(String srcUrl, String dest) {
+        return Task.forError(new UnsupportedOperationException("Downloading files is not supported by " + InMemoryIO.class.getSimpleName()));
+    }
+
+    @Override
+    public File findDownloadedFile(String filename) {
+        return new File(filename);
+    }
+
+    @Override
+    public void logWarn(String tag, String message) {
+        LOGGER.warning(tag + ": " + message);
+    }
+
+    @Override
+    public void logWarn(String tag, String message, Throwable tr) {
+        LOGGER.log(Level.WARNING, tag + ": " + message, tr);
+    }
+}
@@ -0,0 +1,337 @@
+/*
+ * Copyright 2014-2015 MbientLab Inc. All rights reserved.
+ *
+ * IMPORTANT: Your use of this Software is limited to those specific rights granted under the terms of a software
+ * license agreement between the user who downloaded the software, his/her employer (which must be your
+ * employer) and MbientLab Inc, (the "License").  You may not use this Software unless you agree to abide by the
+ * terms of the License which can be found at www.mbientlab.com/terms.  The License limits your use, and you
+ * acknowledge, that the Software may be modified, copied, and distributed when used in conjunction with an
+ * MbientLab Inc, product.  Other than for the foregoing purpose, you may not use, reproduce, copy, prepare
+ * derivative works of, modify, distribute, perform, display or sell this Software and/or its documentation for any
+ * purpose.
+ *
+ * YOU FURTHER ACKNOWLEDGE AND AGREE THAT THE SOFTWARE AND DOCUMENTATION ARE PROVIDED "AS IS" WITHOUT WARRANTY
+ * OF ANY KIND, EITHER EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION, ANY WARRANTY OF MERCHANTABILITY, TITLE,
+ * NON-INFRINGEMENT AND FITNESS FOR A PARTICULAR PURPOSE. IN NO EVENT SHALL MBIENTLAB OR ITS LICENSORS BE LIABLE OR
+ * OBLIGATED UNDER CONTRACT, NEGLIGENCE, STRICT LIABILITY, CONTRIBUTION, BREACH OF WARRANTY, OR OTHER LEGAL EQUITABLE
+ * THEORY ANY DIRECT OR INDIRECT DAMAGES OR EXPENSES INCLUDING BUT NOT LIMITED TO ANY INCIDENTAL, SPECIAL, INDIRECT,
+ * PUNITIVE OR CONSEQUENTIAL DAMAGES, LOST PROFITS OR LOST DATA, COST OF PROCUREMENT OF SUBSTITUTE GOODS, TECHNOLOGY,
+ * SERVICES, OR ANY CLAIMS BY THIRD PARTIES (INCLUDING BUT NOT LIMITED TO ANY DEFENSE THEREOF), OR OTHER SIMILAR COSTS.
+ *
+ * Should you have any questions regarding your right to use this Software, contact MbientLab via email:
+ * hello@mbientlab.com.
+ */
+
+package com.mbientlab.metawear.impl.platform;
+
+import com.mbientlab.metawear.MetaWearBoard;
+import com.mbientlab.metawear.UnsupportedModuleException;
+import com.mbientlab.metawear.module.Logging;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import bolts.Task;
+import bolts.TaskCompletionSource;
+
+/**
+ * Schedules log downloads across the boards of a {@link BoardManager}.  Downloads are queued per radio and only a few
+ * run at the same time on each radio so boards coming into range together do not starve each other of connection
+ * events.  Queued boards are ordered by how many entries they have left, read from the board when it is queued and
+ * updated from the download's progress, plus a bonus for how long they have been waiting so small backlogs still get
+ * their turn.  A radio does not pick its next board while entry counts of boards on it are still being read.  A download cut short by a disconnect frees its radio for the next board and is queued again, reconnecting
+ * to the board when it is picked.
+ * <p>
+ * Downloads are started as {@link BoardManager.Operation#DOWNLOAD_LOG} operations so the manager's limits still apply.
+ */
+public class LogDownloadScheduler {
+    private static final int N_UPDATES = 20;
+
+    private static class Job {
+        final MetaWearBoard board;
+        final String radio;
+        final Logging.LogDownloadErrorHandler errorHandler;
+        final long queued = System.nanoTime();
+        final TaskCompletionSource<Void> taskSource = new TaskCompletionSource<>();
+        // entries left to download, -1 if unknown
+        volatile long backlog = -1;
+        volatile boolean progressed;
+        boolean sizing;
+        long eligible;
+        int failures;
+
+        Job(MetaWearBoard board, String radio, Logging.LogDownloadErrorHandler errorHandler) {
+            this.board = board;
+            this.radio = radio;
+            this.errorHandler = errorHandler;
+        }
+    }
+
+    private final BoardManager manager;
+    private int perRadio = 2, maxAttempts = 3;
+    private double aging = 50.0;
+    private long resumeDelay = 1000L;
+    // all fields below are guarded by this object
+    private final Map<MetaWearBoard, Job> jobs = new HashMap<>();
+    private final Map<String, List<Job>> queues = new HashMap<>();
+    private final Map<String, Integer> active = new HashMap<>();
+
+    /**
+     * Creates a scheduler that allows 2 downloads at a time per radio
+     * @param manager    Manager the boards belong to
+     */
+    public LogDownloadScheduler(BoardManager manager) {
+        this.manager = manager;
+    }
+
+    /**
+     * Sets how many downloads can run at the same time on one radio
+     * @param perRadio    Maximum number of downloads per radio
+     * @return Calling object
+     */
+    public synchronized LogDownloadScheduler limit(int perRadio) {
+        if (perRadio <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        this.perRadio = perRadio;
+        return this;
+    }
+
+    /**
+     * Sets how quickly waiting boards gain priority, defaults to 50 entries per second
+     * @param entriesPerSecond    Entries added to a board's backlog, for ordering purposes, per second it has been queued
+     * @return Calling object
+     */
+    public synchronized LogDownloadScheduler aging(float entriesPerSecond) {
+        this.aging = entriesPerSecond;
+        return this;
+    }
+
+    /**
+     * Sets how interrupted downloads are resumed, defaults to waiting 1000ms and giving up after 3 attempts in a row
+     * that make no progress
+     * @param delay          How long, in milliseconds, an interrupted download waits before it can be picked again
+     * @param maxAttempts    Number of attempts in a row that can fail without receiving any data
+     * @return Calling object
+     */
+    public synchronized LogDownloadScheduler resume(long delay, int maxAttempts) {
+        if (maxAttempts <= 0) {
+            throw new IllegalArgumentException("Need at least 1 attempt");
+        }
+        this.resumeDelay = delay;
+        this.maxAttempts = maxAttempts;
+        return this;
+    }
+
+    /**
+     * Queues a log download
+     * @see #downloadAsync(MetaWearBoard, Logging.LogDownloadErrorHandler)
+     */
+    public Task<Void> downloadAsync(MetaWearBoard board) {
+        return downloadAsync(board, null);
+    }
+
+    /**
+     * Queues a log download.  If the board is connected, its entry count is read right away to place it in the queue,
+     * otherwise the board is connected to once it is picked.  Queuing a board that is already queued or downloading
+     * returns the existing task.
+     * @param board           Board managed by the scheduler's manager
+     * @param errorHandler    Handler to process errors encountered during the download
+     * @return Task that completes once all entries have been downloaded, failed if the download keeps being interrupted
+     * or the board has no logging module, cancelled if the job is cancelled
+     */
+    public Task<Void> downloadAsync(MetaWearBoard board, Logging.LogDownloadErrorHandler errorHandler) {
+        Job job;
+        synchronized (this) {
+            Job existing = jobs.get(board);
+            if (existing != null) {
+                return existing.taskSource.getTask();
+            }
+
+            job = new Job(board, manager.radio(board), errorHandler);
+            job.sizing = board.isConnected();
+            jobs.put(board, job);
+            queue(job.radio).add(job);
+        }
+
+        if (job.sizing) {
+            size(job);
+        } else {
+            dispatch();
+        }
+        return job.taskSource.getTask();
+    }
+
+    /**
+     * Removes a queued download.  Downloads that have already started are left to finish.
+     * @param board    Board to stop waiting on
+     * @return True if the download was queued and has been cancelled
+     */
+    public boolean cancel(MetaWearBoard board) {
+        Job job;
+        synchronized (this) {
+            job = jobs.get(board);
+            if (job == null || !queue(job.radio).remove(job)) {
+                return false;
+            }
+            jobs.remove(board);
+        }
+
+        job.taskSource.trySetCancelled();
+        return true;
+    }
+
+    /**
+     * Retrieves the queued boards in the order they would be picked, regardless of radio
+     * @return Queued boards, excluding boards that are downloading
+     */
+    public synchronized List<MetaWearBoard> pending() {
+        final long now = System.nanoTime();
+        List<Job> queued = new ArrayList<>();
+        for(List<Job> it: queues.values()) {
+            queued.addAll(it);
+        }
+        Collections.sort(queued, (a, b) -> Double.compare(priority(b, now), priority(a, now)));
+
+        List<MetaWearBoard> boards = new ArrayList<>(queued.size());
+        for(Job it: queued) {
+            boards.add(it.board);
+        }
+        return boards;
+    }
+
+    private List<Job> queue(String radio) {
+        List<Job> queue = queues.get(radio);
+        if (queue == null) {
+            queue = new ArrayList<>();
+            queues.put(radio, queue);
+        }
+        return queue;
+    }
+
+    private double priority(Job job, long now) {
+        return Math.max(0, job.backlog) + aging * (now - job.queued) / 1000000000.0;
+    }
+
+    private void size(final Job job) {
+        Task.<Void>forResult(null).continueWithTask(ignored -> job.board.getModuleOrThrow(Logging.class).readEntryCountAsync(),
+                manager.executor(job.board)
+        ).continueWith(task -> {
+            boolean done = false;
+            synchronized (this) {
+                job.sizing = false;
+                if (task.isFaulted() && task.getError() instanceof UnsupportedModuleException) {
+                    done = queue(job.radio).remove(job);
+                } else if (!task.isFaulted() && !task.isCancelled()) {
+                    job.backlog = task.getResult();
+                    done = job.backlog == 0 && queue(job.radio).remove(job);
+                }
+                if (done) {
+                    jobs.remove(job.board);
+                }
+            }
+
+            if (done) {
+                if (task.isFaulted()) {
+                    job.taskSource.trySetError(task.getError());
+                } else {
+                    job.taskSource.trySetResult(null);
+                }
+            }
+            dispatch();
+            return null;
+        });
+    }
+
+    private void dispatch() {
+        List<Job> starting = new ArrayList<>();
+        synchronized (this) {
+            long now = System.nanoTime();
+            for(Map.Entry<String, List<Job>> it: queues.entrySet()) {
+                // boards queued together are all sized before the radio picks one
+                boolean sizing = false;
+                for(Job job: it.getValue()) {
+                    sizing |= job.sizing;
+                }
+
+                int running = active.containsKey(it.getKey()) ? active.get(it.getKey()) : 0;
+                while(!sizing && running < perRadio) {
+                    Job next = null;
+                    double best = 0;
+                    for(Job job: it.getValue()) {
+                        double priority = priority(job, now);
+                        if (now >= job.eligible && (next == null || priority > best)) {
+                            next = job;
+                            best = priority;
+                        }
+                    }
+                    if (next == null) {
+                        break;
+                    }
+
+                    it.getValue().remove(next);
+                    starting.add(next);
+                    running++;
+                }
+                active.put(it.getKey(), running);
+            }
+        }
+
+        for(Job it: starting) {
+            start(it);
+        }
+    }
+
+    private void start(final Job job) {
+        job.progressed = false;
+        (job.board.isConnected() ? Task.<Void>forResult(null) : manager.connectAsync(job.board)).onSuccessTask(ignored ->
+                manager.submit(job.board, BoardManager.Operation.DOWNLOAD_LOG, () -> job.board.getModuleOrThrow(Logging.class)
+                        .downloadAsync(N_UPDATES, (nEntriesLeft, totalEntries) -> {
+                            job.backlog = nEntriesLeft;
+                            job.progressed = true;
+                        }, job.errorHandler))
+        ).continueWith(task -> {
+            finished(job, task);
+            return null;
+        });
+    }
+
+    private void finished(final Job job, Task<Void> task) {
+        boolean requeued = false;
+        long delay;
+        synchronized (this) {
+            active.put(job.radio, active.get(job.radio) - 1);
+            delay = resumeDelay;
+
+            if (task.isFaulted() && !task.isCancelled() && !job.board.isConnected() && !(task.getError() instanceof UnsupportedModuleException)) {
+                job.failures = job.progressed ? 0 : job.failures + 1;
+                if (job.failures < maxAttempts) {
+                    job.eligible = System.nanoTime() + delay * 1000000L;
+                    queue(job.radio).add(job);
+                    requeued = true;
+                }
+            }
+            if (!requeued) {
+                jobs.remove(job.board);
+            }
+        }
+
+        if (requeued) {
+            Task.delay(delay).continueWith(ignored -> {
+                dispatch();
+                return null;
+            });
+        } else if (task.isCancelled()) {
+            job.taskSource.trySetCancelled();
+        } else if (task.isFaulted()) {
+            job.taskSource.trySetError(task.getError());
+        } else {
+            job.backlog = 0;
+            job.taskSource.trySetResult(null);
+        }
+        dispatch();
+    }
+}
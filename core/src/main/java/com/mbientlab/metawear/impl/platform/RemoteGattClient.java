@@ -0,0 +1,304 @@
+/*
+ * Copyright 2014-2015 MbientLab Inc. All rights reserved.
+ *
+ * IMPORTANT: Your use of this Software is limited to those specific rights granted under the terms of a software
+ * license agreement between the user who downloaded the software, his/her employer (which must be your
+ * employer) and MbientLab Inc, (the "License").  You may not use this Software unless you agree to abide by the
+ * terms of the License which can be found at www.mbientlab.com/terms.  The License limits your use, and you
+ * acknowledge, that the Software may be modified, copied, and distributed when used in conjunction with an
+ * MbientLab Inc, product.  Other than for the foregoing purpose, you may not use, reproduce, copy, prepare
+ * derivative works of, modify, distribute, perform, display or sell this Software and/or its documentation for any
+ * purpose.
+ *
+ * YOU FURTHER ACKNOWLEDGE AND AGREE THAT THE SOFTWARE AND DOCUMENTATION ARE PROVIDED "AS IS" WITHOUT WARRANTY
+ * OF ANY KIND, EITHER EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION, ANY WARRANTY OF MERCHANTABILITY, TITLE,
+ * NON-INFRINGEMENT AND FITNESS FOR A PARTICULAR PURPOSE. IN NO EVENT SHALL MBIENTLAB OR ITS LICENSORS BE LIABLE OR
+ * OBLIGATED UNDER CONTRACT, NEGLIGENCE, STRICT LIABILITY, CONTRIBUTION, BREACH OF WARRANTY, OR OTHER LEGAL EQUITABLE
+ * THEORY ANY DIRECT OR INDIRECT DAMAGES OR EXPENSES INCLUDING BUT NOT LIMITED TO ANY INCIDENTAL, SPECIAL, INDIRECT,
+ * PUNITIVE OR CONSEQUENTIAL DAMAGES, LOST PROFITS OR LOST DATA, COST OF PROCUREMENT OF SUBSTITUTE GOODS, TECHNOLOGY,
+ * SERVICES, OR ANY CLAIMS BY THIRD PARTIES (INCLUDING BUT NOT LIMITED TO ANY DEFENSE THEREOF), OR OTHER SIMILAR COSTS.
+ *
+ * Should you have any questions regarding your right to use this Software, contact MbientLab via email:
+ * hello@mbientlab.com.
+ */
+
+package com.mbientlab.metawear.impl.platform;
+
+import com.mbientlab.metawear.impl.platform.RemoteGattProtocol.Frame;
+import com.mbientlab.metawear.impl.platform.RemoteGattProtocol.FrameHandler;
+import com.mbientlab.metawear.impl.platform.RemoteGattProtocol.Link;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import bolts.Task;
+import bolts.TaskCompletionSource;
+
+import static com.mbientlab.metawear.impl.platform.RemoteGattProtocol.*;
+
+/**
+ * Worker side of the remote GATT transport.  One client holds a single connection to a {@link RemoteGattServer} and
+ * hands out a {@link BtleGatt} per opened board, so {@link com.mbientlab.metawear.impl.JseMetaWearBoard} objects can run
+ * in a different process from the one that owns the radios.  Notifications are delivered on the client's reader
+ * thread; credit is returned to the server once half of a board's window has been processed.
+ * <p>
+ * Saved state and downloads are not forwarded, pair the returned objects with a local {@link IO} implementation.
+ */
+public class RemoteGattClient {
+    /** Status passed to {@link BtleGatt.DisconnectHandler#onUnexpectedDisconnect(int)} when the gateway link drops */
+    public static final int STATUS_LINK_LOST = -1;
+
+    private final Link link;
+    private final AtomicInteger nextRequest = new AtomicInteger();
+    private final Map<Integer, TaskCompletionSource<ByteBuffer>> pending = new ConcurrentHashMap<>();
+    private final Map<Short, RemoteGatt> channels = new ConcurrentHashMap<>();
+
+    /**
+     * Connects to a gateway
+     * @param host    Gateway host name
+     * @param port    Port the gateway's {@link RemoteGattServer} is listening on
+     * @throws IOException If the connection cannot be established
+     */
+    public RemoteGattClient(String host, int port) throws IOException {
+        link = new Link(new Socket(host, port), new FrameHandler() {
+            @Override
+            public void onFrame(byte type, ByteBuffer body) {
+                frameReceived(type, body);
+            }
+
+            @Override
+            public void onClose(Exception error) {
+                linkClosed();
+            }
+        }, "RemoteGattClient").start();
+    }
+
+    /**
+     * Opens a board on the gateway
+     * @param address    Board address as understood by the server's {@link RemoteGattServer.GattProvider}
+     * @return Task holding the board's GATT object, not yet connected
+     */
+    public Task<BtleGatt> openAsync(String address) {
+        return request(new Frame(OPEN), frame -> frame.putString(address)).onSuccess(task -> {
+            RemoteGatt gatt = new RemoteGatt(task.getResult().getShort());
+            channels.put(gatt.channel, gatt);
+            return gatt;
+        });
+    }
+
+    /**
+     * Closes the connection to the gateway.  Boards are left in their current state on the gateway and local handlers
+     * are notified as if the connections were lost.
+     */
+    public void close() {
+        link.close();
+    }
+
+    private interface FrameBody {
+        void write(Frame frame);
+    }
+
+    private Task<ByteBuffer> request(Frame frame, FrameBody body) {
+        if (link.isClosed()) {
+            return Task.forError(new IOException("Connection to the gateway is closed"));
+        }
+
+        int id = nextRequest.incrementAndGet();
+        TaskCompletionSource<ByteBuffer> taskSource = new TaskCompletionSource<>();
+        pending.put(id, taskSource);
+        // The link is marked closed before linkClosed fails the pending requests, if it closed since the first check
+        // this request may have been missed
+        if (link.isClosed() && pending.remove(id) != null) {
+            return Task.forError(new IOException("Connection to the gateway is closed"));
+        }
+        frame.putInt(id);
+        body.write(frame);
+        link.send(frame.build());
+        return taskSource.getTask();
+    }
+
+    private void frameReceived(byte type, ByteBuffer body) {
+        switch(type) {
+            case RESULT: {
+                TaskCompletionSource<ByteBuffer> taskSource = pending.remove(body.getInt());
+                if (taskSource != null) {
+                    if (body.get() == STATUS_OK) {
+                        taskSource.setResult(body);
+                    } else {
+                        taskSource.setError(new IllegalStateException(getString(body)));
+                    }
+                }
+                break;
+            }
+            case NOTIFY: {
+                RemoteGatt gatt = channels.get(body.getShort());
+                int count = body.getShort() & 0xffff;
+                byte[][] values = new byte[count][];
+                for(int i = 0; i < count; i++) {
+                    values[i] = getBytes(body);
+                }
+                if (gatt != null) {
+                    gatt.notificationsReceived(values);
+                }
+                break;
+            }
+            case DISCONNECTED: {
+                RemoteGatt gatt = channels.get(body.getShort());
+                if (gatt != null) {
+                    gatt.disconnected(body.get() != 0, body.getInt());
+                }
+                break;
+            }
+        }
+    }
+
+    private void linkClosed() {
+        IOException error = new IOException("Connection to the gateway was lost");
+        for(TaskCompletionSource<ByteBuffer> it: pending.values()) {
+            it.trySetError(error);
+        }
+        pending.clear();
+
+        for(RemoteGatt it: channels.values()) {
+            if (it.connected) {
+                it.disconnected(true, STATUS_LINK_LOST);
+            }
+        }
+    }
+
+    private final class RemoteGatt implements BtleGatt {
+        final short channel;
+        private final Set<UUID> services = new HashSet<>();
+        private volatile NotificationListener listener;
+        private volatile DisconnectHandler dcHandler;
+        private volatile boolean connected;
+        private int consumed;
+
+        RemoteGatt(short channel) {
+            this.channel = channel;
+        }
+
+        void notificationsReceived(byte[][] values) {
+            NotificationListener current = listener;
+            if (current != null) {
+                for(byte[] it: values) {
+                    current.onChange(it);
+                }
+            }
+
+            consumed += values.length;
+            if (consumed >= WINDOW / 2) {
+                link.send(new Frame(CREDIT).putShort(channel).putInt(consumed).build());
+                consumed = 0;
+            }
+        }
+
+        void disconnected(boolean unexpected, int status) {
+            connected = false;
+            DisconnectHandler handler = dcHandler;
+            if (handler != null) {
+                if (unexpected) {
+                    handler.onUnexpectedDisconnect(status);
+                } else {
+                    handler.onDisconnect();
+                }
+            }
+        }
+
+        private Task<ByteBuffer> request(byte type, FrameBody body) {
+            return RemoteGattClient.this.request(new Frame(type), frame -> {
+                frame.putShort(channel);
+                body.write(frame);
+            });
+        }
+
+        @Override
+        public void onDisconnect(DisconnectHandler handler) {
+            dcHandler = handler;
+        }
+
+        @Override
+        public boolean serviceExists(UUID gattService) {
+            synchronized (services) {
+                return services.contains(gattService);
+            }
+        }
+
+        @Override
+        public Task<Void> writeCharacteristicAsync(BtleGattCharacteristic characteristic, WriteType type, byte[] value) {
+            return request(WRITE, frame -> frame.put((byte) type.ordinal()).putCharacteristic(characteristic).putBytes(value))
+                    .onSuccess(task -> null);
+        }
+
+        @Override
+        public Task<byte[][]> readCharacteristicAsync(BtleGattCharacteristic[] characteristics) {
+            return request(READ, frame -> {
+                frame.put((byte) characteristics.length);
+                for(BtleGattCharacteristic it: characteristics) {
+                    frame.putCharacteristic(it);
+                }
+            }).onSuccess(task -> {
+                byte[][] values = new byte[characteristics.length][];
+                for(int i = 0; i < values.length; i++) {
+                    values[i] = getBytes(task.getResult());
+                }
+                return values;
+            });
+        }
+
+        @Override
+        public Task<byte[]> readCharacteristicAsync(BtleGattCharacteristic characteristic) {
+            return readCharacteristicAsync(new BtleGattCharacteristic[] {characteristic}).onSuccess(task -> task.getResult()[0]);
+        }
+
+        @Override
+        public Task<Void> enableNotificationsAsync(BtleGattCharacteristic characteristic, NotificationListener listener) {
+            this.listener = listener;
+            return request(ENABLE_NOTIFICATIONS, frame -> frame.putCharacteristic(characteristic)).onSuccess(task -> null);
+        }
+
+        @Override
+        public Task<Void> localDisconnectAsync() {
+            return request(LOCAL_DISCONNECT, frame -> { }).onSuccess(task -> null);
+        }
+
+        @Override
+        public Task<Void> remoteDisconnectAsync() {
+            return request(REMOTE_DISCONNECT, frame -> { }).onSuccess(task -> null);
+        }
+
+        @Override
+        public Task<Void> connectAsync() {
+            return request(CONNECT, frame -> { }).onSuccess(task -> {
+                byte flags = task.getResult().get();
+                List<UUID> found = new ArrayList<>();
+                for(int i = 0; i < KNOWN_SERVICES.length; i++) {
+                    if ((flags & (1 << i)) != 0) {
+                        found.add(KNOWN_SERVICES[i]);
+                    }
+                }
+                synchronized (services) {
+                    services.clear();
+                    services.addAll(found);
+                }
+
+                connected = true;
+                return null;
+            });
+        }
+
+        @Override
+        public Task<Integer> readRssiAsync() {
+            return request(READ_RSSI, frame -> { }).onSuccess(task -> task.getResult().getInt());
+        }
+    }
+}
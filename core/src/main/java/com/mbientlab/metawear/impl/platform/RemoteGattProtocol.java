@@ -0,0 +1,262 @@
+/*
+ * Copyright 2014-2015 MbientLab Inc. All rights reserved.
+ *
+ * IMPORTANT: Your use of this Software is limited to those specific rights granted under the terms of a software
+ * license agreement between the user who downloaded the software, his/her employer (which must be your
+ * employer) and MbientLab Inc, (the "License").  You may not use this Software unless you agree to abide by the
+ * terms of the License which can be found at www.mbientlab.com/terms.  The License limits your use, and you
+ * acknowledge, that the Software may be modified, copied, and distributed when used in conjunction with an
+ * MbientLab Inc, product.  Other than for the foregoing purpose, you may not use, reproduce, copy, prepare
+ * derivative works of, modify, distribute, perform, display or sell this Software and/or its documentation for any
+ * purpose.
+ *
+ * YOU FURTHER ACKNOWLEDGE AND AGREE THAT THE SOFTWARE AND DOCUMENTATION ARE PROVIDED "AS IS" WITHOUT WARRANTY
+ * OF ANY KIND, EITHER EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION, ANY WARRANTY OF MERCHANTABILITY, TITLE,
+ * NON-INFRINGEMENT AND FITNESS FOR A PARTICULAR PURPOSE. IN NO EVENT SHALL MBIENTLAB OR ITS LICENSORS BE LIABLE OR
+ * OBLIGATED UNDER CONTRACT, NEGLIGENCE, STRICT LIABILITY, CONTRIBUTION, BREACH OF WARRANTY, OR OTHER LEGAL EQUITABLE
+ * THEORY ANY DIRECT OR INDIRECT DAMAGES OR EXPENSES INCLUDING BUT NOT LIMITED TO ANY INCIDENTAL, SPECIAL, INDIRECT,
+ * PUNITIVE OR CONSEQUENTIAL DAMAGES, LOST PROFITS OR LOST DATA, COST OF PROCUREMENT OF SUBSTITUTE GOODS, TECHNOLOGY,
+ * SERVICES, OR ANY CLAIMS BY THIRD PARTIES (INCLUDING BUT NOT LIMITED TO ANY DEFENSE THEREOF), OR OTHER SIMILAR COSTS.
+ *
+ * Should you have any questions regarding your right to use this Software, contact MbientLab via email:
+ * hello@mbientlab.com.
+ */
+
+package com.mbientlab.metawear.impl.platform;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Supplier;
+
+import static com.mbientlab.metawear.MetaWearBoard.METABOOT_SERVICE;
+import static com.mbientlab.metawear.MetaWearBoard.METAWEAR_GATT_SERVICE;
+
+/**
+ * Framing shared by {@link RemoteGattServer} and {@link RemoteGattClient}.  Every frame is a 4 byte big endian length
+ * followed by a 1 byte type and the body.  Requests from the client carry a request id that the server echoes in its
+ * {@link #RESULT} frame; board scoped frames carry the channel id assigned when the board was opened.
+ */
+final class RemoteGattProtocol {
+    static final byte OPEN = 1, RESULT = 2, CONNECT = 3, LOCAL_DISCONNECT = 4, REMOTE_DISCONNECT = 5, WRITE = 6, READ = 7,
+            ENABLE_NOTIFICATIONS = 8, READ_RSSI = 9, NOTIFY = 10, CREDIT = 11, DISCONNECTED = 12;
+    static final byte STATUS_OK = 0, STATUS_ERROR = 1;
+    /** Services the server checks after connecting, answers {@link BtleGatt#serviceExists(UUID)} on the client */
+    static final UUID[] KNOWN_SERVICES = new UUID[] { METAWEAR_GATT_SERVICE, METABOOT_SERVICE };
+    /** Notifications the server may send for one board before the client grants more credit */
+    static final int WINDOW = 256;
+    static final int MAX_FRAME_SIZE = 1 << 20;
+
+    private RemoteGattProtocol() {
+    }
+
+    /**
+     * Growable buffer for building one frame
+     */
+    static final class Frame {
+        private ByteBuffer buffer = ByteBuffer.allocate(64);
+
+        Frame(byte type) {
+            buffer.putInt(0).put(type);
+        }
+
+        private Frame ensure(int size) {
+            if (buffer.remaining() < size) {
+                ByteBuffer expanded = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + size));
+                buffer.flip();
+                expanded.put(buffer);
+                buffer = expanded;
+            }
+            return this;
+        }
+
+        Frame put(byte value) {
+            ensure(1).buffer.put(value);
+            return this;
+        }
+        Frame putShort(short value) {
+            ensure(2).buffer.putShort(value);
+            return this;
+        }
+        Frame putInt(int value) {
+            ensure(4).buffer.putInt(value);
+            return this;
+        }
+        Frame putUuid(UUID value) {
+            ensure(16).buffer.putLong(value.getMostSignificantBits()).putLong(value.getLeastSignificantBits());
+            return this;
+        }
+        Frame putCharacteristic(BtleGattCharacteristic value) {
+            return putUuid(value.serviceUuid).putUuid(value.uuid);
+        }
+        Frame putBytes(byte[] value) {
+            ensure(2 + value.length).buffer.putShort((short) value.length).put(value);
+            return this;
+        }
+        Frame putString(String value) {
+            return putBytes(value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        byte[] build() {
+            buffer.putInt(0, buffer.position() - 4);
+            byte[] frame = new byte[buffer.position()];
+            System.arraycopy(buffer.array(), 0, frame, 0, frame.length);
+            return frame;
+        }
+    }
+
+    static UUID getUuid(ByteBuffer body) {
+        return new UUID(body.getLong(), body.getLong());
+    }
+    static BtleGattCharacteristic getCharacteristic(ByteBuffer body) {
+        return new BtleGattCharacteristic(getUuid(body), getUuid(body));
+    }
+    static byte[] getBytes(ByteBuffer body) {
+        byte[] value = new byte[body.getShort() & 0xffff];
+        body.get(value);
+        return value;
+    }
+    static String getString(ByteBuffer body) {
+        return new String(getBytes(body), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Receives frames from the remote end
+     */
+    interface FrameHandler {
+        /**
+         * Called on the link's reader thread for each frame
+         * @param type    Frame type
+         * @param body    Frame body, positioned after the type
+         */
+        void onFrame(byte type, ByteBuffer body);
+        /**
+         * Called once when the link closes
+         * @param error    Cause of the closure, null if {@link Link#close()} was called
+         */
+        void onClose(Exception error);
+    }
+
+    /**
+     * Socket with dedicated reader and writer threads.  The writer drains every queued frame before flushing so frames
+     * produced while a previous write was in progress share a TCP segment.  Queued suppliers are evaluated on the
+     * writer thread, letting callers defer building a frame, e.g. a notification batch, until it is about to be sent.
+     * The writer owns the socket and closes it after sending everything queued before the link was closed.
+     */
+    static final class Link {
+        private static final Supplier<byte[]> CLOSE = () -> null;
+
+        private final Socket socket;
+        private final FrameHandler handler;
+        private final LinkedBlockingQueue<Supplier<byte[]>> outgoing = new LinkedBlockingQueue<>();
+        private final Thread reader, writer;
+        private volatile boolean closed;
+
+        Link(Socket socket, FrameHandler handler, String name) throws IOException {
+            this.socket = socket;
+            this.handler = handler;
+            socket.setTcpNoDelay(true);
+
+            final DataInputStream ins = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            final DataOutputStream outs = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+            reader = new Thread(() -> {
+                Exception error = null;
+                try {
+                    while(!closed) {
+                        int length = ins.readInt();
+                        if (length < 1 || length > MAX_FRAME_SIZE) {
+                            throw new IOException("Invalid frame length: " + length);
+                        }
+                        byte[] frame = new byte[length];
+                        ins.readFully(frame);
+
+                        ByteBuffer body = ByteBuffer.wrap(frame);
+                        handler.onFrame(body.get(), body);
+                    }
+                } catch (Exception e) {
+                    error = e;
+                }
+                shutdown(closed ? null : error);
+            }, name + "-reader");
+            writer = new Thread(() -> {
+                try {
+                    while(true) {
+                        Supplier<byte[]> next = outgoing.take();
+                        do {
+                            if (next == CLOSE) {
+                                outs.flush();
+                                return;
+                            }
+                            byte[] frame = next.get();
+                            if (frame != null) {
+                                outs.write(frame);
+                            }
+                        } while((next = outgoing.poll()) != null);
+                        outs.flush();
+                    }
+                } catch (Exception e) {
+                    shutdown(e);
+                } finally {
+                    // also unblocks the reader
+                    try {
+                        socket.close();
+                    } catch (IOException ignored) {
+                    }
+                }
+            }, name + "-writer");
+
+            reader.setDaemon(true);
+            writer.setDaemon(true);
+        }
+
+        /**
+         * Starts the reader and writer threads, call once the handler is ready to receive frames
+         */
+        Link start() {
+            reader.start();
+            writer.start();
+            return this;
+        }
+
+        void send(byte[] frame) {
+            if (!closed) {
+                outgoing.add(() -> frame);
+            }
+        }
+
+        void send(Supplier<byte[]> frame) {
+            if (!closed) {
+                outgoing.add(frame);
+            }
+        }
+
+        boolean isClosed() {
+            return closed;
+        }
+
+        void close() {
+            shutdown(null);
+        }
+
+        private void shutdown(Exception error) {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+            }
+
+            // the writer closes the socket once the frames queued ahead of CLOSE are sent
+            outgoing.add(CLOSE);
+            handler.onClose(error);
+        }
+    }
+}
@@ -0,0 +1,393 @@
+/*
+ * Copyright 2014-2015 MbientLab Inc. All rights reserved.
+ *
+ * IMPORTANT: Your use of this Software is limited to those specific rights granted under the terms of a software
+ * license agreement between the user who downloaded the software, his/her employer (which must be your
+ * employer) and MbientLab Inc, (the "License").  You may not use this Software unless you agree to abide by the
+ * terms of the License which can be found at www.mbientlab.com/terms.  The License limits your use, and you
+ * acknowledge, that the Software may be modified, copied, and distributed when used in conjunction with an
+ * MbientLab Inc, product.  Other than for the foregoing purpose, you may not use, reproduce, copy, prepare
+ * derivative works of, modify, distribute, perform, display or sell this Software and/or its documentation for any
+ * purpose.
+ *
+ * YOU FURTHER ACKNOWLEDGE AND AGREE THAT THE SOFTWARE AND DOCUMENTATION ARE PROVIDED "AS IS" WITHOUT WARRANTY
+ * OF ANY KIND, EITHER EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION, ANY WARRANTY OF MERCHANTABILITY, TITLE,
+ * NON-INFRINGEMENT AND FITNESS FOR A PARTICULAR PURPOSE. IN NO EVENT SHALL MBIENTLAB OR ITS LICENSORS BE LIABLE OR
+ * OBLIGATED UNDER CONTRACT, NEGLIGENCE, STRICT LIABILITY, CONTRIBUTION, BREACH OF WARRANTY, OR OTHER LEGAL EQUITABLE
+ * THEORY ANY DIRECT OR INDIRECT DAMAGES OR EXPENSES INCLUDING BUT NOT LIMITED TO ANY INCIDENTAL, SPECIAL, INDIRECT,
+ * PUNITIVE OR CONSEQUENTIAL DAMAGES, LOST PROFITS OR LOST DATA, COST OF PROCUREMENT OF SUBSTITUTE GOODS, TECHNOLOGY,
+ * SERVICES, OR ANY CLAIMS BY THIRD PARTIES (INCLUDING BUT NOT LIMITED TO ANY DEFENSE THEREOF), OR OTHER SIMILAR COSTS.
+ *
+ * Should you have any questions regarding your right to use this Software, contact MbientLab via email:
+ * hello@mbientlab.com.
+ */
+
+package com.mbientlab.metawear.impl.platform;
+
+import com.mbientlab.metawear.impl.platform.RemoteGattProtocol.Frame;
+import com.mbientlab.metawear.impl.platform.RemoteGattProtocol.FrameHandler;
+import com.mbientlab.metawear.impl.platform.RemoteGattProtocol.Link;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import bolts.Task;
+
+import static com.mbientlab.metawear.impl.platform.RemoteGattProtocol.*;
+
+/**
+ * Gateway side of the remote GATT transport.  The server owns the boards' {@link BtleGatt} objects and forwards
+ * operations requested by {@link RemoteGattClient} workers, sending notifications back in batches.  Each board has a
+ * credit window: the server stops sending a board's notifications once the window is used up and queues them, up to
+ * a limit, until the worker grants more credit.
+ */
+public class RemoteGattServer {
+    /**
+     * Resolves the GATT object for a board a worker wants to open
+     */
+    public interface GattProvider {
+        /**
+         * Find the board's GATT object
+         * @param address    Address the worker asked for, typically the board's MAC address
+         * @return GATT object, null if the board is unknown
+         */
+        BtleGatt find(String address);
+    }
+
+    private static final int MAX_BATCH = 64;
+
+    private final GattProvider provider;
+    private final int maxQueuedNotifications;
+    private final Set<Session> sessions = ConcurrentHashMap.newKeySet();
+    private final AtomicLong nDropped = new AtomicLong();
+    private ServerSocket serverSocket;
+
+    /**
+     * Creates a server that queues up to 4096 notifications per board when a worker is out of credit
+     * @param provider    Resolves board addresses to GATT objects
+     */
+    public RemoteGattServer(GattProvider provider) {
+        this(provider, 4096);
+    }
+
+    /**
+     * Creates a server
+     * @param provider                  Resolves board addresses to GATT objects
+     * @param maxQueuedNotifications    How many notifications to queue per board when a worker is out of credit,
+     *                                  newer notifications are dropped once the queue is full
+     */
+    public RemoteGattServer(GattProvider provider, int maxQueuedNotifications) {
+        this.provider = provider;
+        this.maxQueuedNotifications = maxQueuedNotifications;
+    }
+
+    /**
+     * Starts accepting workers on the loopback interface
+     * @param port    Port to listen on, 0 to pick a free port
+     * @return Port the server is listening on
+     * @throws IOException If the server socket cannot be bound
+     */
+    public int start(int port) throws IOException {
+        return start(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+    }
+
+    /**
+     * Starts accepting workers
+     * @param address    Address to listen on
+     * @return Port the server is listening on
+     * @throws IOException If the server socket cannot be bound
+     */
+    public synchronized int start(InetSocketAddress address) throws IOException {
+        if (serverSocket != null) {
+            throw new IllegalStateException("Server already started");
+        }
+
+        serverSocket = new ServerSocket();
+        serverSocket.bind(address);
+        final ServerSocket listener = serverSocket;
+        Thread acceptor = new Thread(() -> {
+            while(!listener.isClosed()) {
+                try {
+                    Socket socket = listener.accept();
+                    sessions.add(new Session(socket));
+                } catch (IOException ignored) {
+                }
+            }
+        }, "RemoteGattServer-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Stops accepting workers and closes all open sessions.  Boards opened by the sessions are disconnected.
+     */
+    public void close() {
+        synchronized (this) {
+            if (serverSocket != null) {
+                try {
+                    serverSocket.close();
+                } catch (IOException ignored) {
+                }
+                serverSocket = null;
+            }
+        }
+        for(Session it: sessions) {
+            it.link.close();
+        }
+    }
+
+    /**
+     * Number of notifications dropped because a worker fell behind and the board's queue was full
+     * @return Drop count
+     */
+    public long droppedCount() {
+        return nDropped.get();
+    }
+
+    private final class Channel {
+        final short id;
+        final BtleGatt gatt;
+        final Session session;
+        final ArrayDeque<byte[]> queued = new ArrayDeque<>();
+        int credits = WINDOW;
+        boolean flushScheduled, closed;
+
+        Channel(short id, BtleGatt gatt, Session session) {
+            this.id = id;
+            this.gatt = gatt;
+            this.session = session;
+        }
+
+        synchronized void notificationReceived(byte[] value) {
+            if (closed) {
+                return;
+            }
+            if (queued.size() >= maxQueuedNotifications) {
+                nDropped.incrementAndGet();
+                return;
+            }
+            queued.add(value);
+            scheduleFlush();
+        }
+
+        synchronized void creditReceived(int count) {
+            credits += count;
+            scheduleFlush();
+        }
+
+        /**
+         * Stops forwarding the board's events and disconnects it, called once the worker is gone.  The GATT object
+         * has no way to remove the notification listener so it is muted instead.
+         */
+        void close() {
+            synchronized (this) {
+                closed = true;
+                queued.clear();
+            }
+            gatt.onDisconnect(new BtleGatt.DisconnectHandler() {
+                @Override
+                public void onDisconnect() {
+                }
+
+                @Override
+                public void onUnexpectedDisconnect(int status) {
+                }
+            });
+            gatt.localDisconnectAsync();
+        }
+
+        synchronized boolean isClosed() {
+            return closed;
+        }
+
+        private void scheduleFlush() {
+            if (!flushScheduled && credits > 0 && !queued.isEmpty()) {
+                flushScheduled = true;
+                session.link.send(this::batch);
+            }
+        }
+
+        /**
+         * Builds a frame from the notifications queued by the time the writer gets to it
+         */
+        private synchronized byte[] batch() {
+            flushScheduled = false;
+            int count = Math.min(MAX_BATCH, Math.min(credits, queued.size()));
+            if (count == 0) {
+                return null;
+            }
+
+            Frame frame = new Frame(NOTIFY).putShort(id).putShort((short) count);
+            for(int i = 0; i < count; i++) {
+                frame.putBytes(queued.poll());
+            }
+            credits -= count;
+            scheduleFlush();
+            return frame.build();
+        }
+    }
+
+    private final class Session implements FrameHandler {
+        final Link link;
+        final Map<Short, Channel> channels = new ConcurrentHashMap<>();
+        private short nextChannel = 0;
+
+        Session(Socket socket) throws IOException {
+            link = new Link(socket, this, "RemoteGattServer");
+            link.start();
+        }
+
+        private void respond(int request, Task<?> task, Frame payload) {
+            if (task.isFaulted() || task.isCancelled()) {
+                String message = task.isCancelled() ? "Operation cancelled" : String.valueOf(task.getError().getMessage());
+                link.send(new Frame(RESULT).putInt(request).put(STATUS_ERROR).putString(message).build());
+            } else {
+                link.send(payload.build());
+            }
+        }
+
+        private Frame ok(int request) {
+            return new Frame(RESULT).putInt(request).put(STATUS_OK);
+        }
+
+        @Override
+        public void onFrame(byte type, ByteBuffer body) {
+            final int request = type == CREDIT ? 0 : body.getInt();
+            if (type == OPEN) {
+                open(request, getString(body));
+                return;
+            }
+
+            final Channel channel = channels.get(body.getShort());
+            if (channel == null) {
+                if (type != CREDIT) {
+                    link.send(new Frame(RESULT).putInt(request).put(STATUS_ERROR).putString("Unknown channel").build());
+                }
+                return;
+            }
+
+            switch(type) {
+                case CONNECT:
+                    channel.gatt.connectAsync().continueWith(task -> {
+                        if (channel.isClosed()) {
+                            // worker left while the board was connecting
+                            channel.gatt.localDisconnectAsync();
+                            return null;
+                        }
+
+                        Frame payload = ok(request);
+                        if (!task.isFaulted() && !task.isCancelled()) {
+                            byte services = 0;
+                            for(int i = 0; i < KNOWN_SERVICES.length; i++) {
+                                if (channel.gatt.serviceExists(KNOWN_SERVICES[i])) {
+                                    services |= 1 << i;
+                                }
+                            }
+                            payload.put(services);
+                        }
+                        respond(request, task, payload);
+                        return null;
+                    });
+                    break;
+                case LOCAL_DISCONNECT:
+                    channel.gatt.localDisconnectAsync().continueWith(task -> {
+                        respond(request, task, ok(request));
+                        return null;
+                    });
+                    break;
+                case REMOTE_DISCONNECT:
+                    channel.gatt.remoteDisconnectAsync().continueWith(task -> {
+                        respond(request, task, ok(request));
+                        return null;
+                    });
+                    break;
+                case WRITE: {
+                    BtleGatt.WriteType writeType = BtleGatt.WriteType.values()[body.get()];
+                    BtleGattCharacteristic characteristic = getCharacteristic(body);
+                    channel.gatt.writeCharacteristicAsync(characteristic, writeType, getBytes(body)).continueWith(task -> {
+                        respond(request, task, ok(request));
+                        return null;
+                    });
+                    break;
+                }
+                case READ: {
+                    BtleGattCharacteristic[] characteristics = new BtleGattCharacteristic[body.get()];
+                    for(int i = 0; i < characteristics.length; i++) {
+                        characteristics[i] = getCharacteristic(body);
+                    }
+                    channel.gatt.readCharacteristicAsync(characteristics).continueWith(task -> {
+                        Frame payload = ok(request);
+                        if (!task.isFaulted() && !task.isCancelled()) {
+                            for(byte[] it: task.getResult()) {
+                                payload.putBytes(it);
+                            }
+                        }
+                        respond(request, task, payload);
+                        return null;
+                    });
+                    break;
+                }
+                case ENABLE_NOTIFICATIONS:
+                    channel.gatt.enableNotificationsAsync(getCharacteristic(body), channel::notificationReceived).continueWith(task -> {
+                        respond(request, task, ok(request));
+                        return null;
+                    });
+                    break;
+                case READ_RSSI:
+                    channel.gatt.readRssiAsync().continueWith(task -> {
+                        respond(request, task, task.isFaulted() || task.isCancelled() ? ok(request) : ok(request).putInt(task.getResult()));
+                        return null;
+                    });
+                    break;
+                case CREDIT:
+                    channel.creditReceived(body.getInt());
+                    break;
+            }
+        }
+
+        private synchronized void open(int request, String address) {
+            BtleGatt gatt = provider.find(address);
+            if (gatt == null) {
+                link.send(new Frame(RESULT).putInt(request).put(STATUS_ERROR).putString("Unknown board: " + address).build());
+                return;
+            }
+
+            final Channel channel = new Channel(nextChannel++, gatt, this);
+            channels.put(channel.id, channel);
+            gatt.onDisconnect(new BtleGatt.DisconnectHandler() {
+                @Override
+                public void onDisconnect() {
+                    link.send(new Frame(DISCONNECTED).putShort(channel.id).put((byte) 0).putInt(0).build());
+                }
+
+                @Override
+                public void onUnexpectedDisconnect(int status) {
+                    link.send(new Frame(DISCONNECTED).putShort(channel.id).put((byte) 1).putInt(status).build());
+                }
+            });
+            link.send(ok(request).putShort(channel.id).build());
+        }
+
+        @Override
+        public void onClose(Exception error) {
+            sessions.remove(this);
+            synchronized (this) {
+                for(Channel it: channels.values()) {
+                    it.close();
+                }
+                channels.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright 2014-2015 MbientLab Inc. All rights reserved.
+ *
+ * IMPORTANT: Your use of this Software is limited to those specific rights granted under the terms of a software
+ * license agreement between the user who downloaded the software, his/her employer (which must be your
+ * employer) and MbientLab Inc, (the "License").  You may not use this Software unless you agree to abide by the
+ * terms of the License which can be found at www.mbientlab.com/terms.  The License limits your use, and you
+ * acknowledge, that the Software may be modified, copied, and distributed when used in conjunction with an
+ * MbientLab Inc, product.  Other than for the foregoing purpose, you may not use, reproduce, copy, prepare
+ * derivative works of, modify, distribute, perform, display or sell this Software and/or its documentation for any
+ * purpose.
+ *
+ * YOU FURTHER ACKNOWLEDGE AND AGREE THAT THE SOFTWARE AND DOCUMENTATION ARE PROVIDED "AS IS" WITHOUT WARRANTY
+ * OF ANY KIND, EITHER EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION, ANY WARRANTY OF MERCHANTABILITY, TITLE,
+ * NON-INFRINGEMENT AND FITNESS FOR A PARTICULAR PURPOSE. IN NO EVENT SHALL MBIENTLAB OR ITS LICENSORS BE LIABLE OR
+ * OBLIGATED UNDER CONTRACT, NEGLIGENCE, STRICT LIABILITY, CONTRIBUTION, BREACH OF WARRANTY, OR OTHER LEGAL EQUITABLE
+ * THEORY ANY DIRECT OR INDIRECT DAMAGES OR EXPENSES INCLUDING BUT NOT LIMITED TO ANY INCIDENTAL, SPECIAL, INDIRECT,
+ * PUNITIVE OR CONSEQUENTIAL DAMAGES, LOST PROFITS OR LOST DATA, COST OF PROCUREMENT OF SUBSTITUTE GOODS, TECHNOLOGY,
+ * SERVICES, OR ANY CLAIMS BY THIRD PARTIES (INCLUDING BUT NOT LIMITED TO ANY DEFENSE THEREOF), OR OTHER SIMILAR COSTS.
+ *
+ * Should you have any questions regarding your right to use this Software, contact MbientLab via email:
+ * hello@mbientlab.com.
+ */
+
+package com.mbientlab.metawear.impl.platform;
+
+import com.mbientlab.metawear.DataProducer;
+import com.mbientlab.metawear.MetaWearBoard;
+import com.mbientlab.metawear.Observer;
+import com.mbientlab.metawear.Route;
+import com.mbientlab.metawear.UnsupportedModuleException;
+import com.mbientlab.metawear.builder.RouteComponent;
+import com.mbientlab.metawear.builder.RouteBuilder;
+import com.mbientlab.metawear.module.Settings;
+import com.mbientlab.metawear.module.Timer;
+import com.mbientlab.metawear.module.Timer.ScheduledTask;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import bolts.Task;
+
+/**
+ * Set of routes, scheduled tasks, and observers that is defined once and created on any number of boards.  The
+ * template only refers to boards through the functions passed to it so the same object can be applied to a whole
+ * fleet, typically with {@link BoardManager#provisionAsync(RouteTemplate, List)}.  Creating the items on a board is all
+ * or nothing: if any item fails, the items already created on that board are removed.
+ * <p>
+ * This is a convenience for defining the items once, not a compiled program.  Every application runs the builders
+ * again and goes through the same command exchange as calling {@link DataProducer#addRouteAsync(RouteBuilder)},
+ * {@link Timer#scheduleAsync(int, short, boolean, com.mbientlab.metawear.CodeBlock)}, and
+ * {@link Settings#onDisconnectAsync(com.mbientlab.metawear.CodeBlock)} on the board directly, so applying it costs the
+ * same per board.
+ * </p>
+ */
+public class RouteTemplate {
+    /**
+     * Finds the data producer a route starts from on a specific board
+     */
+    public interface ProducerLookup {
+        /**
+         * Find the producer on the board
+         * @param board    Board the template is being applied to
+         * @return Producer to start the route from
+         * @throws UnsupportedModuleException If the board does not have the required module
+         */
+        DataProducer find(MetaWearBoard board) throws UnsupportedModuleException;
+    }
+
+    /**
+     * Variant of {@link RouteBuilder} that is also given the board the route is created on, for routes whose
+     * reactions need the board's modules
+     */
+    public interface BoardRouteBuilder {
+        /**
+         * Called with the entry point of the data route
+         * @param board     Board the template is being applied to
+         * @param source    Entry point for the route
+         */
+        void configure(MetaWearBoard board, RouteComponent source);
+    }
+
+    /**
+     * Variant of {@link com.mbientlab.metawear.CodeBlock} that is given the board it programs
+     */
+    public interface BoardCodeBlock {
+        /**
+         * Saves the commands used in implementations of this function to the board
+         * @param board    Board the template is being applied to
+         */
+        void program(MetaWearBoard board);
+    }
+
+    /**
+     * Items a template created on one board
+     */
+    public static class Provisioned {
+        /** Routes, in the order they were added to the template */
+        public final List<Route> routes;
+        /** Scheduled tasks, in the order they were added to the template */
+        public final List<ScheduledTask> scheduledTasks;
+        /** Observers, in the order they were added to the template */
+        public final List<Observer> observers;
+
+        Provisioned(List<Route> routes, List<ScheduledTask> scheduledTasks, List<Observer> observers) {
+            this.routes = Collections.unmodifiableList(routes);
+            this.scheduledTasks = Collections.unmodifiableList(scheduledTasks);
+            this.observers = Collections.unmodifiableList(observers);
+        }
+
+        /**
+         * Removes all items from the board
+         */
+        public void remove() {
+            for(Route it: routes) {
+                it.remove();
+            }
+            for(ScheduledTask it: scheduledTasks) {
+                it.remove();
+            }
+            for(Observer it: observers) {
+                it.remove();
+            }
+        }
+    }
+
+    private interface Item {
+        Task<?> create(MetaWearBoard board, Builder created, Executor executor) throws UnsupportedModuleException;
+    }
+
+    private static class Builder {
+        final List<Route> routes = new ArrayList<>();
+        final List<ScheduledTask> scheduledTasks = new ArrayList<>();
+        final List<Observer> observers = new ArrayList<>();
+    }
+
+    private final List<Item> items = new ArrayList<>();
+
+    /**
+     * Adds a data route
+     * @param producer    Finds the route's data producer
+     * @param builder     Route definition, must not refer to objects of a specific board
+     * @return Calling object
+     */
+    public RouteTemplate route(ProducerLookup producer, RouteBuilder builder) {
+        return route(producer, (board, source) -> builder.configure(source));
+    }
+
+    /**
+     * Adds a data route whose definition depends on the board
+     * @param producer    Finds the route's data producer
+     * @param builder     Route definition
+     * @return Calling object
+     */
+    public RouteTemplate route(ProducerLookup producer, BoardRouteBuilder builder) {
+        items.add((board, created, executor) -> producer.find(board).addRouteAsync(source -> builder.configure(board, source)).onSuccess(task -> {
+            created.routes.add(task.getResult());
+            return null;
+        }, executor));
+        return this;
+    }
+
+    /**
+     * Adds a task scheduled with the {@link Timer} module.  The task is created but not started.
+     * @param period         How often to execute the task, in milliseconds
+     * @param repetitions    How many times to execute the task, -1 for indefinitely
+     * @param delay          True if the first execution should be delayed by one period
+     * @param code           Commands to execute
+     * @return Calling object
+     */
+    public RouteTemplate timer(int period, short repetitions, boolean delay, BoardCodeBlock code) {
+        items.add((board, created, executor) -> board.getModuleOrThrow(Timer.class).scheduleAsync(period, repetitions, delay, () -> code.program(board)).onSuccess(task -> {
+            created.scheduledTasks.add(task.getResult());
+            return null;
+        }, executor));
+        return this;
+    }
+
+    /**
+     * Adds an observer that executes commands when the board loses its connection
+     * @param code    Commands to execute
+     * @return Calling object
+     */
+    public RouteTemplate onDisconnect(BoardCodeBlock code) {
+        items.add((board, created, executor) -> board.getModuleOrThrow(Settings.class).onDisconnectAsync(() -> code.program(board)).onSuccess(task -> {
+            created.observers.add(task.getResult());
+            return null;
+        }, executor));
+        return this;
+    }
+
+    /**
+     * Creates the template's items on a board that is not managed by a {@link BoardManager}, running the continuations
+     * on the thread that completed the previous step
+     * @param board    Board to apply the template to
+     * @return Task holding the created items
+     * @see #applyAsync(MetaWearBoard, Executor)
+     */
+    public Task<Provisioned> applyAsync(final MetaWearBoard board) {
+        return applyAsync(board, BoardExecutor.IMMEDIATE);
+    }
+
+    /**
+     * Creates the template's items on a board, one at a time in the order they were added.  If an item cannot be
+     * created, the items already created are removed.
+     * @param board       Board to apply the template to
+     * @param executor    Executor to run the continuations on, the board's {@link BoardManager#executor(MetaWearBoard)}
+     *                    if it is managed
+     * @return Task holding the created items
+     */
+    public Task<Provisioned> applyAsync(final MetaWearBoard board, Executor executor) {
+        final Builder created = new Builder();
+        final Iterator<Item> it = items.iterator();
+
+        return Task.forResult(null).continueWhile(it::hasNext, ignored -> {
+            try {
+                return it.next().create(board, created, executor).makeVoid();
+            } catch (UnsupportedModuleException e) {
+                return Task.forError(e);
+            }
+        }, executor).continueWithTask(task -> {
+            Provisioned result = new Provisioned(created.routes, created.scheduledTasks, created.observers);
+            if (task.isFaulted() || task.isCancelled()) {
+                result.remove();
+                return task.isFaulted() ? Task.<Provisioned>forError(task.getError()) : Task.<Provisioned>cancelled();
+            }
+            return Task.forResult(result);
+        }, executor);
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2014-2015 MbientLab Inc. All rights reserved.
+ *
+ * IMPORTANT: Your use of this Software is limited to those specific rights granted under the terms of a software
+ * license agreement between the user who downloaded the software, his/her employer (which must be your
+ * employer) and MbientLab Inc, (the "License").  You may not use this Software unless you agree to abide by the
+ * terms of the License which can be found at www.mbientlab.com/terms.  The License limits your use, and you
+ * acknowledge, that the Software may be modified, copied, and distributed when used in conjunction with an
+ * MbientLab Inc, product.  Other than for the foregoing purpose, you may not use, reproduce, copy, prepare
+ * derivative works of, modify, distribute, perform, display or sell this Software and/or its documentation for any
+ * purpose.
+ *
+ * YOU FURTHER ACKNOWLEDGE AND AGREE THAT THE SOFTWARE AND DOCUMENTATION ARE PROVIDED "AS IS" WITHOUT WARRANTY
+ * OF ANY KIND, EITHER EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION, ANY WARRANTY OF MERCHANTABILITY, TITLE,
+ * NON-INFRINGEMENT AND FITNESS FOR A PARTICULAR PURPOSE. IN NO EVENT SHALL MBIENTLAB OR ITS LICENSORS BE LIABLE OR
+ * OBLIGATED UNDER CONTRACT, NEGLIGENCE, STRICT LIABILITY, CONTRIBUTION, BREACH OF WARRANTY, OR OTHER LEGAL EQUITABLE
+ * THEORY ANY DIRECT OR INDIRECT DAMAGES OR EXPENSES INCLUDING BUT NOT LIMITED TO ANY INCIDENTAL, SPECIAL, INDIRECT,
+ * PUNITIVE OR CONSEQUENTIAL DAMAGES, LOST PROFITS OR LOST DATA, COST OF PROCUREMENT OF SUBSTITUTE GOODS, TECHNOLOGY,
+ * SERVICES, OR ANY CLAIMS BY THIRD PARTIES (INCLUDING BUT NOT LIMITED TO ANY DEFENSE THEREOF), OR OTHER SIMILAR COSTS.
+ *
+ * Should you have any questions regarding your right to use this Software, contact MbientLab via email:
+ * hello@mbientlab.com.
+ */
+
+package com.mbientlab.metawear.impl.platform;
+
+/**
+ * Round-trip time estimator for request/response exchanges with a board.  Follows the smoothed RTT and RTT
+ * variance scheme used by TCP (RFC 6298): each measured round trip updates the estimate and the response timeout is
+ * derived from it, clamped between a lower and upper bound.  Timeouts double the current value until a new sample is
+ * recorded.
+ */
+public class RttEstimator {
+    private static final double ALPHA = 0.125, BETA = 0.25;
+    private static final int K = 4;
+
+    private final long initialTimeout, minTimeout, maxTimeout;
+    private double srtt, rttvar;
+    private boolean hasSample;
+    private long timeout;
+
+    /**
+     * Creates an estimator with the given timeout bounds
+     * @param initialTimeout    Timeout to use before any round trips are measured, in milliseconds
+     * @param minTimeout        Lower bound for the computed timeout, in milliseconds
+     * @param maxTimeout        Upper bound for the computed timeout, in milliseconds
+     */
+    public RttEstimator(long initialTimeout, long minTimeout, long maxTimeout) {
+        this.initialTimeout = initialTimeout;
+        this.minTimeout = minTimeout;
+        this.maxTimeout = maxTimeout;
+        reset();
+    }
+
+    /**
+     * Updates the estimate with a newly measured round trip
+     * @param rtt    Measured round trip time, in milliseconds
+     */
+    public synchronized void addSample(long rtt) {
+        if (!hasSample) {
+            srtt = rtt;
+            rttvar = rtt / 2.0;
+            hasSample = true;
+        } else {
+            rttvar = (1 - BETA) * rttvar + BETA * Math.abs(srtt - rtt);
+            srtt = (1 - ALPHA) * srtt + ALPHA * rtt;
+        }
+
+        timeout = clamp((long) Math.ceil(srtt + K * rttvar));
+    }
+
+    /**
+     * Doubles the current timeout, called when a response was not received in time
+     */
+    public synchronized void backoff() {
+        timeout = clamp(timeout * 2);
+    }
+
+    /**
+     * Discards all measurements and restores the initial timeout
+     */
+    public synchronized void reset() {
+        srtt = 0;
+        rttvar = 0;
+        hasSample = false;
+        timeout = initialTimeout;
+    }
+
+    /**
+     * Gets how long to wait for a response before giving up
+     * @return Timeout, in milliseconds
+     */
+    public synchronized long timeout() {
+        return timeout;
+    }
+
+    /**
+     * Gets the smoothed round trip time
+     * @return Smoothed RTT in milliseconds, -1 if no round trips have been measured
+     */
+    public synchronized double smoothedRtt() {
+        return hasSample ? srtt : -1;
+    }
+
+    /**
+     * Gets the round trip time variation
+     * @return RTT variation in milliseconds, -1 if no round trips have been measured
+     */
+    public synchronized double rttVariation() {
+        return hasSample ? rttvar : -1;
+    }
+
+    private long clamp(long value) {
+        return Math.max(minTimeout, Math.min(maxTimeout, value));
+    }
+}
@@ -0,0 +1,1161 @@
+/*
+ * Copyright 2014-2015 MbientLab Inc. All rights reserved.
+ *
+ * IMPORTANT: Your use of this Software is limited to those specific rights granted under the terms of a software
+ * license agreement between the user who downloaded the software, his/her employer (which must be your
+ * employer) and MbientLab Inc, (the "License").  You may not use this Software unless you agree to abide by the
+ * terms of the License which can be found at www.mbientlab.com/terms.  The License limits your use, and you
+ * acknowledge, that the Software may be modified, copied, and distributed when used in conjunction with an
+ * MbientLab Inc, product.  Other than for the foregoing purpose, you may not use, reproduce, copy, prepare
+ * derivative works of, modify, distribute, perform, display or sell this Software and/or its documentation for any
+ * purpose.
+ *
+ * YOU FURTHER ACKNOWLEDGE AND AGREE THAT THE SOFTWARE AND DOCUMENTATION ARE PROVIDED "AS IS" WITHOUT WARRANTY
+ * OF ANY KIND, EITHER EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION, ANY WARRANTY OF MERCHANTABILITY, TITLE,
+ * NON-INFRINGEMENT AND FITNESS FOR A PARTICULAR PURPOSE. IN NO EVENT SHALL MBIENTLAB OR ITS LICENSORS BE LIABLE OR
+ * OBLIGATED UNDER CONTRACT, NEGLIGENCE, STRICT LIABILITY, CONTRIBUTION, BREACH OF WARRANTY, OR OTHER LEGAL EQUITABLE
+ * THEORY ANY DIRECT OR INDIRECT DAMAGES OR EXPENSES INCLUDING BUT NOT LIMITED TO ANY INCIDENTAL, SPECIAL, INDIRECT,
+ * PUNITIVE OR CONSEQUENTIAL DAMAGES, LOST PROFITS OR LOST DATA, COST OF PROCUREMENT OF SUBSTITUTE GOODS, TECHNOLOGY,
+ * SERVICES, OR ANY CLAIMS BY THIRD PARTIES (INCLUDING BUT NOT LIMITED TO ANY DEFENSE THEREOF), OR OTHER SIMILAR COSTS.
+ *
+ * Should you have any questions regarding your right to use this Software, contact MbientLab via email:
+ * hello@mbientlab.com.
+ */
+
+package com.mbientlab.metawear.impl.platform;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import bolts.Task;
+import bolts.TaskCompletionSource;
+
+import static com.mbientlab.metawear.MetaWearBoard.METAWEAR_GATT_SERVICE;
+
+/**
+ * Simulated MetaMotion R that implements the GATT layer on a plain JVM.  The board answers module discovery, allocates
+ * ids for data processors, loggers, events, timers and macros, produces synthetic accelerometer, gyro, and sensor
+ * fusion samples at the configured output data rate, and records samples to its log memory.  Notifications are
+ * scheduled on connection events so that throughput, buffer overflows, packet loss, and disconnects can be exercised
+ * without hardware e.g. when load testing many boards from one process.
+ * <p>
+ * Data processors are allocated ids but not evaluated, and the magnetometer, barometer, ambient light sensor, gpio
+ * pins, and serial buses do not produce data.
+ */
+public class SimulatedBoard implements BtleGatt {
+    private static final ScheduledExecutorService DEFAULT_SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "SimulatedBoard");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final byte SWITCH = 0x01, LED = 0x02, ACCELEROMETER = 0x03, TEMPERATURE = 0x04, GPIO = 0x05,
+            HAPTIC = 0x08, DATA_PROCESSOR = 0x09, EVENT = 0x0a, LOGGING = 0x0b, TIMER = 0x0c, SERIAL_PASSTHROUGH = 0x0d,
+            MACRO = 0x0f, SETTINGS = 0x11, BAROMETER = 0x12, GYRO = 0x13, AMBIENT_LIGHT = 0x14, MAGNETOMETER = 0x15,
+            SENSOR_FUSION = 0x19, DEBUG = (byte) 0xfe;
+    private static final byte READ_INFO = (byte) 0x80, NO_ID = (byte) 0xff;
+    private static final byte[][] MODULE_INFO = new byte[][] {
+            {SWITCH, READ_INFO, 0x00, 0x00},
+            {LED, READ_INFO, 0x00, 0x00},
+            {ACCELEROMETER, READ_INFO, 0x01, 0x01},
+            {TEMPERATURE, READ_INFO, 0x01, 0x00, 0x00, 0x03, 0x01, 0x02},
+            {GPIO, READ_INFO, 0x00, 0x02, 0x03, 0x03, 0x03, 0x03, 0x01, 0x01, 0x01, 0x01},
+            {HAPTIC, READ_INFO, 0x00, 0x00},
+            {DATA_PROCESSOR, READ_INFO, 0x00, 0x03, 0x1c},
+            {EVENT, READ_INFO, 0x00, 0x00, 0x1c},
+            {LOGGING, READ_INFO, 0x00, 0x02, 0x08, (byte) 0x80, 0x2b, 0x00, 0x00},
+            {TIMER, READ_INFO, 0x00, 0x00, 0x08},
+            {SERIAL_PASSTHROUGH, READ_INFO, 0x00, 0x01},
+            {MACRO, READ_INFO, 0x00, 0x01, 0x08},
+            {SETTINGS, READ_INFO, 0x00, 0x01},
+            {BAROMETER, READ_INFO, 0x00, 0x00},
+            {GYRO, READ_INFO, 0x00, 0x01},
+            {AMBIENT_LIGHT, READ_INFO, 0x00, 0x00},
+            {MAGNETOMETER, READ_INFO, 0x00, 0x01},
+            {SENSOR_FUSION, READ_INFO, 0x00, 0x00, 0x03, 0x00, 0x06, 0x00, 0x02, 0x00, 0x01, 0x00},
+            {DEBUG, READ_INFO, 0x00, 0x00}
+    };
+
+    private static final float IDLE_INTERVAL = 100f, CONN_INTERVAL_STEP = 1.25f;
+    private static final short SUPERVISOR_TIMEOUT_STEP = 10;
+    private static final double TICK_TIME_STEP = (48.0 / 32768.0) * 1000.0;
+    private static final int LOG_ENTRY_SIZE = 9, MAX_SAMPLE_BACKLOG = 1000, MAX_EVENT_DEPTH = 4;
+
+    private static int key(byte module, byte register) {
+        return ((module & 0xff) << 8) | (register & 0xff);
+    }
+
+    private static byte[] packet(byte module, byte register, byte[] data) {
+        byte[] packet = new byte[data.length + 2];
+        packet[0] = module;
+        packet[1] = register;
+        System.arraycopy(data, 0, packet, 2, data.length);
+        return packet;
+    }
+
+    private static final class Outbound {
+        final byte[] value;
+        final boolean stream;
+
+        Outbound(byte[] value, boolean stream) {
+            this.value = value;
+            this.stream = stream;
+        }
+    }
+
+    private static final class Timer {
+        final int period;
+        final short repetitions;
+        final boolean immediate;
+        boolean active;
+        long next;
+        int fired;
+
+        Timer(byte[] config) {
+            ByteBuffer buffer = ByteBuffer.wrap(config).order(ByteOrder.LITTLE_ENDIAN);
+            period = Math.max(1, buffer.getInt(0));
+            repetitions = buffer.getShort(4);
+            immediate = config[6] != 0;
+        }
+    }
+
+    /**
+     * Sensor producing samples at a fixed rate while it is running.  Samples are computed lazily on each tick from the
+     * elapsed time so a slow scheduler does not change the sample count, up to {@link #MAX_SAMPLE_BACKLOG} samples
+     */
+    private abstract class Sensor {
+        private boolean active;
+        private float activeOdr;
+        private long startNanos, emitted;
+
+        abstract boolean running();
+        abstract float odr();
+        abstract void sample(long nanos, double seconds);
+
+        void advance(long now) {
+            float odr = running() ? odr() : 0f;
+            if (odr <= 0f) {
+                active = false;
+                return;
+            }
+            if (!active || odr != activeOdr) {
+                active = true;
+                activeOdr = odr;
+                startNanos = now;
+                emitted = 0;
+                return;
+            }
+
+            double period = 1e9 / odr;
+            long due = (long) ((now - startNanos) / period);
+            if (due - emitted > MAX_SAMPLE_BACKLOG) {
+                emitted = due - MAX_SAMPLE_BACKLOG;
+            }
+            for(; emitted < due; emitted++) {
+                long nanos = startNanos + (long) ((emitted + 1) * period);
+                sample(nanos, (nanos - bootNanos) / 1e9);
+            }
+        }
+    }
+
+    /**
+     * BMI160 style sensor with power, interrupt enable, and config registers plus a data register and a packed data
+     * register that combines 3 samples per notification
+     */
+    private abstract class Bmi160Sensor extends Sensor {
+        private final byte module, dataRegister, packedRegister;
+        private final byte[] packed = new byte[18];
+        private int nPacked;
+
+        Bmi160Sensor(byte module, byte dataRegister, byte packedRegister) {
+            this.module = module;
+            this.dataRegister = dataRegister;
+            this.packedRegister = packedRegister;
+        }
+
+        abstract float scale();
+        abstract double[] value(double seconds);
+
+        byte[] config() {
+            return register(module, (byte) 0x3);
+        }
+
+        @Override
+        boolean running() {
+            byte[] power = register(module, (byte) 0x1), interrupt = register(module, (byte) 0x2);
+            return power != null && power[0] == 1 && interrupt != null && interrupt[0] == 1;
+        }
+
+        @Override
+        void sample(long nanos, double seconds) {
+            double[] value = value(seconds);
+            ByteBuffer buffer = ByteBuffer.allocate(6).order(ByteOrder.LITTLE_ENDIAN);
+            for(double it: value) {
+                buffer.putShort((short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, Math.round(it * scale()))));
+            }
+            byte[] data = buffer.array();
+
+            dataReceived(module, dataRegister, NO_ID, nanos, data);
+            if (notifying(module, packedRegister)) {
+                System.arraycopy(data, 0, packed, nPacked * data.length, data.length);
+                nPacked++;
+                if (nPacked == 3) {
+                    stream(packet(module, packedRegister, packed.clone()));
+                    nPacked = 0;
+                }
+            } else {
+                nPacked = 0;
+            }
+        }
+    }
+
+    private final class Accelerometer extends Bmi160Sensor {
+        Accelerometer() {
+            super(ACCELEROMETER, (byte) 0x4, (byte) 0x1c);
+        }
+
+        @Override
+        float odr() {
+            byte[] config = config();
+            return (float) (0.78125 * Math.pow(2.0, ((config == null ? 0x8 : config[0] & 0xf) - 1)));
+        }
+
+        @Override
+        float scale() {
+            byte[] config = config();
+            switch(config == null ? 0x3 : config[1] & 0xf) {
+                case 0x5:
+                    return 32768f / 4f;
+                case 0x8:
+                    return 32768f / 8f;
+                case 0xc:
+                    return 32768f / 16f;
+                default:
+                    return 32768f / 2f;
+            }
+        }
+
+        @Override
+        double[] value(double seconds) {
+            double phase = 2 * Math.PI * 0.5 * seconds;
+            return new double[] {0.5 * Math.sin(phase), 0.5 * Math.cos(phase), 1.0};
+        }
+    }
+
+    private final class Gyro extends Bmi160Sensor {
+        Gyro() {
+            super(GYRO, (byte) 0x5, (byte) 0x7);
+        }
+
+        @Override
+        float odr() {
+            byte[] config = config();
+            return (float) (25.0 * Math.pow(2.0, ((config == null ? 0x8 : config[0] & 0xf) - 6)));
+        }
+
+        @Override
+        float scale() {
+            byte[] config = config();
+            return 32768f / (2000f / (1 << Math.min(4, config == null ? 0 : config[1] & 0x7)));
+        }
+
+        @Override
+        double[] value(double seconds) {
+            double phase = 2 * Math.PI * 0.5 * seconds;
+            return new double[] {90.0 * Math.sin(phase), 90.0 * Math.cos(phase), 0.0};
+        }
+    }
+
+    private final class SensorFusion extends Sensor {
+        @Override
+        boolean running() {
+            byte[] enable = register(SENSOR_FUSION, (byte) 0x1), mode = register(SENSOR_FUSION, (byte) 0x2);
+            return enable != null && enable[0] == 1 && mode != null && mode[0] != 0;
+        }
+
+        @Override
+        float odr() {
+            return 100f;
+        }
+
+        @Override
+        void sample(long nanos, double seconds) {
+            byte[] outputs = register(SENSOR_FUSION, (byte) 0x3);
+            int mask = outputs == null ? 0 : outputs[0];
+            double angle = 2 * Math.PI * 0.1 * seconds;
+
+            for(byte output = 0x4; output <= 0xa; output++) {
+                if ((mask & (1 << (output - 0x4))) == 0) {
+                    continue;
+                }
+
+                ByteBuffer buffer = ByteBuffer.allocate(output <= 0x6 ? 13 : (output <= 0x8 ? 16 : 12)).order(ByteOrder.LITTLE_ENDIAN);
+                switch(output) {
+                    case 0x4:
+                        buffer.putFloat(0f).putFloat(0f).putFloat(1000f).put((byte) 3);
+                        break;
+                    case 0x5:
+                        buffer.putFloat(0f).putFloat(0f).putFloat(36f).put((byte) 3);
+                        break;
+                    case 0x6:
+                        buffer.putFloat((float) (25 * Math.cos(angle))).putFloat((float) (25 * Math.sin(angle))).putFloat(-40f).put((byte) 3);
+                        break;
+                    case 0x7:
+                        buffer.putFloat((float) Math.cos(angle / 2)).putFloat(0f).putFloat(0f).putFloat((float) Math.sin(angle / 2));
+                        break;
+                    case 0x8:
+                        float heading = (float) Math.toDegrees(angle % (2 * Math.PI));
+                        buffer.putFloat(heading).putFloat(0f).putFloat(0f).putFloat(heading);
+                        break;
+                    case 0x9:
+                        buffer.putFloat(0f).putFloat(0f).putFloat(9.80665f);
+                        break;
+                    default:
+                        buffer.putFloat(0f).putFloat(0f).putFloat(0f);
+                        break;
+                }
+                dataReceived(SENSOR_FUSION, output, NO_ID, nanos, buffer.array());
+            }
+        }
+    }
+
+    private final ScheduledExecutorService scheduler;
+    private final long bootNanos = System.nanoTime();
+    private final Map<Byte, byte[]> moduleInfo = new HashMap<>();
+    private final Map<Integer, byte[]> registers = new HashMap<>();
+    private final Set<Integer> notifications = new HashSet<>();
+    private final List<Sensor> sensors = Arrays.asList(new Accelerometer(), new Gyro(), new SensorFusion());
+
+    private final TreeMap<Byte, byte[]> processors = new TreeMap<>(), loggers = new TreeMap<>(), events = new TreeMap<>(),
+            macros = new TreeMap<>();
+    private final TreeMap<Byte, Timer> timers = new TreeMap<>();
+    private byte[] pendingEvent;
+    private int eventDepth;
+
+    private byte[] logMemory = new byte[0];
+    private int logHead, logCount, maxLogEntries = 1 << 20;
+    private boolean logging, circularBuffer;
+    private byte resetUid;
+    private long readoutPosition, readoutRemaining, readoutNotifyDelta;
+
+    private Random random = new Random();
+    private String firmware = "1.5.0", modelNumber = "5", hardwareRevision = "0.5", serialNumber = "0F0F0F";
+    private int packetsPerEvent = 4, txBufferSize = 64, tickGeneration;
+    private boolean immediateWrites;
+    private float lossRate = 0f;
+    private short minInterval = 6, maxInterval = 12, latency = 0, supervisorTimeout = 600;
+
+    private final ArrayDeque<byte[]> writes = new ArrayDeque<>();
+    private final ArrayDeque<TaskCompletionSource<Void>> pendingWrites = new ArrayDeque<>();
+    private final ArrayDeque<Outbound> outbound = new ArrayDeque<>();
+    private int nStreamPackets;
+    private long nSent, nDropped, nLost;
+
+    private NotificationListener notificationListener;
+    private DisconnectHandler dcHandler;
+    private TaskCompletionSource<Void> remoteDisconnectTaskSource;
+    private boolean connected, powered, disconnectRequested;
+    private ScheduledFuture<?> nextTick;
+
+    /**
+     * Creates a simulated board driven by a shared daemon thread
+     */
+    public SimulatedBoard() {
+        this(DEFAULT_SCHEDULER);
+    }
+
+    /**
+     * Creates a simulated board driven by the given scheduler
+     * @param scheduler    Scheduler running the board's connection events
+     */
+    public SimulatedBoard(ScheduledExecutorService scheduler) {
+        this.scheduler = scheduler;
+        for(byte[] it: MODULE_INFO) {
+            moduleInfo.put(it[0], it);
+        }
+    }
+
+    /**
+     * Sets how many notifications the board can send per connection event, defaults to 4
+     * @param count    Packets per connection event
+     * @return Calling object
+     */
+    public synchronized SimulatedBoard packetsPerEvent(int count) {
+        packetsPerEvent = Math.max(1, count);
+        return this;
+    }
+    /**
+     * Sets the probability that a streamed notification is lost before reaching the host, defaults to 0
+     * @param rate    Value between [0, 1]
+     * @return Calling object
+     */
+    public synchronized SimulatedBoard lossRate(float rate) {
+        lossRate = Math.max(0f, Math.min(1f, rate));
+        return this;
+    }
+    /**
+     * Sets how many streamed notifications can be queued on the board before new ones are dropped, defaults to 64
+     * @param size    Queue capacity
+     * @return Calling object
+     */
+    public synchronized SimulatedBoard txBufferSize(int size) {
+        txBufferSize = Math.max(1, size);
+        return this;
+    }
+    /**
+     * Sets how many entries fit in the log memory, defaults to 2^20
+     * @param count    Log capacity
+     * @return Calling object
+     */
+    public synchronized SimulatedBoard logCapacity(int count) {
+        maxLogEntries = Math.max(1, count);
+        return this;
+    }
+    /**
+     * Seeds the random number generator used to simulate packet loss
+     * @param seed    Random seed
+     * @return Calling object
+     */
+    public synchronized SimulatedBoard seed(long seed) {
+        random = new Random(seed);
+        return this;
+    }
+    /**
+     * Sets whether host writes are handled as soon as they arrive rather than on the next connection event, defaults to
+     * false.  Responses are then sent without the connection interval's latency e.g. when benchmarking the API rather
+     * than the link.
+     * @param immediate    True to handle writes immediately
+     * @return Calling object
+     */
+    public synchronized SimulatedBoard immediateWrites(boolean immediate) {
+        immediateWrites = immediate;
+        return this;
+    }
+    /**
+     * Sets the firmware revision reported by the device information service, defaults to 1.5.0
+     * @param firmware    Firmware revision string
+     * @return Calling object
+     */
+    public synchronized SimulatedBoard firmware(String firmware) {
+        this.firmware = firmware;
+        return this;
+    }
+    /**
+     * Sets the serial number reported by the device information service
+     * @param serialNumber    Serial number string
+     * @return Calling object
+     */
+    public synchronized SimulatedBoard serialNumber(String serialNumber) {
+        this.serialNumber = serialNumber;
+        return this;
+    }
+
+    /**
+     * Number of notifications delivered to the host
+     * @return Sent count
+     */
+    public synchronized long sentCount() {
+        return nSent;
+    }
+    /**
+     * Number of streamed notifications dropped because the board's transmit queue was full
+     * @return Drop count
+     */
+    public synchronized long droppedCount() {
+        return nDropped;
+    }
+    /**
+     * Number of streamed notifications lost in transit as configured by {@link #lossRate(float)}
+     * @return Loss count
+     */
+    public synchronized long lostCount() {
+        return nLost;
+    }
+    /**
+     * Number of entries in the log memory
+     * @return Log entry count
+     */
+    public synchronized int logEntryCount() {
+        return logCount;
+    }
+    /**
+     * Current connection interval, in milliseconds
+     * @return Connection interval
+     */
+    public synchronized float connectionInterval() {
+        return maxInterval * CONN_INTERVAL_STEP;
+    }
+
+    /**
+     * Drops the connection without the board or host requesting it, as if the supervision timeout expired
+     * @param status    Status code passed to {@link DisconnectHandler#onUnexpectedDisconnect(int)}
+     */
+    public void dropConnection(int status) {
+        List<TaskCompletionSource<Void>> failed;
+        DisconnectHandler handler;
+        synchronized (this) {
+            if (!connected) {
+                return;
+            }
+            failed = closeLink();
+            handler = dcHandler;
+        }
+
+        for(TaskCompletionSource<Void> it: failed) {
+            it.setError(new IllegalStateException("Connection to the board was lost"));
+        }
+        if (handler != null) {
+            handler.onUnexpectedDisconnect(status);
+        }
+    }
+    /**
+     * Stops the board's clock; sensors stop sampling and the connection, if any, is dropped
+     */
+    public void powerOff() {
+        dropConnection(8);
+        synchronized (this) {
+            powered = false;
+            if (nextTick != null) {
+                nextTick.cancel(false);
+                nextTick = null;
+            }
+        }
+    }
+
+    @Override
+    public synchronized void onDisconnect(DisconnectHandler handler) {
+        dcHandler = handler;
+    }
+
+    @Override
+    public boolean serviceExists(UUID gattService) {
+        return METAWEAR_GATT_SERVICE.equals(gattService);
+    }
+
+    @Override
+    public synchronized Task<Void> writeCharacteristicAsync(BtleGattCharacteristic characteristic, WriteType type, byte[] value) {
+        if (!connected) {
+            return Task.forError(new IllegalStateException("Not connected to the board"));
+        }
+
+        TaskCompletionSource<Void> taskSource = new TaskCompletionSource<>();
+        writes.add(value.clone());
+        pendingWrites.add(taskSource);
+        if (immediateWrites && powered) {
+            // pull the next connection event forward, the event it replaces is skipped if it already started
+            if (nextTick != null) {
+                nextTick.cancel(false);
+            }
+            scheduleTick(0);
+        }
+        return taskSource.getTask();
+    }
+
+    @Override
+    public Task<byte[][]> readCharacteristicAsync(BtleGattCharacteristic[] characteristics) {
+        final byte[][] values = new byte[characteristics.length][];
+        synchronized (this) {
+            if (!connected) {
+                return Task.forError(new IllegalStateException("Not connected to the board"));
+            }
+            for(int i = 0; i < characteristics.length; i++) {
+                String value = deviceInformation(characteristics[i]);
+                if (value == null) {
+                    return Task.forError(new IllegalStateException("Characteristic " + characteristics[i].uuid + " does not exist"));
+                }
+                values[i] = value.getBytes();
+            }
+        }
+        return Task.delay((long) connectionInterval()).onSuccess(ignored -> values);
+    }
+
+    @Override
+    public Task<byte[]> readCharacteristicAsync(BtleGattCharacteristic characteristic) {
+        return readCharacteristicAsync(new BtleGattCharacteristic[] {characteristic}).onSuccess(task -> task.getResult()[0]);
+    }
+
+    @Override
+    public synchronized Task<Void> enableNotificationsAsync(BtleGattCharacteristic characteristic, NotificationListener listener) {
+        notificationListener = listener;
+        return Task.forResult(null);
+    }
+
+    @Override
+    public Task<Void> localDisconnectAsync() {
+        List<TaskCompletionSource<Void>> failed;
+        DisconnectHandler handler;
+        synchronized (this) {
+            if (!connected) {
+                return Task.forResult(null);
+            }
+            failed = closeLink();
+            handler = dcHandler;
+        }
+
+        for(TaskCompletionSource<Void> it: failed) {
+            it.setError(new IllegalStateException("Disconnected from the board"));
+        }
+        if (handler != null) {
+            handler.onDisconnect();
+        }
+        return Task.forResult(null);
+    }
+
+    @Override
+    public synchronized Task<Void> remoteDisconnectAsync() {
+        if (remoteDisconnectTaskSource == null) {
+            remoteDisconnectTaskSource = new TaskCompletionSource<>();
+        }
+        return remoteDisconnectTaskSource.getTask();
+    }
+
+    @Override
+    public Task<Void> connectAsync() {
+        long delay;
+        synchronized (this) {
+            if (connected) {
+                return Task.forResult(null);
+            }
+            if (!powered) {
+                powered = true;
+                scheduleTick(0);
+            }
+            delay = (long) (3 * connectionInterval());
+        }
+
+        return Task.delay(delay).onSuccess(ignored -> {
+            synchronized (SimulatedBoard.this) {
+                connected = true;
+                disconnectRequested = false;
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public Task<Integer> readRssiAsync() {
+        final int rssi;
+        synchronized (this) {
+            if (!connected) {
+                return Task.forError(new IllegalStateException("Not connected to the board"));
+            }
+            rssi = -50 - random.nextInt(20);
+        }
+        return Task.delay((long) connectionInterval()).onSuccess(ignored -> rssi);
+    }
+
+    private String deviceInformation(BtleGattCharacteristic characteristic) {
+        if (characteristic.equals(DeviceInformationService.FIRMWARE_REVISION)) {
+            return firmware;
+        } else if (characteristic.equals(DeviceInformationService.MODEL_NUMBER)) {
+            return modelNumber;
+        } else if (characteristic.equals(DeviceInformationService.HARDWARE_REVISION)) {
+            return hardwareRevision;
+        } else if (characteristic.equals(DeviceInformationService.MANUFACTURER_NAME)) {
+            return "MbientLab Inc";
+        } else if (characteristic.equals(DeviceInformationService.SERIAL_NUMBER)) {
+            return serialNumber;
+        }
+        return null;
+    }
+
+    private void scheduleTick(long delayMicros) {
+        final int generation = ++tickGeneration;
+        nextTick = scheduler.schedule(() -> connectionEvent(generation), delayMicros, TimeUnit.MICROSECONDS);
+    }
+
+    private List<TaskCompletionSource<Void>> closeLink() {
+        List<TaskCompletionSource<Void>> failed = new ArrayList<>(pendingWrites);
+        connected = false;
+        writes.clear();
+        pendingWrites.clear();
+        outbound.clear();
+        nStreamPackets = 0;
+        notifications.clear();
+        readoutRemaining = 0;
+        return failed;
+    }
+
+    /**
+     * Runs one connection event: host writes are applied, sensors and timers advance, and up to
+     * {@link #packetsPerEvent(int)} notifications are sent.  While disconnected, the board keeps sampling and logging
+     * on a slower idle tick.
+     */
+    private void connectionEvent(int generation) {
+        List<TaskCompletionSource<Void>> written = new ArrayList<>();
+        List<byte[]> delivered = new ArrayList<>();
+        NotificationListener listener;
+        boolean disconnect;
+
+        synchronized (this) {
+            if (!powered || generation != tickGeneration) {
+                return;
+            }
+
+            long now = System.nanoTime();
+            if (connected) {
+                while(!writes.isEmpty()) {
+                    execute(writes.poll(), true);
+                    written.add(pendingWrites.poll());
+                }
+            }
+            for(Sensor it: sensors) {
+                it.advance(now);
+            }
+            advanceTimers(now);
+
+            if (connected) {
+                fillReadout();
+
+                int budget = packetsPerEvent;
+                while(budget > 0 && !outbound.isEmpty()) {
+                    Outbound next = outbound.poll();
+                    budget--;
+                    if (next.stream) {
+                        nStreamPackets--;
+                        if (lossRate > 0f && random.nextFloat() < lossRate) {
+                            nLost++;
+                            continue;
+                        }
+                    }
+                    delivered.add(next.value);
+                }
+                nSent += delivered.size();
+            }
+
+            listener = notificationListener;
+            disconnect = connected && disconnectRequested;
+            scheduleTick((long) ((connected ? connectionInterval() : IDLE_INTERVAL) * 1000));
+        }
+
+        for(TaskCompletionSource<Void> it: written) {
+            it.setResult(null);
+        }
+        if (listener != null) {
+            for(byte[] it: delivered) {
+                listener.onChange(it);
+            }
+        }
+
+        if (disconnect) {
+            TaskCompletionSource<Void> taskSource;
+            DisconnectHandler handler;
+            List<TaskCompletionSource<Void>> failed;
+            synchronized (this) {
+                failed = closeLink();
+                taskSource = remoteDisconnectTaskSource;
+                remoteDisconnectTaskSource = null;
+                handler = dcHandler;
+            }
+
+            for(TaskCompletionSource<Void> it: failed) {
+                it.setError(new IllegalStateException("Board disconnected"));
+            }
+            if (handler != null) {
+                handler.onDisconnect();
+            }
+            if (taskSource != null) {
+                taskSource.setResult(null);
+            }
+        }
+    }
+
+    private void respond(byte[] value, boolean host) {
+        if (!host) {
+            stream(value);
+        } else if (connected) {
+            outbound.add(new Outbound(value, false));
+        }
+    }
+
+    private void stream(byte[] value) {
+        if (!connected) {
+            return;
+        }
+        if (nStreamPackets >= txBufferSize) {
+            nDropped++;
+        } else {
+            outbound.add(new Outbound(value, true));
+            nStreamPackets++;
+        }
+    }
+
+    private byte[] register(byte module, byte register) {
+        return registers.get(key(module, register));
+    }
+
+    private boolean notifying(byte module, byte register) {
+        return notifications.contains(key(module, register));
+    }
+
+    private static byte allocate(TreeMap<Byte, ?> entries, int capacity) {
+        for(int i = 0; i < capacity; i++) {
+            if (!entries.containsKey((byte) i)) {
+                return (byte) i;
+            }
+        }
+        return -1;
+    }
+
+    private int capacity(byte module) {
+        byte[] info = moduleInfo.get(module);
+        return info[4] & 0xff;
+    }
+
+    private long tick(long nanos) {
+        return ((long) (((nanos - bootNanos) / 1e6) / TICK_TIME_STEP)) & 0xffffffffL;
+    }
+
+    /**
+     * Handles a sample from a sensor or timer: streams it if notifications are enabled, records it in any matching
+     * loggers, and executes any matching events
+     */
+    private void dataReceived(byte module, byte register, byte id, long nanos, byte[] data) {
+        if (notifying(module, register)) {
+            stream(packet(module, register, id == NO_ID ? data : prepend(id, data)));
+        }
+
+        if (logging) {
+            for(Map.Entry<Byte, byte[]> it: loggers.entrySet()) {
+                byte[] trigger = it.getValue();
+                if (trigger[0] == module && trigger[1] == register && (trigger[2] == NO_ID || trigger[2] == id)) {
+                    int offset = trigger[3] & 0x1f, length = ((trigger[3] >> 5) & 0x3) + 1;
+                    byte[] entry = new byte[4];
+                    System.arraycopy(data, offset, entry, 0, Math.max(0, Math.min(length, data.length - offset)));
+                    log(it.getKey(), tick(nanos), entry);
+                }
+            }
+        }
+
+        if (eventDepth < MAX_EVENT_DEPTH) {
+            List<byte[]> commands = new ArrayList<>();
+            for(byte[] it: events.values()) {
+                if (it[0] == module && it[1] == register && (it[2] == NO_ID || it[2] == id)) {
+                    commands.add(packet(it[3], it[4], Arrays.copyOfRange(it, it.length - (it[5] & 0xff), it.length)));
+                }
+            }
+
+            eventDepth++;
+            for(byte[] it: commands) {
+                execute(it, false);
+            }
+            eventDepth--;
+        }
+    }
+
+    private static byte[] prepend(byte id, byte[] data) {
+        byte[] copy = new byte[data.length + 1];
+        copy[0] = id;
+        System.arraycopy(data, 0, copy, 1, data.length);
+        return copy;
+    }
+
+    private void log(byte id, long tick, byte[] data) {
+        int capacity = logMemory.length / LOG_ENTRY_SIZE;
+        if (logCount == capacity) {
+            if (capacity < maxLogEntries) {
+                byte[] expanded = new byte[Math.min(maxLogEntries, Math.max(64, capacity * 2)) * LOG_ENTRY_SIZE];
+                for(int i = 0; i < logCount; i++) {
+                    System.arraycopy(logMemory, ((logHead + i) % capacity) * LOG_ENTRY_SIZE, expanded, i * LOG_ENTRY_SIZE, LOG_ENTRY_SIZE);
+                }
+                logMemory = expanded;
+                logHead = 0;
+                capacity = expanded.length / LOG_ENTRY_SIZE;
+            } else if (circularBuffer) {
+                logHead = (logHead + 1) % capacity;
+                logCount--;
+            } else {
+                return;
+            }
+        }
+
+        int position = ((logHead + logCount) % capacity) * LOG_ENTRY_SIZE;
+        logMemory[position] = (byte) ((id & 0x1f) | (resetUid << 5));
+        ByteBuffer.wrap(logMemory, position + 1, 4).order(ByteOrder.LITTLE_ENDIAN).putInt((int) tick);
+        System.arraycopy(data, 0, logMemory, position + 5, 4);
+        logCount++;
+    }
+
+    private void removeLogEntries(long count) {
+        int capacity = logMemory.length / LOG_ENTRY_SIZE;
+        int removed = (int) Math.min(count, Math.min(readoutPosition, logCount));
+        if (capacity > 0) {
+            logHead = (logHead + removed) % capacity;
+        }
+        logCount -= removed;
+        readoutPosition = 0;
+    }
+
+    /**
+     * Queues log readout notifications, 2 entries per packet, while leaving room for streamed data
+     */
+    private void fillReadout() {
+        int capacity = logMemory.length / LOG_ENTRY_SIZE;
+        while(readoutRemaining > 0 && outbound.size() < packetsPerEvent) {
+            int count = (int) Math.min(2, readoutRemaining);
+            byte[] value = new byte[2 + count * LOG_ENTRY_SIZE];
+            value[0] = LOGGING;
+            value[1] = 0x7;
+            for(int i = 0; i < count; i++) {
+                int position = (int) ((logHead + readoutPosition + i) % capacity) * LOG_ENTRY_SIZE;
+                System.arraycopy(logMemory, position, value, 2 + i * LOG_ENTRY_SIZE, LOG_ENTRY_SIZE);
+            }
+            outbound.add(new Outbound(value, false));
+
+            long previous = readoutRemaining;
+            readoutPosition += count;
+            readoutRemaining -= count;
+            if (readoutRemaining == 0 || (readoutNotifyDelta > 0 && previous / readoutNotifyDelta != readoutRemaining / readoutNotifyDelta)) {
+                outbound.add(new Outbound(ByteBuffer.allocate(6).order(ByteOrder.LITTLE_ENDIAN)
+                        .put(LOGGING).put((byte) 0x8).putInt((int) readoutRemaining).array(), false));
+            }
+        }
+    }
+
+    private void advanceTimers(long now) {
+        double elapsed = (now - bootNanos) / 1e6;
+        for(Map.Entry<Byte, Timer> it: timers.entrySet()) {
+            Timer timer = it.getValue();
+            while(timer.active && elapsed >= timer.next) {
+                timer.fired++;
+                timer.next += timer.period;
+                if (timer.repetitions != -1 && timer.fired >= (timer.repetitions & 0xffff)) {
+                    timer.active = false;
+                }
+                dataReceived(TIMER, (byte) 0x6, it.getKey(), now, new byte[0]);
+            }
+        }
+    }
+
+    private void execute(byte[] command, boolean host) {
+        if (command.length < 2) {
+            return;
+        }
+
+        byte module = command[0], register = command[1];
+        byte[] params = Arrays.copyOfRange(command, 2, command.length);
+        if (register == READ_INFO) {
+            byte[] info = moduleInfo.get(module);
+            respond(info == null ? new byte[] {module, READ_INFO} : info.clone(), host);
+            return;
+        }
+        if (!moduleInfo.containsKey(module)) {
+            return;
+        }
+
+        boolean read = (register & 0x80) == 0x80;
+        byte id = params.length > 0 ? params[0] : NO_ID;
+        switch(module) {
+            case DATA_PROCESSOR:
+                if (register == 0x2) {
+                    byte next = allocate(processors, capacity(module));
+                    if (next != -1) {
+                        processors.put(next, params);
+                        respond(new byte[] {module, register, next}, host);
+                    }
+                    return;
+                } else if (register == (byte) 0x82) {
+                    respond(packet(module, register, processors.containsKey(id) ? processors.get(id) : new byte[0]), host);
+                    return;
+                } else if (register == 0x6) {
+                    processors.remove(id);
+                    return;
+                } else if (register == 0x7 && params.length >= 2) {
+                    return;
+                }
+                break;
+            case EVENT:
+                if (register == 0x2) {
+                    pendingEvent = params;
+                    return;
+                } else if (register == 0x3) {
+                    byte next = allocate(events, capacity(module));
+                    if (pendingEvent != null && next != -1) {
+                        byte[] entry = Arrays.copyOf(pendingEvent, pendingEvent.length + params.length);
+                        System.arraycopy(params, 0, entry, pendingEvent.length, params.length);
+                        events.put(next, entry);
+                        respond(new byte[] {module, 0x2, next}, host);
+                    }
+                    pendingEvent = null;
+                    return;
+                } else if (register == (byte) 0x82) {
+                    respond(packet(module, register, events.containsKey(id) ? events.get(id) : new byte[0]), host);
+                    return;
+                } else if (register == 0x4) {
+                    events.remove(id);
+                    return;
+                } else if (register == 0x5) {
+                    events.clear();
+                    return;
+                }
+                break;
+            case LOGGING:
+                switch(register) {
+                    case 0x1:
+                        logging = id == 1;
+                        return;
+                    case 0x2: {
+                        byte next = allocate(loggers, capacity(module));
+                        if (next != -1) {
+                            loggers.put(next, params);
+                            respond(new byte[] {module, register, next}, host);
+                        }
+                        return;
+                    }
+                    case (byte) 0x82:
+                        respond(packet(module, register, loggers.containsKey(id) ? loggers.get(id) : new byte[0]), host);
+                        return;
+                    case 0x3:
+                        loggers.remove(id);
+                        return;
+                    case (byte) 0x84:
+                        respond(ByteBuffer.allocate(7).order(ByteOrder.LITTLE_ENDIAN).put(module).put(register)
+                                .putInt((int) tick(System.nanoTime())).put(resetUid).array(), host);
+                        return;
+                    case (byte) 0x85:
+                        respond(ByteBuffer.allocate(6).order(ByteOrder.LITTLE_ENDIAN).put(module).put(register).putInt(logCount).array(), host);
+                        return;
+                    case 0x6: {
+                        ByteBuffer buffer = ByteBuffer.wrap(params).order(ByteOrder.LITTLE_ENDIAN);
+                        readoutPosition = 0;
+                        readoutRemaining = Math.min(logCount, buffer.getInt(0) & 0xffffffffL);
+                        readoutNotifyDelta = params.length >= 8 ? buffer.getInt(4) & 0xffffffffL : 0;
+                        if (readoutRemaining == 0) {
+                            respond(new byte[] {module, 0x8, 0, 0, 0, 0}, host);
+                        }
+                        return;
+                    }
+                    case 0x9:
+                        removeLogEntries(ByteBuffer.wrap(params).order(ByteOrder.LITTLE_ENDIAN).getInt(0) & 0xffffffffL);
+                        return;
+                    case 0xa:
+                        loggers.clear();
+                        return;
+                    case 0xb:
+                        circularBuffer = id == 1;
+                        return;
+                }
+                break;
+            case TIMER:
+                if (register == 0x2) {
+                    byte next = allocate(timers, capacity(module));
+                    if (next != -1) {
+                        timers.put(next, new Timer(params));
+                        respond(new byte[] {module, register, next}, host);
+                    }
+                    return;
+                }
+
+                Timer timer = timers.get(id);
+                if (timer != null && register == 0x3) {
+                    timer.active = true;
+                    timer.fired = 0;
+                    timer.next = (long) ((System.nanoTime() - bootNanos) / 1e6) + (timer.immediate ? 0 : timer.period);
+                } else if (timer != null && register == 0x4) {
+                    timer.active = false;
+                } else if (register == 0x5) {
+                    timers.remove(id);
+                }
+                return;
+            case MACRO:
+                if (register == 0x2) {
+                    byte next = allocate(macros, capacity(module));
+                    if (next != -1) {
+                        macros.put(next, params);
+                        respond(new byte[] {module, register, next}, host);
+                    }
+                    return;
+                } else if (register == 0x8) {
+                    macros.clear();
+                    return;
+                }
+                break;
+            case SETTINGS:
+                if (register == 0x9 && params.length >= 8) {
+                    ByteBuffer buffer = ByteBuffer.wrap(params).order(ByteOrder.LITTLE_ENDIAN);
+                    minInterval = (short) Math.max(6, buffer.getShort(0));
+                    maxInterval = (short) Math.max(minInterval, buffer.getShort(2));
+                    latency = buffer.getShort(4);
+                    supervisorTimeout = buffer.getShort(6);
+                    return;
+                } else if (register == (byte) 0x89) {
+                    respond(ByteBuffer.allocate(10).order(ByteOrder.LITTLE_ENDIAN).put(module).put(register)
+                            .putShort(minInterval).putShort(maxInterval).putShort(latency).putShort(supervisorTimeout).array(), host);
+                    return;
+                }
+                break;
+            case TEMPERATURE:
+                if (register == (byte) 0x81) {
+                    respond(ByteBuffer.allocate(5).order(ByteOrder.LITTLE_ENDIAN).put(module).put(register).put(id)
+                            .putShort((short) (25 * 8)).array(), host);
+                    return;
+                }
+                break;
+            case DEBUG:
+                if (register == 0x1) {
+                    reset();
+                }
+                if (register == 0x1 || register == 0x2 || register == 0x6) {
+                    disconnectRequested = true;
+                    return;
+                }
+                break;
+        }
+
+        if (read) {
+            byte[] value = registers.get(key(module, (byte) (register & 0x7f)));
+            if (value != null) {
+                respond(packet(module, register, value), host);
+            }
+        } else if (params.length == 1 && (params[0] == 0 || params[0] == 1) && isDataRegister(module, register)) {
+            if (params[0] == 1) {
+                notifications.add(key(module, register));
+            } else {
+                notifications.remove(key(module, register));
+            }
+        } else {
+            registers.put(key(module, register), params);
+        }
+    }
+
+    private static boolean isDataRegister(byte module, byte register) {
+        switch(module) {
+            case ACCELEROMETER:
+                return register == 0x4 || register == 0x1c;
+            case GYRO:
+                return register == 0x5 || register == 0x7;
+            case SENSOR_FUSION:
+                return register >= 0x4 && register <= 0xa;
+            default:
+                return false;
+        }
+    }
+
+    private void reset() {
+        registers.clear();
+        notifications.clear();
+        processors.clear();
+        loggers.clear();
+        events.clear();
+        macros.clear();
+        timers.clear();
+        logging = false;
+        circularBuffer = false;
+        resetUid = (byte) ((resetUid + 1) & 0x7);
+    }
+}
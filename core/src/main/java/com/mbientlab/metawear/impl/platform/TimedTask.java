@@ -0,0 +1,128 @@
+package com.mbientlab.metawear.impl.platform;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeoutException;
+
+import bolts.CancellationTokenSource;
+import bolts.Task;
+import bolts.TaskCompletionSource;
+
+/**
+ * Created by eric on 12/8/17.
+ */
+public class TimedTask<T> {
+    private TaskCompletionSource<T> taskSource;
+    private CancellationTokenSource cts;
+    private RttEstimator estimator;
+    private long start;
+    private boolean retransmit;
+
+    private final BoardExecutor executor;
+
+    public TimedTask() {
+        this(BoardExecutor.IMMEDIATE);
+    }
+
+    public TimedTask(BoardExecutor executor) {
+        this.executor = executor;
+    }
+
+    public Task<T> execute(String msgFormat, long timeout, Runnable action) {
+        if (taskSource != null && !taskSource.getTask().isCompleted()) {
+            return taskSource.getTask();
+        }
+
+        estimator = null;
+        return start(msgFormat, timeout, action);
+    }
+
+    private Task<T> start(String msgFormat, long timeout, Runnable action) {
+        cts = new CancellationTokenSource();
+        taskSource = new TaskCompletionSource<>();
+        start = System.nanoTime();
+        action.run();
+
+        if (timeout != 0) {
+            final ArrayList<Task<?>> tasks = new ArrayList<>();
+            tasks.add(taskSource.getTask());
+            tasks.add(executor.delay(timeout, cts.getToken()));
+
+            Task.whenAny(tasks).continueWith(task -> {
+                if (task.getResult() != tasks.get(0)) {
+                    setError(new TimeoutException(String.format(msgFormat, timeout)));
+                } else {
+                    cts.cancel();
+                }
+                return null;
+            }, executor);
+        }
+        return taskSource.getTask();
+    }
+
+    /**
+     * Variant of {@link #execute(String, long, Runnable)} that takes its timeout from the estimator and feeds the
+     * measured round trip back into it
+     */
+    public Task<T> execute(String msgFormat, RttEstimator estimator, Runnable action) {
+        return execute(msgFormat, estimator, 0, action);
+    }
+
+    /**
+     * Same as {@link #execute(String, RttEstimator, Runnable)} except the action is rerun up to <code>retries</code>
+     * times if a response is not received.  Only use for idempotent requests.  Round trips of retransmitted requests
+     * are not sampled as the response cannot be matched to a specific attempt.
+     */
+    public Task<T> execute(String msgFormat, RttEstimator estimator, int retries, Runnable action) {
+        if (taskSource != null && !taskSource.getTask().isCompleted()) {
+            return taskSource.getTask();
+        }
+
+        return attempt(msgFormat, estimator, 0L, retries, false, action);
+    }
+
+    /**
+     * Same as {@link #execute(String, RttEstimator, Runnable)} except the timeout is never shorter than
+     * <code>minTimeout</code>.  Use for requests that create state on the board, where giving up on a slow response
+     * leaves behind an object the caller does not know about.
+     */
+    public Task<T> execute(String msgFormat, long minTimeout, RttEstimator estimator, Runnable action) {
+        if (taskSource != null && !taskSource.getTask().isCompleted()) {
+            return taskSource.getTask();
+        }
+
+        return attempt(msgFormat, estimator, minTimeout, 0, false, action);
+    }
+
+    private Task<T> attempt(String msgFormat, RttEstimator estimator, long minTimeout, int remaining, boolean retransmit, Runnable action) {
+        this.estimator = estimator;
+        this.retransmit = retransmit;
+
+        return start(msgFormat, Math.max(minTimeout, estimator.timeout()), action).continueWithTask(task -> {
+            if (task.isFaulted() && task.getError() instanceof TimeoutException) {
+                estimator.backoff();
+                if (remaining > 0) {
+                    return attempt(msgFormat, estimator, minTimeout, remaining - 1, true, action);
+                }
+            }
+            return task;
+        }, executor);
+    }
+
+    public boolean isCompleted() {
+        return taskSource != null && taskSource.getTask().isCompleted();
+    }
+
+    public void cancel() {
+        taskSource.trySetCancelled();
+    }
+
+    public void setResult(T result) {
+        if (taskSource.trySetResult(result) && estimator != null && !retransmit) {
+            estimator.addSample((System.nanoTime() - start) / 1000000L);
+        }
+    }
+
+    public void setError(Exception error) {
+        taskSource.trySetError(error);
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2014-2015 MbientLab Inc. All rights reserved.
+ *
+ * IMPORTANT: Your use of this Software is limited to those specific rights granted under the terms of a software
+ * license agreement between the user who downloaded the software, his/her employer (which must be your
+ * employer) and MbientLab Inc, (the "License").  You may not use this Software unless you agree to abide by the
+ * terms of the License which can be found at www.mbientlab.com/terms.  The License limits your use, and you
+ * acknowledge, that the Software may be modified, copied, and distributed when used in conjunction with an
+ * MbientLab Inc, product.  Other than for the foregoing purpose, you may not use, reproduce, copy, prepare
+ * derivative works of, modify, distribute, perform, display or sell this Software and/or its documentation for any
+ * purpose.
+ *
+ * YOU FURTHER ACKNOWLEDGE AND AGREE THAT THE SOFTWARE AND DOCUMENTATION ARE PROVIDED "AS IS" WITHOUT WARRANTY
+ * OF ANY KIND, EITHER EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION, ANY WARRANTY OF MERCHANTABILITY, TITLE,
+ * NON-INFRINGEMENT AND FITNESS FOR A PARTICULAR PURPOSE. IN NO EVENT SHALL MBIENTLAB OR ITS LICENSORS BE LIABLE OR
+ * OBLIGATED UNDER CONTRACT, NEGLIGENCE, STRICT LIABILITY, CONTRIBUTION, BREACH OF WARRANTY, OR OTHER LEGAL EQUITABLE
+ * THEORY ANY DIRECT OR INDIRECT DAMAGES OR EXPENSES INCLUDING BUT NOT LIMITED TO ANY INCIDENTAL, SPECIAL, INDIRECT,
+ * PUNITIVE OR CONSEQUENTIAL DAMAGES, LOST PROFITS OR LOST DATA, COST OF PROCUREMENT OF SUBSTITUTE GOODS, TECHNOLOGY,
+ * SERVICES, OR ANY CLAIMS BY THIRD PARTIES (INCLUDING BUT NOT LIMITED TO ANY DEFENSE THEREOF), OR OTHER SIMILAR COSTS.
+ *
+ * Should you have any questions regarding your right to use this Software, contact MbientLab via email:
+ * hello@mbientlab.com.
+ */
+
+package com.mbientlab.metawear.impl.platform;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+
+import bolts.CancellationTokenSource;
+import bolts.Task;
+import bolts.TaskCompletionSource;
+
+/**
+ * Variant of {@link TimedTask} that allows several requests to be in flight at once.  Responses must arrive in the
+ * same order the requests were sent and are matched to the oldest pending request.  Only the oldest request is timed,
+ * and once it times out every pending request fails as later responses can no longer be matched.
+ */
+public class TimedTaskPipeline<T> {
+    private static class Pending<T> {
+        final TaskCompletionSource<T> taskSource = new TaskCompletionSource<>();
+        final CancellationTokenSource cts = new CancellationTokenSource();
+        final String msgFormat;
+        final RttEstimator estimator;
+        final long start = System.nanoTime();
+        // round trips of requests queued behind others include the wait so are not sampled
+        final boolean sample;
+
+        Pending(String msgFormat, RttEstimator estimator, boolean sample) {
+            this.msgFormat = msgFormat;
+            this.estimator = estimator;
+            this.sample = sample;
+        }
+    }
+
+    private final BoardExecutor executor;
+    private final ArrayDeque<Pending<T>> pending = new ArrayDeque<>();
+
+    public TimedTaskPipeline(BoardExecutor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Sends a request without waiting for the responses of earlier ones
+     * @param msgFormat    Timeout message, formatted with the timeout in milliseconds
+     * @param estimator    Estimator the timeout is taken from and round trips are fed back into
+     * @param action       Sends the request
+     * @return Task that completes with the response matching this request
+     */
+    public Task<T> execute(String msgFormat, RttEstimator estimator, Runnable action) {
+        boolean head;
+        Pending<T> request;
+        synchronized (pending) {
+            head = pending.isEmpty();
+            request = new Pending<>(msgFormat, estimator, head);
+            pending.add(request);
+        }
+
+        action.run();
+        if (head) {
+            startTimer(request);
+        }
+        return request.taskSource.getTask();
+    }
+
+    private void startTimer(final Pending<T> request) {
+        final long timeout = request.estimator.timeout();
+        executor.delay(timeout, request.cts.getToken()).continueWith(task -> {
+            if (!task.isCancelled()) {
+                timedOut(request, timeout);
+            }
+            return null;
+        }, executor);
+    }
+
+    private void timedOut(Pending<T> request, long timeout) {
+        List<Pending<T>> failed;
+        synchronized (pending) {
+            if (pending.peek() != request) {
+                return;
+            }
+            failed = new ArrayList<>(pending);
+            pending.clear();
+        }
+
+        request.estimator.backoff();
+        for(Pending<T> it: failed) {
+            it.taskSource.trySetError(new TimeoutException(String.format(it.msgFormat, timeout)));
+        }
+    }
+
+    /**
+     * Completes the oldest pending request, responses that arrive when nothing is pending are ignored
+     * @param result    Response received from the board
+     */
+    public void setResult(T result) {
+        Pending<T> request, next;
+        synchronized (pending) {
+            request = pending.poll();
+            next = pending.peek();
+        }
+        if (request == null) {
+            return;
+        }
+
+        request.cts.cancel();
+        if (next != null) {
+            startTimer(next);
+        }
+        if (request.taskSource.trySetResult(result) && request.sample) {
+            request.estimator.addSample((System.nanoTime() - request.start) / 1000000L);
+        }
+    }
+}
@@ -27,6 +27,8 @@ package com.mbientlab.metawear.module;
 import com.mbientlab.metawear.MetaWearBoard.Module;
 
 import java.util.Calendar;
+import java.util.Locale;
+import java.util.concurrent.Executor;
 
 import bolts.Task;
 
@@ -53,7 +55,11 @@ public interface Logging extends Module {
      */
     enum DownloadError {
         UNKNOWN_LOG_ENTRY,
-        UNHANDLED_LOG_DATA
+        UNHANDLED_LOG_DATA,
+        /**
+         * Data split across multiple log entries could not be reassembled as some entries are missing
+         */
+        INCOMPLETE_LOG_ENTRY
     }
     /**
      * Handler for processing download errors
@@ -69,6 +75,79 @@ public interface Logging extends Module {
         void receivedError(DownloadError errorType, byte logId, Calendar timestamp, byte[] data);
     }
 
+    /**
+     * Snapshot of the progress and throughput of a log download
+     */
+    final class DownloadMetrics {
+        /**
+         * True if the download is still in progress
+         */
+        public final boolean active;
+        /**
+         * Number of entries to download, 0 until the board has reported it
+         */
+        public final long totalEntries;
+        /**
+         * Entries received so far and the estimated number still to come
+         */
+        public final long entriesReceived, entriesLeft;
+        /**
+         * Bytes received from the board so far
+         */
+        public final long bytesReceived;
+        /**
+         * Time since the download started, in milliseconds
+         */
+        public final long elapsed;
+        /**
+         * Smoothed download rates
+         */
+        public final float entriesPerSecond, bytesPerSecond;
+        /**
+         * Smoothed time, in milliseconds, between the board reporting a completed page and the next page of data arriving,
+         * 0 if no pages have been confirmed
+         */
+        public final float pageConfirmRtt;
+        /**
+         * Average time, in microseconds, spent decoding an entry and passing it to its subscriber
+         */
+        public final float decodeTimePerEntry;
+        /**
+         * Entries that could not be merged with the rest of their data, and entries that did not match a logger or subscriber
+         */
+        public final long droppedEntries, unknownEntries;
+        /**
+         * Estimated time, in milliseconds, until the download finishes, -1 if it cannot be estimated yet
+         */
+        public final long eta;
+
+        public DownloadMetrics(boolean active, long totalEntries, long entriesReceived, long entriesLeft, long bytesReceived, long elapsed,
+                               float entriesPerSecond, float bytesPerSecond, float pageConfirmRtt, float decodeTimePerEntry,
+                               long droppedEntries, long unknownEntries, long eta) {
+            this.active = active;
+            this.totalEntries = totalEntries;
+            this.entriesReceived = entriesReceived;
+            this.entriesLeft = entriesLeft;
+            this.bytesReceived = bytesReceived;
+            this.elapsed = elapsed;
+            this.entriesPerSecond = entriesPerSecond;
+            this.bytesPerSecond = bytesPerSecond;
+            this.pageConfirmRtt = pageConfirmRtt;
+            this.decodeTimePerEntry = decodeTimePerEntry;
+            this.droppedEntries = droppedEntries;
+            this.unknownEntries = unknownEntries;
+            this.eta = eta;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "{active: %s, entries: %d/%d, left: %d, bytes: %d, elapsed: %dms, rate: %.1f entries/s, %.1f B/s, " +
+                            "page confirm: %.1fms, decode: %.1fus, dropped: %d, unknown: %d, eta: %dms}",
+                    active, entriesReceived, totalEntries, entriesLeft, bytesReceived, elapsed, entriesPerSecond, bytesPerSecond,
+                    pageConfirmRtt, decodeTimePerEntry, droppedEntries, unknownEntries, eta);
+        }
+    }
+
     /**
      * Start logging sensor data
      * @param overwrite    True if older entries should be overwritten when the logger is full
@@ -86,6 +165,20 @@ public interface Logging extends Module {
      * @return Task that will complete when the download has finished
      */
     Task<Void> downloadAsync(int nUpdates, LogDownloadUpdateHandler updateHandler, LogDownloadErrorHandler errorHandler);
+    /**
+     * Variant of {@link #downloadAsync(int, LogDownloadUpdateHandler, LogDownloadErrorHandler)} that decodes the downloaded
+     * data on the given executor.  Entries are split by logger; each logger's subscriber receives its data in order
+     * but different loggers are processed concurrently, so subscribers must not share unsynchronized state.  Routes
+     * must not be added or removed until the download has finished.  Errors can be reported from the decoder threads
+     * and the thread receiving the log data; calls to <code>errorHandler</code> never overlap but are not made on a
+     * single thread.
+     * @param decoder           Executor to decode and dispatch the log data on
+     * @param nUpdates          How many progress updates to send to {@link LogDownloadUpdateHandler#receivedUpdate(long, long)}
+     * @param updateHandler     Handler to accept download notifications
+     * @param errorHandler      Handler to process errors encountered during the download
+     * @return Task that will complete once all downloaded data has been passed to the subscribers
+     */
+    Task<Void> downloadAsync(Executor decoder, int nUpdates, LogDownloadUpdateHandler updateHandler, LogDownloadErrorHandler errorHandler);
     /**
      * Download saved data from the flash memory with periodic progress updates
      * @param nUpdates          How many progress updates to send to {@link LogDownloadUpdateHandler#receivedUpdate(long, long)}
@@ -104,6 +197,17 @@ public interface Logging extends Module {
      * @return Task that will complete when the download has finished
      */
     Task<Void> downloadAsync();
+    /**
+     * Reads how many entries are stored in the flash memory without downloading them
+     * @return Task holding the number of entries, failed with an IllegalStateException if a download is in progress
+     */
+    Task<Long> readEntryCountAsync();
+    /**
+     * Retrieves the metrics of the current, or most recent, log download.  Values are updated as data is received so this
+     * can be polled from any thread while the download is running.
+     * @return Metrics snapshot
+     */
+    DownloadMetrics getDownloadMetrics();
     /**
      * Clear all stored logged data from the board.  The erase operation will not be performed until
      * you disconnect from the board.
@@ -27,6 +27,8 @@ package com.mbientlab.metawear.module;
 import com.mbientlab.metawear.DataProducer;
 import com.mbientlab.metawear.MetaWearBoard.Module;
 
+import java.util.List;
+
 import bolts.Task;
 
 /**
@@ -47,6 +49,24 @@ public interface SerialPassthrough extends Module {
         void read(byte deviceAddr, byte registerAddr);
     }
 
+    /**
+     * Wrapper class describing a contiguous block of registers on an I2C device
+     */
+    final class I2cRegisterBlock {
+        /** Address of the slave device */
+        public final byte deviceAddr;
+        /** First register of the block */
+        public final byte registerAddr;
+        /** How many bytes to read */
+        public final byte length;
+
+        public I2cRegisterBlock(byte deviceAddr, byte registerAddr, byte length) {
+            this.deviceAddr = deviceAddr;
+            this.registerAddr = registerAddr;
+            this.length = length;
+        }
+    }
+
     /**
      * Supported SPI frequencies
      * @author Eric Tsai
@@ -170,6 +190,13 @@ public interface SerialPassthrough extends Module {
      * @return Task holding the returned value
      */
     Task<byte[]> readI2cAsync(byte deviceAddr, byte registerAddr, byte length);
+    /**
+     * Read multiple register blocks via the I2C bus.  The reads are pipelined rather than waiting for each response
+     * before sending the next request, and the task completes once all blocks have been received.
+     * @param blocks    Register blocks to read
+     * @return Task holding the data for each block, in the same order as the {@code blocks} parameter
+     */
+    Task<List<byte[]>> readI2cAsync(List<I2cRegisterBlock> blocks);
 
     /**
      * Get an object representing the SPI data corresponding to the id.  If the id value cannot be matched
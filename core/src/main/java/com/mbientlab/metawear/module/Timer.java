@@ -25,7 +25,10 @@
 package com.mbientlab.metawear.module;
 
 import com.mbientlab.metawear.CodeBlock;
+import com.mbientlab.metawear.ForcedDataProducer;
 import com.mbientlab.metawear.MetaWearBoard.Module;
+import com.mbientlab.metawear.Route;
+import com.mbientlab.metawear.Subscriber;
 
 import bolts.Task;
 
@@ -63,6 +66,67 @@ public interface Timer extends Module {
         void remove();
     }
 
+    /**
+     * Group of scheduled tasks that periodically read forced data producers on-board, streaming the data
+     * to one subscriber
+     */
+    interface Sampler {
+        /**
+         * Start sampling the producers
+         */
+        void start();
+        /**
+         * Stop sampling the producers
+         */
+        void stop();
+        /**
+         * Checks if this object represents an active sampler
+         * @return True if the scheduled tasks and routes are still on-board
+         */
+        boolean isActive();
+        /**
+         * Get the scheduled tasks driving the sampler, one task per distinct sampling period
+         * @return Array of scheduled tasks
+         */
+        ScheduledTask[] scheduledTasks();
+        /**
+         * Get the routes streaming the sampled data, one route per producer
+         * @return Array of routes
+         */
+        Route[] routes();
+        /**
+         * Removes the scheduled tasks and routes from the board
+         */
+        void remove();
+    }
+    /**
+     * Builder to configure a {@link Sampler}
+     */
+    interface SamplerBuilder {
+        /**
+         * Read a producer at a target frequency.  Producers whose frequencies round to the same period share
+         * one scheduled task.  If the producer was already added, the new frequency replaces the old value.
+         * @param producer     Producer to read
+         * @param frequency    How often to read the producer, in Hz
+         * @return Calling object
+         */
+        SamplerBuilder sample(ForcedDataProducer producer, float frequency);
+        /**
+         * Create the routes and scheduled tasks on-board.  The first environment value passed to the subscriber is
+         * the {@link ForcedDataProducer} the data came from.  If any step fails, everything created so far is
+         * removed.
+         * @param subscriber    Subscriber to receive the data from all producers
+         * @return Task holding the sampler if successful
+         */
+        Task<Sampler> commitAsync(Subscriber subscriber);
+    }
+
+    /**
+     * Create a sampler that reads forced data producers on-board, removing the need to call
+     * {@link ForcedDataProducer#read()} from the local device
+     * @return Builder to configure the sampler
+     */
+    SamplerBuilder sampler();
     /**
      * Schedule a task to be indefinitely executed on-board at fixed intervals
      * @param period    How often to execute the task, in milliseconds
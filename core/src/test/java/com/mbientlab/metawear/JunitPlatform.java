@@ -61,6 +61,13 @@ public class JunitPlatform implements IO, BtleGatt {
         void disconnected();
         void sendMockResponse(byte[] response);
     }
+    interface CommandHandler {
+        /**
+         * Called for each command written to the board
+         * @return True if the command was handled, skipping the default responses
+         */
+        boolean onCommand(byte[] value);
+    }
 
     public int nConnects = 0, nDisconnects = 0;
     public MetaWearBoardInfo boardInfo= new MetaWearBoardInfo();
@@ -80,6 +87,7 @@ public class JunitPlatform implements IO, BtleGatt {
     private final ArrayList<BtleGattCharacteristic> gattCharReadHistory = new ArrayList<>();
     NotificationListener notificationListener;
     DisconnectHandler dcHandler;
+    CommandHandler commandHandler;
 
     public JunitPlatform(MwBridge bridge) {
         this.bridge= bridge;
@@ -126,6 +134,10 @@ public class JunitPlatform implements IO, BtleGatt {
 
     @Override
     public Task<Void> writeCharacteristicAsync(BtleGattCharacteristic gattCharr, WriteType writeType, byte[] value) {
+        if (commandHandler != null && commandHandler.onCommand(value)) {
+            commandHistory.add(value);
+            return Task.forResult(null);
+        }
         if (!customResponses.isEmpty()) {
             for (int i = 2; i < Math.min(3, value.length) + 1; i++) {
                 byte[] prefix = new byte[i];
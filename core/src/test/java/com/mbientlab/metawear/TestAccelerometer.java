@@ -298,6 +298,29 @@ public class TestAccelerometer extends UnitTestBase {
         assertEquals(expected, actual.get());
     }
 
+    @Test
+    public void rescaleAfterRangeChange() {
+        final byte[] response= new byte[] {0x03, 0x04, 0x16, (byte) 0xc4, (byte) 0x94, (byte) 0xa2, 0x2a, (byte) 0xd0};
+        final Capture<Acceleration> actual= new Capture<>();
+
+        accelerometer.configure()
+                .range(4f)
+                .commit();
+        accelerometer.acceleration().addRouteAsync(source -> source.stream((data, env) -> actual.set(data.value(Acceleration.class))));
+
+        sendMockResponse(response);
+        Acceleration first = actual.get();
+
+        accelerometer.configure()
+                .range(8f)
+                .commit();
+        sendMockResponse(response);
+
+        // mma8452q data is in milli-g regardless of range
+        float ratio = accelClass.equals(AccelerometerMma8452q.class) ? 1f : 2f;
+        assertEquals(first.x() * ratio, actual.get().x(), 0.001f);
+    }
+
     @Test
     public void receiveSingleAxisAccData() {
         float[] expected= null;
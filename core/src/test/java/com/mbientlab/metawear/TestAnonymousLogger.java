@@ -12,6 +12,8 @@ import org.junit.Test;
 import org.junit.experimental.runners.Enclosed;
 import org.junit.runner.RunWith;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.TimeoutException;
 
 import bolts.Capture;
@@ -210,6 +212,27 @@ public class TestAnonymousLogger {
             assertEquals("acceleration:rms?id=0:accumulate?id=1:buffer-state?id=3", task.getResult()[1].identifier());
         }
 
+        @Test
+        public void pullSharedProcessorsOnce() throws Exception {
+            byte[][] expected = new byte[][] {
+                    {0x09, (byte) 0x82, 0x02},
+                    {0x09, (byte) 0x82, 0x01},
+                    {0x09, (byte) 0x82, 0x00},
+                    {0x09, (byte) 0x82, 0x03}
+            };
+
+            connectToBoard();
+            retrieveLoggers(mwBoard);
+
+            List<byte[]> actual = new ArrayList<>();
+            for(byte[] it: junitPlatform.getCommands()) {
+                if (it[0] == 0x09 && it[1] == (byte) 0x82) {
+                    actual.add(it);
+                }
+            }
+            assertArrayEquals(expected, actual.toArray(new byte[0][]));
+        }
+
         @Test
         public void handleDownload() throws Exception {
             connectToBoard();
@@ -0,0 +1,430 @@
+/*
+ * Copyright 2014-2015 MbientLab Inc. All rights reserved.
+ *
+ * IMPORTANT: Your use of this Software is limited to those specific rights granted under the terms of a software
+ * license agreement between the user who downloaded the software, his/her employer (which must be your
+ * employer) and MbientLab Inc, (the "License").  You may not use this Software unless you agree to abide by the
+ * terms of the License which can be found at www.mbientlab.com/terms.  The License limits your use, and you
+ * acknowledge, that the Software may be modified, copied, and distributed when used in conjunction with an
+ * MbientLab Inc, product.  Other than for the foregoing purpose, you may not use, reproduce, copy, prepare
+ * derivative works of, modify, distribute, perform, display or sell this Software and/or its documentation for any
+ * purpose.
+ *
+ * YOU FURTHER ACKNOWLEDGE AND AGREE THAT THE SOFTWARE AND DOCUMENTATION ARE PROVIDED "AS IS" WITHOUT WARRANTY
+ * OF ANY KIND, EITHER EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION, ANY WARRANTY OF MERCHANTABILITY, TITLE,
+ * NON-INFRINGEMENT AND FITNESS FOR A PARTICULAR PURPOSE. IN NO EVENT SHALL MBIENTLAB OR ITS LICENSORS BE LIABLE OR
+ * OBLIGATED UNDER CONTRACT, NEGLIGENCE, STRICT LIABILITY, CONTRIBUTION, BREACH OF WARRANTY, OR OTHER LEGAL EQUITABLE
+ * THEORY ANY DIRECT OR INDIRECT DAMAGES OR EXPENSES INCLUDING BUT NOT LIMITED TO ANY INCIDENTAL, SPECIAL, INDIRECT,
+ * PUNITIVE OR CONSEQUENTIAL DAMAGES, LOST PROFITS OR LOST DATA, COST OF PROCUREMENT OF SUBSTITUTE GOODS, TECHNOLOGY,
+ * SERVICES, OR ANY CLAIMS BY THIRD PARTIES (INCLUDING BUT NOT LIMITED TO ANY DEFENSE THEREOF), OR OTHER SIMILAR COSTS.
+ *
+ * Should you have any questions regarding your right to use this Software, contact MbientLab via email:
+ * hello@mbientlab.com.
+ */
+
+package com.mbientlab.metawear;
+
+import com.mbientlab.metawear.impl.JseMetaWearBoard;
+import com.mbientlab.metawear.impl.platform.BoardExecutor;
+import com.mbientlab.metawear.impl.platform.BoardManager;
+import com.mbientlab.metawear.impl.platform.BoardManager.LoopMetrics;
+import com.mbientlab.metawear.impl.platform.BoardManager.Operation;
+import com.mbientlab.metawear.impl.platform.InMemoryIO;
+import com.mbientlab.metawear.impl.platform.RouteTemplate;
+import com.mbientlab.metawear.impl.platform.RouteTemplate.Provisioned;
+import com.mbientlab.metawear.impl.platform.SimulatedBoard;
+import com.mbientlab.metawear.module.Accelerometer;
+import com.mbientlab.metawear.module.AmbientLightLtr329;
+import com.mbientlab.metawear.module.BarometerBosch;
+import com.mbientlab.metawear.module.Debug;
+import com.mbientlab.metawear.module.Gyro;
+import com.mbientlab.metawear.module.Haptic;
+import com.mbientlab.metawear.module.Led;
+import com.mbientlab.metawear.module.Logging;
+import com.mbientlab.metawear.module.MagnetometerBmm150;
+import com.mbientlab.metawear.module.SensorFusionBosch;
+import com.mbientlab.metawear.module.Settings;
+import com.mbientlab.metawear.module.Switch;
+import com.mbientlab.metawear.module.Temperature;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import bolts.Task;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TestBoardManager {
+    private BoardManager manager;
+    private final List<SimulatedBoard> simulated = new ArrayList<>();
+
+    private static <T> T await(Task<T> task, long seconds) throws Exception {
+        assertTrue("Task did not complete in time", task.waitForCompletion(seconds, TimeUnit.SECONDS));
+        if (task.isFaulted()) {
+            throw task.getError();
+        }
+        return task.getResult();
+    }
+
+    private JseMetaWearBoard addBoard(String radio) {
+        SimulatedBoard gatt = new SimulatedBoard().seed(simulated.size());
+        simulated.add(gatt);
+        return manager.add(radio, gatt, new InMemoryIO(), String.format(Locale.US, "CB:B7:49:BF:%02X:%02X", simulated.size() >> 8, simulated.size() & 0xff));
+    }
+
+    @After
+    public void tearDown() {
+        manager.close();
+        for(SimulatedBoard it: simulated) {
+            it.powerOff();
+        }
+    }
+
+    @Test
+    public void connectFleet() throws Exception {
+        final String[] radios = new String[] {"hci0", "hci1", "hci2"};
+        final AtomicInteger[] inFlight = new AtomicInteger[radios.length], maxInFlight = new AtomicInteger[radios.length];
+        for(int i = 0; i < radios.length; i++) {
+            inFlight[i] = new AtomicInteger();
+            maxInFlight[i] = new AtomicInteger();
+        }
+        manager = new BoardManager(4, "3.8.2").limit(Operation.CONNECT, 4, 2);
+
+        List<JseMetaWearBoard> boards = new ArrayList<>();
+        List<Task<Void>> tasks = new ArrayList<>();
+        for(int i = 0; i < 120; i++) {
+            final int radio = i % radios.length;
+            final JseMetaWearBoard board = addBoard(radios[radio]);
+            boards.add(board);
+            tasks.add(manager.submit(board, Operation.CONNECT, () -> {
+                maxInFlight[radio].accumulateAndGet(inFlight[radio].incrementAndGet(), Math::max);
+                return board.connectAsync().continueWithTask(task -> {
+                    inFlight[radio].decrementAndGet();
+                    return task;
+                });
+            }));
+        }
+
+        await(Task.whenAll(tasks), 60);
+        for(JseMetaWearBoard it: boards) {
+            assertTrue(it.isConnected());
+            assertEquals(Model.METAMOTION_R, it.getModel());
+        }
+        for(AtomicInteger it: maxInFlight) {
+            assertTrue("Radio limit exceeded: " + it.get(), it.get() <= 2);
+        }
+
+        List<LoopMetrics> metrics = manager.loopMetrics();
+        assertEquals(4, metrics.size());
+        for(LoopMetrics it: metrics) {
+            assertEquals(30, it.boards);
+            assertEquals(0, it.pending);
+            assertEquals(0, it.active);
+            assertTrue(it.tasksRun >= 30);
+            assertTrue(it.utilisation() >= 0f && it.utilisation() <= 1f);
+        }
+    }
+
+    @Test
+    public void roundRobin() throws Exception {
+        manager = new BoardManager(1, "3.8.2").limit(Operation.CREATE_ROUTE, 1, 1);
+        JseMetaWearBoard first = addBoard(""), second = addBoard("");
+
+        final List<String> order = Collections.synchronizedList(new ArrayList<>());
+        List<Task<Void>> tasks = new ArrayList<>();
+        for(int i = 0; i < 5; i++) {
+            final String name = "first-" + i;
+            tasks.add(manager.submit(first, Operation.CREATE_ROUTE, () -> Task.delay(20).onSuccess(ignored -> {
+                order.add(name);
+                return null;
+            })));
+        }
+        tasks.add(manager.submit(second, Operation.CREATE_ROUTE, () -> Task.delay(20).onSuccess(ignored -> {
+            order.add("second");
+            return null;
+        })));
+
+        await(Task.whenAll(tasks), 5);
+        assertEquals(6, order.size());
+        assertTrue("Second board waited behind the first board's queue: " + order, order.indexOf("second") <= 2);
+    }
+
+    @Test
+    public void pinnedToLoop() throws Exception {
+        manager = new BoardManager(2, "3.8.2");
+        JseMetaWearBoard first = addBoard(""), second = addBoard("");
+
+        final AtomicReference<Thread> loopThread = new AtomicReference<>(), secondThread = new AtomicReference<>(),
+                actionThread = new AtomicReference<>(), resultThread = new AtomicReference<>();
+        manager.executor(first).execute(() -> loopThread.set(Thread.currentThread()));
+        manager.executor(second).execute(() -> secondThread.set(Thread.currentThread()));
+
+        await(manager.submit(first, Operation.CREATE_ROUTE, () -> {
+            actionThread.set(Thread.currentThread());
+            return Task.delay(10);
+        }).continueWith(task -> {
+            resultThread.set(Thread.currentThread());
+            return null;
+        }), 5);
+
+        assertSame(loopThread.get(), actionThread.get());
+        assertSame(loopThread.get(), resultThread.get());
+        assertNotEquals(loopThread.get(), secondThread.get());
+    }
+
+    @Test
+    public void boardContinuationsOnLoop() throws Exception {
+        manager = new BoardManager(2, "3.8.2");
+        JseMetaWearBoard board = addBoard("");
+        await(manager.connectAsync(board), 10);
+
+        final AtomicReference<Thread> loopThread = new AtomicReference<>(), routeThread = new AtomicReference<>();
+        manager.executor(board).execute(() -> loopThread.set(Thread.currentThread()));
+
+        // The processor has to be created on the board so the route task is still pending when the continuation is added
+        Accelerometer accelerometer = board.getModule(Accelerometer.class);
+        Task<Route> route = accelerometer.acceleration().addRouteAsync(source -> source.lowpass((byte) 4).stream(null));
+        assertFalse(route.isCompleted());
+        await(route.continueWith(task -> {
+            routeThread.set(Thread.currentThread());
+            return null;
+        }), 5);
+
+        assertSame(loopThread.get(), routeThread.get());
+    }
+
+    @Test
+    public void notificationsOnLoop() throws Exception {
+        manager = new BoardManager(2, "3.8.2");
+        JseMetaWearBoard board = addBoard("");
+        await(manager.connectAsync(board), 10);
+
+        final AtomicReference<Thread> loopThread = new AtomicReference<>(), dataThread = new AtomicReference<>();
+        manager.executor(board).execute(() -> loopThread.set(Thread.currentThread()));
+
+        Accelerometer accelerometer = board.getModule(Accelerometer.class);
+        await(accelerometer.acceleration().addRouteAsync(source -> source.stream((data, env) -> dataThread.compareAndSet(null, Thread.currentThread()))), 5);
+        accelerometer.acceleration().start();
+        accelerometer.start();
+        while(dataThread.get() == null) {
+            Thread.sleep(5L);
+        }
+        accelerometer.stop();
+        accelerometer.acceleration().stop();
+
+        assertSame(loopThread.get(), dataThread.get());
+    }
+
+    @Test
+    public void getModuleWhileStreaming() throws Exception {
+        manager = new BoardManager(1, "3.8.2");
+        final JseMetaWearBoard board = addBoard("");
+        await(manager.connectAsync(board), 10);
+
+        final AtomicInteger samples = new AtomicInteger();
+        Accelerometer accelerometer = board.getModule(Accelerometer.class);
+        await(accelerometer.acceleration().addRouteAsync(source -> source.stream((data, env) -> samples.incrementAndGet())), 5);
+        accelerometer.acceleration().start();
+        accelerometer.start();
+
+        final List<Class<? extends MetaWearBoard.Module>> classes = Arrays.asList(Switch.class, Led.class, Temperature.class,
+                Haptic.class, Settings.class, BarometerBosch.class, Gyro.class, AmbientLightLtr329.class, MagnetometerBmm150.class,
+                SensorFusionBosch.class, Debug.class);
+        final int nThreads = 8;
+        final CyclicBarrier barrier = new CyclicBarrier(nThreads);
+        final List<List<MetaWearBoard.Module>> found = new ArrayList<>();
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+        for(int i = 0; i < nThreads; i++) {
+            final List<MetaWearBoard.Module> modules = new ArrayList<>();
+            found.add(modules);
+            threads.add(new Thread(() -> {
+                try {
+                    barrier.await();
+                    for(Class<? extends MetaWearBoard.Module> it: classes) {
+                        modules.add(board.getModule(it));
+                        // walks the tagged producers while other threads are tagging new modules
+                        board.serialize(new ByteArrayOutputStream());
+                    }
+                } catch (Throwable e) {
+                    error.compareAndSet(null, e);
+                }
+            }));
+        }
+        for(Thread it: threads) {
+            it.start();
+        }
+        for(Thread it: threads) {
+            it.join(10000L);
+        }
+
+        int before = samples.get();
+        while(samples.get() < before + 10) {
+            Thread.sleep(5L);
+        }
+        accelerometer.stop();
+        accelerometer.acceleration().stop();
+
+        assertNull(error.get());
+        for(int i = 0; i < classes.size(); i++) {
+            assertNotNull(classes.get(i).getSimpleName(), found.get(0).get(i));
+            for(List<MetaWearBoard.Module> it: found) {
+                assertSame(classes.get(i).getSimpleName(), found.get(0).get(i), it.get(i));
+            }
+        }
+    }
+
+    private List<JseMetaWearBoard> connectBoards(int count) throws Exception {
+        List<JseMetaWearBoard> boards = new ArrayList<>();
+        List<Task<Void>> tasks = new ArrayList<>();
+        for(int i = 0; i < count; i++) {
+            JseMetaWearBoard board = addBoard("hci" + (i % 2));
+            boards.add(board);
+            tasks.add(manager.connectAsync(board));
+        }
+        await(Task.whenAll(tasks), 30);
+        return boards;
+    }
+
+    @Test
+    public void provisionFleet() throws Exception {
+        manager = new BoardManager(4, "3.8.2").limit(Operation.CREATE_ROUTE, 2, 4);
+        List<JseMetaWearBoard> boards = connectBoards(40);
+
+        RouteTemplate template = new RouteTemplate()
+                .route(board -> board.getModuleOrThrow(Accelerometer.class).acceleration(), source -> source.lowpass((byte) 4).stream(null))
+                .route(board -> board.getModuleOrThrow(Accelerometer.class).acceleration(), source -> source.log(null))
+                .timer(1000, (short) -1, false, board -> board.getModule(Logging.class).stop());
+        List<Task<Provisioned>> results = manager.provisionAsync(template, boards);
+        await(Task.whenAll(results), 30);
+
+        for(Task<Provisioned> it: results) {
+            assertEquals(2, it.getResult().routes.size());
+            assertEquals(1, it.getResult().scheduledTasks.size());
+        }
+        for(JseMetaWearBoard it: boards) {
+            assertNotNull(it.lookupRoute(0));
+            assertNotNull(it.lookupRoute(1));
+        }
+    }
+
+    @Test
+    public void provisionOnLoop() throws Exception {
+        manager = new BoardManager(2, "3.8.2");
+        List<JseMetaWearBoard> boards = connectBoards(2);
+
+        final Map<MetaWearBoard, Thread> loopThreads = new ConcurrentHashMap<>();
+        for(JseMetaWearBoard it: boards) {
+            await(Task.call(() -> loopThreads.put(it, Thread.currentThread()), manager.executor(it)), 5);
+        }
+
+        final AtomicInteger lookups = new AtomicInteger(), offLoop = new AtomicInteger();
+        RouteTemplate.ProducerLookup lookup = board -> {
+            lookups.incrementAndGet();
+            if (loopThreads.get(board) != Thread.currentThread()) {
+                offLoop.incrementAndGet();
+            }
+            return board.getModuleOrThrow(Accelerometer.class).acceleration();
+        };
+        RouteTemplate template = new RouteTemplate()
+                .route(lookup, source -> source.lowpass((byte) 4).stream(null))
+                .route(lookup, source -> source.stream(null));
+        List<Task<Provisioned>> results = manager.provisionAsync(template, boards);
+        await(Task.whenAll(results), 10);
+
+        assertEquals(4, lookups.get());
+        assertEquals(0, offLoop.get());
+    }
+
+    @Test
+    public void provisionRollback() throws Exception {
+        manager = new BoardManager(2, "3.8.2");
+        List<JseMetaWearBoard> boards = connectBoards(2);
+        final JseMetaWearBoard failing = boards.get(1);
+
+        RouteTemplate template = new RouteTemplate()
+                .route(board -> board.getModuleOrThrow(Accelerometer.class).acceleration(), source -> source.lowpass((byte) 4).stream(null))
+                .route(board -> {
+                    if (board == failing) {
+                        throw new UnsupportedModuleException("Gyro not present");
+                    }
+                    return board.getModuleOrThrow(Accelerometer.class).acceleration();
+                }, source -> source.stream(null));
+        List<Task<Provisioned>> results = manager.provisionAsync(template, boards);
+
+        assertEquals(2, await(results.get(0), 10).routes.size());
+        assertTrue(results.get(1).waitForCompletion(10, TimeUnit.SECONDS));
+        assertTrue(results.get(1).getError() instanceof UnsupportedModuleException);
+        assertNull(failing.lookupRoute(0));
+    }
+
+    @Test
+    public void provisionCanaryFails() throws Exception {
+        manager = new BoardManager(2, "3.8.2");
+        List<JseMetaWearBoard> boards = connectBoards(3);
+
+        final AtomicInteger applied = new AtomicInteger();
+        RouteTemplate template = new RouteTemplate()
+                .route(board -> {
+                    applied.incrementAndGet();
+                    throw new UnsupportedModuleException("Gyro not present");
+                }, source -> source.stream(null));
+        List<Task<Provisioned>> results = manager.provisionAsync(template, boards);
+
+        for(Task<Provisioned> it: results) {
+            assertTrue(it.waitForCompletion(10, TimeUnit.SECONDS));
+            assertTrue(it.isFaulted());
+        }
+        assertTrue(results.get(1).getError() instanceof IllegalStateException);
+        assertEquals(1, applied.get());
+    }
+
+    @Test
+    public void closeFailsDelays() throws Exception {
+        manager = new BoardManager(1, "3.8.2");
+        JseMetaWearBoard board = addBoard("");
+        BoardExecutor executor = manager.executor(board);
+
+        Task<Void> pending = executor.delay(200L);
+        manager.close();
+
+        assertTrue(pending.waitForCompletion(5, TimeUnit.SECONDS));
+        assertTrue(pending.getError() instanceof RejectedExecutionException);
+        assertTrue(executor.delay(200L).getError() instanceof RejectedExecutionException);
+    }
+
+    @Test
+    public void removeCancelsQueued() throws Exception {
+        manager = new BoardManager(1, "3.8.2").limit(Operation.DOWNLOAD_LOG, 1, 1);
+        JseMetaWearBoard board = addBoard("");
+
+        Task<Void> running = manager.submit(board, Operation.DOWNLOAD_LOG, () -> Task.delay(100));
+        Task<Void> queued = manager.submit(board, Operation.DOWNLOAD_LOG, () -> Task.delay(100));
+        await(manager.remove(board), 5);
+
+        await(running, 5);
+        assertTrue(queued.waitForCompletion(5, TimeUnit.SECONDS));
+        assertTrue(queued.isCancelled());
+        assertEquals(0, manager.loopMetrics().get(0).boards);
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2014-2015 MbientLab Inc. All rights reserved.
+ *
+ * IMPORTANT: Your use of this Software is limited to those specific rights granted under the terms of a software
+ * license agreement between the user who downloaded the software, his/her employer (which must be your
+ * employer) and MbientLab Inc, (the "License").  You may not use this Software unless you agree to abide by the
+ * terms of the License which can be found at www.mbientlab.com/terms.  The License limits your use, and you
+ * acknowledge, that the Software may be modified, copied, and distributed when used in conjunction with an
+ * MbientLab Inc, product.  Other than for the foregoing purpose, you may not use, reproduce, copy, prepare
+ * derivative works of, modify, distribute, perform, display or sell this Software and/or its documentation for any
+ * purpose.
+ *
+ * YOU FURTHER ACKNOWLEDGE AND AGREE THAT THE SOFTWARE AND DOCUMENTATION ARE PROVIDED "AS IS" WITHOUT WARRANTY
+ * OF ANY KIND, EITHER EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION, ANY WARRANTY OF MERCHANTABILITY, TITLE,
+ * NON-INFRINGEMENT AND FITNESS FOR A PARTICULAR PURPOSE. IN NO EVENT SHALL MBIENTLAB OR ITS LICENSORS BE LIABLE OR
+ * OBLIGATED UNDER CONTRACT, NEGLIGENCE, STRICT LIABILITY, CONTRIBUTION, BREACH OF WARRANTY, OR OTHER LEGAL EQUITABLE
+ * THEORY ANY DIRECT OR INDIRECT DAMAGES OR EXPENSES INCLUDING BUT NOT LIMITED TO ANY INCIDENTAL, SPECIAL, INDIRECT,
+ * PUNITIVE OR CONSEQUENTIAL DAMAGES, LOST PROFITS OR LOST DATA, COST OF PROCUREMENT OF SUBSTITUTE GOODS, TECHNOLOGY,
+ * SERVICES, OR ANY CLAIMS BY THIRD PARTIES (INCLUDING BUT NOT LIMITED TO ANY DEFENSE THEREOF), OR OTHER SIMILAR COSTS.
+ *
+ * Should you have any questions regarding your right to use this Software, contact MbientLab via email:
+ * hello@mbientlab.com.
+ */
+
+package com.mbientlab.metawear;
+
+import com.mbientlab.metawear.module.Accelerometer;
+import com.mbientlab.metawear.module.AccelerometerBmi160;
+import com.mbientlab.metawear.module.Settings.BleConnectionParameters;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import bolts.Task;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestConnectionTuner extends UnitTestBase {
+    private static final long WINDOW = 50L;
+
+    // Simulated link: the phone accepts 3 packets per connection event and reads stall below 10ms intervals
+    private volatile float interval = 45f, packetsPerInterval = 3f;
+    private volatile long intervalSet = System.nanoTime();
+    // Reads after the first one, i.e. those made while measuring an interval, get a truncated response
+    private volatile boolean truncateMeasurements;
+    private final AtomicInteger nReads = new AtomicInteger();
+    private LinkBudget linkBudget;
+
+    @Before
+    public void setup() throws Exception {
+        junitPlatform.boardInfo = new MetaWearBoardInfo(AccelerometerBmi160.class);
+        junitPlatform.addCustomModuleInfo(new byte[] { 0x11, (byte) 0x80, 0x00, 0x02 });
+        junitPlatform.commandHandler = value -> {
+            if (value[0] == 0x11 && value[1] == 0x09) {
+                interval = ByteBuffer.wrap(value, 4, 2).order(ByteOrder.LITTLE_ENDIAN).getShort() * 1.25f;
+                intervalSet = System.nanoTime();
+                return true;
+            }
+            if (value[0] == 0x11 && value[1] == (byte) 0x89) {
+                junitPlatform.scheduleTask(this::deliver, interval < 10f ? 150L : 20L);
+                return true;
+            }
+            return false;
+        };
+        connectToBoard();
+
+        linkBudget = mwBoard.getLinkBudget();
+
+        Accelerometer accelerometer = mwBoard.getModule(Accelerometer.class);
+        accelerometer.configure().odr(200f).commit();
+        accelerometer.acceleration().addRouteAsync(source -> source.stream((data, env) -> { })).waitForCompletion();
+    }
+
+    private void deliver() {
+        float elapsed = (System.nanoTime() - intervalSet) / 1000000000f;
+        int delivered = (int) (Math.min(200f, packetsPerInterval * 1000f / interval) * elapsed);
+        for(int i = 0; i < delivered; i++) {
+            sendMockResponse(new byte[] {0x03, 0x04, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00});
+        }
+
+        short raw = (short) (interval / 1.25f);
+        if (truncateMeasurements && nReads.getAndIncrement() > 0) {
+            sendMockResponse(new byte[] {0x11, (byte) 0x89, (byte) raw, (byte) (raw >> 8)});
+            return;
+        }
+        sendMockResponse(ByteBuffer.allocate(10).order(ByteOrder.LITTLE_ENDIAN)
+                .put((byte) 0x11).put((byte) 0x89).putShort(raw).putShort(raw).putShort((short) 0).putShort((short) 600)
+                .array());
+    }
+
+    private Task<BleConnectionParameters> tune(LinkBudget.TuningGoal goal) throws InterruptedException {
+        Task<BleConnectionParameters> task = linkBudget.tuneAsync(goal, WINDOW);
+        task.waitForCompletion();
+        return task;
+    }
+
+    @Test
+    public void throughput() throws Exception {
+        Task<BleConnectionParameters> task = tune(LinkBudget.TuningGoal.THROUGHPUT);
+        if (task.isFaulted()) {
+            throw task.getError();
+        }
+
+        assertEquals(11.25f, task.getResult().maxConnectionInterval, 0.001f);
+        assertEquals(11.25f, linkBudget.estimate().connectionInterval, 0.001f);
+        assertArrayEquals(new byte[] {0x11, 0x09, 0x09, 0x00, 0x09, 0x00, 0x00, 0x00, 0x58, 0x02}, junitPlatform.getLastCommands(2)[0]);
+    }
+
+    @Test
+    public void power() throws Exception {
+        Task<BleConnectionParameters> task = tune(LinkBudget.TuningGoal.POWER);
+        if (task.isFaulted()) {
+            throw task.getError();
+        }
+
+        assertEquals(15f, task.getResult().maxConnectionInterval, 0.001f);
+        assertArrayEquals(new byte[] {0x11, 0x09, 0x0c, 0x00, 0x0c, 0x00, 0x00, 0x00, 0x58, 0x02}, junitPlatform.getLastCommands(2)[0]);
+    }
+
+    @Test
+    public void noStableInterval() throws Exception {
+        packetsPerInterval = 0.1f;
+        Task<BleConnectionParameters> task = tune(LinkBudget.TuningGoal.THROUGHPUT);
+
+        assertTrue(task.getError() instanceof IllegalStateException);
+        // Original 45ms interval is restored
+        assertArrayEquals(new byte[] {0x11, 0x09, 0x24, 0x00, 0x24, 0x00, 0x00, 0x00, 0x58, 0x02}, junitPlatform.getLastCommand());
+    }
+
+    @Test
+    public void restoreAfterFailedMeasurement() throws Exception {
+        truncateMeasurements = true;
+        Task<BleConnectionParameters> task = tune(LinkBudget.TuningGoal.THROUGHPUT);
+
+        assertTrue(task.getError() instanceof IndexOutOfBoundsException);
+        // Original 45ms interval is restored instead of staying on the 7.5ms trial
+        assertArrayEquals(new byte[] {0x11, 0x09, 0x24, 0x00, 0x24, 0x00, 0x00, 0x00, 0x58, 0x02}, junitPlatform.getLastCommand());
+    }
+}
@@ -58,6 +58,8 @@ import bolts.Task;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 
 /**
  * Created by etsai on 9/5/16.
@@ -172,6 +174,24 @@ public class TestDataProcessor {
         }
     }
 
+    public static class TestIdentifier extends TestBase {
+        @Test
+        public void identifierCachedUntilModified() throws Exception {
+            Task<Route> task = mwBoard.getModule(Accelerometer.class).acceleration().addRouteAsync(source ->
+                    source.lowpass((byte) 4).name("lpf").stream(null)
+            );
+            task.waitForCompletion();
+
+            String identifier = task.getResult().generateIdentifier(0);
+            assertEquals("acceleration:low-pass?id=0", identifier);
+            assertSame(identifier, task.getResult().generateIdentifier(0));
+
+            mwBoard.getModule(DataProcessor.class).edit("lpf", DataProcessor.AverageEditor.class).modify((byte) 8);
+            assertNotSame(identifier, task.getResult().generateIdentifier(0));
+            assertEquals(identifier, task.getResult().generateIdentifier(0));
+        }
+    }
+
     public static class TestLedController extends TestBase {
         @Test
         public void create() throws InterruptedException {
@@ -27,6 +27,7 @@ package com.mbientlab.metawear;
 import com.mbientlab.metawear.builder.filter.Comparison;
 import com.mbientlab.metawear.module.DataProcessor;
 import com.mbientlab.metawear.module.Gpio;
+import com.mbientlab.metawear.module.NeoPixel;
 import com.mbientlab.metawear.module.Timer;
 
 import org.junit.Before;
@@ -40,6 +41,8 @@ import bolts.Task;
 import bolts.TaskCompletionSource;
 
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 
 /**
  * Created by etsai on 3/13/17.
@@ -265,4 +268,43 @@ public class TestDeserialization {
             assertArrayEquals(expected, junitPlatform.getCommands());
         }
     }
+
+    public static class TestDeserializeNeoPixel extends UnitTestBase {
+        private NeoPixel neoPixel;
+
+        @Before
+        public void setup() throws Exception {
+            junitPlatform.boardInfo = new MetaWearBoardInfo(NeoPixel.class);
+            junitPlatform.boardStateSuffix = "neopixel";
+            mwBoard.deserialize();
+
+            connectToBoard();
+            neoPixel = mwBoard.getModule(NeoPixel.class);
+        }
+
+        @Test
+        public void lookupStrands() {
+            assertEquals(30, neoPixel.lookupStrand((byte) 1).nLeds());
+            assertEquals(60, neoPixel.lookupStrand((byte) 2).nLeds());
+            assertNull(neoPixel.lookupStrand((byte) 0));
+        }
+
+        @Test
+        public void freeStrand() {
+            neoPixel.lookupStrand((byte) 1).free();
+
+            assertArrayEquals(new byte[] {0x06, 0x06, 0x01}, junitPlatform.getLastCommand());
+            assertNull(neoPixel.lookupStrand((byte) 1));
+            assertEquals(60, neoPixel.lookupStrand((byte) 2).nLeds());
+        }
+
+        @Test
+        public void initializeStrand() {
+            neoPixel.initializeStrand((byte) 0, NeoPixel.ColorOrdering.MW_WS2811_GBR, NeoPixel.StrandSpeed.SLOW, (byte) 2, (byte) 15);
+
+            assertEquals(15, neoPixel.lookupStrand((byte) 0).nLeds());
+            assertEquals(30, neoPixel.lookupStrand((byte) 1).nLeds());
+        }
+    }
+
 }
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2014-2015 MbientLab Inc. All rights reserved.
+ *
+ * IMPORTANT: Your use of this Software is limited to those specific rights granted under the terms of a software
+ * license agreement between the user who downloaded the software, his/her employer (which must be your
+ * employer) and MbientLab Inc, (the "License").  You may not use this Software unless you agree to abide by the
+ * terms of the License which can be found at www.mbientlab.com/terms.  The License limits your use, and you
+ * acknowledge, that the Software may be modified, copied, and distributed when used in conjunction with an
+ * MbientLab Inc, product.  Other than for the foregoing purpose, you may not use, reproduce, copy, prepare
+ * derivative works of, modify, distribute, perform, display or sell this Software and/or its documentation for any
+ * purpose.
+ *
+ * YOU FURTHER ACKNOWLEDGE AND AGREE THAT THE SOFTWARE AND DOCUMENTATION ARE PROVIDED "AS IS" WITHOUT WARRANTY
+ * OF ANY KIND, EITHER EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION, ANY WARRANTY OF MERCHANTABILITY, TITLE,
+ * NON-INFRINGEMENT AND FITNESS FOR A PARTICULAR PURPOSE. IN NO EVENT SHALL MBIENTLAB OR ITS LICENSORS BE LIABLE OR
+ * OBLIGATED UNDER CONTRACT, NEGLIGENCE, STRICT LIABILITY, CONTRIBUTION, BREACH OF WARRANTY, OR OTHER LEGAL EQUITABLE
+ * THEORY ANY DIRECT OR INDIRECT DAMAGES OR EXPENSES INCLUDING BUT NOT LIMITED TO ANY INCIDENTAL, SPECIAL, INDIRECT,
+ * PUNITIVE OR CONSEQUENTIAL DAMAGES, LOST PROFITS OR LOST DATA, COST OF PROCUREMENT OF SUBSTITUTE GOODS, TECHNOLOGY,
+ * SERVICES, OR ANY CLAIMS BY THIRD PARTIES (INCLUDING BUT NOT LIMITED TO ANY DEFENSE THEREOF), OR OTHER SIMILAR COSTS.
+ *
+ * Should you have any questions regarding your right to use this Software, contact MbientLab via email:
+ * hello@mbientlab.com.
+ */
+
+package com.mbientlab.metawear;
+
+import com.mbientlab.metawear.impl.JseMetaWearBoard;
+import com.mbientlab.metawear.impl.ModuleInfoCache;
+import com.mbientlab.metawear.impl.platform.InMemoryIO;
+import com.mbientlab.metawear.impl.platform.SimulatedBoard;
+import com.mbientlab.metawear.module.Accelerometer;
+import com.mbientlab.metawear.module.GyroBmi160;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import bolts.Task;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Reports the heap retained by connected boards.  Numbers are printed rather than asserted tightly as they depend on
+ * the JVM, the bounds only catch a per board structure growing out of control.
+ */
+public class TestHeapFootprint {
+    private static final int N_BOARDS = 50;
+    private static final long MAX_IDLE_BYTES = 64 * 1024, MAX_STREAMING_BYTES = 96 * 1024;
+
+    private final List<SimulatedBoard> simulated = new ArrayList<>();
+    private final List<MetaWearBoard> boards = new ArrayList<>();
+
+    private static <T> T await(Task<T> task) throws Exception {
+        assertTrue("Task did not complete in time", task.waitForCompletion(5, TimeUnit.SECONDS));
+        if (task.isFaulted()) {
+            throw task.getError();
+        }
+        return task.getResult();
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        // a single gc request is only a hint, take the lowest reading of a few
+        for(int i = 0; i < 4; i++) {
+            System.gc();
+            Thread.sleep(50);
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+
+    private JseMetaWearBoard connect(int index, ModuleInfoCache cache) throws Exception {
+        JseMetaWearBoard board = new JseMetaWearBoard(simulated.get(index), new InMemoryIO(), String.format(Locale.US, "CB:B7:49:BF:%02X:%02X", index >> 8, index & 0xff), "3.8.2");
+        board.setModuleInfoCache(cache);
+        await(board.connectAsync());
+        boards.add(board);
+        return board;
+    }
+
+    private static void stream(MetaWearBoard board) throws Exception {
+        await(board.getModule(Accelerometer.class).acceleration().addRouteAsync(source -> source.stream(null)));
+        await(board.getModule(GyroBmi160.class).angularVelocity().addRouteAsync(source -> source.stream(null)));
+    }
+
+    @After
+    public void tearDown() {
+        for(SimulatedBoard it: simulated) {
+            it.powerOff();
+        }
+    }
+
+    @Test
+    public void perBoard() throws Exception {
+        ModuleInfoCache cache = new ModuleInfoCache();
+        for(int i = 0; i <= N_BOARDS; i++) {
+            simulated.add(new SimulatedBoard());
+        }
+        // first board loads classes and fills the shared caches
+        stream(connect(0, cache));
+
+        // the simulated boards are test fixtures, only count what the connected boards add
+        long before = usedHeap();
+        for(int i = 1; i <= N_BOARDS; i++) {
+            connect(i, cache);
+        }
+        long idle = (usedHeap() - before) / N_BOARDS;
+
+        for(int i = 1; i <= N_BOARDS; i++) {
+            stream(boards.get(i));
+        }
+        long streaming = (usedHeap() - before) / N_BOARDS;
+
+        System.out.println(String.format(Locale.US, "idle board: %d bytes, streaming board: %d bytes", idle, streaming));
+        assertTrue("Idle board uses " + idle + " bytes", idle < MAX_IDLE_BYTES);
+        assertTrue("Streaming board uses " + streaming + " bytes", streaming < MAX_STREAMING_BYTES);
+    }
+}
@@ -0,0 +1,300 @@
+/*
+ * Copyright 2014-2015 MbientLab Inc. All rights reserved.
+ *
+ * IMPORTANT: Your use of this Software is limited to those specific rights granted under the terms of a software
+ * license agreement between the user who downloaded the software, his/her employer (which must be your
+ * employer) and MbientLab Inc, (the "License").  You may not use this Software unless you agree to abide by the
+ * terms of the License which can be found at www.mbientlab.com/terms.  The License limits your use, and you
+ * acknowledge, that the Software may be modified, copied, and distributed when used in conjunction with an
+ * MbientLab Inc, product.  Other than for the foregoing purpose, you may not use, reproduce, copy, prepare
+ * derivative works of, modify, distribute, perform, display or sell this Software and/or its documentation for any
+ * purpose.
+ *
+ * YOU FURTHER ACKNOWLEDGE AND AGREE THAT THE SOFTWARE AND DOCUMENTATION ARE PROVIDED "AS IS" WITHOUT WARRANTY
+ * OF ANY KIND, EITHER EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION, ANY WARRANTY OF MERCHANTABILITY, TITLE,
+ * NON-INFRINGEMENT AND FITNESS FOR A PARTICULAR PURPOSE. IN NO EVENT SHALL MBIENTLAB OR ITS LICENSORS BE LIABLE OR
+ * OBLIGATED UNDER CONTRACT, NEGLIGENCE, STRICT LIABILITY, CONTRIBUTION, BREACH OF WARRANTY, OR OTHER LEGAL EQUITABLE
+ * THEORY ANY DIRECT OR INDIRECT DAMAGES OR EXPENSES INCLUDING BUT NOT LIMITED TO ANY INCIDENTAL, SPECIAL, INDIRECT,
+ * PUNITIVE OR CONSEQUENTIAL DAMAGES, LOST PROFITS OR LOST DATA, COST OF PROCUREMENT OF SUBSTITUTE GOODS, TECHNOLOGY,
+ * SERVICES, OR ANY CLAIMS BY THIRD PARTIES (INCLUDING BUT NOT LIMITED TO ANY DEFENSE THEREOF), OR OTHER SIMILAR COSTS.
+ *
+ * Should you have any questions regarding your right to use this Software, contact MbientLab via email:
+ * hello@mbientlab.com.
+ */
+
+package com.mbientlab.metawear;
+
+import com.mbientlab.metawear.builder.RouteBuilder;
+import com.mbientlab.metawear.builder.RouteComponent;
+import com.mbientlab.metawear.builder.filter.Comparison;
+import com.mbientlab.metawear.builder.filter.ComparisonOutput;
+import com.mbientlab.metawear.builder.filter.DifferentialOutput;
+import com.mbientlab.metawear.builder.filter.Passthrough;
+import com.mbientlab.metawear.builder.filter.ThresholdOutput;
+import com.mbientlab.metawear.builder.function.Function2;
+import com.mbientlab.metawear.builder.predicate.PulseOutput;
+import com.mbientlab.metawear.module.Gpio;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+import bolts.Capture;
+import bolts.Task;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestHostDataProcessor extends UnitTestBase {
+    private Gpio.Analog adc;
+    private final List<Integer> received = new ArrayList<>();
+
+    @Before
+    public void setup() throws Exception {
+        junitPlatform.boardInfo= new MetaWearBoardInfo(Gpio.class);
+        junitPlatform.addCustomModuleInfo(new byte[] {0x09, (byte) 0x80, 0x00, 0x03, 0x01});
+        connectToBoard();
+
+        adc = mwBoard.getModule(Gpio.class).pin((byte) 0).analogAdc();
+    }
+
+    private int toInt(byte[] bytes) {
+        byte[] padded = new byte[4];
+        System.arraycopy(bytes, 0, padded, 0, Math.min(4, bytes.length));
+        return ByteBuffer.wrap(padded).order(ByteOrder.LITTLE_ENDIAN).getInt();
+    }
+
+    private void sendAdc(int... values) {
+        for(int it: values) {
+            sendMockResponse(new byte[] {0x05, (byte) 0x87, 0x00, (byte) (it & 0xff), (byte) ((it >> 8) & 0xff)});
+        }
+    }
+
+    private void assertNoProcessorsCreated() {
+        for(byte[] it: junitPlatform.getCommands()) {
+            assertTrue(!(it[0] == 0x09 && it[1] == 0x02));
+        }
+    }
+
+    @Test
+    public void hostAccumulate() throws Exception {
+        Task<Route> task = adc.addRouteAsync(source -> source.host().accumulate().stream((data, env) -> received.add(toInt(data.bytes()))));
+        task.waitForCompletion();
+        if (task.isFaulted()) {
+            throw task.getError();
+        }
+
+        sendAdc(100, 200, 300);
+
+        assertNoProcessorsCreated();
+        assertEquals(3, received.size());
+        assertEquals(Integer.valueOf(100), received.get(0));
+        assertEquals(Integer.valueOf(300), received.get(1));
+        assertEquals(Integer.valueOf(600), received.get(2));
+    }
+
+    @Test
+    public void hostThreshold() throws Exception {
+        Task<Route> task = adc.addRouteAsync(source -> source.host().filter(ThresholdOutput.BINARY, 512).stream((data, env) -> received.add((int) data.bytes()[0])));
+        task.waitForCompletion();
+        if (task.isFaulted()) {
+            throw task.getError();
+        }
+
+        sendAdc(100, 200, 600, 700, 300);
+
+        assertArrayEquals(new Object[] {1, -1}, received.toArray());
+    }
+
+    @Test
+    public void splitWhenSlotsRunOut() throws Exception {
+        byte[][] expected = new byte[][] {
+                {0x09, 0x02, 0x05, (byte) 0xc7, 0x00, 0x20, 0x03, 0x05, 0x02, 0x00}
+        };
+
+        Task<Route> task = adc.addRouteAsync(source -> source.lowpass((byte) 2).accumulate().stream((data, env) -> received.add(toInt(data.bytes()))));
+        task.waitForCompletion();
+        if (task.isFaulted()) {
+            throw task.getError();
+        }
+
+        List<byte[]> created = new ArrayList<>();
+        for(byte[] it: junitPlatform.getCommands()) {
+            if (it[0] == 0x09 && it[1] == 0x02) {
+                created.add(it);
+            }
+        }
+        assertArrayEquals(expected, created.toArray(new byte[0][]));
+
+        sendMockResponse(new byte[] {0x09, 0x03, 0x00, 0x0a, 0x00});
+        sendMockResponse(new byte[] {0x09, 0x03, 0x00, 0x14, 0x00});
+        assertArrayEquals(new Object[] {10, 30}, received.toArray());
+    }
+
+    @Test
+    public void sharedProcessorStaysOnBoard() throws Exception {
+        Task<Route> task = adc.addRouteAsync(source -> source.lowpass((byte) 2).stream((data, env) -> { }));
+        task.waitForCompletion();
+        task = adc.addRouteAsync(source -> source.lowpass((byte) 2).stream((data, env) -> received.add(toInt(data.bytes()))));
+        task.waitForCompletion();
+        if (task.isFaulted()) {
+            throw task.getError();
+        }
+
+        int created = 0;
+        for(byte[] it: junitPlatform.getCommands()) {
+            if (it[0] == 0x09 && it[1] == 0x02) {
+                created++;
+            }
+        }
+        assertEquals(1, created);
+
+        // the board's slot is full but the second route reuses the first route's processor instead of filtering on the host
+        sendAdc(100);
+        sendMockResponse(new byte[] {0x09, 0x03, 0x00, 0x0a, 0x00});
+        assertArrayEquals(new Object[] {10}, received.toArray());
+    }
+
+    private void addHostRoute(RouteBuilder builder) throws Exception {
+        Task<Route> task = adc.addRouteAsync(builder);
+        task.waitForCompletion();
+        if (task.isFaulted()) {
+            throw task.getError();
+        }
+    }
+
+    private void streamInt(RouteComponent component) {
+        component.stream((data, env) -> received.add(toInt(data.bytes())));
+    }
+
+    private void streamSigned(RouteComponent component) {
+        component.stream((data, env) -> received.add(data.value(Integer.class)));
+    }
+
+    @Test
+    public void hostAverage() throws Exception {
+        addHostRoute(source -> streamInt(source.host().lowpass((byte) 2)));
+        sendAdc(100, 200, 300);
+
+        assertNoProcessorsCreated();
+        assertArrayEquals(new Object[] {100, 150, 250}, received.toArray());
+    }
+
+    @Test
+    public void hostHighpass() throws Exception {
+        addHostRoute(source -> streamInt(source.host().highpass((byte) 2)));
+        sendAdc(100, 200, 300, 400);
+
+        assertNoProcessorsCreated();
+        assertArrayEquals(new Object[] {0, 50, 50, 50}, received.toArray());
+    }
+
+    @Test
+    public void hostDelay() throws Exception {
+        addHostRoute(source -> streamInt(source.host().delay((byte) 2)));
+        sendAdc(100, 200, 300, 400);
+
+        assertNoProcessorsCreated();
+        assertArrayEquals(new Object[] {100, 200}, received.toArray());
+    }
+
+    @Test
+    public void hostMaths() throws Exception {
+        addHostRoute(source -> streamInt(source.host().map(Function2.ADD, 10)));
+        sendAdc(100, 200);
+
+        assertNoProcessorsCreated();
+        assertArrayEquals(new Object[] {110, 210}, received.toArray());
+    }
+
+    @Test
+    public void hostComparison() throws Exception {
+        addHostRoute(source -> streamInt(source.host().filter(Comparison.GT, 250)));
+        sendAdc(100, 300, 250, 400);
+
+        assertNoProcessorsCreated();
+        assertArrayEquals(new Object[] {300, 400}, received.toArray());
+    }
+
+    @Test
+    public void hostComparisonZone() throws Exception {
+        addHostRoute(source -> streamInt(source.host().filter(Comparison.LT, ComparisonOutput.ZONE, 100, 200, 300)));
+        sendAdc(50, 150, 250, 350);
+
+        assertNoProcessorsCreated();
+        assertArrayEquals(new Object[] {0, 1, 2, 3}, received.toArray());
+    }
+
+    @Test
+    public void hostDifferential() throws Exception {
+        addHostRoute(source -> streamSigned(source.host().filter(DifferentialOutput.DIFFERENCE, 50)));
+        sendAdc(100, 120, 200, 150, 100);
+
+        assertNoProcessorsCreated();
+        assertArrayEquals(new Object[] {100, -100}, received.toArray());
+    }
+
+    @Test
+    public void hostPulse() throws Exception {
+        addHostRoute(source -> streamInt(source.host().find(PulseOutput.WIDTH, 500, (short) 2)));
+        sendAdc(100, 600, 100, 600, 700, 800, 100);
+
+        assertNoProcessorsCreated();
+        assertArrayEquals(new Object[] {3}, received.toArray());
+    }
+
+    @Test
+    public void hostPacker() throws Exception {
+        addHostRoute(source -> streamInt(source.host().pack((byte) 2)));
+        sendAdc(100, 200, 300);
+
+        assertNoProcessorsCreated();
+        assertArrayEquals(new Object[] {100, 200, 300}, received.toArray());
+    }
+
+    @Test
+    public void hostBuffer() throws Exception {
+        addHostRoute(source -> source.host().buffer());
+        sendAdc(100, 200);
+
+        assertNoProcessorsCreated();
+        assertTrue(received.isEmpty());
+    }
+
+    @Test
+    public void hostPassthrough() throws Exception {
+        addHostRoute(source -> streamInt(source.host().limit(Passthrough.COUNT, (short) 2)));
+        sendAdc(100, 200, 300);
+
+        assertNoProcessorsCreated();
+        assertArrayEquals(new Object[] {100, 200}, received.toArray());
+    }
+
+    @Test
+    public void hostTimePassthrough() throws Exception {
+        addHostRoute(source -> streamInt(source.host().limit(500)));
+        sendAdc(100, 200);
+        Thread.sleep(600L);
+        sendAdc(300);
+
+        assertNoProcessorsCreated();
+        assertArrayEquals(new Object[] {100, 300}, received.toArray());
+    }
+
+    @Test
+    public void hostLogFails() throws Exception {
+        final Capture<Exception> actual = new Capture<>();
+
+        adc.addRouteAsync(source -> source.host().accumulate().log(null)).continueWith(task -> {
+            actual.set(task.getError());
+            return null;
+        }).waitForCompletion();
+
+        assertTrue(actual.get() instanceof IllegalRouteOperationException);
+    }
+}
@@ -29,12 +29,15 @@ import com.mbientlab.metawear.module.SerialPassthrough;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.TimeoutException;
 
 import bolts.Capture;
 import bolts.Task;
 
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 
 /**
  * Created by etsai on 10/6/16.
@@ -123,4 +126,76 @@ public class TestI2C extends UnitTestBase {
 
         throw actual.get();
     }
+
+    @Test
+    public void concurrentDirectReads() {
+        byte[][] expected= new byte[][] {
+                {0x0d, (byte) 0x81, 0x1c, 0x0d, (byte) 0xff, 0x01},
+                {0x0d, (byte) 0x81, 0x1c, 0x0e, (byte) 0xfe, 0x02}
+        };
+
+        SerialPassthrough serialPassthrough = mwBoard.getModule(SerialPassthrough.class);
+        serialPassthrough.readI2cAsync((byte) 0x1c, (byte) 0x0d, (byte) 1);
+        serialPassthrough.readI2cAsync((byte) 0x1c, (byte) 0x0e, (byte) 2);
+
+        assertArrayEquals(expected, junitPlatform.getLastCommands(2));
+    }
+
+    @Test
+    public void concurrentDirectReadsData() {
+        final Capture<byte[]> first= new Capture<>(), second= new Capture<>();
+
+        SerialPassthrough serialPassthrough = mwBoard.getModule(SerialPassthrough.class);
+        serialPassthrough.readI2cAsync((byte) 0x1c, (byte) 0x0d, (byte) 1).continueWith(task -> {
+            first.set(task.getResult());
+            return null;
+        });
+        serialPassthrough.readI2cAsync((byte) 0x1c, (byte) 0x0e, (byte) 2).continueWith(task -> {
+            second.set(task.getResult());
+            return null;
+        });
+
+        sendMockResponse(new byte[] {0x0d, (byte) 0x81, (byte) 0xfe, 0x12, 0x34});
+        sendMockResponse(new byte[] {0x0d, (byte) 0x81, (byte) 0xff, 0x2a});
+
+        assertArrayEquals(new byte[] {0x2a}, first.get());
+        assertArrayEquals(new byte[] {0x12, 0x34}, second.get());
+    }
+
+    @Test
+    public void directReadSkipsProducerIds() {
+        byte[] expected= new byte[] {0x0d, (byte) 0x81, 0x1c, 0x0e, (byte) 0xfd, 0x01};
+
+        SerialPassthrough serialPassthrough = mwBoard.getModule(SerialPassthrough.class);
+        serialPassthrough.i2c((byte) 1, (byte) 0xfe);
+        serialPassthrough.readI2cAsync((byte) 0x1c, (byte) 0x0d, (byte) 1);
+        serialPassthrough.readI2cAsync((byte) 0x1c, (byte) 0x0e, (byte) 1);
+
+        assertArrayEquals(expected, junitPlatform.getLastCommand());
+    }
+
+    @Test
+    public void readRegisterBlocks() throws Exception {
+        final Capture<List<byte[]>> actual= new Capture<>();
+
+        Task<List<byte[]>> task = mwBoard.getModule(SerialPassthrough.class).readI2cAsync(Arrays.asList(
+                new SerialPassthrough.I2cRegisterBlock((byte) 0x1c, (byte) 0x0d, (byte) 1),
+                new SerialPassthrough.I2cRegisterBlock((byte) 0x1c, (byte) 0x0e, (byte) 2),
+                new SerialPassthrough.I2cRegisterBlock((byte) 0x1d, (byte) 0x00, (byte) 1)
+        ));
+        task.continueWith(ignored -> {
+            actual.set(ignored.getResult());
+            return null;
+        });
+
+        sendMockResponse(new byte[] {0x0d, (byte) 0x81, (byte) 0xfd, 0x56});
+        sendMockResponse(new byte[] {0x0d, (byte) 0x81, (byte) 0xff, 0x2a});
+        sendMockResponse(new byte[] {0x0d, (byte) 0x81, (byte) 0xfe, 0x12, 0x34});
+        task.waitForCompletion();
+
+        assertEquals(3, actual.get().size());
+        assertArrayEquals(new byte[] {0x2a}, actual.get().get(0));
+        assertArrayEquals(new byte[] {0x12, 0x34}, actual.get().get(1));
+        assertArrayEquals(new byte[] {0x56}, actual.get().get(2));
+    }
 }
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2014-2015 MbientLab Inc. All rights reserved.
+ *
+ * IMPORTANT: Your use of this Software is limited to those specific rights granted under the terms of a software
+ * license agreement between the user who downloaded the software, his/her employer (which must be your
+ * employer) and MbientLab Inc, (the "License").  You may not use this Software unless you agree to abide by the
+ * terms of the License which can be found at www.mbientlab.com/terms.  The License limits your use, and you
+ * acknowledge, that the Software may be modified, copied, and distributed when used in conjunction with an
+ * MbientLab Inc, product.  Other than for the foregoing purpose, you may not use, reproduce, copy, prepare
+ * derivative works of, modify, distribute, perform, display or sell this Software and/or its documentation for any
+ * purpose.
+ *
+ * YOU FURTHER ACKNOWLEDGE AND AGREE THAT THE SOFTWARE AND DOCUMENTATION ARE PROVIDED "AS IS" WITHOUT WARRANTY
+ * OF ANY KIND, EITHER EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION, ANY WARRANTY OF MERCHANTABILITY, TITLE,
+ * NON-INFRINGEMENT AND FITNESS FOR A PARTICULAR PURPOSE. IN NO EVENT SHALL MBIENTLAB OR ITS LICENSORS BE LIABLE OR
+ * OBLIGATED UNDER CONTRACT, NEGLIGENCE, STRICT LIABILITY, CONTRIBUTION, BREACH OF WARRANTY, OR OTHER LEGAL EQUITABLE
+ * THEORY ANY DIRECT OR INDIRECT DAMAGES OR EXPENSES INCLUDING BUT NOT LIMITED TO ANY INCIDENTAL, SPECIAL, INDIRECT,
+ * PUNITIVE OR CONSEQUENTIAL DAMAGES, LOST PROFITS OR LOST DATA, COST OF PROCUREMENT OF SUBSTITUTE GOODS, TECHNOLOGY,
+ * SERVICES, OR ANY CLAIMS BY THIRD PARTIES (INCLUDING BUT NOT LIMITED TO ANY DEFENSE THEREOF), OR OTHER SIMILAR COSTS.
+ *
+ * Should you have any questions regarding your right to use this Software, contact MbientLab via email:
+ * hello@mbientlab.com.
+ */
+
+package com.mbientlab.metawear;
+
+import com.mbientlab.metawear.module.Accelerometer;
+import com.mbientlab.metawear.module.AccelerometerBmi160;
+import com.mbientlab.metawear.data.Acceleration;
+import com.mbientlab.metawear.module.Gpio;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import bolts.Task;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TestLinkBudget extends UnitTestBase {
+    private Accelerometer accelerometer;
+    private LinkBudget linkBudget;
+
+    @Before
+    public void setup() throws Exception {
+        junitPlatform.boardInfo = new MetaWearBoardInfo(AccelerometerBmi160.class, Gpio.class);
+        junitPlatform.addCustomModuleInfo(new byte[] { 0x11, (byte) 0x80, 0x00, 0x02 });
+        connectToBoard();
+
+        accelerometer = mwBoard.getModule(Accelerometer.class);
+        linkBudget = mwBoard.getLinkBudget();
+    }
+
+    private LinkBudget.Report readConnParams() throws InterruptedException {
+        // 7.5ms min, 11.25ms max connection interval
+        junitPlatform.addCustomResponse(new byte[] {0x11, (byte) 0x89},
+                new byte[] {0x11, (byte) 0x89, 0x06, 0x00, 0x09, 0x00, 0x00, 0x00, 0x58, 0x02});
+
+        Task<LinkBudget.Report> task = linkBudget.updateAsync();
+        task.waitForCompletion();
+        return task.getResult();
+    }
+
+    @Test
+    public void capacity() throws InterruptedException {
+        LinkBudget.Report report = readConnParams();
+
+        assertEquals(11.25f, report.connectionInterval, 0.001f);
+        assertEquals(4000f / 11.25f, report.capacity, 0.001f);
+        assertTrue(report.streams.isEmpty());
+    }
+
+    @Test
+    public void streamEstimate() throws Exception {
+        readConnParams();
+        accelerometer.configure().odr(100f).commit();
+        Task<Route> task = accelerometer.acceleration().addRouteAsync(source -> source.stream(null));
+        task.waitForCompletion();
+
+        LinkBudget.Report report = linkBudget.estimate();
+        assertTrue(report.fits());
+        assertEquals(1, report.streams.size());
+        assertEquals(100f, report.notificationRate, 0.001f);
+        // 2 header bytes + 6 data bytes per notification
+        assertEquals(800f, report.bytesPerSecond, 0.001f);
+        assertNull(report.streams.get(0).suggestion);
+    }
+
+    @Test
+    public void sharedProducerCountedOnce() throws Exception {
+        readConnParams();
+        accelerometer.configure().odr(100f).commit();
+        accelerometer.acceleration().addRouteAsync(source -> source.stream(null)).waitForCompletion();
+        accelerometer.acceleration().addRouteAsync(source -> source.split().index(0).stream(null)).waitForCompletion();
+
+        assertEquals(100f, linkBudget.estimate().notificationRate, 0.001f);
+    }
+
+    @Test
+    public void failPolicy() throws Exception {
+        readConnParams();
+        linkBudget.policy(LinkBudget.Policy.FAIL);
+        accelerometer.configure().odr(800f).commit();
+
+        Task<Route> task = accelerometer.acceleration().addRouteAsync(source -> source.stream(null));
+        task.waitForCompletion();
+
+        assertTrue(task.isFaulted());
+        assertTrue(task.getError() instanceof IllegalRouteOperationException);
+        assertTrue(task.getError().getMessage().contains("limit(3)"));
+    }
+
+    @Test
+    public void warnPolicy() throws Exception {
+        readConnParams();
+        accelerometer.configure().odr(800f).commit();
+
+        Task<Route> task = accelerometer.acceleration().addRouteAsync(source -> source.stream(null));
+        task.waitForCompletion();
+
+        assertFalse(task.isFaulted());
+        assertFalse(linkBudget.estimate().fits());
+    }
+
+    @Test
+    public void packedProducerFits() throws Exception {
+        readConnParams();
+        linkBudget.policy(LinkBudget.Policy.FAIL);
+        accelerometer.configure().odr(800f).commit();
+
+        Task<Route> task = accelerometer.packedAcceleration().addRouteAsync(source -> source.stream(null));
+        task.waitForCompletion();
+
+        assertFalse(task.isFaulted());
+        assertEquals(800f / 3f, linkBudget.estimate().notificationRate, 0.001f);
+    }
+
+    @Test
+    public void limitedStreamFits() throws Exception {
+        readConnParams();
+        linkBudget.policy(LinkBudget.Policy.FAIL);
+        accelerometer.configure().odr(800f).commit();
+
+        Task<Route> task = accelerometer.acceleration().addRouteAsync(source -> source.limit(20).stream(null));
+        task.waitForCompletion();
+
+        assertFalse(task.isFaulted());
+        assertEquals(50f, linkBudget.estimate().notificationRate, 0.001f);
+    }
+
+    @Test
+    public void unknownIntervalSkipsCheck() throws Exception {
+        linkBudget.policy(LinkBudget.Policy.FAIL);
+        accelerometer.configure().odr(800f).commit();
+
+        Task<Route> task = accelerometer.acceleration().addRouteAsync(source -> source.stream(null));
+        task.waitForCompletion();
+
+        assertFalse(task.isFaulted());
+    }
+
+    @Test
+    public void sampleRateOverride() throws Exception {
+        linkBudget.connectionInterval(100f);
+        linkBudget.policy(LinkBudget.Policy.FAIL);
+
+        Gpio.Analog adc = mwBoard.getModule(Gpio.class).pin((byte) 0).analogAdc();
+        linkBudget.sampleRate(adc, 50f);
+
+        Task<Route> task = adc.addRouteAsync(source -> source.stream(null));
+        task.waitForCompletion();
+
+        assertTrue(task.isFaulted());
+    }
+
+    @Test
+    public void autoPackSubscribesPacked() throws Exception {
+        linkBudget.autoPack(400f);
+        accelerometer.configure().odr(800f).range(8f).commit();
+        accelerometer.acceleration().addRouteAsync(source -> source.stream(null)).waitForCompletion();
+
+        assertArrayEquals(new byte[] {0x03, 0x1c, 0x01}, junitPlatform.getLastCommand());
+    }
+
+    @Test
+    public void autoPackUnpacksSamples() throws Exception {
+        Acceleration[] expected = new Acceleration[] {
+                new Acceleration(Float.intBitsToFloat(0xc0913c00), Float.intBitsToFloat(0x3f553000), Float.intBitsToFloat(0xbe05c000)),
+                new Acceleration(Float.intBitsToFloat(0xc03fa800), Float.intBitsToFloat(0x3f64d000), Float.intBitsToFloat(0x3e15c000)),
+                new Acceleration(Float.intBitsToFloat(0xbcec0000), Float.intBitsToFloat(0x3eb42000), Float.intBitsToFloat(0x3d850000))
+        };
+        final List<Acceleration> actual = new ArrayList<>();
+
+        linkBudget.autoPack(400f);
+        accelerometer.configure().odr(800f).range(8f).commit();
+        accelerometer.acceleration().addRouteAsync(source -> source.stream((data, env) -> actual.add(data.value(Acceleration.class))))
+                .waitForCompletion();
+        sendMockResponse(new byte[] {0x03, 0x1c, 0x62, (byte) 0xb7, 0x53, 0x0d, (byte) 0xe9, (byte) 0xfd, 0x16, (byte) 0xd0, 0x4d,
+                0x0e, 0x57, 0x02, (byte) 0x8a, (byte) 0xff, (byte) 0xa1, 0x05, 0x0a, 0x01});
+
+        assertArrayEquals(expected, actual.toArray());
+    }
+
+    @Test
+    public void autoPackBelowThreshold() throws Exception {
+        linkBudget.autoPack(400f);
+        accelerometer.configure().odr(200f).commit();
+        accelerometer.acceleration().addRouteAsync(source -> source.stream(null)).waitForCompletion();
+
+        assertArrayEquals(new byte[] {0x03, 0x04, 0x01}, junitPlatform.getLastCommand());
+    }
+
+    @Test
+    public void autoPackSkipsSplits() throws Exception {
+        linkBudget.autoPack(400f);
+        accelerometer.configure().odr(800f).commit();
+        accelerometer.acceleration().addRouteAsync(source -> source.split().index(0).stream(null)).waitForCompletion();
+
+        assertArrayEquals(new byte[] {0x03, 0x04, 0x01}, junitPlatform.getLastCommand());
+    }
+}
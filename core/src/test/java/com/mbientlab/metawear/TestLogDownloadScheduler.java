@@ -0,0 +1,202 @@
+/*
+ * Copyright 2014-2015 MbientLab Inc. All rights reserved.
+ *
+ * IMPORTANT: Your use of this Software is limited to those specific rights granted under the terms of a software
+ * license agreement between the user who downloaded the software, his/her employer (which must be your
+ * employer) and MbientLab Inc, (the "License").  You may not use this Software unless you agree to abide by the
+ * terms of the License which can be found at www.mbientlab.com/terms.  The License limits your use, and you
+ * acknowledge, that the Software may be modified, copied, and distributed when used in conjunction with an
+ * MbientLab Inc, product.  Other than for the foregoing purpose, you may not use, reproduce, copy, prepare
+ * derivative works of, modify, distribute, perform, display or sell this Software and/or its documentation for any
+ * purpose.
+ *
+ * YOU FURTHER ACKNOWLEDGE AND AGREE THAT THE SOFTWARE AND DOCUMENTATION ARE PROVIDED "AS IS" WITHOUT WARRANTY
+ * OF ANY KIND, EITHER EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION, ANY WARRANTY OF MERCHANTABILITY, TITLE,
+ * NON-INFRINGEMENT AND FITNESS FOR A PARTICULAR PURPOSE. IN NO EVENT SHALL MBIENTLAB OR ITS LICENSORS BE LIABLE OR
+ * OBLIGATED UNDER CONTRACT, NEGLIGENCE, STRICT LIABILITY, CONTRIBUTION, BREACH OF WARRANTY, OR OTHER LEGAL EQUITABLE
+ * THEORY ANY DIRECT OR INDIRECT DAMAGES OR EXPENSES INCLUDING BUT NOT LIMITED TO ANY INCIDENTAL, SPECIAL, INDIRECT,
+ * PUNITIVE OR CONSEQUENTIAL DAMAGES, LOST PROFITS OR LOST DATA, COST OF PROCUREMENT OF SUBSTITUTE GOODS, TECHNOLOGY,
+ * SERVICES, OR ANY CLAIMS BY THIRD PARTIES (INCLUDING BUT NOT LIMITED TO ANY DEFENSE THEREOF), OR OTHER SIMILAR COSTS.
+ *
+ * Should you have any questions regarding your right to use this Software, contact MbientLab via email:
+ * hello@mbientlab.com.
+ */
+
+package com.mbientlab.metawear;
+
+import com.mbientlab.metawear.impl.JseMetaWearBoard;
+import com.mbientlab.metawear.impl.platform.BoardManager;
+import com.mbientlab.metawear.impl.platform.InMemoryIO;
+import com.mbientlab.metawear.impl.platform.LogDownloadScheduler;
+import com.mbientlab.metawear.impl.platform.SimulatedBoard;
+import com.mbientlab.metawear.module.Accelerometer;
+import com.mbientlab.metawear.module.Logging;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import bolts.Task;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestLogDownloadScheduler {
+    private BoardManager manager;
+    private final List<SimulatedBoard> simulated = new ArrayList<>();
+
+    private static <T> T await(Task<T> task, long seconds) throws Exception {
+        assertTrue("Task did not complete in time", task.waitForCompletion(seconds, TimeUnit.SECONDS));
+        if (task.isFaulted()) {
+            throw task.getError();
+        }
+        return task.getResult();
+    }
+
+    private JseMetaWearBoard addBoard(String radio) throws Exception {
+        SimulatedBoard gatt = new SimulatedBoard().seed(simulated.size());
+        simulated.add(gatt);
+        JseMetaWearBoard board = manager.add(radio, gatt, new InMemoryIO(), String.format(Locale.US, "CB:B7:49:BF:%02X:%02X", simulated.size() >> 8, simulated.size() & 0xff));
+        await(manager.connectAsync(board), 10);
+        return board;
+    }
+
+    private static void logAcceleration(JseMetaWearBoard board, AtomicInteger samples) throws Exception {
+        Accelerometer accelerometer = board.getModule(Accelerometer.class);
+        accelerometer.configure().odr(100f).commit();
+        await(accelerometer.acceleration().addRouteAsync(source -> source.log((data, env) -> samples.incrementAndGet())), 5);
+
+        board.getModule(Logging.class).start(false);
+        accelerometer.acceleration().start();
+        accelerometer.start();
+    }
+
+    private static void stopLogging(JseMetaWearBoard board) {
+        Accelerometer accelerometer = board.getModule(Accelerometer.class);
+        accelerometer.stop();
+        accelerometer.acceleration().stop();
+        board.getModule(Logging.class).stop();
+    }
+
+    private static Task<Void> record(Task<Void> task, final List<String> order, final String name) {
+        return task.continueWithTask(completed -> {
+            order.add(name);
+            return completed;
+        });
+    }
+
+    @After
+    public void tearDown() {
+        manager.close();
+        for(SimulatedBoard it: simulated) {
+            it.powerOff();
+        }
+    }
+
+    @Test
+    public void largestBacklogFirst() throws Exception {
+        manager = new BoardManager(2, "3.8.2");
+        LogDownloadScheduler scheduler = new LogDownloadScheduler(manager).limit(1).aging(0f);
+
+        JseMetaWearBoard small = addBoard(""), medium = addBoard(""), large = addBoard("");
+        AtomicInteger[] samples = new AtomicInteger[] {new AtomicInteger(), new AtomicInteger(), new AtomicInteger()};
+        logAcceleration(large, samples[2]);
+        Thread.sleep(400L);
+        logAcceleration(medium, samples[1]);
+        Thread.sleep(300L);
+        logAcceleration(small, samples[0]);
+        Thread.sleep(100L);
+        stopLogging(small);
+        stopLogging(medium);
+        stopLogging(large);
+
+        final List<String> order = Collections.synchronizedList(new ArrayList<>());
+        List<Task<Void>> tasks = new ArrayList<>();
+        tasks.add(record(scheduler.downloadAsync(small), order, "small"));
+        tasks.add(record(scheduler.downloadAsync(medium), order, "medium"));
+        tasks.add(record(scheduler.downloadAsync(large), order, "large"));
+        await(Task.whenAll(tasks), 30);
+
+        assertEquals(Arrays.asList("large", "medium", "small"), order);
+        assertTrue(samples[0].get() > 0);
+        assertTrue(samples[1].get() > samples[0].get());
+        assertTrue(samples[2].get() > samples[1].get());
+    }
+
+    @Test
+    public void limitPerRadio() throws Exception {
+        manager = new BoardManager(2, "3.8.2");
+        LogDownloadScheduler scheduler = new LogDownloadScheduler(manager).limit(2);
+
+        int[] maxInFlight = new int[2];
+        List<JseMetaWearBoard> boards = new ArrayList<>();
+        for(int i = 0; i < 8; i++) {
+            JseMetaWearBoard board = addBoard("hci" + (i % 2));
+            logAcceleration(board, new AtomicInteger());
+            boards.add(board);
+        }
+        Thread.sleep(200L);
+        for(JseMetaWearBoard it: boards) {
+            stopLogging(it);
+        }
+
+        List<Task<Void>> tasks = new ArrayList<>();
+        for(JseMetaWearBoard it: boards) {
+            tasks.add(scheduler.downloadAsync(it, (errorType, logId, timestamp, data) -> { }));
+        }
+        Task<Void> all = Task.whenAll(tasks);
+        while(!all.isCompleted()) {
+            for(int radio = 0; radio < 2; radio++) {
+                int running = 0;
+                for(int i = radio; i < boards.size(); i += 2) {
+                    if (boards.get(i).getModule(Logging.class).getDownloadMetrics().active) {
+                        running++;
+                    }
+                }
+                maxInFlight[radio] = Math.max(maxInFlight[radio], running);
+            }
+            Thread.sleep(5L);
+        }
+        await(all, 30);
+
+        for(int it: maxInFlight) {
+            assertTrue("Radio limit exceeded: " + it, it <= 2);
+        }
+        assertTrue(scheduler.pending().isEmpty());
+    }
+
+    @Test
+    public void resumeAfterDisconnect() throws Exception {
+        manager = new BoardManager(2, "3.8.2");
+        LogDownloadScheduler scheduler = new LogDownloadScheduler(manager).limit(1).resume(50L, 3);
+
+        JseMetaWearBoard dropped = addBoard(""), other = addBoard("");
+        AtomicInteger droppedSamples = new AtomicInteger(), otherSamples = new AtomicInteger();
+        logAcceleration(dropped, droppedSamples);
+        logAcceleration(other, otherSamples);
+        Thread.sleep(1000L);
+        stopLogging(dropped);
+        stopLogging(other);
+        int logged = simulated.get(0).logEntryCount();
+
+        final List<String> order = Collections.synchronizedList(new ArrayList<>());
+        Task<Void> droppedTask = record(scheduler.downloadAsync(dropped), order, "dropped");
+        while(droppedSamples.get() == 0) {
+            Thread.sleep(1L);
+        }
+        Task<Void> otherTask = record(scheduler.downloadAsync(other), order, "other");
+        simulated.get(0).dropConnection(8);
+
+        await(Task.whenAll(Arrays.asList(droppedTask, otherTask)), 30);
+        assertEquals(Arrays.asList("other", "dropped"), order);
+        // acceleration takes 2 entries per sample, entries received before the disconnect are not passed on again
+        assertEquals(logged / 2, droppedSamples.get());
+    }
+}
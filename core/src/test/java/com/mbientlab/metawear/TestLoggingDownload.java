@@ -34,12 +34,19 @@ import org.junit.Test;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.util.Calendar;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import bolts.Capture;
 import bolts.Task;
 
-import static junit.framework.TestCase.assertTrue;
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Created by etsai on 9/3/16.
@@ -164,6 +171,131 @@ public class TestLoggingDownload extends UnitTestBase {
         assertArrayEquals(expected, actual);
     }
 
+    @Test
+    public void incompleteEntry() throws InterruptedException {
+        Object[] expected= new Object[] {Logging.DownloadError.INCOMPLETE_LOG_ENTRY, (byte) 0x1, (short) 0x013e, 1};
+        final Object[] actual= new Object[4];
+        final Capture<Integer> received = new Capture<>(0);
+
+        mwBoard.getModule(Accelerometer.class).acceleration().addRouteAsync(source ->
+                source.log((data, env) -> received.set(received.get() + 1))
+        ).waitForCompletion();
+        logging.downloadAsync((errorType, logId, timestamp, data) -> {
+            actual[0]= errorType;
+            actual[1]= logId;
+            actual[2]= ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN).getShort(0);
+            actual[3]= actual[3] == null ? 1 : (int) actual[3] + 1;
+        });
+
+        // the second half of the first sample never arrives, only the first is dropped once the ring fills up
+        for(int i = 0; i < 17; i++) {
+            sendMockResponse(new byte[] {0x0b, 0x07, 0x20, (byte) (0x75 + i), 0x1b, 0x04, 0x00, (byte) (0x3e + i), 0x01, (byte) 0xcd, 0x01});
+        }
+        for(int i = 0; i < 16; i++) {
+            sendMockResponse(new byte[] {0x0b, 0x07, 0x21, (byte) (0x76 + i), 0x1b, 0x04, 0x00, (byte) 0xc0, 0x07, 0x00, 0x00});
+        }
+
+        assertArrayEquals(expected, actual);
+        assertEquals(16, (int) received.get());
+    }
+
+    @Test
+    public void parallelErrorsSerialized() throws Exception {
+        Accelerometer accelerometer = mwBoard.getModule(Accelerometer.class);
+        accelerometer.acceleration().addRouteAsync(source -> source.log(null)).waitForCompletion();
+        accelerometer.acceleration().addRouteAsync(source -> source.log(null)).waitForCompletion();
+
+        final AtomicInteger errors = new AtomicInteger();
+        final AtomicBoolean inHandler = new AtomicBoolean(), overlapped = new AtomicBoolean();
+        ExecutorService decoder = Executors.newFixedThreadPool(4);
+        try {
+            logging.downloadAsync(decoder, 0, null, (errorType, logId, timestamp, data) -> {
+                if (!inHandler.compareAndSet(false, true)) {
+                    overlapped.set(true);
+                }
+                try {
+                    Thread.sleep(1L);
+                } catch (InterruptedException ignored) {
+                }
+                inHandler.set(false);
+                errors.incrementAndGet();
+            });
+
+            // loggers 0 and 2 have no subscriber and are reported from the decoder threads, logger 5 does not exist and
+            // is reported as it is received
+            for(int i = 0; i < 20; i++) {
+                sendMockResponse(new byte[] {0x0b, 0x07, 0x20, (byte) (0x75 + i), 0x1b, 0x04, 0x00, 0x3e, 0x01, (byte) 0xcd, 0x01});
+                sendMockResponse(new byte[] {0x0b, 0x07, 0x22, (byte) (0x75 + i), 0x1b, 0x04, 0x00, 0x3e, 0x01, (byte) 0xcd, 0x01});
+                sendMockResponse(new byte[] {0x0b, 0x07, 0x25, (byte) (0x75 + i), 0x1b, 0x04, 0x00, 0x3e, 0x01, (byte) 0xcd, 0x01});
+            }
+
+            long deadline = System.currentTimeMillis() + 5000L;
+            while(errors.get() < 60 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10L);
+            }
+        } finally {
+            decoder.shutdown();
+        }
+
+        assertEquals(60, errors.get());
+        assertFalse(overlapped.get());
+    }
+
+    @Test
+    public void downloadMetrics() {
+        logging.downloadAsync((errorType, logId, timestamp, data) -> { });
+        sendMockResponse(new byte[] {0x0b, 0x07, (byte) 0xa1, (byte) 0xcc, 0x4d, 0x00, 0x00, 0x6c, 0x01, 0x00, 0x00, (byte) 0xa1, (byte) 0xcd, 0x4d, 0x00, 0x00, 0x6d, 0x01, 0x00, 0x00});
+        sendMockResponse(new byte[] {0x0b, 0x0d});
+        sendMockResponse(new byte[] {0x0b, 0x07, (byte) 0xa1, (byte) 0xce, 0x4d, 0x00, 0x00, 0x6e, 0x01, 0x00, 0x00});
+
+        Logging.DownloadMetrics metrics = logging.getDownloadMetrics();
+        assertTrue(metrics.active);
+        assertEquals(0x019e, metrics.totalEntries);
+        assertEquals(3, metrics.entriesReceived);
+        assertEquals(0x019e - 3, metrics.entriesLeft);
+        assertEquals(27, metrics.bytesReceived);
+        assertEquals(3, metrics.unknownEntries);
+        assertEquals(0, metrics.droppedEntries);
+        assertTrue(metrics.pageConfirmRtt > 0);
+
+        sendMockResponse(new byte[] {0x0b, 0x08, 0x00, 0x00, 0x00, 0x00});
+        metrics = logging.getDownloadMetrics();
+        assertFalse(metrics.active);
+        assertEquals(0, metrics.entriesLeft);
+        assertEquals(0, metrics.eta);
+    }
+
+    @Test
+    public void readEntryCount() throws Exception {
+        Task<Long> task = logging.readEntryCountAsync();
+        task.waitForCompletion();
+
+        assertEquals(0x019e, (long) task.getResult());
+        assertArrayEquals(new byte[] {0x0b, (byte) 0x85}, junitPlatform.getLastCommand());
+    }
+
+    @Test
+    public void lateEntryCountIgnored() throws Exception {
+        junitPlatform.commandHandler = value -> value[0] == 0x0b && value[1] == (byte) 0x85;
+        Task<Long> task = logging.readEntryCountAsync();
+        task.waitForCompletion();
+        assertTrue(task.getError() instanceof TimeoutException);
+
+        junitPlatform.commandHandler = null;
+        sendMockResponse(new byte[] {0x0b, (byte) 0x85, (byte) 0x9e, 0x01, 0x00, 0x00});
+        for(byte[] it: junitPlatform.getCommands()) {
+            assertFalse("Readout started without a download", it[0] == 0x0b && it[1] == 0x06);
+        }
+
+        int start = junitPlatform.getCommands().length;
+        logging.downloadAsync();
+        int nReadouts = 0;
+        for(byte[] it: junitPlatform.getCommands(start)) {
+            nReadouts += it[0] == 0x0b && it[1] == 0x06 ? 1 : 0;
+        }
+        assertEquals(1, nReadouts);
+    }
+
     @Test
     public void handlePastTime() throws InterruptedException {
         final Accelerometer accelerometer = mwBoard.getModule(Accelerometer.class);
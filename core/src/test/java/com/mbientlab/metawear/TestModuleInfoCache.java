@@ -0,0 +1,125 @@
+/*
+ * Copyright 2014-2015 MbientLab Inc. All rights reserved.
+ *
+ * IMPORTANT: Your use of this Software is limited to those specific rights granted under the terms of a software
+ * license agreement between the user who downloaded the software, his/her employer (which must be your
+ * employer) and MbientLab Inc, (the "License").  You may not use this Software unless you agree to abide by the
+ * terms of the License which can be found at www.mbientlab.com/terms.  The License limits your use, and you
+ * acknowledge, that the Software may be modified, copied, and distributed when used in conjunction with an
+ * MbientLab Inc, product.  Other than for the foregoing purpose, you may not use, reproduce, copy, prepare
+ * derivative works of, modify, distribute, perform, display or sell this Software and/or its documentation for any
+ * purpose.
+ *
+ * YOU FURTHER ACKNOWLEDGE AND AGREE THAT THE SOFTWARE AND DOCUMENTATION ARE PROVIDED "AS IS" WITHOUT WARRANTY
+ * OF ANY KIND, EITHER EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION, ANY WARRANTY OF MERCHANTABILITY, TITLE,
+ * NON-INFRINGEMENT AND FITNESS FOR A PARTICULAR PURPOSE. IN NO EVENT SHALL MBIENTLAB OR ITS LICENSORS BE LIABLE OR
+ * OBLIGATED UNDER CONTRACT, NEGLIGENCE, STRICT LIABILITY, CONTRIBUTION, BREACH OF WARRANTY, OR OTHER LEGAL EQUITABLE
+ * THEORY ANY DIRECT OR INDIRECT DAMAGES OR EXPENSES INCLUDING BUT NOT LIMITED TO ANY INCIDENTAL, SPECIAL, INDIRECT,
+ * PUNITIVE OR CONSEQUENTIAL DAMAGES, LOST PROFITS OR LOST DATA, COST OF PROCUREMENT OF SUBSTITUTE GOODS, TECHNOLOGY,
+ * SERVICES, OR ANY CLAIMS BY THIRD PARTIES (INCLUDING BUT NOT LIMITED TO ANY DEFENSE THEREOF), OR OTHER SIMILAR COSTS.
+ *
+ * Should you have any questions regarding your right to use this Software, contact MbientLab via email:
+ * hello@mbientlab.com.
+ */
+
+package com.mbientlab.metawear;
+
+import com.mbientlab.metawear.impl.JseMetaWearBoard;
+import com.mbientlab.metawear.impl.ModuleInfoCache;
+import com.mbientlab.metawear.impl.platform.BtleGattCharacteristic;
+import com.mbientlab.metawear.impl.platform.InMemoryIO;
+import com.mbientlab.metawear.impl.platform.SimulatedBoard;
+import com.mbientlab.metawear.module.Logging;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import bolts.Task;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class TestModuleInfoCache {
+    private static class CountingBoard extends SimulatedBoard {
+        int infoReads;
+
+        @Override
+        public synchronized Task<Void> writeCharacteristicAsync(BtleGattCharacteristic characteristic, WriteType type, byte[] value) {
+            if (value.length == 2 && value[1] == (byte) 0x80) {
+                infoReads++;
+            }
+            return super.writeCharacteristicAsync(characteristic, type, value);
+        }
+    }
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    private final List<SimulatedBoard> simulated = new ArrayList<>();
+
+    private static <T> T await(Task<T> task) throws Exception {
+        assertTrue("Task did not complete in time", task.waitForCompletion(5, TimeUnit.SECONDS));
+        if (task.isFaulted()) {
+            throw task.getError();
+        }
+        return task.getResult();
+    }
+
+    private CountingBoard connect(ModuleInfoCache cache, String firmware) throws Exception {
+        CountingBoard gatt = new CountingBoard();
+        gatt.firmware(firmware);
+        simulated.add(gatt);
+
+        JseMetaWearBoard board = new JseMetaWearBoard(gatt, new InMemoryIO(), String.format(Locale.US, "CB:B7:49:BF:27:%02X", simulated.size()), "3.8.2");
+        board.setModuleInfoCache(cache);
+        await(board.connectAsync());
+        assertEquals(Model.METAMOTION_R, board.getModel());
+        assertNotNull(board.getModule(Logging.class));
+        return gatt;
+    }
+
+    @After
+    public void tearDown() {
+        for(SimulatedBoard it: simulated) {
+            it.powerOff();
+        }
+    }
+
+    @Test
+    public void reuseForSameFirmware() throws Exception {
+        ModuleInfoCache cache = new ModuleInfoCache();
+
+        assertTrue(connect(cache, "1.5.0").infoReads > 1);
+        assertEquals(1, connect(cache, "1.5.0").infoReads);
+    }
+
+    @Test
+    public void discoverForNewFirmware() throws Exception {
+        ModuleInfoCache cache = new ModuleInfoCache();
+
+        int expected = connect(cache, "1.5.0").infoReads;
+        assertEquals(expected, connect(cache, "1.7.2").infoReads);
+    }
+
+    @Test
+    public void restoreFromDisk() throws Exception {
+        connect(new ModuleInfoCache(folder.getRoot()), "1.5.0");
+        assertEquals(1, connect(new ModuleInfoCache(folder.getRoot()), "1.5.0").infoReads);
+    }
+
+    @Test
+    public void clear() throws Exception {
+        ModuleInfoCache cache = new ModuleInfoCache(folder.getRoot());
+        int expected = connect(cache, "1.5.0").infoReads;
+
+        cache.clear();
+        assertEquals(expected, connect(new ModuleInfoCache(folder.getRoot()), "1.5.0").infoReads);
+    }
+}
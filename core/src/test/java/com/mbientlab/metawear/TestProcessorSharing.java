@@ -0,0 +1,109 @@
+/*
+ * Copyright 2014-2015 MbientLab Inc. All rights reserved.
+ *
+ * IMPORTANT: Your use of this Software is limited to those specific rights granted under the terms of a software
+ * license agreement between the user who downloaded the software, his/her employer (which must be your
+ * employer) and MbientLab Inc, (the "License").  You may not use this Software unless you agree to abide by the
+ * terms of the License which can be found at www.mbientlab.com/terms.  The License limits your use, and you
+ * acknowledge, that the Software may be modified, copied, and distributed when used in conjunction with an
+ * MbientLab Inc, product.  Other than for the foregoing purpose, you may not use, reproduce, copy, prepare
+ * derivative works of, modify, distribute, perform, display or sell this Software and/or its documentation for any
+ * purpose.
+ *
+ * YOU FURTHER ACKNOWLEDGE AND AGREE THAT THE SOFTWARE AND DOCUMENTATION ARE PROVIDED "AS IS" WITHOUT WARRANTY
+ * OF ANY KIND, EITHER EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION, ANY WARRANTY OF MERCHANTABILITY, TITLE,
+ * NON-INFRINGEMENT AND FITNESS FOR A PARTICULAR PURPOSE. IN NO EVENT SHALL MBIENTLAB OR ITS LICENSORS BE LIABLE OR
+ * OBLIGATED UNDER CONTRACT, NEGLIGENCE, STRICT LIABILITY, CONTRIBUTION, BREACH OF WARRANTY, OR OTHER LEGAL EQUITABLE
+ * THEORY ANY DIRECT OR INDIRECT DAMAGES OR EXPENSES INCLUDING BUT NOT LIMITED TO ANY INCIDENTAL, SPECIAL, INDIRECT,
+ * PUNITIVE OR CONSEQUENTIAL DAMAGES, LOST PROFITS OR LOST DATA, COST OF PROCUREMENT OF SUBSTITUTE GOODS, TECHNOLOGY,
+ * SERVICES, OR ANY CLAIMS BY THIRD PARTIES (INCLUDING BUT NOT LIMITED TO ANY DEFENSE THEREOF), OR OTHER SIMILAR COSTS.
+ *
+ * Should you have any questions regarding your right to use this Software, contact MbientLab via email:
+ * hello@mbientlab.com.
+ */
+
+package com.mbientlab.metawear;
+
+import com.mbientlab.metawear.builder.RouteComponent;
+import com.mbientlab.metawear.builder.function.Function2;
+import com.mbientlab.metawear.module.Gpio;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import bolts.Task;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class TestProcessorSharing extends UnitTestBase {
+    private Gpio.Analog adc;
+
+    @Before
+    public void setup() throws Exception {
+        junitPlatform.boardInfo= new MetaWearBoardInfo(Gpio.class);
+        connectToBoard();
+
+        adc = mwBoard.getModule(Gpio.class).pin((byte) 0).analogAdc();
+    }
+
+    private Route createRoute(final String name) throws Exception {
+        Task<Route> task = adc.addRouteAsync(source -> {
+            RouteComponent lowpass = source.lowpass((byte) 4);
+            if (name != null) {
+                lowpass.name(name);
+            }
+            lowpass.map(Function2.MULTIPLY, 2).stream(null);
+        });
+        task.waitForCompletion();
+        if (task.isFaulted()) {
+            throw task.getError();
+        }
+        return task.getResult();
+    }
+
+    private List<byte[]> filterCommands(byte register) {
+        List<byte[]> result = new ArrayList<>();
+        for(byte[] it: junitPlatform.getCommands()) {
+            if (it[0] == 0x09 && it[1] == register) {
+                result.add(it);
+            }
+        }
+        return result;
+    }
+
+    @Test
+    public void shareIdenticalChain() throws Exception {
+        createRoute(null);
+        createRoute(null);
+
+        assertEquals(2, filterCommands((byte) 0x02).size());
+    }
+
+    @Test
+    public void removeSharedChain() throws Exception {
+        byte[][] expected = new byte[][] {
+                {0x09, 0x06, 0x00},
+                {0x09, 0x06, 0x01}
+        };
+
+        Route first = createRoute(null), second = createRoute(null);
+
+        first.remove();
+        assertEquals(0, filterCommands((byte) 0x06).size());
+
+        second.remove();
+        assertArrayEquals(expected, filterCommands((byte) 0x06).toArray(new byte[0][]));
+    }
+
+    @Test
+    public void namedNotShared() throws Exception {
+        createRoute(null);
+        createRoute("lowpass");
+
+        assertEquals(4, filterCommands((byte) 0x02).size());
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2014-2015 MbientLab Inc. All rights reserved.
+ *
+ * IMPORTANT: Your use of this Software is limited to those specific rights granted under the terms of a software
+ * license agreement between the user who downloaded the software, his/her employer (which must be your
+ * employer) and MbientLab Inc, (the "License").  You may not use this Software unless you agree to abide by the
+ * terms of the License which can be found at www.mbientlab.com/terms.  The License limits your use, and you
+ * acknowledge, that the Software may be modified, copied, and distributed when used in conjunction with an
+ * MbientLab Inc, product.  Other than for the foregoing purpose, you may not use, reproduce, copy, prepare
+ * derivative works of, modify, distribute, perform, display or sell this Software and/or its documentation for any
+ * purpose.
+ *
+ * YOU FURTHER ACKNOWLEDGE AND AGREE THAT THE SOFTWARE AND DOCUMENTATION ARE PROVIDED "AS IS" WITHOUT WARRANTY
+ * OF ANY KIND, EITHER EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION, ANY WARRANTY OF MERCHANTABILITY, TITLE,
+ * NON-INFRINGEMENT AND FITNESS FOR A PARTICULAR PURPOSE. IN NO EVENT SHALL MBIENTLAB OR ITS LICENSORS BE LIABLE OR
+ * OBLIGATED UNDER CONTRACT, NEGLIGENCE, STRICT LIABILITY, CONTRIBUTION, BREACH OF WARRANTY, OR OTHER LEGAL EQUITABLE
+ * THEORY ANY DIRECT OR INDIRECT DAMAGES OR EXPENSES INCLUDING BUT NOT LIMITED TO ANY INCIDENTAL, SPECIAL, INDIRECT,
+ * PUNITIVE OR CONSEQUENTIAL DAMAGES, LOST PROFITS OR LOST DATA, COST OF PROCUREMENT OF SUBSTITUTE GOODS, TECHNOLOGY,
+ * SERVICES, OR ANY CLAIMS BY THIRD PARTIES (INCLUDING BUT NOT LIMITED TO ANY DEFENSE THEREOF), OR OTHER SIMILAR COSTS.
+ *
+ * Should you have any questions regarding your right to use this Software, contact MbientLab via email:
+ * hello@mbientlab.com.
+ */
+
+package com.mbientlab.metawear;
+
+import com.mbientlab.metawear.impl.JseMetaWearBoard;
+import com.mbientlab.metawear.impl.platform.InMemoryIO;
+import com.mbientlab.metawear.impl.platform.RemoteGattClient;
+import com.mbientlab.metawear.impl.platform.RemoteGattServer;
+import com.mbientlab.metawear.impl.platform.SimulatedBoard;
+import com.mbientlab.metawear.module.Accelerometer;
+import com.mbientlab.metawear.module.AccelerometerBmi160;
+import com.mbientlab.metawear.module.Debug;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import bolts.Task;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class TestRemoteGatt {
+    private final Map<String, SimulatedBoard> boards = new HashMap<>();
+    private RemoteGattServer server;
+    private RemoteGattClient client;
+
+    private static <T> T await(Task<T> task) throws Exception {
+        assertTrue("Task did not complete in time", task.waitForCompletion(5, TimeUnit.SECONDS));
+        if (task.isFaulted()) {
+            throw task.getError();
+        }
+        return task.getResult();
+    }
+
+    @Before
+    public void setup() throws Exception {
+        boards.put("CB:B7:49:BF:27:33", new SimulatedBoard().seed(0).packetsPerEvent(8));
+        boards.put("D5:7B:B9:7D:CE:0E", new SimulatedBoard().seed(1).packetsPerEvent(8));
+
+        server = new RemoteGattServer(boards::get);
+        client = new RemoteGattClient("localhost", server.start(0));
+    }
+
+    @After
+    public void tearDown() {
+        client.close();
+        server.close();
+        for(SimulatedBoard it: boards.values()) {
+            it.powerOff();
+        }
+    }
+
+    private JseMetaWearBoard open(String address) throws Exception {
+        JseMetaWearBoard board = new JseMetaWearBoard(await(client.openAsync(address)), new InMemoryIO(), address, "3.8.2");
+        await(board.connectAsync());
+        return board;
+    }
+
+    @Test
+    public void connect() throws Exception {
+        JseMetaWearBoard board = open("CB:B7:49:BF:27:33");
+
+        assertEquals(Model.METAMOTION_R, board.getModel());
+        assertNotNull(board.getModule(AccelerometerBmi160.class));
+        assertFalse(board.inMetaBootMode());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void unknownBoard() throws Exception {
+        await(client.openAsync("00:00:00:00:00:00"));
+    }
+
+    @Test
+    public void streamMultipleBoards() throws Exception {
+        AtomicInteger[] samples = new AtomicInteger[] { new AtomicInteger(), new AtomicInteger() };
+        Accelerometer[] accelerometers = new Accelerometer[] {
+                open("CB:B7:49:BF:27:33").getModule(Accelerometer.class),
+                open("D5:7B:B9:7D:CE:0E").getModule(Accelerometer.class)
+        };
+
+        for(int i = 0; i < accelerometers.length; i++) {
+            final AtomicInteger counter = samples[i];
+            accelerometers[i].configure().odr(400f).commit();
+            await(accelerometers[i].acceleration().addRouteAsync(source -> source.stream((data, env) -> counter.incrementAndGet())));
+            accelerometers[i].acceleration().start();
+            accelerometers[i].start();
+        }
+
+        Thread.sleep(1000L);
+        for(Accelerometer it: accelerometers) {
+            it.stop();
+        }
+
+        // More than the credit window, the worker must have granted credit to receive everything
+        for(AtomicInteger it: samples) {
+            assertTrue("Expected ~400 samples, received " + it.get(), it.get() >= 300 && it.get() <= 450);
+        }
+        assertEquals(0, server.droppedCount());
+    }
+
+    @Test
+    public void boardDisconnect() throws Exception {
+        JseMetaWearBoard board = open("CB:B7:49:BF:27:33");
+        await(board.getModule(Debug.class).resetAsync());
+
+        assertFalse(board.isConnected());
+    }
+
+    @Test
+    public void workerGone() throws Exception {
+        server.close();
+        server = new RemoteGattServer(boards::get, 16);
+        client = new RemoteGattClient("localhost", server.start(0));
+
+        Accelerometer accelerometer = open("CB:B7:49:BF:27:33").getModule(Accelerometer.class);
+        accelerometer.configure().odr(400f).commit();
+        await(accelerometer.acceleration().addRouteAsync(source -> source.stream(null)));
+        accelerometer.acceleration().start();
+        accelerometer.start();
+
+        client.close();
+        Thread.sleep(500L);
+
+        // the board is disconnected with the session, otherwise its samples fill the queue and are dropped
+        assertEquals(0, server.droppedCount());
+    }
+
+    @Test
+    public void linkLost() throws Exception {
+        final AtomicInteger status = new AtomicInteger();
+        JseMetaWearBoard board = open("CB:B7:49:BF:27:33");
+        board.onUnexpectedDisconnect(status::set);
+
+        server.close();
+        Thread.sleep(200L);
+
+        assertEquals(RemoteGattClient.STATUS_LINK_LOST, status.get());
+    }
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright 2014-2015 MbientLab Inc. All rights reserved.
+ *
+ * IMPORTANT: Your use of this Software is limited to those specific rights granted under the terms of a software
+ * license agreement between the user who downloaded the software, his/her employer (which must be your
+ * employer) and MbientLab Inc, (the "License").  You may not use this Software unless you agree to abide by the
+ * terms of the License which can be found at www.mbientlab.com/terms.  The License limits your use, and you
+ * acknowledge, that the Software may be modified, copied, and distributed when used in conjunction with an
+ * MbientLab Inc, product.  Other than for the foregoing purpose, you may not use, reproduce, copy, prepare
+ * derivative works of, modify, distribute, perform, display or sell this Software and/or its documentation for any
+ * purpose.
+ *
+ * YOU FURTHER ACKNOWLEDGE AND AGREE THAT THE SOFTWARE AND DOCUMENTATION ARE PROVIDED "AS IS" WITHOUT WARRANTY
+ * OF ANY KIND, EITHER EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION, ANY WARRANTY OF MERCHANTABILITY, TITLE,
+ * NON-INFRINGEMENT AND FITNESS FOR A PARTICULAR PURPOSE. IN NO EVENT SHALL MBIENTLAB OR ITS LICENSORS BE LIABLE OR
+ * OBLIGATED UNDER CONTRACT, NEGLIGENCE, STRICT LIABILITY, CONTRIBUTION, BREACH OF WARRANTY, OR OTHER LEGAL EQUITABLE
+ * THEORY ANY DIRECT OR INDIRECT DAMAGES OR EXPENSES INCLUDING BUT NOT LIMITED TO ANY INCIDENTAL, SPECIAL, INDIRECT,
+ * PUNITIVE OR CONSEQUENTIAL DAMAGES, LOST PROFITS OR LOST DATA, COST OF PROCUREMENT OF SUBSTITUTE GOODS, TECHNOLOGY,
+ * SERVICES, OR ANY CLAIMS BY THIRD PARTIES (INCLUDING BUT NOT LIMITED TO ANY DEFENSE THEREOF), OR OTHER SIMILAR COSTS.
+ *
+ * Should you have any questions regarding your right to use this Software, contact MbientLab via email:
+ * hello@mbientlab.com.
+ */
+
+package com.mbientlab.metawear;
+
+import com.mbientlab.metawear.impl.JseMetaWearBoard;
+import com.mbientlab.metawear.impl.platform.InMemoryIO;
+import com.mbientlab.metawear.impl.platform.SimulatedBoard;
+import com.mbientlab.metawear.module.Accelerometer;
+import com.mbientlab.metawear.module.AccelerometerBmi160;
+import com.mbientlab.metawear.module.Debug;
+import com.mbientlab.metawear.module.Gpio;
+import com.mbientlab.metawear.module.GyroBmi160;
+import com.mbientlab.metawear.module.Logging;
+import com.mbientlab.metawear.module.SensorFusionBosch;
+import com.mbientlab.metawear.module.SerialPassthrough;
+import com.mbientlab.metawear.module.Switch;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import bolts.Task;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class TestSimulatedBoard {
+    private SimulatedBoard simulated;
+    private JseMetaWearBoard mwBoard;
+
+    private static <T> T await(Task<T> task) throws Exception {
+        assertTrue("Task did not complete in time", task.waitForCompletion(5, TimeUnit.SECONDS));
+        if (task.isFaulted()) {
+            throw task.getError();
+        }
+        return task.getResult();
+    }
+
+    @Before
+    public void setup() throws Exception {
+        simulated = new SimulatedBoard().seed(0);
+        mwBoard = new JseMetaWearBoard(simulated, new InMemoryIO(), "CB:B7:49:BF:27:33", "3.8.2");
+        await(mwBoard.connectAsync());
+    }
+
+    @After
+    public void tearDown() {
+        simulated.powerOff();
+    }
+
+    @Test
+    public void discoverModules() {
+        assertEquals(Model.METAMOTION_R, mwBoard.getModel());
+        assertNotNull(mwBoard.getModule(AccelerometerBmi160.class));
+        assertNotNull(mwBoard.getModule(SensorFusionBosch.class));
+        assertNotNull(mwBoard.getModule(Logging.class));
+        assertNotNull(mwBoard.getModule(Gpio.class));
+        assertNotNull(mwBoard.getModule(SerialPassthrough.class));
+    }
+
+    @Test
+    public void streamAtOdr() throws Exception {
+        final AtomicInteger samples = new AtomicInteger();
+        Accelerometer accelerometer = mwBoard.getModule(Accelerometer.class);
+        accelerometer.configure().odr(50f).commit();
+        await(accelerometer.acceleration().addRouteAsync(source -> source.stream((data, env) -> samples.incrementAndGet())));
+        accelerometer.acceleration().start();
+        accelerometer.start();
+
+        Thread.sleep(1000L);
+        accelerometer.stop();
+
+        assertTrue("Expected ~50 samples, received " + samples.get(), samples.get() >= 35 && samples.get() <= 60);
+        assertEquals(0, simulated.droppedCount());
+    }
+
+    @Test
+    public void dropWhenLinkSaturated() throws Exception {
+        simulated.packetsPerEvent(1).txBufferSize(8);
+
+        Accelerometer accelerometer = mwBoard.getModule(Accelerometer.class);
+        accelerometer.configure().odr(800f).commit();
+        await(accelerometer.acceleration().addRouteAsync(source -> source.stream((data, env) -> { })));
+        accelerometer.acceleration().start();
+        accelerometer.start();
+
+        Thread.sleep(500L);
+        accelerometer.stop();
+
+        assertTrue(simulated.droppedCount() > 0);
+    }
+
+    @Test
+    public void logAndDownload() throws Exception {
+        final AtomicInteger samples = new AtomicInteger();
+        Logging logging = mwBoard.getModule(Logging.class);
+        Accelerometer accelerometer = mwBoard.getModule(Accelerometer.class);
+        accelerometer.configure().odr(100f).commit();
+        await(accelerometer.acceleration().addRouteAsync(source -> source.log((data, env) -> samples.incrementAndGet())));
+
+        logging.start(false);
+        accelerometer.acceleration().start();
+        accelerometer.start();
+        Thread.sleep(500L);
+        accelerometer.stop();
+        accelerometer.acceleration().stop();
+        logging.stop();
+
+        await(logging.downloadAsync());
+
+        assertTrue("Expected ~50 logged samples, received " + samples.get(), samples.get() >= 35 && samples.get() <= 60);
+    }
+
+    @Test
+    public void logAndDownloadInParallel() throws Exception {
+        final AtomicInteger accSamples = new AtomicInteger(), gyroSamples = new AtomicInteger();
+        final AtomicBoolean outOfOrder = new AtomicBoolean();
+        final long[] last = new long[2];
+        Logging logging = mwBoard.getModule(Logging.class);
+        Accelerometer accelerometer = mwBoard.getModule(Accelerometer.class);
+        GyroBmi160 gyro = mwBoard.getModule(GyroBmi160.class);
+        accelerometer.configure().odr(100f).commit();
+        gyro.configure().odr(GyroBmi160.OutputDataRate.ODR_100_HZ).commit();
+        await(accelerometer.acceleration().addRouteAsync(source -> source.log((data, env) -> {
+            outOfOrder.compareAndSet(false, data.timestamp().getTimeInMillis() < last[0]);
+            last[0] = data.timestamp().getTimeInMillis();
+            accSamples.incrementAndGet();
+        })));
+        await(gyro.angularVelocity().addRouteAsync(source -> source.log((data, env) -> {
+            outOfOrder.compareAndSet(false, data.timestamp().getTimeInMillis() < last[1]);
+            last[1] = data.timestamp().getTimeInMillis();
+            gyroSamples.incrementAndGet();
+        })));
+
+        logging.start(false);
+        accelerometer.acceleration().start();
+        accelerometer.start();
+        gyro.angularVelocity().start();
+        gyro.start();
+        Thread.sleep(500L);
+        gyro.stop();
+        gyro.angularVelocity().stop();
+        accelerometer.stop();
+        accelerometer.acceleration().stop();
+        logging.stop();
+
+        ExecutorService decoder = Executors.newFixedThreadPool(4);
+        try {
+            await(logging.downloadAsync(decoder, 0, null, null));
+            int accReceived = accSamples.get(), gyroReceived = gyroSamples.get();
+
+            assertTrue("Expected ~50 logged acc samples, received " + accReceived, accReceived >= 35 && accReceived <= 60);
+            assertTrue("Expected ~50 logged gyro samples, received " + gyroReceived, gyroReceived >= 35 && gyroReceived <= 60);
+            assertFalse(outOfOrder.get());
+
+            // download task only completes after every entry is delivered
+            Thread.sleep(100L);
+            assertEquals(accReceived, accSamples.get());
+            assertEquals(gyroReceived, gyroSamples.get());
+        } finally {
+            decoder.shutdown();
+        }
+    }
+
+    private String serializedState() throws Exception {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        mwBoard.serialize(buffer);
+        return new String(buffer.toByteArray(), StandardCharsets.ISO_8859_1);
+    }
+
+    @Test
+    public void modulesCreatedOnFirstUse() throws Exception {
+        assertFalse(serializedState().contains(GyroBmi160.class.getSimpleName()));
+        assertNotNull(mwBoard.getModule(GyroBmi160.class));
+        assertTrue(serializedState().contains(GyroBmi160.class.getSimpleName()));
+    }
+
+    @Test
+    public void modulesCreatedAfterRestore() throws Exception {
+        mwBoard.getModule(Accelerometer.class).configure().odr(50f).commit();
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        mwBoard.serialize(buffer);
+
+        JseMetaWearBoard restored = new JseMetaWearBoard(simulated, new InMemoryIO(), "CB:B7:49:BF:27:33", "3.8.2");
+        restored.deserialize(new ByteArrayInputStream(buffer.toByteArray()));
+
+        assertEquals(50f, restored.getModule(Accelerometer.class).getOdr(), 0.5f);
+        assertNotNull(restored.getModule(GyroBmi160.class));
+        assertNotNull(restored.getModule(SensorFusionBosch.class));
+    }
+
+    @Test
+    public void immediateWrites() throws Exception {
+        simulated.immediateWrites(true);
+        Switch mwSwitch = mwBoard.getModule(Switch.class);
+
+        final int nRoutes = 20;
+        long start = System.nanoTime();
+        for(int i = 0; i < nRoutes; i++) {
+            await(mwSwitch.state().addRouteAsync(source -> source.count().stream(null)));
+        }
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // each route needs at least one round trip, which takes a connection event when writes are not immediate
+        assertTrue("Creating routes took " + elapsed + "ms", elapsed < nRoutes * simulated.connectionInterval());
+    }
+
+    @Test
+    public void resetDisconnects() throws Exception {
+        await(mwBoard.getModule(Debug.class).resetAsync());
+        assertTrue(!mwBoard.isConnected());
+    }
+}
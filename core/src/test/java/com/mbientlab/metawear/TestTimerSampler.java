@@ -0,0 +1,161 @@
+/*
+ * Copyright 2014-2015 MbientLab Inc. All rights reserved.
+ *
+ * IMPORTANT: Your use of this Software is limited to those specific rights granted under the terms of a software
+ * license agreement between the user who downloaded the software, his/her employer (which must be your
+ * employer) and MbientLab Inc, (the "License").  You may not use this Software unless you agree to abide by the
+ * terms of the License which can be found at www.mbientlab.com/terms.  The License limits your use, and you
+ * acknowledge, that the Software may be modified, copied, and distributed when used in conjunction with an
+ * MbientLab Inc, product.  Other than for the foregoing purpose, you may not use, reproduce, copy, prepare
+ * derivative works of, modify, distribute, perform, display or sell this Software and/or its documentation for any
+ * purpose.
+ *
+ * YOU FURTHER ACKNOWLEDGE AND AGREE THAT THE SOFTWARE AND DOCUMENTATION ARE PROVIDED "AS IS" WITHOUT WARRANTY
+ * OF ANY KIND, EITHER EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION, ANY WARRANTY OF MERCHANTABILITY, TITLE,
+ * NON-INFRINGEMENT AND FITNESS FOR A PARTICULAR PURPOSE. IN NO EVENT SHALL MBIENTLAB OR ITS LICENSORS BE LIABLE OR
+ * OBLIGATED UNDER CONTRACT, NEGLIGENCE, STRICT LIABILITY, CONTRIBUTION, BREACH OF WARRANTY, OR OTHER LEGAL EQUITABLE
+ * THEORY ANY DIRECT OR INDIRECT DAMAGES OR EXPENSES INCLUDING BUT NOT LIMITED TO ANY INCIDENTAL, SPECIAL, INDIRECT,
+ * PUNITIVE OR CONSEQUENTIAL DAMAGES, LOST PROFITS OR LOST DATA, COST OF PROCUREMENT OF SUBSTITUTE GOODS, TECHNOLOGY,
+ * SERVICES, OR ANY CLAIMS BY THIRD PARTIES (INCLUDING BUT NOT LIMITED TO ANY DEFENSE THEREOF), OR OTHER SIMILAR COSTS.
+ *
+ * Should you have any questions regarding your right to use this Software, contact MbientLab via email:
+ * hello@mbientlab.com.
+ */
+
+package com.mbientlab.metawear;
+
+import com.mbientlab.metawear.module.Gpio;
+import com.mbientlab.metawear.module.Timer;
+import com.mbientlab.metawear.module.Timer.Sampler;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+
+import bolts.Capture;
+import bolts.Task;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TestTimerSampler extends UnitTestBase {
+    private ForcedDataProducer absRef0, adc0, absRef1;
+    private Sampler sampler;
+    private final List<Object> sources = new ArrayList<>();
+
+    @Before
+    public void setup() throws Exception {
+        junitPlatform.boardInfo= new MetaWearBoardInfo(Gpio.class, Timer.class);
+        connectToBoard();
+
+        Gpio gpio = mwBoard.getModule(Gpio.class);
+        absRef0 = gpio.pin((byte) 0).analogAbsRef();
+        adc0 = gpio.pin((byte) 0).analogAdc();
+        absRef1 = gpio.pin((byte) 1).analogAbsRef();
+
+        Task<Sampler> task = mwBoard.getModule(Timer.class).sampler()
+                .sample(absRef0, 10f)
+                .sample(adc0, 10f)
+                .sample(absRef1, 25f)
+                .commitAsync((data, env) -> sources.add(env[0]));
+        task.waitForCompletion();
+        if (task.isFaulted()) {
+            throw task.getError();
+        }
+        sampler = task.getResult();
+    }
+
+    @Test
+    public void oneTimerPerRate() {
+        byte[][] expected= new byte[][] {
+                {0x0c, 0x02, 0x64, 0x00, 0x00, 0x00, (byte) 0xff, (byte) 0xff, 0x01},
+                {0x0c, 0x02, 0x28, 0x00, 0x00, 0x00, (byte) 0xff, (byte) 0xff, 0x01}
+        };
+
+        List<byte[]> actual = new ArrayList<>();
+        for(byte[] it: junitPlatform.getCommands()) {
+            if (it[0] == 0x0c && it[1] == 0x02) {
+                actual.add(it);
+            }
+        }
+
+        assertArrayEquals(expected, actual.toArray(new byte[0][]));
+        assertEquals(2, sampler.scheduledTasks().length);
+        assertEquals(3, sampler.routes().length);
+    }
+
+    @Test
+    public void start() {
+        byte[][] expected= new byte[][] {
+                {0x0c, 0x03, 0x0},
+                {0x0c, 0x03, 0x1}
+        };
+
+        sampler.start();
+        assertArrayEquals(expected, junitPlatform.getLastCommands(2));
+    }
+
+    @Test
+    public void environment() {
+        sendMockResponse(new byte[] {0x05, (byte) 0x86, 0x01, (byte) 0xa4, 0x06});
+        sendMockResponse(new byte[] {0x05, (byte) 0x87, 0x00, 0x3e, 0x01});
+        sendMockResponse(new byte[] {0x05, (byte) 0x86, 0x00, (byte) 0xa4, 0x06});
+
+        assertEquals(3, sources.size());
+        assertSame(absRef1, sources.get(0));
+        assertSame(adc0, sources.get(1));
+        assertSame(absRef0, sources.get(2));
+    }
+
+    @Test
+    public void remove() {
+        sampler.remove();
+        assertFalse(sampler.isActive());
+    }
+
+    @Test
+    public void rollbackOnFailure() throws InterruptedException {
+        final Capture<Exception> actual= new Capture<>();
+        // room for one more timer so the first rate is created before the second one fails
+        junitPlatform.maxTimers= 3;
+        int start = junitPlatform.getCommands().length;
+
+        mwBoard.getModule(Timer.class).sampler()
+                .sample(absRef0, 50f)
+                .sample(adc0, 100f)
+                .commitAsync((data, env) -> { })
+                .continueWith(task -> {
+                    actual.set(task.getError());
+                    return null;
+                }).waitForCompletion();
+
+        assertTrue(actual.get() instanceof TimeoutException);
+        assertTrue(sampler.isActive());
+
+        List<byte[]> removed = new ArrayList<>();
+        for(byte[] it: junitPlatform.getCommands(start)) {
+            if ((it[0] == 0x0c && it[1] == 0x05) || (it[0] == 0x0a && it[1] == 0x04)) {
+                removed.add(it);
+            }
+        }
+        byte[][] expected = new byte[][] {
+                {0x0c, 0x05, 0x02},
+                {0x0a, 0x04, 0x03}
+        };
+        assertArrayEquals(expected, removed.toArray(new byte[0][]));
+
+        assertNull(mwBoard.getModule(Timer.class).lookupScheduledTask((byte) 2));
+        assertNull(mwBoard.lookupRoute(3));
+        assertNull(mwBoard.lookupRoute(4));
+        for(Route it: sampler.routes()) {
+            assertSame(it, mwBoard.lookupRoute(it.id()));
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.mbientlab.metawear.impl.platform;
+
+import com.mbientlab.metawear.impl.platform.RemoteGattProtocol.Frame;
+import com.mbientlab.metawear.impl.platform.RemoteGattProtocol.FrameHandler;
+import com.mbientlab.metawear.impl.platform.RemoteGattProtocol.Link;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestRemoteGattLink {
+    private static final int N_FRAMES = 2000;
+
+    private ServerSocket server;
+
+    @After
+    public void tearDown() throws Exception {
+        server.close();
+    }
+
+    @Test
+    public void closeSendsQueuedFrames() throws Exception {
+        server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+
+        final List<Integer> received = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch remoteClosed = new CountDownLatch(1);
+        Thread acceptor = new Thread(() -> {
+            try {
+                new Link(server.accept(), new FrameHandler() {
+                    @Override
+                    public void onFrame(byte type, ByteBuffer body) {
+                        received.add(body.getInt());
+                    }
+
+                    @Override
+                    public void onClose(Exception error) {
+                        remoteClosed.countDown();
+                    }
+                }, "server").start();
+            } catch (Exception ignored) {
+            }
+        });
+        acceptor.start();
+
+        Link client = new Link(new Socket(server.getInetAddress(), server.getLocalPort()), new FrameHandler() {
+            @Override
+            public void onFrame(byte type, ByteBuffer body) {
+            }
+
+            @Override
+            public void onClose(Exception error) {
+            }
+        }, "client").start();
+        for(int i = 0; i < N_FRAMES; i++) {
+            final int value = i;
+            if ((i & 1) == 0) {
+                client.send(new Frame(RemoteGattProtocol.CREDIT).putInt(value).build());
+            } else {
+                client.send(() -> new Frame(RemoteGattProtocol.CREDIT).putInt(value).build());
+            }
+        }
+        client.close();
+
+        assertTrue(remoteClosed.await(10, TimeUnit.SECONDS));
+        assertEquals(N_FRAMES, received.size());
+        for(int i = 0; i < N_FRAMES; i++) {
+            assertEquals(Integer.valueOf(i), received.get(i));
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.mbientlab.metawear.impl.platform;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static junit.framework.TestCase.assertEquals;
+
+public class TestRttEstimator {
+    private RttEstimator estimator;
+
+    @Before
+    public void setup() {
+        estimator = new RttEstimator(1000L, 250L, 8000L);
+    }
+
+    @Test
+    public void initialTimeout() {
+        assertEquals(1000L, estimator.timeout());
+        assertEquals(-1.0, estimator.smoothedRtt());
+    }
+
+    @Test
+    public void firstSample() {
+        estimator.addSample(100L);
+
+        assertEquals(100.0, estimator.smoothedRtt());
+        assertEquals(50.0, estimator.rttVariation());
+        assertEquals(300L, estimator.timeout());
+    }
+
+    @Test
+    public void lowerBound() {
+        for(int i = 0; i < 32; i++) {
+            estimator.addSample(10L);
+        }
+
+        assertEquals(250L, estimator.timeout());
+    }
+
+    @Test
+    public void backoff() {
+        estimator.backoff();
+        assertEquals(2000L, estimator.timeout());
+
+        for(int i = 0; i < 4; i++) {
+            estimator.backoff();
+        }
+        assertEquals(8000L, estimator.timeout());
+    }
+
+    @Test
+    public void reset() {
+        estimator.addSample(100L);
+        estimator.reset();
+
+        assertEquals(1000L, estimator.timeout());
+    }
+}
@@ -0,0 +1,93 @@
+package com.mbientlab.metawear.impl.platform;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import bolts.Task;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TestTimedTask {
+    private RttEstimator estimator;
+    private TimedTask<Integer> timedTask;
+
+    @Before
+    public void setup() {
+        estimator = new RttEstimator(50L, 10L, 1000L);
+        timedTask = new TimedTask<>();
+    }
+
+    @Test
+    public void retransmitOnTimeout() throws InterruptedException {
+        final AtomicInteger attempts = new AtomicInteger();
+        Task<Integer> task = timedTask.execute("Did not receive response within %dms", estimator, 2, attempts::incrementAndGet);
+
+        assertTrue(task.waitForCompletion(5, TimeUnit.SECONDS));
+        assertTrue(task.getError() instanceof TimeoutException);
+        assertEquals(3, attempts.get());
+        assertEquals(400L, estimator.timeout());
+    }
+
+    @Test
+    public void noSampleFromRetransmit() throws InterruptedException {
+        final AtomicInteger attempts = new AtomicInteger();
+        Task<Integer> task = timedTask.execute("Did not receive response within %dms", estimator, 2, () -> {
+            if (attempts.incrementAndGet() == 2) {
+                timedTask.setResult(2);
+            }
+        });
+
+        assertTrue(task.waitForCompletion(5, TimeUnit.SECONDS));
+        assertEquals(Integer.valueOf(2), task.getResult());
+        assertEquals(-1.0, estimator.smoothedRtt(), 0.0);
+        assertEquals(100L, estimator.timeout());
+    }
+
+    @Test
+    public void sampleFromFirstAttempt() throws InterruptedException {
+        Task<Integer> task = timedTask.execute("Did not receive response within %dms", estimator, 2, () -> timedTask.setResult(1));
+
+        assertTrue(task.waitForCompletion(5, TimeUnit.SECONDS));
+        assertEquals(Integer.valueOf(1), task.getResult());
+        assertTrue(estimator.smoothedRtt() >= 0.0);
+    }
+
+    @Test
+    public void minTimeout() throws InterruptedException {
+        for(int i = 0; i < 32; i++) {
+            estimator.addSample(1L);
+        }
+        assertEquals(10L, estimator.timeout());
+
+        final AtomicInteger attempts = new AtomicInteger();
+        Task<Integer> task = timedTask.execute("Did not receive response within %dms", 500L, estimator, () -> {
+            attempts.incrementAndGet();
+            Task.delay(100L).continueWith(ignored -> {
+                timedTask.setResult(3);
+                return null;
+            });
+        });
+
+        assertTrue(task.waitForCompletion(5, TimeUnit.SECONDS));
+        assertFalse(task.isFaulted());
+        assertEquals(Integer.valueOf(3), task.getResult());
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    public void minTimeoutNotRetried() throws InterruptedException {
+        final AtomicInteger attempts = new AtomicInteger();
+        Task<Integer> task = timedTask.execute("Did not receive response within %dms", 100L, estimator, attempts::incrementAndGet);
+
+        assertTrue(task.waitForCompletion(5, TimeUnit.SECONDS));
+        assertTrue(task.getError() instanceof TimeoutException);
+        assertEquals("Did not receive response within 100ms", task.getError().getMessage());
+        assertEquals(1, attempts.get());
+    }
+}
@@ -45,6 +45,7 @@ import com.mbientlab.metawear.impl.JseMetaWearBoard;
 import com.mbientlab.metawear.impl.platform.BtleGatt;
 import com.mbientlab.metawear.impl.platform.BtleGattCharacteristic;
 import com.mbientlab.metawear.impl.platform.IO;
+import com.mbientlab.metawear.impl.platform.RttEstimator;
 import com.mbientlab.metawear.impl.platform.TimedTask;
 
 import java.io.ByteArrayInputStream;
@@ -105,7 +106,7 @@ public class BtleService extends Service {
     private void executeGattOperation(boolean ready) {
         if (!pendingGattOps.isEmpty() && (pendingGattOps.size() == 1 || ready)) {
             GattOp next = pendingGattOps.peek();
-            gattOpTask.execute(next.msg, 1000, next.task).continueWith(task -> {
+            gattOpTask.execute(next.msg, next.owner.gattOpRtt, next.task).continueWith(task -> {
                 if (task.isFaulted()) {
                     next.taskSource.setError(task.getError());
                 } else if (task.isCancelled()) {
@@ -203,6 +204,9 @@ public class BtleService extends Service {
         private final AtomicInteger nGattOps = new AtomicInteger();
 
         private final TimedTask<Void> connectTask = new TimedTask<>();
+        // A timed out op is not cancelled and BluetoothGatt rejects new ops until it finishes, so never drop below the
+        // original fixed timeout
+        private final RttEstimator gattOpRtt = new RttEstimator(1000L, 1000L, 8000L);
         private TaskCompletionSource<Void> disconnectTaskSrc = null;
         BluetoothGatt androidBtGatt;
 
@@ -218,6 +222,7 @@ public class BtleService extends Service {
 
         void disconnected(int status) {
             closeGatt();
+            gattOpRtt.reset();
 
             if (!connectTask.isCompleted() && status != 0) {
                 connectTask.setError(new IllegalStateException(String.format(Locale.US, "Non-zero onConnectionStateChange status (%s)", status)));